@@ -0,0 +1,217 @@
+/*
+ * Mocks.java - Mocks Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.bench;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Just enough of the servlet container for the benchmarks to drive the
+ * servlets directly. The mocks are dynamic proxies, so they only answer the
+ * calls the servlets make and default everything else, which keeps them
+ * compiling against any Servlet 3.x API jar.
+ */
+public class Mocks
+{
+    /** Returns a context serving real paths from root, with the given init parameters. */
+    public static ServletContext context(final File root, final Map<String, String> params)
+    {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        
+        return proxy(ServletContext.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("getInitParameter"))
+                    return params.get(args[0]);
+                else if(name.equals("getInitParameterNames"))
+                    return Collections.enumeration(params.keySet());
+                else if(name.equals("getAttribute"))
+                    return attributes.get(args[0]);
+                else if(name.equals("setAttribute"))
+                    attributes.put((String)args[0], args[1]);
+                else if(name.equals("removeAttribute"))
+                    attributes.remove(args[0]);
+                else if(name.equals("getAttributeNames"))
+                    return Collections.enumeration(new ArrayList<String>(attributes.keySet()));
+                else if(name.equals("getRealPath"))
+                    return new File(root, (String)args[0]).getPath();
+                else if(name.equals("getResourceAsStream"))
+                {
+                    try
+                    {
+                        return new FileInputStream(new File(root, (String)args[0]));
+                    }
+                    catch (FileNotFoundException e){ return null; }
+                }
+                else if(name.equals("getMajorVersion"))
+                    return Integer.valueOf(3);
+                else
+                    return standard(proxy, method, args);
+                return null;
+            }
+        });
+    }
+    
+    /** Returns the config a servlet is initialised with. */
+    public static ServletConfig config(final ServletContext context, final String servletName)
+    {
+        return proxy(ServletConfig.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("getServletContext"))
+                    return context;
+                else if(name.equals("getServletName"))
+                    return servletName;
+                else if(name.equals("getInitParameterNames"))
+                    return Collections.enumeration(Collections.<String>emptyList());
+                return standard(proxy, method, args);
+            }
+        });
+    }
+    
+    /** Returns a request with the given method and query parameters. */
+    public static HttpServletRequest request(final String httpMethod, final Map<String, String> params)
+    {
+        return proxy(HttpServletRequest.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("getMethod"))
+                    return httpMethod;
+                else if(name.equals("getParameter"))
+                    return params.get(args[0]);
+                else if(name.equals("getParameterNames"))
+                    return Collections.enumeration(params.keySet());
+                else if(name.equals("getDateHeader"))
+                    return Long.valueOf(-1);
+                else if(name.equals("getIntHeader"))
+                    return Integer.valueOf(-1);
+                else if(name.equals("getRemoteAddr"))
+                    return "127.0.0.1";
+                else if(name.equals("getProtocol"))
+                    return "HTTP/1.1";
+                return standard(proxy, method, args);
+            }
+        });
+    }
+    
+    /** Returns a map of query parameters from alternating names and values. */
+    public static Map<String, String> params(String... pairs)
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        for(int i = 0; i + 1 < pairs.length; i += 2)
+            params.put(pairs[i], pairs[i + 1]);
+        return params;
+    }
+    
+    /**
+     * A response whose body is counted and dropped. One instance is reused
+     * across invocations; call {@link #reset()} between them.
+     */
+    public static class Response
+    {
+        private final Sink sink = new Sink();
+        private PrintWriter writer;
+        private int status = HttpServletResponse.SC_OK;
+        
+        public final HttpServletResponse proxy = Mocks.proxy(HttpServletResponse.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args) throws IOException
+            {
+                String name = method.getName();
+                
+                if(name.equals("getOutputStream"))
+                    return sink;
+                else if(name.equals("getWriter"))
+                {
+                    if(writer == null)
+                        writer = new PrintWriter(new OutputStreamWriter(sink, "UTF-8"));
+                    return writer;
+                }
+                else if(name.equals("setStatus") || name.equals("sendError"))
+                    status = ((Integer)args[0]).intValue();
+                else if(name.equals("getStatus"))
+                    return Integer.valueOf(status);
+                else if(name.equals("isCommitted"))
+                    return Boolean.FALSE;
+                else if(name.equals("getCharacterEncoding"))
+                    return "UTF-8";
+                else
+                    return standard(proxy, method, args);
+                return null;
+            }
+        });
+        
+        /** Prepares for the next request, returning the bytes written by the last one. */
+        public long reset()
+        {
+            if(writer != null)
+                writer.flush();
+            writer = null;
+            status = HttpServletResponse.SC_OK;
+            
+            long written = sink.count;
+            sink.count = 0;
+            return written;
+        }
+        
+        public int getStatus(){ return status; }
+    }
+    
+    private static class Sink extends ServletOutputStream
+    {
+        long count;
+        
+        public void write(int b){ count++; }
+        
+        public void write(byte[] b, int off, int len){ count += len; }
+        
+        public void close(){}
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler)
+    {
+        return (T)Proxy.newProxyInstance(Mocks.class.getClassLoader(), new Class[]{ type }, handler);
+    }
+    
+    /** Answers the Object methods, and a zero value of the right type for anything else. */
+    private static Object standard(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+        
+        if(name.equals("equals"))
+            return Boolean.valueOf(proxy == args[0]);
+        else if(name.equals("hashCode"))
+            return Integer.valueOf(System.identityHashCode(proxy));
+        else if(name.equals("toString"))
+            return "mock " + method.getDeclaringClass().getSimpleName();
+        
+        Class<?> type = method.getReturnType();
+        if(type == boolean.class)
+            return Boolean.FALSE;
+        else if(type == int.class)
+            return Integer.valueOf(0);
+        else if(type == long.class)
+            return Long.valueOf(0);
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * ParserBench.java - ParserBench Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.bench;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.openjdk.jmh.annotations.*;
+
+import cseGame.MapHandler;
+import cseGame.SpriteLoader;
+
+/**
+ * Parses synthetic GameData files from 20x20 up to 2000x2000 tiles with the
+ * handlers the servlets use on a cache miss: MapHandler in both modes, and
+ * SpriteXMLReader through SpriteLoader. The sprite file grows with the map
+ * size so both ends are covered by the one parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBench
+{
+    /** Width and height of the synthetic map, in tiles. */
+    @Param({ "20", "200", "2000" })
+    public int size;
+    
+    /** Fraction of tiles carrying an object. */
+    @Param({ "0.01" })
+    public double density;
+    
+    private File dir, map, sprites;
+    private SAXParserFactory factory;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        dir = SyntheticData.tempDir("cseGame-bench");
+        map = SyntheticData.writeMap(dir, "map0001", size, density);
+        sprites = SyntheticData.writeSprites(dir, Math.max(16, size / 4));
+        factory = SAXParserFactory.newInstance();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        SyntheticData.delete(dir);
+    }
+    
+    @Benchmark
+    public String mapHandlerLoadMap() throws Exception
+    {
+        return parse(map, MapHandler.LOAD_MAP);
+    }
+    
+    @Benchmark
+    public String mapHandlerLoadSprites() throws Exception
+    {
+        return parse(sprites, MapHandler.LOAD_SPRITES);
+    }
+    
+    @Benchmark
+    public String spriteXMLReader()
+    {
+        return new SpriteLoader(sprites.getPath()).toString();
+    }
+    
+    /** Runs MapHandler the way game does when its cache misses. */
+    private String parse(File source, int action) throws Exception
+    {
+        MapHandler handler = new MapHandler(action);
+        SAXParser parser = factory.newSAXParser();
+        
+        InputStream in = new BufferedInputStream(new FileInputStream(source));
+        try
+        {
+            parser.parse(in, handler);
+        }
+        finally { in.close(); }
+        
+        return handler.toString();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * ServletBench.java - ServletBench Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.bench;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.*;
+
+import cseGame.game;
+import cseGame.objectQuery;
+import cseGame.chat.chat;
+import cseGame.db.ConnectionPool;
+
+/**
+ * Drives the game, objectQuery and chat servlets end to end through mock
+ * requests and responses, with an in-memory HSQLDB in place of the object
+ * and chat databases. Requests are built once in setup so the allocation
+ * rate reported by the gc profiler is the servlets' own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServletBench
+{
+    private static final String OBJECT_DB = "jdbc:hsqldb:mem:benchObjects";
+    private static final String CHAT_DB = "jdbc:hsqldb:mem:benchChat";
+    
+    /** Rows in each object table. */
+    private static final int ROWS = 1024;
+    
+    /** Width and height of the synthetic map objectQuery resolves by name. */
+    @Param({ "20", "2000" })
+    public int size;
+    
+    private File root;
+    private ServletContext context;
+    private HttpServlet game, objectQuery, chat;
+    private Mocks.Response response;
+    
+    private HttpServletRequest gameSprites, objectBatch, objectMap, chatPost, chatRead;
+    private HttpServletRequest[] objectSingle;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        root = SyntheticData.tempDir("cseGame-bench");
+        File data = new File(root, "GameData");
+        data.mkdirs();
+        SyntheticData.writeMap(data, "map0001", size, 0.01);
+        SyntheticData.writeSprites(data, 64);
+        
+        SyntheticData.createObjectDatabase(OBJECT_DB, ROWS);
+        SyntheticData.createChatDatabase(CHAT_DB);
+        
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("cseGame.db.xdb.url", OBJECT_DB);
+        params.put("cseGame.db.xdb.user", "sa");
+        params.put("cseGame.db.xdb.password", "");
+        params.put("cseGame.db.chat.url", CHAT_DB);
+        params.put("cseGame.db.chat.user", "sa");
+        params.put("cseGame.db.chat.password", "");
+        context = Mocks.context(root, params);
+        
+        game = start(new game(), "game");
+        objectQuery = start(new objectQuery(), "objectQuery");
+        chat = start(new chat(), "chat");
+        response = new Mocks.Response();
+        
+        gameSprites = Mocks.request("GET", Mocks.params("action", "1"));
+        objectBatch = Mocks.request("GET", Mocks.params("items", "1,2,3,4,5,6,7,8", "npc", "9,10,11,12,13,14,15,16"));
+        objectMap = Mocks.request("GET", Mocks.params("map", "map0001"));
+        chatPost = Mocks.request("POST", Mocks.params("user", "bench", "dest", "all", "msg", "Hello from the benchmark"));
+        
+        objectSingle = new HttpServletRequest[ROWS];
+        for(int i = 0; i < ROWS; i++)
+            objectSingle[i] = Mocks.request("GET", Mocks.params("type", "mapObj", "id", String.valueOf(i + 1)));
+        
+        // A reader a couple of dozen messages behind.
+        chatRead = Mocks.request("GET", Mocks.params("user", "reader", "time", "0"));
+        for(int i = 0; i < 24; i++)
+            call(chat, chatPost);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        game.destroy();
+        objectQuery.destroy();
+        chat.destroy();
+        ConnectionPool.closeAll(context);
+        
+        SyntheticData.shutdown(OBJECT_DB);
+        SyntheticData.shutdown(CHAT_DB);
+        SyntheticData.delete(root);
+    }
+    
+    @Benchmark
+    public long gameSprites() throws Exception
+    {
+        return call(game, gameSprites);
+    }
+    
+    @Benchmark
+    public long objectQuerySingle() throws Exception
+    {
+        next = (next + 1) % ROWS;
+        return call(objectQuery, objectSingle[next]);
+    }
+    
+    @Benchmark
+    public long objectQueryBatch() throws Exception
+    {
+        return call(objectQuery, objectBatch);
+    }
+    
+    @Benchmark
+    public long objectQueryMap() throws Exception
+    {
+        return call(objectQuery, objectMap);
+    }
+    
+    @Benchmark
+    public long chatPost() throws Exception
+    {
+        return call(chat, chatPost);
+    }
+    
+    @Benchmark
+    public long chatRead() throws Exception
+    {
+        return call(chat, chatRead);
+    }
+    
+    private HttpServlet start(HttpServlet servlet, String name) throws Exception
+    {
+        servlet.init(Mocks.config(context, name));
+        return servlet;
+    }
+    
+    /** Serves one request and returns the size of the response body. */
+    private long call(HttpServlet servlet, HttpServletRequest request) throws Exception
+    {
+        servlet.service(request, response.proxy);
+        return response.reset();
+    }
+}
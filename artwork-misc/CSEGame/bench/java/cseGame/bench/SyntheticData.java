@@ -0,0 +1,216 @@
+/*
+ * SyntheticData.java - SyntheticData Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.bench;
+
+import java.io.*;
+import java.sql.*;
+import java.util.Random;
+
+/**
+ * Generates the inputs the benchmarks run against: GameData style map and
+ * sprite files of any size, and an in-memory HSQLDB standing in for the
+ * object and chat databases. Everything is seeded so runs are comparable.
+ */
+public class SyntheticData
+{
+    private static final String[] OBJECT_SOURCES = { "block.png", "tree.png", "sign.png", "torch.png" };
+    
+    static
+    {
+        try
+        {
+            Class.forName("org.hsqldb.jdbcDriver");
+        }
+        catch (ClassNotFoundException e) { throw new ExceptionInInitializerError(e); }
+    }
+    
+    /**
+     * Writes a size x size map. Objects are placed on the given fraction of
+     * tiles, in both the <code>object</code> form MapHandler renders and the
+     * <code>obj</code> form the map compiler reads.
+     */
+    public static File writeMap(File dir, String name, int size, double density) throws IOException
+    {
+        return writeMap(dir, name, size, density, name, name, name, name);
+    }
+    
+    /** Writes a size x size map linked to the given neighbouring maps. */
+    public static File writeMap(File dir, String name, int size, double density, String top, String left, String bottom, String right) 
+            throws IOException
+    {
+        Random random = new Random(size);
+        File file = new File(dir, name + ".xml");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        
+        try
+        {
+            out.write("<?xml version='1.0' encoding='utf-8'?>\n");
+            out.write("<map top='" + top + "' left='" + left + "' bottom='" + bottom + "' right='" + right + "'>\n");
+            out.write("    <terrain>\n");
+            
+            char[] row = new char[size];
+            for(int y = 0; y < size; y++)
+            {
+                for(int x = 0; x < size; x++)
+                    row[x] = random.nextInt(10) == 0 ? '2' : '1';
+                
+                out.write("        <row>");
+                out.write(row);
+                out.write("</row>\n");
+            }
+            out.write("    </terrain>\n");
+            
+            int objects = (int)(size * (long)size * density);
+            for(int layer = 2; layer <= 3; layer++)
+            {
+                out.write("    <layer type='" + layer + "'>\n");
+                for(int i = layer - 2; i < objects; i += 2)
+                {
+                    int x = random.nextInt(size), y = random.nextInt(size);
+                    int sprite = random.nextInt(OBJECT_SOURCES.length);
+                    
+                    out.write("        <object src='Images/Objects/" + OBJECT_SOURCES[sprite] + "' x='" + x + "' y='" + y + 
+                            "' width='24' height='" + (sprite == 1 ? 48 : 24) + "' />\n");
+                    out.write("        <obj id='" + (5 + sprite) + "' objid='" + (1 + i % 64) + "' x='" + x + "' y='" + y + 
+                            "' width='24' height='24' />\n");
+                }
+                out.write("    </layer>\n");
+            }
+            
+            out.write("</map>\n");
+        }
+        finally { out.close(); }
+        
+        return file;
+    }
+    
+    /** Writes a sprite file with the given number of sprites spread over three layers. */
+    public static File writeSprites(File dir, int count) throws IOException
+    {
+        File file = new File(dir, "sprites.xml");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        
+        try
+        {
+            out.write("<?xml version='1.0' encoding='utf-8'?>\n<mapsprites>\n");
+            for(int layer = 1; layer <= 3; layer++)
+            {
+                out.write("    <layer type=\"" + layer + "\">\n");
+                for(int id = layer; id <= count; id += 3)
+                {
+                    out.write("        <sprite id=\"" + id + "\" name=\"Sprite" + id + "\" type=\"" + (layer == 1 ? "Terrain" : "Objects") + 
+                            "\" src=\"sprite" + id + ".png\" width=\"24\" height=\"24\" />\n");
+                }
+                out.write("    </layer>\n");
+            }
+            out.write("</mapsprites>\n");
+        }
+        finally { out.close(); }
+        
+        return file;
+    }
+    
+    /** Creates the ITEMS, MAPOBJECT and NPCS tables with rows ids 1..rows each. */
+    public static void createObjectDatabase(String url, int rows) throws SQLException
+    {
+        Connection con = DriverManager.getConnection(url, "sa", "");
+        try
+        {
+            Statement statement = con.createStatement();
+            String[][] tables = { { "ITEMS", "ITEMID" }, { "MAPOBJECT", "ID" }, { "NPCS", "ID" } };
+            
+            for(int t = 0; t < tables.length; t++)
+            {
+                statement.execute("DROP TABLE " + tables[t][0] + " IF EXISTS");
+                statement.execute("CREATE TABLE " + tables[t][0] + " (" + tables[t][1] + " INT PRIMARY KEY, " +
+                        "NAME VARCHAR(64), OPTIONS VARCHAR(64), SCRIPT VARCHAR(1024), FLAGS VARCHAR(16))");
+                
+                PreparedStatement insert = con.prepareStatement("INSERT INTO " + tables[t][0] + " VALUES (?, ?, ?, ?, ?)");
+                for(int id = 1; id <= rows; id++)
+                {
+                    insert.setInt(1, id);
+                    insert.setString(2, tables[t][0].toLowerCase() + id);
+                    insert.setString(3, "talk,look");
+                    insert.setString(4, "game.say('It is object " + id + ".');");
+                    insert.setString(5, "0");
+                    insert.executeUpdate();
+                }
+                insert.close();
+            }
+            statement.close();
+        }
+        finally { con.close(); }
+    }
+    
+    /** Creates the chat MSG table. */
+    public static void createChatDatabase(String url) throws SQLException
+    {
+        Connection con = DriverManager.getConnection(url, "sa", "");
+        try
+        {
+            Statement statement = con.createStatement();
+            statement.execute("DROP TABLE MSG IF EXISTS");
+            statement.execute("CREATE TABLE MSG (NAME VARCHAR(32), DEST VARCHAR(32), TIME BIGINT, MSG VARCHAR(512))");
+            statement.close();
+        }
+        finally { con.close(); }
+    }
+    
+    /** Adds count public chat messages from a handful of users, ending at the current time. */
+    public static void seedMessages(String url, int count) throws SQLException
+    {
+        Connection con = DriverManager.getConnection(url, "sa", "");
+        try
+        {
+            PreparedStatement insert = con.prepareStatement("INSERT INTO MSG (NAME, DEST, TIME, MSG) VALUES (?, 'all', ?, ?)");
+            long now = System.currentTimeMillis();
+            
+            for(int i = 0; i < count; i++)
+            {
+                insert.setString(1, "user" + (i % 16));
+                insert.setLong(2, now - count + i);
+                insert.setString(3, "message " + i);
+                insert.executeUpdate();
+            }
+            insert.close();
+        }
+        finally { con.close(); }
+    }
+    
+    /** Shuts an in-memory database down so the next trial starts empty. */
+    public static void shutdown(String url)
+    {
+        try
+        {
+            Connection con = DriverManager.getConnection(url, "sa", "");
+            try
+            {
+                con.createStatement().execute("SHUTDOWN");
+            }
+            finally { con.close(); }
+        }
+        catch (SQLException e) {}
+    }
+    
+    /** Returns a fresh temporary directory. */
+    public static File tempDir(String prefix) throws IOException
+    {
+        File dir = File.createTempFile(prefix, "");
+        if(!dir.delete() || !dir.mkdirs())
+            throw new IOException("Unable to create " + dir);
+        return dir;
+    }
+    
+    /** Deletes a directory tree. */
+    public static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        for(int i = 0; children != null && i < children.length; i++)
+            delete(children[i]);
+        file.delete();
+    }
+}
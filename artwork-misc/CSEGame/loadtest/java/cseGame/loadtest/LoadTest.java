@@ -0,0 +1,491 @@
+/*
+ * LoadTest.java - LoadTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.loadtest;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.hsqldb.Server;
+
+import cseGame.bench.SyntheticData;
+
+/**
+ * Drives simulated players against the webapp and reports throughput,
+ * latency percentiles and error rates per endpoint. Unless --url points
+ * at a running server, the webapp is started in an embedded Tomcat
+ * against an in-process HSQLDB server filled with synthetic data, so a
+ * run needs nothing but this machine. Players run on virtual threads
+ * when the JVM has them.
+ * <p>
+ * With --nodes N the world is sharded: N webapps start as separate JVMs
+ * on loopback ports from --port up, sharing the database. Each serves one
+ * column of a grid of synthetic maps linked edge to edge, and players
+ * enter through every node and walk (--walk) between maps, so requests
+ * are passed between nodes and players are handed over at the edges.
+ * <p>
+ * Run with <code>ant loadtest -Dloadtest.args="--players 500 --duration 120"</code>,
+ * or <code>-Dloadtest.args="--nodes 3 --walk 1"</code>; <code>--help</code>
+ * lists the options.
+ */
+public class LoadTest
+{
+    /** Command line settings; the defaults are in {@link #OPTIONS}. */
+    static final class Settings
+    {
+        String baseUrl;
+        String webapp;
+        String map;
+        int players, port, dbPort, objects, messages, fanout, poolSize, nodes, node;
+        long rampMillis, warmupMillis, durationMillis, thinkMillis, seed;
+        double chatRatio, itemRatio, scriptRatio, walkRatio;
+        
+        /** Base URL of each node players enter through, and the maps they start on. */
+        String[] baseUrls, maps;
+        boolean longPoll;
+        
+        /** When players stop; set once the run starts. */
+        volatile long endMillis;
+    }
+    
+    /** Option, default and description, in --help order. */
+    private static final String[][] OPTIONS = {
+        { "players",  "100",       "simulated players" },
+        { "duration", "60",        "measured seconds" },
+        { "ramp",     "10",        "seconds over which players join" },
+        { "warmup",   "10",        "seconds after the ramp before measuring" },
+        { "think",    "500",       "mean think time between actions, ms" },
+        { "fanout",   "8",         "single objectQuery lookups per map load" },
+        { "chat",     "0.3",       "chance of posting a message per action" },
+        { "items",    "0.1",       "chance of an item lookup per action" },
+        { "scripts",  "0.1",       "chance of running an NPC script per action" },
+        { "walk",     "0",         "chance of walking in the world per action" },
+        { "longPoll", "false",     "hold chat polls open like the browser client" },
+        { "map",      "map0001",   "map players load" },
+        { "url",      "",          "base URL of a running webapp; skips the embedded one" },
+        { "webapp",   "build/web", "exploded webapp to deploy" },
+        { "port",     "8089",      "embedded Tomcat port, the first of --nodes" },
+        { "nodes",    "1",         "sharded webapps, each its own JVM" },
+        { "node",     "-1",        "serve as this node of --nodes (used by the run)" },
+        { "dbPort",   "9137",      "embedded HSQLDB server port" },
+        { "objects",  "2000",      "synthetic rows per object table" },
+        { "messages", "10000",     "synthetic chat messages" },
+        { "pool",     "50",        "connections per webapp pool" },
+        { "seed",     "1",         "random seed" },
+    };
+    
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = parse(args);
+        if(options == null)
+        {
+            usage();
+            System.exit(1);
+        }
+        
+        Settings settings = new Settings();
+        settings.players = Integer.parseInt(options.get("players"));
+        settings.durationMillis = seconds(options.get("duration"));
+        settings.rampMillis = seconds(options.get("ramp"));
+        settings.warmupMillis = seconds(options.get("warmup"));
+        settings.thinkMillis = Long.parseLong(options.get("think"));
+        settings.fanout = Integer.parseInt(options.get("fanout"));
+        settings.chatRatio = Double.parseDouble(options.get("chat"));
+        settings.itemRatio = Double.parseDouble(options.get("items"));
+        settings.scriptRatio = Double.parseDouble(options.get("scripts"));
+        settings.walkRatio = Double.parseDouble(options.get("walk"));
+        settings.longPoll = Boolean.valueOf(options.get("longPoll")).booleanValue();
+        settings.map = options.get("map");
+        settings.webapp = options.get("webapp");
+        settings.port = Integer.parseInt(options.get("port"));
+        settings.dbPort = Integer.parseInt(options.get("dbPort"));
+        settings.objects = Integer.parseInt(options.get("objects"));
+        settings.messages = Integer.parseInt(options.get("messages"));
+        settings.poolSize = Integer.parseInt(options.get("pool"));
+        settings.seed = Long.parseLong(options.get("seed"));
+        settings.nodes = Math.max(1, Integer.parseInt(options.get("nodes")));
+        settings.node = Integer.parseInt(options.get("node"));
+        settings.baseUrl = options.get("url");
+        settings.maps = settings.nodes > 1 ? worldMaps(settings) : new String[]{ settings.map };
+        
+        if(settings.node >= 0)
+        {
+            serveNode(settings);
+            return;
+        }
+        
+        // Keep a connection per player alive instead of reconnecting.
+        System.setProperty("http.maxConnections", String.valueOf(Math.max(5, settings.players)));
+        
+        Server database = null;
+        Tomcat tomcat = null;
+        Process[] nodes = null;
+        File[] mapFiles = null;
+        
+        try
+        {
+            if(settings.baseUrl.length() == 0)
+            {
+                database = startDatabase(settings);
+                settings.baseUrls = new String[settings.nodes];
+                for(int i = 0; i < settings.nodes; i++)
+                    settings.baseUrls[i] = nodeUrl(settings, i);
+                
+                if(settings.nodes > 1)
+                {
+                    mapFiles = writeWorld(settings);
+                    nodes = startNodes(settings, args);
+                }
+                else
+                    tomcat = startWebapp(settings, -1);
+                settings.baseUrl = settings.baseUrls[0];
+            }
+            else
+            {
+                if(!settings.baseUrl.endsWith("/"))
+                    settings.baseUrl += "/";
+                settings.baseUrls = new String[]{ settings.baseUrl };
+            }
+            
+            run(settings);
+        }
+        finally
+        {
+            if(tomcat != null)
+            {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+            stopNodes(nodes);
+            for(int i = 0; mapFiles != null && i < mapFiles.length; i++)
+                mapFiles[i].delete();
+            if(database != null)
+                database.stop();
+        }
+    }
+    
+    /** Runs one node of a sharded world until the run that started it closes its input. */
+    private static void serveNode(Settings settings) throws Exception
+    {
+        Tomcat tomcat = startWebapp(settings, settings.node);
+        System.out.println(READY);
+        System.out.flush();
+        
+        try
+        {
+            while(System.in.read() >= 0){}
+        }
+        finally
+        {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+    
+    /** What a node prints once it serves requests. */
+    private static final String READY = "LoadTest node ready";
+    
+    /** Starts the nodes as JVMs running this class, and waits until every one is up. */
+    private static Process[] startNodes(Settings settings, String[] args) throws IOException
+    {
+        Process[] nodes = new Process[settings.nodes];
+        
+        for(int i = 0; i < nodes.length; i++)
+        {
+            List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            command.add("-Xss256k");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(LoadTest.class.getName());
+            command.addAll(Arrays.asList(args));
+            command.add("--node");
+            command.add(String.valueOf(i));
+            
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectErrorStream(true);
+            nodes[i] = builder.start();
+        }
+        
+        for(int i = 0; i < nodes.length; i++)
+        {
+            BufferedReader in = new BufferedReader(new InputStreamReader(nodes[i].getInputStream(), "UTF-8"));
+            StringBuilder startup = new StringBuilder();
+            String line;
+            
+            while((line = in.readLine()) != null && !line.equals(READY))
+                startup.append(line).append('\n');
+            
+            if(line == null)
+            {
+                stopNodes(nodes);
+                throw new IOException("Node " + i + " did not start:\n" + startup);
+            }
+            drain("n" + i, in);
+            System.out.println("Node n" + i + " serving " + settings.baseUrls[i]);
+        }
+        return nodes;
+    }
+    
+    /** Passes on a node's warnings and reads the rest of its output, so it never blocks writing. */
+    private static void drain(final String node, final BufferedReader in)
+    {
+        Thread thread = new Thread("LoadTest-" + node + "-output")
+        {
+            public void run()
+            {
+                try
+                {
+                    String line;
+                    while((line = in.readLine()) != null)
+                    {
+                        if(line.startsWith("SEVERE") || line.startsWith("WARNING"))
+                            System.err.println("[" + node + "] " + line);
+                    }
+                }
+                catch (IOException e){ /* node exited */ }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private static void stopNodes(Process[] nodes)
+    {
+        for(int i = 0; nodes != null && i < nodes.length; i++)
+        {
+            if(nodes[i] == null)
+                continue;
+            
+            try
+            {
+                nodes[i].getOutputStream().close();
+                nodes[i].waitFor();
+            }
+            catch (Exception e)
+            {
+                nodes[i].destroy();
+            }
+        }
+    }
+    
+    private static String nodeUrl(Settings settings, int node)
+    {
+        return "http://127.0.0.1:" + (settings.port + node) + "/CSEGame/";
+    }
+    
+    /** Names of the maps of a sharded world: two rows of maps, a column per node. */
+    private static String[] worldMaps(Settings settings)
+    {
+        String[] maps = new String[settings.nodes * 2];
+        for(int i = 0; i < maps.length; i++)
+            maps[i] = "loadtest_" + (i % settings.nodes) + "_" + (i / settings.nodes);
+        return maps;
+    }
+    
+    /** Writes the maps of a sharded world into the webapp, each linked to its neighbours with wrap around. */
+    private static File[] writeWorld(Settings settings) throws IOException
+    {
+        File gameData = new File(settings.webapp, "GameData");
+        File[] files = new File[settings.maps.length];
+        int columns = settings.nodes, rows = settings.maps.length / columns;
+        
+        for(int i = 0; i < files.length; i++)
+        {
+            int x = i % columns, y = i / columns;
+            files[i] = SyntheticData.writeMap(gameData, settings.maps[i], 20, 0.02,
+                    settings.maps[x + (y + rows - 1) % rows * columns], settings.maps[(x + columns - 1) % columns + y * columns],
+                    settings.maps[x + (y + 1) % rows * columns], settings.maps[(x + 1) % columns + y * columns]);
+            files[i].deleteOnExit();
+        }
+        return files;
+    }
+    
+    private static void run(Settings settings) throws InterruptedException
+    {
+        Stats stats = new Stats();
+        boolean virtual = true;
+        ExecutorService players;
+        
+        try
+        {
+            players = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (Exception e)
+        {
+            virtual = false;
+            players = Executors.newFixedThreadPool(settings.players, new ThreadFactory()
+            {
+                private int count = 0;
+                
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "Player-" + (++count));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        
+        System.out.println("Driving " + settings.players + " players (" + (virtual ? "virtual" : "platform") +
+                " threads) against " + (settings.baseUrls.length > 1 ? settings.baseUrls.length + " nodes from " : "") + settings.baseUrl);
+        
+        long start = System.currentTimeMillis();
+        settings.endMillis = start + settings.rampMillis + settings.warmupMillis + settings.durationMillis;
+        
+        for(int i = 0; i < settings.players; i++)
+        {
+            players.execute(new Player(settings, stats, i));
+            
+            long due = start + settings.rampMillis * (i + 1) / settings.players;
+            long wait = due - System.currentTimeMillis();
+            if(wait > 0)
+                Thread.sleep(wait);
+        }
+        
+        long open = start + settings.rampMillis + settings.warmupMillis;
+        if(open > System.currentTimeMillis())
+            Thread.sleep(open - System.currentTimeMillis());
+        stats.open();
+        System.out.println("Measuring for " + settings.durationMillis / 1000 + " s.");
+        
+        long left = settings.endMillis - System.currentTimeMillis();
+        if(left > 0)
+            Thread.sleep(left);
+        
+        double measured = (System.nanoTime() - stats.openedAt()) / 1e9;
+        stats.report(System.out, measured);
+        
+        // Held long polls are not worth waiting for; the numbers are in.
+        players.shutdownNow();
+        players.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    
+    /** Starts an HSQLDB server with in-memory xdb and chat databases and fills them. */
+    private static Server startDatabase(Settings settings) throws Exception
+    {
+        Server server = new Server();
+        server.setLogWriter(null);
+        server.setTrace(false);
+        server.setSilent(true);
+        server.setPort(settings.dbPort);
+        server.setDatabaseName(0, "xdb");
+        server.setDatabasePath(0, "mem:xdb");
+        server.setDatabaseName(1, "chat");
+        server.setDatabasePath(1, "mem:chat");
+        server.setNoSystemExit(true);
+        server.start();
+        
+        // start() returns before the server accepts connections.
+        String xdb = url(settings, "xdb");
+        for(int tries = 0; ; tries++)
+        {
+            try
+            {
+                SyntheticData.createObjectDatabase(xdb, settings.objects);
+                break;
+            }
+            catch (java.sql.SQLException e)
+            {
+                if(tries == 50)
+                    throw e;
+                Thread.sleep(100);
+            }
+        }
+        
+        SyntheticData.createChatDatabase(url(settings, "chat"));
+        SyntheticData.seedMessages(url(settings, "chat"), settings.messages);
+        return server;
+    }
+    
+    /**
+     * Deploys the exploded webapp in an embedded Tomcat pointed at the
+     * embedded databases; as the given node of a sharded world, if not -1.
+     */
+    private static Tomcat startWebapp(Settings settings, int node) throws Exception
+    {
+        File base = SyntheticData.tempDir("loadtest");
+        base.deleteOnExit();
+        
+        Tomcat tomcat = new Tomcat();
+        tomcat.setPort(settings.port + Math.max(0, node));
+        tomcat.setBaseDir(base.getAbsolutePath());
+        
+        Context context = tomcat.addWebapp("/CSEGame", new File(settings.webapp).getAbsolutePath());
+        
+        String[] pools = { "xdb", "chat" };
+        for(int i = 0; i < pools.length; i++)
+        {
+            String prefix = "cseGame.db." + pools[i] + ".";
+            context.addParameter(prefix + "url", url(settings, pools[i]));
+            context.addParameter(prefix + "user", "sa");
+            context.addParameter(prefix + "password", "");
+            context.addParameter(prefix + "maxSize", String.valueOf(settings.poolSize));
+        }
+        
+        // Every player comes from the loopback address; hold them to their per-user limits only.
+        String[] limited = { "chat", "objectQuery" };
+        for(int i = 0; i < limited.length; i++)
+        {
+            context.addParameter("cseGame.admission." + limited[i] + ".addressRate", "1000000");
+            context.addParameter("cseGame.admission." + limited[i] + ".addressBurst", "1000000");
+        }
+        
+        if(node >= 0)
+        {
+            StringBuilder nodes = new StringBuilder(), maps = new StringBuilder();
+            for(int i = 0; i < settings.nodes; i++)
+                nodes.append(i == 0 ? "" : ", ").append('n').append(i).append('=').append(nodeUrl(settings, i));
+            for(int i = 0; i < settings.maps.length; i++)
+                maps.append(i == 0 ? "" : ", ").append(settings.maps[i]).append("=n").append(i % settings.nodes);
+            
+            context.addParameter("cseGame.shard.self", "n" + node);
+            context.addParameter("cseGame.shard.nodes", nodes.toString());
+            context.addParameter("cseGame.shard.maps", maps.toString());
+            context.addParameter("cseGame.shard.secret", "loadtest-" + settings.seed);
+        }
+        
+        tomcat.start();
+        return tomcat;
+    }
+    
+    private static String url(Settings settings, String database)
+    {
+        return "jdbc:hsqldb:hsql://localhost:" + settings.dbPort + "/" + database;
+    }
+    
+    /** Returns the options with defaults filled in, or null if --help was given or an option is unknown. */
+    private static Map<String, String> parse(String[] args)
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        for(int i = 0; i < OPTIONS.length; i++)
+            options.put(OPTIONS[i][0], OPTIONS[i][1]);
+        
+        for(int i = 0; i < args.length; i++)
+        {
+            if(!args[i].startsWith("--") || !options.containsKey(args[i].substring(2)) || i + 1 == args.length)
+                return null;
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+    
+    private static void usage()
+    {
+        System.err.println("Usage: LoadTest [--option value]...");
+        for(int i = 0; i < OPTIONS.length; i++)
+            System.err.println(String.format("  --%-10s %-40s (default %s)", OPTIONS[i][0], OPTIONS[i][2],
+                    OPTIONS[i][1].length() == 0 ? "none" : OPTIONS[i][1]));
+    }
+    
+    private static long seconds(String value)
+    {
+        return (long)(Double.parseDouble(value) * 1000);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Player.java - Player Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.loadtest;
+
+import java.io.*;
+import java.net.*;
+import java.util.Random;
+
+/**
+ * One simulated player. It follows the requests the browser client makes:
+ * map.jsp, the map from /game, the map's objects from objectQuery (one
+ * batch, then single lookups as objects come into view), and then a loop
+ * of chat posts and polls, item lookups, NPC scripts and walks in the
+ * world with think time in between, until the test ends.
+ */
+final class Player implements Runnable
+{
+    private final LoadTest.Settings settings;
+    private final Stats stats;
+    private final String name;
+    private final Random random;
+    /** Node the player sends its requests to. */
+    private final String baseUrl;
+    
+    /** Cursor returned by the last chat poll. */
+    private long chatTime = 0;
+    
+    /** Map the player is on, whether it has joined its world, the last tick seen and the way it walks. */
+    private String map;
+    private boolean joined = false;
+    private long tick = 0;
+    private int heading, seq = 0;
+    
+    Player(LoadTest.Settings settings, Stats stats, int number)
+    {
+        this.settings = settings;
+        this.stats = stats;
+        this.name = "load" + number;
+        this.random = new Random(settings.seed + number);
+        this.baseUrl = settings.baseUrls[number % settings.baseUrls.length];
+        this.map = settings.maps[number % settings.maps.length];
+        this.heading = random.nextInt(4);
+    }
+    
+    public void run()
+    {
+        try
+        {
+            think();
+            
+            get("map.jsp", "map.jsp");
+            get("game", "game?action=2&map=" + map);
+            get("objectQuery", "objectQuery?map=" + map + "&user=" + name);
+            
+            for(int i = 0; i < settings.fanout && !done(); i++)
+                get("objectQuery", "objectQuery?id=" + (1 + random.nextInt(settings.objects)) + "&type=mapObj&user=" + name);
+            get("objectQuery", "objectQuery?id=" + (1 + random.nextInt(settings.objects)) + "&type=npc&user=" + name);
+            
+            while(!done())
+            {
+                think();
+                
+                if(random.nextDouble() < settings.chatRatio)
+                    post("chat POST", "chat?user=" + name + "&dest=all&msg=" + URLEncoder.encode("hello from " + name, "UTF-8"));
+                
+                String body = get("chat GET", "chat?time=" + chatTime + "&user=" + name + (settings.longPoll ? "&wait=1" : ""));
+                int newline = body == null ? -1 : body.indexOf('\n');
+                if(newline > 0)
+                    chatTime = Long.parseLong(body.substring(0, newline).trim());
+                
+                if(random.nextDouble() < settings.itemRatio)
+                    get("objectQuery", "objectQuery?id=" + (1 + random.nextInt(settings.objects)) + "&type=items&user=" + name);
+                
+                if(random.nextDouble() < settings.scriptRatio)
+                    get("script", "script?type=npc&id=" + (1 + random.nextInt(settings.objects)) + "&user=" + name + "&map=" + map);
+                
+                if(random.nextDouble() < settings.walkRatio)
+                    walk();
+            }
+        }
+        catch (InterruptedException e){ /* stopped */ }
+        catch (IOException e){ e.printStackTrace(); }
+    }
+    
+    /**
+     * Joins the world of the player's map, or takes a few steps in it,
+     * mostly keeping the same heading so it ends up walking off the map.
+     */
+    private void walk() throws IOException
+    {
+        if(!joined)
+        {
+            joined = post("world join", "world?map=" + map + "&op=join&id=" + name + "&x=" + random.nextInt(20) +
+                    "&y=" + random.nextInt(20)) != null;
+            tick = 0;
+            return;
+        }
+        
+        if(random.nextInt(8) == 0)
+            heading = random.nextInt(4);
+        
+        char step = "NESW".charAt(heading);
+        seq += 4;
+        String body = get("world sync", "world?map=" + map + "&op=sync&id=" + name + "&ack=" + tick + "&seq=" + seq +
+                "&in=" + step + step + step + step);
+        
+        int moved = body == null ? -1 : body.indexOf("'moved': '");
+        if(body == null)
+            joined = false;
+        else if(moved >= 0)
+        {
+            map = body.substring(moved + 10, body.indexOf('\'', moved + 10));
+            tick = 0;
+        }
+        else if(body.startsWith("{'tick': "))
+            tick = Long.parseLong(body.substring(9, body.indexOf(',')).trim());
+    }
+    
+    private boolean done()
+    {
+        return System.currentTimeMillis() >= settings.endMillis || Thread.currentThread().isInterrupted();
+    }
+    
+    /** Sleeps for an exponentially distributed time around the mean think time. */
+    private void think() throws InterruptedException
+    {
+        if(settings.thinkMillis > 0)
+            Thread.sleep((long)(-Math.log(1 - random.nextDouble()) * settings.thinkMillis));
+    }
+    
+    private String get(String endpoint, String path) throws IOException
+    {
+        return request(endpoint, "GET", path);
+    }
+    
+    private String post(String endpoint, String path) throws IOException
+    {
+        return request(endpoint, "POST", path);
+    }
+    
+    /** Sends one request and reads the whole response; returns the body, or null on failure. */
+    private String request(String endpoint, String method, String path) throws IOException
+    {
+        long start = System.nanoTime();
+        HttpURLConnection con = (HttpURLConnection)new URL(baseUrl + path).openConnection();
+        con.setRequestMethod(method);
+        con.setConnectTimeout(10000);
+        con.setReadTimeout(60000);
+        
+        if(method.equals("POST"))
+        {
+            con.setDoOutput(true);
+            con.setFixedLengthStreamingMode(0);
+        }
+        
+        int status;
+        String body = null;
+        try
+        {
+            status = con.getResponseCode();
+            InputStream in = status < 400 ? con.getInputStream() : con.getErrorStream();
+            
+            if(in != null)
+                body = read(in);
+        }
+        catch (IOException e)
+        {
+            stats.record(endpoint, start, false);
+            con.disconnect();
+            return null;
+        }
+        
+        // The servlets report some failures in a 200 body.
+        boolean ok = status < 400 && (body == null || !body.startsWith("ERROR"));
+        stats.record(endpoint, start, ok);
+        return ok ? body : null;
+    }
+    
+    /** Reads a response fully so the connection goes back to the keep-alive pool. */
+    private static String read(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream data = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[8192];
+        try
+        {
+            int n;
+            while((n = in.read(buffer)) > 0)
+                data.write(buffer, 0, n);
+        }
+        finally { in.close(); }
+        return data.toString("UTF-8");
+    }
+}
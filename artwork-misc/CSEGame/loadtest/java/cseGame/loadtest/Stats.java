@@ -0,0 +1,100 @@
+/*
+ * Stats.java - Stats Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.loadtest;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.Histogram;
+
+/**
+ * Latency and error counts per endpoint. Requests that start before the
+ * measurement window opens (during warm-up) are not counted.
+ */
+final class Stats
+{
+    static final class Endpoint
+    {
+        final Histogram latency = new Histogram();
+        final Counter errors = new Counter();
+    }
+    
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    
+    private volatile long measureFrom = Long.MAX_VALUE;
+    
+    /** Starts counting requests from now on. */
+    void open()
+    {
+        measureFrom = System.nanoTime();
+    }
+    
+    long openedAt(){ return measureFrom; }
+    
+    /**
+     * Records one request.
+     * @param start System.nanoTime() when it was sent
+     */
+    void record(String endpoint, long start, boolean ok)
+    {
+        if(start < measureFrom)
+            return;
+        
+        long nanos = System.nanoTime() - start;
+        Endpoint stats = endpoints.get(endpoint);
+        
+        if(stats == null)
+        {
+            Endpoint created = new Endpoint();
+            stats = endpoints.putIfAbsent(endpoint, created);
+            if(stats == null)
+                stats = created;
+        }
+        
+        stats.latency.record(nanos);
+        if(!ok)
+            stats.errors.increment();
+    }
+    
+    /** Prints one line per endpoint and a total, over the given number of seconds. */
+    void report(PrintStream out, double seconds)
+    {
+        out.println(String.format("%-14s %9s %9s %8s %9s %9s %9s %9s",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        
+        long requests = 0, errors = 0;
+        SortedMap<String, Endpoint> sorted = new TreeMap<String, Endpoint>(endpoints);
+        
+        for(Map.Entry<String, Endpoint> entry : sorted.entrySet())
+        {
+            Histogram.Snapshot snapshot = entry.getValue().latency.snapshot();
+            long failed = entry.getValue().errors.get();
+            requests += snapshot.count;
+            errors += failed;
+            
+            out.println(String.format("%-14s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f", entry.getKey(), snapshot.count,
+                    snapshot.count / seconds, percent(failed, snapshot.count),
+                    millis(snapshot.quantile(0.5)), millis(snapshot.quantile(0.99)),
+                    millis(snapshot.quantile(0.999)), millis(snapshot.max)));
+        }
+        
+        out.println(String.format("%-14s %9d %9.1f %7.2f%%", "total", requests, requests / seconds, percent(errors, requests)));
+    }
+    
+    private static double percent(long part, long whole)
+    {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+    
+    private static double millis(long nanos)
+    {
+        return nanos / 1e6;
+    }
+}
@@ -16,7 +16,15 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 
+import cseGame.render.CssRenderer;
+import cseGame.render.HtmlRenderer;
+import cseGame.render.MapRenderer;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
 /**
+ * Passes the maps and sprites of a GameData file to a MapRenderer as they
+ * are parsed. Each handler holds the state of one parse only.
  *
  * @author Andrew
  */
@@ -25,157 +33,178 @@ public class MapHandler extends DefaultHandler
     public static final int LOAD_SPRITES = 1;
     public static final int LOAD_MAP = 2;
     
-    private String retData = "";
+    private static final Histogram PARSE_SPRITES = Metrics.histogram("cseGame_parse_seconds", "handler", "MapHandler", "action", "sprites");
+    private static final Histogram PARSE_MAP = Metrics.histogram("cseGame_parse_seconds", "handler", "MapHandler", "action", "map");
+    
+    private final MapRenderer renderer;
+    
+    /** Collects the output when no renderer was given. */
+    private ByteArrayOutputStream retData = null;
     
     private int layer = 0;
     
     private int action = 0;
     
     private boolean done = false;
-     
+    
+    private StringBuilder rowText = null;
+    private int row = 0;
+    
+    /** Renders to a string, returned by toString(): &lt;img&gt; tags for maps, CSS for sprites. */
     public MapHandler(int action)
     {
         this.action = action;
+        this.retData = new ByteArrayOutputStream();
+        
+        try
+        {
+            this.renderer = action == LOAD_SPRITES ? new CssRenderer(retData, "") : new HtmlRenderer(retData);
+        }
+        catch (IOException e){ throw new IllegalStateException(e); }
     }
     
-    public void startElement(String namespaceURI, String sName,  String qName, Attributes attrs) throws SAXException
-    {   
-        if(action == LOAD_MAP)
-            generateMap(sName, qName, attrs);
-        else if(action == LOAD_SPRITES)
-            generateSprites(sName, qName, attrs);
+    /** Streams to the given renderer. */
+    public MapHandler(int action, MapRenderer renderer)
+    {
+        this.action = action;
+        this.renderer = renderer;
     }
     
-    public void endElement(String namespaceURI, String sName,  String qName) throws SAXException
+    /** Parses a GameData file into a renderer, and finishes the renderer. */
+    public static void render(File source, int action, MapRenderer renderer) throws Exception
     {
-        String eName;
+        long start = System.nanoTime();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
         
-        if((eName = sName).equals(""))
-            eName = qName; // namespaceAware = false
+        // Parse the input
+        InputStream istream = new FileInputStream(source);
+        try
+        {
+            SAXParser saxParser = factory.newSAXParser();
+            saxParser.parse(istream, new MapHandler(action, renderer));
+        }
+        finally { istream.close(); }
         
-        if(eName.equals("map"))
-            done = true;
+        (action == LOAD_SPRITES ? PARSE_SPRITES : PARSE_MAP).recordSince(start);
     }
     
-    private void generateMap(String sName,  String qName, Attributes attrs) throws SAXException
-    {
-        // Element name, Attribute name
-        String eName, aName;
+    public void startElement(String namespaceURI, String sName,  String qName, Attributes attrs) throws SAXException
+    {   
+        String eName;
         
         if((eName = sName).equals(""))
             eName = qName; // namespaceAware = false
         
-        if(eName.equals("layer"))
+        try
         {
-            if(attrs != null)
+            if(eName.equals("layer"))
             {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("type"))
-                        layer = Integer.parseInt(attrs.getValue(i));
-                }
+                layer = intAttr(attrs, "type", 0);
+                if(action == LOAD_MAP)
+                    renderer.layer(layer);
             }
+            else if(action == LOAD_MAP)
+                generateMap(eName, attrs);
+            else if(action == LOAD_SPRITES)
+                generateSprites(eName, attrs);
         }
-        else if(eName.equals("object"))
-        {
-            String src = "", width = "", height = "", xPos = "", yPos = "";
-            boolean animate = false;
-            
-            int realX = 0, realY = 0;
-                          
-            if(attrs != null)
-            {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("src"))
-                        src = attrs.getValue(i);
-                    else if(aName.equals("x"))
-                        xPos = attrs.getValue(i);
-                    else if(aName.equals("y"))
-                        yPos = attrs.getValue(i);
-                    else if(aName.equals("width"))
-                        width = attrs.getValue(i);
-                    else if(aName.equals("height"))
-                        height = attrs.getValue(i);
-                    else if(aName.equals("animate"))
-                        animate = true;
-                }
-                
-                realX = Integer.parseInt(xPos)*24;
-                realY = Integer.parseInt(yPos)*24 - (Integer.parseInt(height) - 24);
-                String id = xPos + "x" + yPos + "x" + layer;
-                String action = "";
-                
-                //if(animate)
-                    ///action = "onload='game.regObject(\"animate\", new MapObject(\""+id+"\","+xPos+","+yPos+"))'";
-                
-                //game.regObject("animate", new MapObject("animate0", 0, 0));
-
-                
-                retData += "<img id='"+id+"' "+action+" src='"+src+"' style='z-index: "+layer+"; position: absolute; top: "+realY+"px; left: "+realX+"px;'>";
-            }
-        }        
+        catch (IOException e){ throw new SAXException(e); }
     }
     
-    private void generateSprites(String sName,  String qName, Attributes attrs) throws SAXException
+    public void characters(char[] ch, int start, int length)
+    {
+        if(rowText != null)
+            rowText.append(ch, start, length);
+    }
+    
+    public void endElement(String namespaceURI, String sName,  String qName) throws SAXException
     {
-        // Element name, Attribute name
-        String eName, aName;
+        String eName;
         
         if((eName = sName).equals(""))
             eName = qName; // namespaceAware = false
         
-        if(eName.equals("layer"))
+        if(eName.equals("map"))
+            done = true;
+        else if(eName.equals("row") && rowText != null)
         {
-            if(attrs != null)
+            try
             {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("type"))
-                        layer = Integer.parseInt(attrs.getValue(i));
-                }
+                renderer.terrainRow(row++, rowText.toString());
             }
+            catch (IOException e){ throw new SAXException(e); }
+            
+            rowText.setLength(0);
+            rowText = null;
         }
-        else if(eName.equals("sprite"))
+    }
+    
+    public void endDocument() throws SAXException
+    {
+        try
         {
-            String id = "1", width = "24", height = "24", src = "grass.png", type = "Terrain";
+            renderer.finish();
+        }
+        catch (IOException e){ throw new SAXException(e); }
+    }
+    
+    private void generateMap(String eName, Attributes attrs) throws IOException
+    {
+        if(eName.equals("map"))
+        {
+            renderer.begin(new String[]{ attrs.getValue("top"), attrs.getValue("left"), 
+                    attrs.getValue("bottom"), attrs.getValue("right") });
+        }
+        else if(eName.equals("row"))
+            rowText = new StringBuilder(64);
+        else if(eName.equals("object"))
+        {
+            renderer.object(layer, -1, attrs.getValue("src"), intAttr(attrs, "x", 0), intAttr(attrs, "y", 0),
+                    intAttr(attrs, "width", 24), intAttr(attrs, "height", 24), 0, 0);
+        }
+        else if(eName.equals("obj"))
+        {
+            renderer.object(layer, intAttr(attrs, "id", 0), null, intAttr(attrs, "x", 0), intAttr(attrs, "y", 0),
+                    intAttr(attrs, "width", 24), intAttr(attrs, "height", 24), 
+                    intAttr(attrs, "objid", 0), intAttr(attrs, "frames", 0));
+        }
+    }
+    
+    private void generateSprites(String eName, Attributes attrs) throws IOException
+    {
+        if(eName.equals("sprite"))
+        {
+            String id = attrs.getValue("id"), src = attrs.getValue("src"), type = attrs.getValue("type");
             
-            if(attrs != null)
-            {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("id"))
-                        id = attrs.getValue(i);
-                    else if(aName.equals("src"))
-                        src = attrs.getValue(i);
-                    else if(aName.equals("width"))
-                        width = attrs.getValue(i);
-                    else if(aName.equals("height"))
-                        height = attrs.getValue(i);
-                    else if(aName.equals("type"))
-                        type = attrs.getValue(i);
-                }
-                
-                src = "Images/" + type + "/" + src;
-                
-                retData += ".sp"+id+"{ z-index: "+ layer +"; position: absolute; width: "+width+"px; height: "+height+"px; background-image: url('"+src+"'); }";
-            }           
+            if(id == null)
+                id = "1";
+            if(src == null)
+                src = "grass.png";
+            if(type == null)
+                type = "Terrain";
+            
+            renderer.sprite(layer, id, type, "Images/" + type + "/" + src, 
+                    intAttr(attrs, "width", 24), intAttr(attrs, "height", 24));
         }
     }
     
+    private static int intAttr(Attributes attrs, String name, int def)
+    {
+        String value = attrs.getValue(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
     public boolean isDone(){ return done; }
     
-    public String toString(){   return retData;   }
+    public String toString()
+    {
+        if(retData == null)
+            return "";
+        
+        try
+        {
+            return retData.toString("UTF-8");
+        }
+        catch (UnsupportedEncodingException e){ throw new IllegalStateException(e); }
+    }
 }
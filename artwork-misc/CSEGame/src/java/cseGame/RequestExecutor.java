@@ -0,0 +1,455 @@
+/*
+ * RequestExecutor.java - RequestExecutor Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.*;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Runs the blocking part of a request (file parsing, JDBC) on a bounded
+ * pool of workers rather than on the container's thread. The request goes
+ * async and is completed when its task returns. Tasks wait in a queue of
+ * fixed size; when it is full the client is told to come back with 503
+ * and Retry-After rather than piling up. Workers are virtual threads when
+ * the JVM has them.
+ * <p>
+ * A request that times out is answered with 503 and completed whether or
+ * not its task has started. A task still running then writes to a
+ * response that has been cut off from the container's: its output fails
+ * with an IOException and its headers are dropped, so nothing reaches the
+ * next request the container recycles the response for.
+ */
+public class RequestExecutor
+{
+    private static final Logger log = Logger.getLogger(RequestExecutor.class.getName());
+    
+    /** ServletContext attribute the shared executor is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.requestExecutor";
+    
+    /** The blocking part of a request. */
+    public interface Task
+    {
+        void run(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException;
+    }
+    
+    /** A queued task, stamped with when it was queued. */
+    private abstract static class Job implements Runnable
+    {
+        final long queued = System.nanoTime();
+    }
+    
+    /**
+     * The response a task writes to. Once {@link #cutOff} the request
+     * belongs to the container again, and whatever the task still writes
+     * goes nowhere. Writes and the cut-off take the same lock, so none is
+     * half done when the request is answered.
+     */
+    private static final class TaskResponse extends HttpServletResponseWrapper
+    {
+        private boolean cut = false;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+        
+        TaskResponse(HttpServletResponse response)
+        {
+            super(response);
+        }
+        
+        /** Stops passing anything on; returns false if the response was cut off already. */
+        synchronized boolean cutOff()
+        {
+            if(cut)
+                return false;
+            cut = true;
+            return true;
+        }
+        
+        synchronized boolean isCut(){ return cut; }
+        
+        private void check() throws IOException
+        {
+            if(cut)
+                throw new IOException("Request timed out.");
+        }
+        
+        public synchronized ServletOutputStream getOutputStream() throws IOException
+        {
+            check();
+            if(stream == null)
+            {
+                final ServletOutputStream out = super.getOutputStream();
+                stream = new ServletOutputStream()
+                {
+                    public void write(int b) throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.write(b);
+                        }
+                    }
+                    
+                    public void write(byte[] b, int off, int len) throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.write(b, off, len);
+                        }
+                    }
+                    
+                    public void flush() throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.flush();
+                        }
+                    }
+                    
+                    public void close() throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.close();
+                        }
+                    }
+                };
+            }
+            return stream;
+        }
+        
+        public synchronized PrintWriter getWriter() throws IOException
+        {
+            check();
+            if(writer == null)
+            {
+                final PrintWriter out = super.getWriter();
+                writer = new PrintWriter(new Writer()
+                {
+                    public void write(char[] buf, int off, int len) throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.write(buf, off, len);
+                        }
+                    }
+                    
+                    public void flush() throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.flush();
+                        }
+                    }
+                    
+                    public void close() throws IOException
+                    {
+                        synchronized(TaskResponse.this)
+                        {
+                            check();
+                            out.close();
+                        }
+                    }
+                });
+            }
+            return writer;
+        }
+        
+        public synchronized void sendError(int sc, String msg) throws IOException
+        {
+            check();
+            super.sendError(sc, msg);
+        }
+        
+        public synchronized void sendError(int sc) throws IOException
+        {
+            check();
+            super.sendError(sc);
+        }
+        
+        public synchronized void sendRedirect(String location) throws IOException
+        {
+            check();
+            super.sendRedirect(location);
+        }
+        
+        public synchronized void flushBuffer() throws IOException
+        {
+            check();
+            super.flushBuffer();
+        }
+        
+        public synchronized boolean isCommitted(){ return cut || super.isCommitted(); }
+        
+        public synchronized void setStatus(int sc){ if(!cut) super.setStatus(sc); }
+        
+        public synchronized void setHeader(String name, String value){ if(!cut) super.setHeader(name, value); }
+        
+        public synchronized void addHeader(String name, String value){ if(!cut) super.addHeader(name, value); }
+        
+        public synchronized void setIntHeader(String name, int value){ if(!cut) super.setIntHeader(name, value); }
+        
+        public synchronized void addIntHeader(String name, int value){ if(!cut) super.addIntHeader(name, value); }
+        
+        public synchronized void setDateHeader(String name, long date){ if(!cut) super.setDateHeader(name, date); }
+        
+        public synchronized void addDateHeader(String name, long date){ if(!cut) super.addDateHeader(name, date); }
+        
+        public synchronized void addCookie(Cookie cookie){ if(!cut) super.addCookie(cookie); }
+        
+        public synchronized void setContentType(String type){ if(!cut) super.setContentType(type); }
+        
+        public synchronized void setContentLength(int len){ if(!cut) super.setContentLength(len); }
+        
+        public synchronized void setCharacterEncoding(String charset){ if(!cut) super.setCharacterEncoding(charset); }
+        
+        public synchronized void setBufferSize(int size){ if(!cut) super.setBufferSize(size); }
+        
+        public synchronized void reset(){ if(!cut) super.reset(); }
+        
+        public synchronized void resetBuffer(){ if(!cut) super.resetBuffer(); }
+    }
+    
+    private final ThreadPoolExecutor workers;
+    private final long timeout;
+    private final boolean virtual;
+    
+    private final Histogram waitTime;
+    private final Counter rejected, expired;
+    
+    /**
+     * @param name labels the workers' metrics and threads, e.g. requests
+     * @param threads tasks run at once; 0 picks a default for the kind of thread
+     * @param queueSize tasks waiting for a worker before new ones are refused
+     * @param timeout how long a request may wait and run, in ms
+     */
+    public RequestExecutor(String name, int threads, int queueSize, long timeout)
+    {
+        final String prefix = "RequestWorker-" + name + "-";
+        ThreadFactory factory = virtualThreads(prefix);
+        this.virtual = factory != null;
+        this.timeout = timeout;
+        
+        if(factory == null)
+        {
+            factory = new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+                
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, prefix + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+        }
+        
+        // Virtual threads cost little while blocked, so more may wait on I/O at once.
+        if(threads <= 0)
+            threads = virtual ? 256 : Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        
+        workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), factory);
+        workers.allowCoreThreadTimeOut(true);
+        
+        waitTime = Metrics.histogram("cseGame_async_wait_seconds", "pool", name);
+        rejected = Metrics.counter("cseGame_async_rejected_total", "pool", name);
+        expired = Metrics.counter("cseGame_async_expired_total", "pool", name);
+        Metrics.gauge("cseGame_async_queued", new Gauge(){ public long get(){ return workers.getQueue().size(); } }, "pool", name);
+        Metrics.gauge("cseGame_async_active", new Gauge(){ public long get(){ return workers.getActiveCount(); } }, "pool", name);
+    }
+    
+    /** Returns the executor for this webapp, creating it on first use. */
+    public static RequestExecutor get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            RequestExecutor executor = (RequestExecutor)context.getAttribute(CONTEXT_KEY);
+            
+            if(executor == null)
+            {
+                executor = new RequestExecutor("requests", (int)param(context, "threads", 0),
+                        (int)param(context, "queueSize", 512), param(context, "timeout", 30000));
+                context.setAttribute(CONTEXT_KEY, executor);
+                
+                log.info("Request workers: " + executor.workers.getMaximumPoolSize() + " " +
+                        (executor.virtual ? "virtual" : "platform") + " threads, " +
+                        executor.workers.getQueue().remainingCapacity() + " queued at most.");
+            }
+            return executor;
+        }
+    }
+    
+    /** Stops the webapp's request workers, if it has any. */
+    public static void close(ServletContext context)
+    {
+        RequestExecutor executor;
+        
+        synchronized(context)
+        {
+            executor = (RequestExecutor)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(executor != null)
+            executor.shutdown();
+    }
+    
+    /** Stops the workers; tasks still queued are dropped. */
+    public void shutdown()
+    {
+        workers.shutdownNow();
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.async." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    /** Returns a factory of virtual threads, or null before Java 21. */
+    private static ThreadFactory virtualThreads(String prefix)
+    {
+        try
+        {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object named = builder.getMethod("name", String.class, long.class).invoke(
+                    Thread.class.getMethod("ofVirtual").invoke(null), prefix, 1L);
+            return (ThreadFactory)builder.getMethod("factory").invoke(named);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Runs a task for a request on a worker. A request that cannot go async
+     * runs it on the calling thread. A request that is not done when the
+     * timeout passes is answered with 503: a task still waiting for a
+     * worker is dropped, and one already running is cut off from the
+     * response.
+     */
+    public void dispatch(HttpServletRequest request, HttpServletResponse response, final Task task) throws ServletException, IOException
+    {
+        if(!request.isAsyncSupported())
+        {
+            task.run(request, response);
+            return;
+        }
+        
+        final AsyncContext async = request.startAsync();
+        final TaskResponse taskResponse = new TaskResponse((HttpServletResponse)async.getResponse());
+        
+        async.setTimeout(timeout);
+        async.addListener(new AsyncListener()
+        {
+            public void onTimeout(AsyncEvent event) throws IOException
+            {
+                if(!taskResponse.cutOff())
+                    return;
+                
+                expired.increment();
+                try
+                {
+                    HttpServletResponse response = (HttpServletResponse)async.getResponse();
+                    if(!response.isCommitted())
+                        busy(response);
+                }
+                finally { async.complete(); }
+            }
+            public void onError(AsyncEvent event){ taskResponse.cutOff(); }
+            public void onComplete(AsyncEvent event){}
+            public void onStartAsync(AsyncEvent event){}
+        });
+        
+        try
+        {
+            workers.execute(new Job()
+            {
+                public void run()
+                {
+                    if(taskResponse.isCut())
+                        return;
+                    
+                    waitTime.recordSince(queued);
+                    try
+                    {
+                        task.run((HttpServletRequest)async.getRequest(), taskResponse);
+                    }
+                    catch (Exception e)
+                    {
+                        if(!taskResponse.isCut())
+                            log.log(Level.WARNING, "Request task failed.", e);
+                        try
+                        {
+                            if(!taskResponse.isCommitted())
+                                taskResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        }
+                        catch (IOException ignored) { /* client went away, or timed out */ }
+                    }
+                    finally
+                    {
+                        // Unless the timeout answered first.
+                        if(taskResponse.cutOff())
+                            async.complete();
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            if(taskResponse.cutOff())
+            {
+                rejected.increment();
+                busy(response);
+                async.complete();
+            }
+        }
+    }
+    
+    /** Tells the client the server is too busy and when to try again. */
+    public static void busy(HttpServletResponse response) throws IOException
+    {
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many requests waiting.");
+    }
+    
+    public int getQueued(){ return workers.getQueue().size(); }
+    
+    /** How long the oldest waiting task has been queued, in ns; 0 if none is. */
+    public long getQueueDelayNanos()
+    {
+        Runnable oldest = workers.getQueue().peek();
+        return oldest instanceof Job ? System.nanoTime() - ((Job)oldest).queued : 0;
+    }
+}
@@ -14,12 +14,23 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 
+import javax.servlet.ServletContext;
+
+import cseGame.cache.AssetCache;
+import cseGame.render.CssRenderer;
+import cseGame.render.MapRenderer;
+import cseGame.render.SpriteAtlas;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
 /**
  *
  * @author Andrew
  */
 public class SpriteLoader
 {
+    private static final Histogram PARSE = Metrics.histogram("cseGame_parse_seconds", "handler", "SpriteXMLReader");
+    
     private SpriteXMLReader sLoad = new SpriteXMLReader();
     
     private String retData = "";
@@ -28,17 +39,63 @@ public class SpriteLoader
     // Load Sprites
     public SpriteLoader(String path)
     {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
         try 
         {                   
-            // Parse the input
-            InputStream istream = new FileInputStream(path);
-            SAXParser saxParser = factory.newSAXParser();
-            saxParser.parse(istream, sLoad);
+            parse(new File(path), sLoad);
 
         } catch (Throwable t){ retData += t.toString(); }        
     }
     
+    /**
+     * Returns the sprite CSS for a sprite file from the webapp's shared
+     * AssetCache, only parsing the file when it has changed. The webapp's
+     * own sprites.xml is served from the SpriteAtlas unless that is disabled.
+     * @param context webapp the cache belongs to
+     * @param path real path of the sprite file
+     */
+    public static String getStyles(ServletContext context, String path)
+    {
+        if(SpriteAtlas.isEnabled(context) && new File(path).equals(new File(context.getRealPath("GameData/sprites.xml"))))
+        {
+            try
+            {
+                return SpriteAtlas.get(context).getCss();
+            }
+            catch (Throwable t){ context.log("Sprite atlas unavailable; using separate images.", t); }
+        }
+        
+        try
+        {
+            return AssetCache.get(context).get(new File(path), "sprites", new AssetCache.Compiler()
+            {
+                public String compile(File source) throws Exception
+                {
+                    SpriteXMLReader reader = new SpriteXMLReader();
+                    parse(source, reader);
+                    return reader.toString();
+                }
+            }).getText();
+            
+        } catch (Throwable t){ return t.toString(); }
+    }
+    
+    private static void parse(File source, DefaultHandler handler) throws Exception
+    {
+        long start = System.nanoTime();
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        
+        // Parse the input
+        InputStream istream = new FileInputStream(source);
+        try
+        {
+            SAXParser saxParser = factory.newSAXParser();
+            saxParser.parse(istream, handler);
+        }
+        finally { istream.close(); }
+        
+        PARSE.recordSince(start);
+    }
+    
     public String toString()
     {
         retData += sLoad.toString();
@@ -46,62 +103,60 @@ public class SpriteLoader
     }
 }
 
+/**
+ * Passes the sprites of a sprite file to a MapRenderer as they are parsed;
+ * by default, CSS rules one per line, returned by toString().
+ */
 class SpriteXMLReader extends DefaultHandler
 {   
-    private String retData = "";
+    private final MapRenderer renderer;
+    
+    /** Collects the output when no renderer was given. */
+    private ByteArrayOutputStream retData = null;
     
     private int layer = 0;
-    private String name, type, src, width, height, id;
     private boolean done = false;
     
+    SpriteXMLReader()
+    {
+        retData = new ByteArrayOutputStream();
+        
+        try
+        {
+            renderer = new CssRenderer(retData, "\n");
+        }
+        catch (IOException e){ throw new IllegalStateException(e); }
+    }
+    
+    SpriteXMLReader(MapRenderer renderer)
+    {
+        this.renderer = renderer;
+    }
+    
     public void startElement(String namespaceURI, String sName,  String qName, Attributes attrs)    throws SAXException
     {
           // Element name, Attribute name
-        String eName, aName;
+        String eName;
         
         if((eName = sName).equals(""))
             eName = qName; // namespaceAware = false
         
         if(eName.equals("layer"))
         {
-            if(attrs != null)
-            {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("type"))
-                        layer = Integer.parseInt(attrs.getValue(i));
-                }
-            }
+            String type = attrs.getValue("type");
+            if(type != null)
+                layer = Integer.parseInt(type);
         }
         else if(eName.equals("sprite"))
         {
-            String id = "1", width = "24", height = "24", src = "grass.png", type = "Terrain";
-            if(attrs != null)
+            String id = value(attrs, "id", "1"), width = value(attrs, "width", "24"), height = value(attrs, "height", "24");
+            String src = value(attrs, "src", "grass.png"), type = value(attrs, "type", "Terrain");
+            
+            try
             {
-                for (int i = 0; i < attrs.getLength(); i++) 
-                {
-                    if((aName = attrs.getLocalName(i)).equals(""))
-                        aName = attrs.getQName(i);
-                    
-                    if(aName.equals("id"))
-                        id = attrs.getValue(i);
-                    else if(aName.equals("src"))
-                        src = attrs.getValue(i);
-                    else if(aName.equals("width"))
-                        width = attrs.getValue(i);
-                    else if(aName.equals("height"))
-                        height = attrs.getValue(i);
-                    else if(aName.equals("type"))
-                        type = attrs.getValue(i);
-                }
-                
-                src = "Images/" + type + "/" + src;
-                
-                retData += ".sp"+id+"{ z-index: "+ layer +"; position: absolute; width: "+width+"px; height: "+height+"px; background-image: url('"+src+"'); }\n";
-            }           
+                renderer.sprite(layer, id, type, "Images/" + type + "/" + src, Integer.parseInt(width), Integer.parseInt(height));
+            }
+            catch (IOException e){ throw new SAXException(e); }
         }
     }
     
@@ -116,6 +171,30 @@ class SpriteXMLReader extends DefaultHandler
             done = true;
     }
     
+    public void endDocument() throws SAXException
+    {
+        try
+        {
+            renderer.finish();
+        }
+        catch (IOException e){ throw new SAXException(e); }
+    }
     
-    public String toString(){   return retData;   }
+    private static String value(Attributes attrs, String name, String def)
+    {
+        String value = attrs.getValue(name);
+        return value == null ? def : value;
+    }
+    
+    public String toString()
+    {
+        if(retData == null)
+            return "";
+        
+        try
+        {
+            return retData.toString("UTF-8");
+        }
+        catch (UnsupportedEncodingException e){ throw new IllegalStateException(e); }
+    }
 }
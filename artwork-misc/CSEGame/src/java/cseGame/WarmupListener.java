@@ -0,0 +1,182 @@
+/*
+ * WarmupListener.java - WarmupListener Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import cseGame.chat.ChatStore;
+import cseGame.chat.chat;
+import cseGame.map.MapCompiler;
+import cseGame.map.MapStore;
+import cseGame.map.PathFinder;
+import cseGame.render.SpriteAtlas;
+
+/**
+ * Fills the webapp's caches before it takes requests. Every file in
+ * GameData is parsed and compiled, the object catalog is loaded and the
+ * connection pools are opened, all in parallel on one thread per core.
+ * The container does not route requests to the webapp until
+ * contextInitialized returns, so the first request finds everything warm.
+ * <p>
+ * A failed step is logged and left to be done on demand; it does not stop
+ * the deploy. <code>cseGame.warmup.threads</code> and
+ * <code>cseGame.warmup.timeout</code> (ms) bound the work.
+ */
+public class WarmupListener implements ServletContextListener
+{
+    private static final Logger log = Logger.getLogger(WarmupListener.class.getName());
+    
+    /** A named warm-up step. */
+    private static abstract class Step implements Callable<Long>
+    {
+        final String name;
+        
+        Step(String name){ this.name = name; }
+        
+        abstract void run() throws Exception;
+        
+        /** Runs the step, returning how long it took in ns. */
+        public Long call() throws Exception
+        {
+            long start = System.nanoTime();
+            run();
+            return System.nanoTime() - start;
+        }
+    }
+    
+    public void contextInitialized(ServletContextEvent event)
+    {
+        final ServletContext context = event.getServletContext();
+        long start = System.nanoTime();
+        
+        List<Step> steps = steps(context);
+        int threads = (int)param(context, "threads", Runtime.getRuntime().availableProcessors());
+        long timeout = param(context, "timeout", 120000);
+        
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, steps.size())), new ThreadFactory()
+        {
+            private int count = 0;
+            
+            public synchronized Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "Warmup-" + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        
+        int failed = 0;
+        try
+        {
+            List<Future<Long>> results = workers.invokeAll(steps, timeout, TimeUnit.MILLISECONDS);
+            
+            for(int i = 0; i < steps.size(); i++)
+            {
+                String name = steps.get(i).name;
+                try
+                {
+                    log.info("Warmed " + name + " in " + millis(results.get(i).get()) + " ms.");
+                }
+                catch (CancellationException e)
+                {
+                    failed++;
+                    log.warning("Warming " + name + " did not finish within " + timeout + " ms.");
+                }
+                catch (ExecutionException e)
+                {
+                    failed++;
+                    log.log(Level.WARNING, "Warming " + name + " failed; it will be loaded on demand.", e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            log.warning("Warm-up interrupted.");
+        }
+        finally { workers.shutdownNow(); }
+        
+        log.info("Warm-up of " + steps.size() + " steps finished in " + millis(System.nanoTime() - start) +
+                " ms on " + threads + " threads" + (failed == 0 ? "." : "; " + failed + " failed."));
+    }
+    
+    public void contextDestroyed(ServletContextEvent event){}
+    
+    /** One step per GameData file, plus the object catalog and the chat database. */
+    private static List<Step> steps(final ServletContext context)
+    {
+        List<Step> steps = new ArrayList<Step>();
+        
+        String path = context.getRealPath("GameData");
+        File[] files = path == null ? null : new File(path).listFiles();
+        
+        for(int i = 0; files != null && i < files.length; i++)
+        {
+            final File file = files[i];
+            
+            if(!file.getName().endsWith(".xml"))
+                continue;
+            
+            // Telling maps apart means reading the file, so it is part of the step.
+            steps.add(new Step(file.getName())
+            {
+                void run() throws Exception
+                {
+                    if(file.getName().equals("sprites.xml"))
+                    {
+                        if(SpriteAtlas.isEnabled(context))
+                            SpriteAtlas.get(context);
+                        SpriteLoader.getStyles(context, file.getPath());
+                        game.loadData(context, MapHandler.LOAD_SPRITES, file, "css");
+                    }
+                    else if(MapCompiler.isMap(file))
+                    {
+                        String map = MapStore.baseName(file.getName());
+                        MapStore.get(context).get(map);
+                        PathFinder.forMap(context, map);
+                        game.loadData(context, MapHandler.LOAD_MAP, file, "html");
+                    }
+                }
+            });
+        }
+        
+        steps.add(new Step("object catalog")
+        {
+            void run() throws Exception
+            {
+                int rows = objectQuery.getCatalog(context).warm();
+                log.info("Object catalog loaded " + rows + " rows.");
+            }
+        });
+        
+        steps.add(new Step("chat database")
+        {
+            void run() throws Exception
+            {
+                ChatStore.get(context, chat.getPool(context));
+            }
+        });
+        
+        return steps;
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.warmup." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    private static long millis(long nanos){ return nanos / 1000000; }
+}
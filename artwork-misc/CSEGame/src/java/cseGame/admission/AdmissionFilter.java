@@ -0,0 +1,226 @@
+/*
+ * AdmissionFilter.java - AdmissionFilter Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.admission;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import cseGame.RequestExecutor;
+import cseGame.db.ConnectionPool;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Metrics;
+
+/**
+ * Turns requests away with 429 and Retry-After before they reach the
+ * database. Each endpoint (servlet path) has a token bucket per client
+ * address, one per user parameter, and one shared by everybody. Nothing
+ * vouches for the user parameter, so a client that makes up a new one for
+ * every request is still held by its address' bucket; the address' and
+ * the user's are taken first so a flood does not use up the shared one.
+ * Settings are read per endpoint, falling back to the common ones:
+ * <pre>
+ *   cseGame.admission.chat.userRate     cseGame.admission.userRate
+ * </pre>
+ * When requests wait longer than maxQueueMillis for a request worker, or
+ * maxPoolWaitMillis for a connection from the endpoint's pool, the server
+ * is overloaded and a client must also leave half their burst unspent:
+ * those sending the most are shed while the rest keep being served.
+ * <p>
+ * At most maxUsers users, and as many addresses, are tracked per endpoint;
+ * those that have not sent anything for a while are forgotten, and past
+ * the limit newcomers are turned away until some are.
+ */
+public class AdmissionFilter implements Filter
+{
+    /** Too Many Requests; HttpServletResponse has no name for it. */
+    static final int SC_TOO_MANY_REQUESTS = 429;
+    
+    private static final long SWEEP_NANOS = 1000000000L;
+    
+    /** A bucket per client of one kind, users or addresses. */
+    private final class Buckets
+    {
+        final double rate;
+        final int burst;
+        final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+        final AtomicLong nextSweep;
+        final Counter over;
+        
+        Buckets(String endpoint, String kind, String rate, String burst, long now)
+        {
+            this.rate = Double.parseDouble(param(endpoint, kind + "Rate", rate));
+            this.burst = Integer.parseInt(param(endpoint, kind + "Burst", burst));
+            nextSweep = new AtomicLong(now);
+            over = Metrics.counter("cseGame_admission_rejected_total", "endpoint", endpoint, "reason", kind);
+            Metrics.gauge("cseGame_admission_clients", new Gauge(){ public long get(){ return buckets.size(); } },
+                    "endpoint", endpoint, "kind", kind);
+        }
+        
+        /** Returns a client's bucket, or null if too many clients are tracked to add it. */
+        TokenBucket get(String key, long now)
+        {
+            TokenBucket bucket = buckets.get(key);
+            if(bucket == null)
+            {
+                if(buckets.size() >= maxUsers)
+                {
+                    sweep(now);
+                    if(buckets.size() >= maxUsers)
+                        return null;
+                }
+                
+                TokenBucket created = new TokenBucket(rate, burst, now);
+                bucket = buckets.putIfAbsent(key, created);
+                if(bucket == null)
+                    bucket = created;
+            }
+            return bucket;
+        }
+        
+        /** Forgets the clients whose buckets have filled up again, at most once a second. */
+        void sweep(long now)
+        {
+            long next = nextSweep.get();
+            if(now - next < 0 || !nextSweep.compareAndSet(next, now + SWEEP_NANOS))
+                return;
+            
+            for(Iterator<TokenBucket> i = buckets.values().iterator(); i.hasNext();)
+            {
+                if(i.next().isFull(now))
+                    i.remove();
+            }
+        }
+        
+        /**
+         * Takes a token from a client's bucket, keeping half the burst back
+         * when the server is overloaded.
+         * @return 0 if taken, else ns until the client may try again
+         */
+        long take(String key, long now, boolean overloaded)
+        {
+            TokenBucket bucket = get(key, now);
+            return bucket == null ? SWEEP_NANOS : bucket.take(now, overloaded ? burst / 2 : 0);
+        }
+    }
+    
+    /** The buckets and settings of one endpoint, set up once per path. */
+    private final class Endpoint
+    {
+        final String pool;
+        final Buckets addresses, users;
+        final TokenBucket global;
+        final Counter overGlobal, shed;
+        
+        Endpoint(String name, long now)
+        {
+            pool = param(name, "pool", null);
+            addresses = new Buckets(name, "address", "100", "200", now);
+            users = new Buckets(name, "user", "20", "40", now);
+            global = new TokenBucket(Double.parseDouble(param(name, "globalRate", "2000")),
+                    Integer.parseInt(param(name, "globalBurst", "4000")), now);
+            
+            overGlobal = Metrics.counter("cseGame_admission_rejected_total", "endpoint", name, "reason", "global");
+            shed = Metrics.counter("cseGame_admission_rejected_total", "endpoint", name, "reason", "overload");
+        }
+        
+        boolean isOverloaded()
+        {
+            if(RequestExecutor.get(context).getQueueDelayNanos() > maxQueueNanos)
+                return true;
+            
+            ConnectionPool connections = pool == null ? null : (ConnectionPool)context.getAttribute(ConnectionPool.CONTEXT_PREFIX + pool);
+            return connections != null && connections.getWaitNanos() > maxPoolWaitNanos;
+        }
+    }
+    
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    private ServletContext context;
+    private long maxQueueNanos, maxPoolWaitNanos;
+    private int maxUsers;
+    
+    public void init(FilterConfig config)
+    {
+        context = config.getServletContext();
+        maxQueueNanos = Long.parseLong(param(null, "maxQueueMillis", "100")) * 1000000L;
+        maxPoolWaitNanos = Long.parseLong(param(null, "maxPoolWaitMillis", "50")) * 1000000L;
+        maxUsers = Integer.parseInt(param(null, "maxUsers", "20000"));
+    }
+    
+    private String param(String endpoint, String name, String def)
+    {
+        String value = endpoint == null ? null : context.getInitParameter("cseGame.admission." + endpoint + "." + name);
+        if(value == null)
+            value = context.getInitParameter("cseGame.admission." + name);
+        return value == null ? def : value.trim();
+    }
+    
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException
+    {
+        if(!(request instanceof HttpServletRequest))
+        {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        long now = System.nanoTime();
+        String path = ((HttpServletRequest)request).getServletPath();
+        Endpoint endpoint = endpoints.get(path);
+        
+        if(endpoint == null)
+        {
+            Endpoint created = new Endpoint(path.startsWith("/") ? path.substring(1) : path, now);
+            endpoint = endpoints.putIfAbsent(path, created);
+            if(endpoint == null)
+                endpoint = created;
+        }
+        
+        boolean overloaded = endpoint.isOverloaded();
+        String user = request.getParameter("user");
+        
+        Buckets over = endpoint.addresses;
+        long wait = over.take(request.getRemoteAddr(), now, overloaded);
+        if(wait == 0 && user != null && user.trim().length() > 0)
+        {
+            over = endpoint.users;
+            wait = over.take(user, now, overloaded);
+        }
+        
+        if(wait > 0)
+        {
+            (overloaded ? endpoint.shed : over.over).increment();
+            reject((HttpServletResponse)response, wait, overloaded ? "Server busy, slow down." : "Too many requests.");
+            return;
+        }
+        
+        wait = endpoint.global.take(now, 0);
+        if(wait > 0)
+        {
+            endpoint.overGlobal.increment();
+            reject((HttpServletResponse)response, wait, "Server busy.");
+            return;
+        }
+        
+        chain.doFilter(request, response);
+    }
+    
+    /** Answers 429, telling the client in whole seconds when a token is due. */
+    private static void reject(HttpServletResponse response, long waitNanos, String message) throws IOException
+    {
+        response.setHeader("Retry-After", Long.toString(Math.max(1, (waitNanos + 999999999L) / 1000000000L)));
+        response.sendError(SC_TOO_MANY_REQUESTS, message);
+    }
+    
+    public void destroy(){}
+}
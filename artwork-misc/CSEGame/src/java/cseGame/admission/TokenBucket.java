@@ -0,0 +1,68 @@
+/*
+ * TokenBucket.java - TokenBucket Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that refills at a steady rate up to a burst. Rather than
+ * counting tokens it keeps the single time at which the bucket will next
+ * be full again, so taking a token is one compare-and-set and needs no
+ * lock or refill timer. Times are System.nanoTime().
+ */
+public final class TokenBucket
+{
+    /** ns it takes to earn one token. */
+    private final long interval;
+    
+    /** How far past now the bucket may be drawn, in ns: all but one token of the burst. */
+    private final long tolerance;
+    
+    /** When the bucket is next full; at or before now it is full already. */
+    private final AtomicLong full;
+    
+    /**
+     * @param rate  tokens earned per second
+     * @param burst tokens the bucket holds, taken at once by an idle caller
+     * @param now   the bucket starts full
+     */
+    public TokenBucket(double rate, int burst, long now)
+    {
+        if(rate <= 0 || burst < 1)
+            throw new IllegalArgumentException("Rate and burst must be positive.");
+        
+        interval = Math.max(1, (long)(1e9 / rate));
+        tolerance = interval * (burst - 1);
+        full = new AtomicLong(now);
+    }
+    
+    /**
+     * Takes a token if the bucket would still hold at least reserve more
+     * afterwards.
+     * @return 0 if a token was taken, else the ns until one could be
+     */
+    public long take(long now, int reserve)
+    {
+        long limit = now + tolerance - reserve * interval;
+        
+        for(;;)
+        {
+            long due = full.get();
+            if(due - limit > 0)
+                return due - limit;
+            
+            if(full.compareAndSet(due, (due - now > 0 ? due : now) + interval))
+                return 0;
+        }
+    }
+    
+    /** True if the bucket has filled up again, so forgetting it loses nothing. */
+    public boolean isFull(long now)
+    {
+        return full.get() - now <= 0;
+    }
+}
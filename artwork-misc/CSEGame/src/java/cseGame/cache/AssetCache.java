@@ -0,0 +1,221 @@
+/*
+ * AssetCache.java - AssetCache Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.io.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Shared cache of generated GameData output (map HTML, sprite CSS, ...).
+ * Entries are keyed by file and kind of output, and are rebuilt whenever the
+ * file's modification time or length changes. Concurrent misses for the
+ * same entry are built once and shared. One instance lives in the
+ * ServletContext so that servlets and JSPs share it.
+ */
+public class AssetCache
+{
+    /** ServletContext attribute the shared cache is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.assetCache";
+    
+    /**
+     * Generates the text for a GameData file. Implementations must not keep
+     * per-call state in fields since the cache may call them concurrently.
+     */
+    public interface Compiler
+    {
+        String compile(File source) throws Exception;
+    }
+    
+    private static final Counter HITS = Metrics.counter("cseGame_asset_cache_hits_total");
+    private static final Counter MISSES = Metrics.counter("cseGame_asset_cache_misses_total");
+    private static final Histogram COMPILE_TIME = Metrics.histogram("cseGame_asset_compile_seconds");
+    
+    private final ConcurrentMap<String, CompiledAsset> assets = new ConcurrentHashMap<String, CompiledAsset>();
+    
+    private final SingleFlight<CompiledAsset> builds = new SingleFlight<CompiledAsset>("asset");
+    
+    /** Returns the cache for this webapp, creating it on first use. */
+    public static AssetCache get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            AssetCache cache = (AssetCache)context.getAttribute(CONTEXT_KEY);
+            
+            if(cache == null)
+            {
+                cache = new AssetCache();
+                context.setAttribute(CONTEXT_KEY, cache);
+                
+                final AssetCache entries = cache;
+                Metrics.gauge("cseGame_asset_cache_size", new Gauge(){ public long get(){ return entries.size(); } });
+            }
+            return cache;
+        }
+    }
+    
+    /**
+     * Returns the compiled form of a file, building it if it is missing or the
+     * file has changed since it was built. Callers that miss while the
+     * entry is being built wait for that build rather than starting another.
+     * @param source GameData file
+     * @param kind   distinguishes different outputs built from the same file
+     * @param compiler used on a miss
+     */
+    public CompiledAsset get(final File source, String kind, final Compiler compiler) throws Exception
+    {
+        final String key = kind + ":" + source.getPath();
+        CompiledAsset asset = assets.get(key);
+        
+        if(asset != null && asset.isCurrent(source))
+        {
+            HITS.increment();
+            return asset;
+        }
+        
+        return builds.run(key, new Callable<CompiledAsset>()
+        {
+            public CompiledAsset call() throws Exception
+            {
+                // A build that finished between the lookup and joining the flight.
+                CompiledAsset asset = assets.get(key);
+                if(asset != null && asset.isCurrent(source))
+                    return asset;
+                
+                MISSES.increment();
+                
+                // Read the file stats before parsing so a write during the parse
+                // leaves the entry stale rather than current.
+                long modified = source.lastModified();
+                long length = source.length();
+                
+                long start = System.nanoTime();
+                asset = new CompiledAsset(compiler.compile(source), modified, length);
+                COMPILE_TIME.recordSince(start);
+                assets.put(key, asset);
+                return asset;
+            }
+        });
+    }
+    
+    /** Drops every entry built from the given file. */
+    public void invalidate(File source)
+    {
+        String suffix = ":" + source.getPath();
+        
+        for(String key : assets.keySet())
+        {
+            if(key.endsWith(suffix))
+                assets.remove(key);
+        }
+    }
+    
+    public void clear(){ assets.clear(); }
+    
+    public int size(){ return assets.size(); }
+    
+    /**
+     * Writes an asset to the response, answering with 304 Not Modified when
+     * the client's copy is current and using the gzip form when accepted.
+     * @return body bytes written
+     */
+    public static int send(CompiledAsset asset, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        response.setHeader("ETag", asset.getETag());
+        response.setDateHeader("Last-Modified", asset.getLastModified());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+        
+        if(isNotModified(asset, request))
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return 0;
+        }
+        
+        byte[] body = asset.getBytes();
+        
+        if(acceptsGzip(request.getHeader("Accept-Encoding")))
+        {
+            response.setHeader("Content-Encoding", "gzip");
+            body = asset.getGzipBytes();
+        }
+        
+        response.setContentLength(body.length);
+        OutputStream out = response.getOutputStream();
+        out.write(body);
+        out.close();
+        return body.length;
+    }
+    
+    /**
+     * Returns true if an Accept-Encoding header allows gzip: it is listed,
+     * or covered by <code>*</code>, with a q-value above zero.
+     */
+    static boolean acceptsGzip(String accept)
+    {
+        if(accept == null)
+            return false;
+        
+        float gzip = -1, any = -1;
+        String[] codings = accept.split(",");
+        
+        for(int i = 0; i < codings.length; i++)
+        {
+            String[] parts = codings[i].split(";");
+            String coding = parts[0].trim().toLowerCase();
+            float q = 1;
+            
+            for(int p = 1; p < parts.length; p++)
+            {
+                String param = parts[p].trim();
+                if(param.length() > 2 && Character.toLowerCase(param.charAt(0)) == 'q' && param.charAt(1) == '=')
+                {
+                    try
+                    {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    }
+                    catch (NumberFormatException e){ q = 0; }
+                }
+            }
+            
+            if(coding.equals("gzip") || coding.equals("x-gzip"))
+                gzip = Math.max(gzip, q);
+            else if(coding.equals("*"))
+                any = q;
+        }
+        
+        // A coding named outright overrides the wildcard.
+        return (gzip >= 0 ? gzip : any) > 0;
+    }
+    
+    private static boolean isNotModified(CompiledAsset asset, HttpServletRequest request)
+    {
+        String match = request.getHeader("If-None-Match");
+        
+        // If-None-Match takes precedence over If-Modified-Since.
+        if(match != null)
+            return match.equals("*") || match.indexOf(asset.getETag()) >= 0;
+        
+        long since = -1;
+        try
+        {
+            since = request.getDateHeader("If-Modified-Since");
+        } catch(IllegalArgumentException e){ /* malformed date, ignore */ }
+        
+        return since != -1 && asset.getLastModified() <= since;
+    }
+}
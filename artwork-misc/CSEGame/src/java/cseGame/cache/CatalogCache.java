@@ -0,0 +1,477 @@
+/*
+ * CatalogCache.java - CatalogCache Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.io.*;
+import java.sql.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletContext;
+
+import cseGame.db.ConnectionPool;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Read-through cache of the static game content tables (ITEMS, MAPOBJECT
+ * and NPCS), keyed by int id. Each row is stored already serialized as the
+ * JSON objectQuery sends, so a hit is written straight to the response.
+ * Identical concurrent misses share one query. Ids without a row are
+ * remembered for a while too, so a row added later shows up on its own.
+ * Rows read by a load that an invalidation overtook are not cached.
+ */
+public class CatalogCache
+{
+    /** ServletContext attribute the shared catalog is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.catalogCache";
+    
+    /** Object types, with the table and id column each is stored under. */
+    public static final String[] TYPES   = { "items",  "mapObj",    "npc"  };
+    public static final String[] TABLES  = { "ITEMS",  "MAPOBJECT", "NPCS" };
+    public static final String[] ID_COLS = { "ITEMID", "ID",        "ID"   };
+    
+    public static final int MAP_OBJECT = 1;
+    
+    /** Largest IN (...) list sent in one statement. */
+    private static final int MAX_BATCH = 256;
+    
+    private static final byte[][] TYPE_TAGS = new byte[TYPES.length][];
+    
+    private static final Histogram[] QUERY_TIME = new Histogram[TYPES.length];
+    private static final Counter[] ROWS_READ = new Counter[TYPES.length];
+    
+    static
+    {
+        for(int t = 0; t < TYPES.length; t++)
+        {
+            TYPE_TAGS[t] = ascii(", 'type': '" + TYPES[t] + "'");
+            QUERY_TIME[t] = Metrics.histogram("cseGame_db_query_seconds", "table", TABLES[t]);
+            ROWS_READ[t] = Metrics.counter("cseGame_db_rows_read_total", "table", TABLES[t]);
+        }
+    }
+    
+    /** A serialized row. */
+    public static final class Row
+    {
+        private static final byte[] NONE = new byte[0];
+        
+        /** Stands for an id with no row. */
+        public static final Row ABSENT = new Row(NONE, 0, null, 0);
+        
+        private final byte[] json;
+        /** Where the type tag goes when the row is part of a batch. */
+        private final int split;
+        /** The SCRIPT column as stored, for running it on the server. */
+        private final String script;
+        /** When a cached absence stops counting as a hit, or 0 for never. */
+        private final long expires;
+        
+        Row(byte[] json, int split, String script)
+        {
+            this(json, split, script, 0);
+        }
+        
+        private Row(byte[] json, int split, String script, long expires)
+        {
+            this.json = json;
+            this.split = split;
+            this.script = script;
+            this.expires = expires;
+        }
+        
+        /** Marks an id with no row, so repeated lookups of it are hits until the time given. */
+        static Row absentUntil(long expires){ return new Row(NONE, 0, null, expires); }
+        
+        public boolean exists(){ return json != NONE; }
+        
+        boolean isExpired(long now){ return expires != 0 && now >= expires; }
+        
+        /** The object's script, URI encoded as the client receives it, or null. */
+        public String getScript(){ return script; }
+        
+        /**
+         * Writes the row's JSON object.
+         * @param tagType type to tag the object with, or -1 for none
+         */
+        public void writeTo(OutputStream out, int tagType) throws IOException
+        {
+            if(tagType < 0)
+                out.write(json);
+            else
+            {
+                out.write(json, 0, split);
+                out.write(TYPE_TAGS[tagType]);
+                out.write(json, split, json.length - split);
+            }
+        }
+    }
+    
+    private final ConnectionPool pool;
+    private final IntCache<Row>[] tables;
+    
+    /** How long an id with no row is remembered. */
+    private final long absentMillis;
+    
+    /** Bumped by every invalidation of a type, before its rows are dropped. */
+    private final AtomicLong[] generations;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    private final SingleFlight<Object> loads = new SingleFlight<Object>("catalog");
+    
+    /**
+     * @param capacity     rows cached per table
+     * @param absentMillis how long an id with no row is remembered
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CatalogCache(ConnectionPool pool, int capacity, long absentMillis)
+    {
+        this.pool = pool;
+        this.absentMillis = absentMillis;
+        this.tables = new IntCache[TYPES.length];
+        this.generations = new AtomicLong[TYPES.length];
+        
+        for(int t = 0; t < TYPES.length; t++)
+        {
+            tables[t] = new IntCache<Row>(capacity);
+            generations[t] = new AtomicLong();
+        }
+        
+        Metrics.counter("cseGame_catalog_hits_total", new Gauge(){ public long get(){ return getHits(); } });
+        Metrics.counter("cseGame_catalog_misses_total", new Gauge(){ public long get(){ return getMisses(); } });
+        Metrics.counter("cseGame_catalog_evictions_total", new Gauge(){ public long get(){ return getEvictions(); } });
+        for(int t = 0; t < TYPES.length; t++)
+        {
+            final int type = t;
+            Metrics.gauge("cseGame_catalog_size", new Gauge(){ public long get(){ return size(type); } }, "type", TYPES[t]);
+        }
+    }
+    
+    /** Returns the catalog for this webapp, creating it on first use. */
+    public static CatalogCache get(ServletContext context, ConnectionPool pool)
+    {
+        synchronized(context)
+        {
+            CatalogCache catalog = (CatalogCache)context.getAttribute(CONTEXT_KEY);
+            
+            if(catalog == null)
+            {
+                String capacity = context.getInitParameter("cseGame.catalog.capacity");
+                String absent = context.getInitParameter("cseGame.catalog.absentMillis");
+                catalog = new CatalogCache(pool, capacity == null ? 4096 : Integer.parseInt(capacity.trim()),
+                        absent == null ? 60000 : Long.parseLong(absent.trim()));
+                context.setAttribute(CONTEXT_KEY, catalog);
+            }
+            return catalog;
+        }
+    }
+    
+    /** Returns the index of an object type, defaulting to map objects. */
+    public static int typeIndex(String type)
+    {
+        for(int t = 0; type != null && t < TYPES.length; t++)
+        {
+            if(TYPES[t].equalsIgnoreCase(type.trim()))
+                return t;
+        }
+        return MAP_OBJECT;
+    }
+    
+    /** Returns one row, loading it on a miss. */
+    public Row get(int type, int id) throws SQLException
+    {
+        Row row = cached(type, id, System.currentTimeMillis());
+        
+        if(row != null)
+        {
+            hits.incrementAndGet();
+            return row;
+        }
+        
+        Row[] rows = new Row[1];
+        getAll(type, new int[]{ id }, rows);
+        return rows[0];
+    }
+    
+    /**
+     * Fills rows[i] with the row for ids[i]. Every miss is loaded with a
+     * single IN (...) query, which callers missing the same ids at the same
+     * time wait for instead of repeating.
+     */
+    public void getAll(int type, int[] ids, Row[] rows) throws SQLException
+    {
+        long now = System.currentTimeMillis();
+        int[] missing = null;
+        int missCount = 0;
+        
+        for(int i = 0; i < ids.length; i++)
+        {
+            rows[i] = cached(type, ids[i], now);
+            
+            if(rows[i] == null)
+            {
+                if(missing == null)
+                    missing = new int[ids.length - i];
+                missing[missCount++] = ids[i];
+            }
+        }
+        
+        hits.addAndGet(ids.length - missCount);
+        
+        if(missCount == 0)
+            return;
+        
+        misses.addAndGet(missCount);
+        Row[] loaded = load(type, missing, missCount);
+        
+        // The load's own rows, whether or not they stayed in the cache.
+        for(int i = 0, m = 0; i < ids.length; i++)
+        {
+            if(rows[i] == null)
+                rows[i] = loaded[m++];
+        }
+    }
+    
+    /** Returns a cached row, or null if there is none or it is an absence that has expired. */
+    private Row cached(int type, int id, long now)
+    {
+        Row row = tables[type].get(id);
+        return row == null || row.isExpired(now) ? null : row;
+    }
+    
+    /**
+     * Loads rows into the cache, or waits for the identical load already
+     * running, and returns them in the order of ids.
+     */
+    private Row[] load(final int type, final int[] ids, final int count) throws SQLException
+    {
+        StringBuilder key = new StringBuilder(8 + count * 4);
+        key.append(type);
+        for(int i = 0; i < count; i++)
+            key.append(',').append(ids[i]);
+        
+        try
+        {
+            return (Row[])loads.run(key.toString(), new Callable<Object>()
+            {
+                public Object call() throws SQLException
+                {
+                    long generation = generations[type].get();
+                    Connection con = pool.getConnection();
+                    try
+                    {
+                        return load(con, type, ids, count, generation);
+                    }
+                    finally { con.close(); }
+                }
+            });
+        }
+        catch (SQLException e) { throw e; }
+        catch (RuntimeException e) { throw e; }
+        catch (Exception e) { throw new SQLException(e.toString()); }
+    }
+    
+    /**
+     * Loads rows into the cache; ids without a row are cached as absent for
+     * a while. Returns the rows in the order of ids, ABSENT for those with
+     * no row.
+     * @param generation the type's generation before the read began
+     */
+    private Row[] load(Connection con, int type, int[] ids, int count, long generation) throws SQLException
+    {
+        Row[] rows = new Row[count];
+        
+        for(int from = 0; from < count; from += MAX_BATCH)
+        {
+            int n = Math.min(MAX_BATCH, count - from);
+            
+            // Round the list up to a power of two, repeating the last id, so
+            // only a handful of statement shapes end up in the cache.
+            int slots = 1;
+            while(slots < n)
+                slots <<= 1;
+            
+            StringBuilder sql = new StringBuilder(64 + slots * 3);
+            sql.append("SELECT * FROM ").append(TABLES[type]).append(" WHERE ").append(ID_COLS[type]);
+            
+            if(slots == 1)
+                sql.append(" = ?");
+            else
+            {
+                sql.append(" IN (?");
+                for(int i = 1; i < slots; i++)
+                    sql.append(", ?");
+                sql.append(')');
+            }
+            
+            PreparedStatement statement = con.prepareStatement(sql.toString());
+            try
+            {
+                for(int i = 0; i < slots; i++)
+                    statement.setInt(i + 1, ids[from + Math.min(i, n - 1)]);
+                
+                long start = System.nanoTime();
+                ResultSet result = statement.executeQuery();
+                while(result.next())
+                {
+                    int id = result.getInt(ID_COLS[type]);
+                    Row row = serialize(result, id);
+                    ROWS_READ[type].increment();
+                    
+                    for(int i = 0; i < n; i++)
+                    {
+                        if(ids[from + i] == id)
+                            rows[from + i] = row;
+                    }
+                }
+                result.close();
+                QUERY_TIME[type].recordSince(start);
+            }
+            finally { statement.close(); }
+        }
+        
+        Row absent = Row.absentUntil(System.currentTimeMillis() + absentMillis);
+        for(int i = 0; i < count; i++)
+            store(type, ids[i], rows[i] == null ? absent : rows[i], generation);
+        
+        for(int i = 0; i < count; i++)
+        {
+            if(rows[i] == null)
+                rows[i] = Row.ABSENT;
+        }
+        return rows;
+    }
+    
+    /**
+     * Caches a row read while the type was at the given generation. An
+     * invalidation bumps the generation before dropping rows, so checking
+     * after the put catches one that ran at any point since the read began.
+     */
+    private void store(int type, int id, Row row, long generation)
+    {
+        tables[type].put(id, row);
+        
+        if(generations[type].get() != generation)
+            tables[type].remove(id);
+    }
+    
+    private static Row serialize(ResultSet result, int id) throws SQLException
+    {
+        String script = result.getString("SCRIPT");
+        String head = "{'name': '" + result.getString("NAME") + "'" + ", 'id': '" + id + "'";
+        String tail = ", 'options': '" + result.getString("OPTIONS") + "'" +
+                ", 'script': '" + String.valueOf(script).replaceAll("'", "%27") + "'" +
+                ", 'flags': '" + result.getString("FLAGS") + "'}";
+        
+        byte[] headBytes = utf8(head);
+        byte[] tailBytes = utf8(tail);
+        byte[] json = new byte[headBytes.length + tailBytes.length];
+        System.arraycopy(headBytes, 0, json, 0, headBytes.length);
+        System.arraycopy(tailBytes, 0, json, headBytes.length, tailBytes.length);
+        
+        return new Row(json, headBytes.length, script);
+    }
+    
+    /**
+     * Loads every row of every table, up to each table's capacity.
+     * @return rows loaded
+     */
+    public int warm() throws SQLException
+    {
+        int loaded = 0;
+        Connection con = pool.getConnection();
+        
+        try
+        {
+            for(int t = 0; t < TYPES.length; t++)
+                loaded += warm(con, t);
+        }
+        finally { con.close(); }
+        
+        return loaded;
+    }
+    
+    /** Loads the rows of one table, up to its capacity. */
+    public int warm(Connection con, int type) throws SQLException
+    {
+        IntCache<Row> table = tables[type];
+        int loaded = 0;
+        
+        Statement statement = con.createStatement();
+        try
+        {
+            statement.setMaxRows(table.capacity());
+            ResultSet result = statement.executeQuery("SELECT * FROM " + TABLES[type]);
+            
+            long generation = generations[type].get();
+            while(result.next())
+            {
+                int id = result.getInt(ID_COLS[type]);
+                store(type, id, serialize(result, id), generation);
+                loaded++;
+            }
+            result.close();
+        }
+        finally { statement.close(); }
+        
+        return loaded;
+    }
+    
+    /** Drops one row so the next lookup reads it from the database again. */
+    public void invalidate(int type, int id)
+    {
+        generations[type].incrementAndGet();
+        tables[type].remove(id);
+    }
+    
+    /** Drops every row of one type. */
+    public void invalidate(int type)
+    {
+        generations[type].incrementAndGet();
+        tables[type].clear();
+    }
+    
+    public void invalidateAll()
+    {
+        for(int t = 0; t < TYPES.length; t++)
+            invalidate(t);
+    }
+    
+    public long getHits(){ return hits.get(); }
+    
+    public long getMisses(){ return misses.get(); }
+    
+    public long getEvictions()
+    {
+        long evictions = 0;
+        for(int t = 0; t < TYPES.length; t++)
+            evictions += tables[t].evictions();
+        return evictions;
+    }
+    
+    public int size(int type){ return tables[type].size(); }
+    
+    private static byte[] utf8(String s)
+    {
+        try
+        {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e){ throw new Error(e); }
+    }
+    
+    private static byte[] ascii(String s)
+    {
+        try
+        {
+            return s.getBytes("US-ASCII");
+        } catch (UnsupportedEncodingException e){ throw new Error(e); }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * CompiledAsset.java - CompiledAsset Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, pre-encoded output generated from a GameData file. Holds the
+ * UTF-8 and gzip forms of the same content so a request only has to pick
+ * one and copy it to the response.
+ */
+public final class CompiledAsset
+{
+    private final String text;
+    private final byte[] utf8;
+    private final byte[] gzip;
+    private final String etag;
+    
+    /** Modification time and length of the source file this was built from. */
+    private final long sourceModified;
+    private final long sourceLength;
+    
+    public CompiledAsset(String text, long sourceModified, long sourceLength) throws IOException
+    {
+        this.text = text;
+        this.utf8 = text.getBytes("UTF-8");
+        this.sourceModified = sourceModified;
+        this.sourceLength = sourceLength;
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(utf8.length / 4 + 64);
+        GZIPOutputStream gz = new GZIPOutputStream(bytes);
+        gz.write(utf8);
+        gz.close();
+        this.gzip = bytes.toByteArray();
+        
+        CRC32 crc = new CRC32();
+        crc.update(utf8);
+        this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(utf8.length) + "\"";
+    }
+    
+    /** Returns true if this asset was built from the file in its current state. */
+    public boolean isCurrent(File source)
+    {
+        return source.lastModified() == sourceModified && source.length() == sourceLength;
+    }
+    
+    public String getText(){ return text; }
+    
+    public byte[] getBytes(){ return utf8; }
+    
+    public byte[] getGzipBytes(){ return gzip; }
+    
+    public String getETag(){ return etag; }
+    
+    /** Last-Modified value, truncated to whole seconds as HTTP dates are. */
+    public long getLastModified(){ return sourceModified - sourceModified % 1000; }
+    
+    public String toString(){ return text; }
+}
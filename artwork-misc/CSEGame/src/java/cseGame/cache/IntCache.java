@@ -0,0 +1,212 @@
+/*
+ * IntCache.java - IntCache Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A size-bounded map from primitive int keys to values. Keys and values sit
+ * in parallel arrays with linear probing, so lookups neither box the key
+ * nor allocate. When full, entries are evicted in CLOCK (second chance)
+ * order: an entry read since the hand last passed it is skipped once.
+ * Reads share a read lock; writes take the write lock.
+ */
+public class IntCache<V>
+{
+    private static final int FREE = 0, USED = 1;
+    
+    private final int capacity;
+    private final int mask;
+    private final int[] keys;
+    private final Object[] values;
+    private final byte[] state;
+    /** CLOCK reference bits, set on read without the write lock (a lost update only costs a second chance). */
+    private final byte[] referenced;
+    
+    private int size = 0;
+    private int hand = 0;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /** @param capacity entries kept before eviction starts */
+    public IntCache(int capacity)
+    {
+        this.capacity = Math.max(1, capacity);
+        
+        // Keep the load factor at or below one half.
+        int slots = 2;
+        while(slots < this.capacity * 2)
+            slots <<= 1;
+        
+        this.mask = slots - 1;
+        this.keys = new int[slots];
+        this.values = new Object[slots];
+        this.state = new byte[slots];
+        this.referenced = new byte[slots];
+    }
+    
+    private static int hash(int key)
+    {
+        // Spread sequential ids across the table.
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /** Slot holding key, or -1. Caller holds a lock. */
+    private int find(int key)
+    {
+        for(int i = hash(key) & mask; state[i] != FREE; i = (i + 1) & mask)
+        {
+            if(keys[i] == key)
+                return i;
+        }
+        return -1;
+    }
+    
+    /** Returns the value for key, or null if it is not cached. */
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int i = find(key);
+            
+            if(i < 0)
+                return null;
+            
+            referenced[i] = 1;
+            return (V)values[i];
+        }
+        finally { lock.readLock().unlock(); }
+    }
+    
+    /** Adds or replaces a value, evicting another entry if the cache is full. */
+    public void put(int key, V value)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int i = find(key);
+            
+            if(i >= 0)
+            {
+                values[i] = value;
+                return;
+            }
+            
+            if(size >= capacity)
+                evict();
+            
+            for(i = hash(key) & mask; state[i] != FREE; i = (i + 1) & mask);
+            
+            keys[i] = key;
+            values[i] = value;
+            state[i] = USED;
+            referenced[i] = 0;
+            size++;
+        }
+        finally { lock.writeLock().unlock(); }
+    }
+    
+    /** Removes a key; returns true if it was cached. */
+    public boolean remove(int key)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int i = find(key);
+            
+            if(i < 0)
+                return false;
+            
+            delete(i);
+            return true;
+        }
+        finally { lock.writeLock().unlock(); }
+    }
+    
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for(int i = 0; i < state.length; i++)
+            {
+                state[i] = FREE;
+                values[i] = null;
+            }
+            size = 0;
+        }
+        finally { lock.writeLock().unlock(); }
+    }
+    
+    /** Advances the CLOCK hand to the first unreferenced entry and removes it. Caller holds the write lock. */
+    private void evict()
+    {
+        while(true)
+        {
+            int i = hand;
+            hand = (hand + 1) & mask;
+            
+            if(state[i] == FREE)
+                continue;
+            
+            if(referenced[i] != 0)
+                referenced[i] = 0;
+            else
+            {
+                delete(i);
+                evictions.incrementAndGet();
+                return;
+            }
+        }
+    }
+    
+    /** Empties slot i and shifts later entries of the probe run back so lookups still find them. */
+    private void delete(int i)
+    {
+        size--;
+        
+        int gap = i;
+        for(int j = (i + 1) & mask; state[j] != FREE; j = (j + 1) & mask)
+        {
+            int home = hash(keys[j]) & mask;
+            
+            // Move j into the gap unless its home slot lies cyclically in (gap, j].
+            boolean stays = gap <= j ? (gap < home && home <= j) : (gap < home || home <= j);
+            if(!stays)
+            {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                referenced[gap] = referenced[j];
+                gap = j;
+            }
+        }
+        
+        state[gap] = FREE;
+        values[gap] = null;
+        referenced[gap] = 0;
+    }
+    
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return size;
+        }
+        finally { lock.readLock().unlock(); }
+    }
+    
+    public int capacity(){ return capacity; }
+    
+    public long evictions(){ return evictions.get(); }
+}
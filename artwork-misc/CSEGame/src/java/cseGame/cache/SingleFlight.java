@@ -0,0 +1,80 @@
+/*
+ * SingleFlight.java - SingleFlight Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.Metrics;
+
+/**
+ * Collapses concurrent calls for the same key into one. The first caller
+ * runs the work; every caller that arrives while it is running waits for
+ * it and gets the same result, or the same exception. Nothing is kept
+ * once the work is done, so keeping the result is up to the caller.
+ * <p>
+ * Work must not start another flight with its own key, or it waits on
+ * itself.
+ */
+public class SingleFlight<V>
+{
+    private final ConcurrentMap<String, FutureTask<V>> flights = new ConcurrentHashMap<String, FutureTask<V>>();
+    
+    private final Counter led;
+    private final Counter shared;
+    
+    /** @param name labels this flight's metrics */
+    public SingleFlight(String name)
+    {
+        led = Metrics.counter("cseGame_singleflight_runs_total", "flight", name);
+        shared = Metrics.counter("cseGame_singleflight_shared_total", "flight", name);
+    }
+    
+    /**
+     * Runs the work, or waits for the run already in flight for this key.
+     * @return the result of whichever run this call joined
+     */
+    public V run(String key, Callable<V> work) throws Exception
+    {
+        FutureTask<V> flight = new FutureTask<V>(work);
+        FutureTask<V> running = flights.putIfAbsent(key, flight);
+        
+        if(running == null)
+        {
+            led.increment();
+            try
+            {
+                flight.run();
+            }
+            finally { flights.remove(key, flight); }
+            running = flight;
+        }
+        else
+            shared.increment();
+        
+        try
+        {
+            return running.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if(cause instanceof Exception)
+                throw (Exception)cause;
+            if(cause instanceof Error)
+                throw (Error)cause;
+            throw e;
+        }
+    }
+    
+    /** Keys with a run in flight. */
+    public int size(){ return flights.size(); }
+}
@@ -0,0 +1,42 @@
+/*
+ * ChatMessage.java - ChatMessage Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.chat;
+
+/**
+ * A single chat message. Times are assigned by the MessageBus and are
+ * strictly increasing, so a time doubles as a cursor into the stream.
+ */
+public final class ChatMessage
+{
+    public final String name;
+    public final String dest;
+    public final long time;
+    public final String msg;
+    
+    public ChatMessage(String name, String dest, long time, String msg)
+    {
+        this.name = name;
+        this.dest = dest;
+        this.time = time;
+        this.msg = msg;
+    }
+    
+    /** Returns true if the given user should receive this message. */
+    public boolean isFor(String user)
+    {
+        return !name.equals(user) && (dest.equals(MessageBus.ALL) || dest.equals(user));
+    }
+    
+    /** Appends the message in the chat servlet's line format. */
+    public void appendTo(StringBuilder out)
+    {
+        out.append(name).append('\n');
+        out.append(dest).append('\n');
+        out.append(time).append('\n');
+        out.append(msg).append('\n');
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * ChatStore.java - ChatStore Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.chat;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import cseGame.db.ConnectionPool;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Write-behind store for the MSG table. Messages are queued and written
+ * by a background thread in batches of up to batchSize, one transaction
+ * per batch, at least every flushMillis. A poster reserves room in the
+ * queue before the message is published, and waits up to offerTimeout for
+ * it before the message is refused, so a slow database pushes back on
+ * posters instead of growing memory, and a refused message is never seen.
+ * <p>
+ * A retention job removes messages older than the retention age, copying
+ * them into an archive table first if one is configured, and the store
+ * makes sure MSG has the (TIME, DEST) index its reads use.
+ * <p>
+ * Messages stay readable through {@link #unwritten} until their batch is
+ * committed, so a reader of MSG that also asks the store misses none.
+ */
+public class ChatStore
+{
+    private static final Logger log = Logger.getLogger(ChatStore.class.getName());
+    
+    /** ServletContext attribute the store is kept under. */
+    public static final String CONTEXT_KEY = "cseGame.chat.store";
+    
+    private static final String INSERT = "INSERT INTO MSG (NAME, DEST, TIME, MSG) VALUES (?, ?, ?, ?)";
+    
+    private static final Histogram BATCH_TIME = Metrics.histogram("cseGame_db_query_seconds", "table", "MSG", "op", "insertBatch");
+    
+    private final ConnectionPool pool;
+    private final BlockingQueue<ChatMessage> queue;
+    /** Queued or in a batch not yet committed. */
+    private final Set<ChatMessage> unwritten = Collections.newSetFromMap(new ConcurrentHashMap<ChatMessage, Boolean>());
+    
+    /** Places in the queue not yet reserved; given back as the writer takes messages. */
+    private final Semaphore room;
+    private final int batchSize;
+    private final long flushMillis, offerTimeout;
+    private final long retention;
+    private final String archiveTable;
+    
+    private final Thread writer;
+    private final Timer retentionTimer;
+    
+    private volatile boolean closed = false;
+    
+    private final AtomicLong written = new AtomicLong(), batches = new AtomicLong(), refused = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    
+    /**
+     * @param queueSize     messages that may wait to be written
+     * @param batchSize     messages written per transaction
+     * @param flushMillis   longest a message waits for a batch to fill
+     * @param offerTimeout  how long a caller waits on a full queue
+     * @param retention     age (ms) past which messages are removed; 0 keeps them
+     * @param archiveTable  table old messages are copied to first, or null
+     */
+    public ChatStore(ConnectionPool pool, int queueSize, int batchSize, long flushMillis, long offerTimeout, 
+            long retention, long retentionInterval, String archiveTable)
+    {
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<ChatMessage>(queueSize);
+        this.room = new Semaphore(queueSize);
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        this.offerTimeout = offerTimeout;
+        this.retention = retention;
+        this.archiveTable = archiveTable;
+        
+        try
+        {
+            ensureIndex();
+        }
+        catch (SQLException e){ log.log(Level.WARNING, "Could not check the MSG (TIME, DEST) index.", e); }
+        
+        Metrics.gauge("cseGame_chat_queued", new Gauge(){ public long get(){ return getQueued(); } });
+        Metrics.counter("cseGame_chat_written_total", new Gauge(){ public long get(){ return getWritten(); } });
+        Metrics.counter("cseGame_chat_refused_total", new Gauge(){ public long get(){ return getRefused(); } });
+        Metrics.counter("cseGame_chat_expired_total", new Gauge(){ public long get(){ return getExpired(); } });
+        
+        writer = new Thread(new Runnable()
+        {
+            public void run(){ writeLoop(); }
+        }, "ChatStore-writer");
+        writer.setDaemon(true);
+        writer.start();
+        
+        retentionTimer = new Timer("ChatStore-retention", true);
+        if(retention > 0)
+        {
+            retentionTimer.schedule(new TimerTask()
+            {
+                public void run(){ expire(); }
+            }, 0, retentionInterval);
+        }
+    }
+    
+    /** Returns the store for this webapp, creating it on first use. */
+    public static ChatStore get(ServletContext context, ConnectionPool pool)
+    {
+        synchronized(context)
+        {
+            ChatStore store = (ChatStore)context.getAttribute(CONTEXT_KEY);
+            
+            if(store == null)
+            {
+                store = new ChatStore(pool, 
+                        (int)param(context, "queueSize", 4096),
+                        (int)param(context, "batchSize", 256),
+                        param(context, "flushMillis", 5),
+                        param(context, "offerTimeout", 2000),
+                        param(context, "retention", 7L * 24 * 60 * 60 * 1000),
+                        param(context, "retentionInterval", 60L * 60 * 1000),
+                        context.getInitParameter("cseGame.chat.archiveTable"));
+                context.setAttribute(CONTEXT_KEY, store);
+            }
+            return store;
+        }
+    }
+    
+    /** Closes the webapp's store, if it has one, writing out anything queued. */
+    public static void close(ServletContext context)
+    {
+        ChatStore store;
+        
+        synchronized(context)
+        {
+            store = (ChatStore)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(store != null)
+            store.close();
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.chat." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    /**
+     * Reserves room for one message, waiting if the queue is full. Each
+     * reservation is followed by one {@link #add}.
+     * @throws SQLException if the store is closed or stays full past the offer timeout
+     */
+    public void reserve() throws SQLException
+    {
+        if(closed)
+            throw new SQLException("Chat store is closed.");
+        
+        try
+        {
+            if(room.tryAcquire(offerTimeout, TimeUnit.MILLISECONDS))
+                return;
+        }
+        catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+        
+        refused.incrementAndGet();
+        throw new SQLException("Chat store is full; message refused.");
+    }
+    
+    /** Queues a message to be written, into room taken by {@link #reserve}. */
+    public void add(ChatMessage message)
+    {
+        unwritten.add(message);
+        queue.add(message);
+    }
+    
+    /**
+     * Returns the messages for a user in (since, before) that are not yet
+     * committed to MSG. Ask before reading MSG: a message committed in
+     * between is then in one or both, never neither.
+     */
+    public List<ChatMessage> unwritten(String user, long since, long before)
+    {
+        List<ChatMessage> messages = new ArrayList<ChatMessage>();
+        
+        for(Iterator<ChatMessage> it = unwritten.iterator(); it.hasNext();)
+        {
+            ChatMessage message = it.next();
+            if(message.time > since && message.time < before && message.isFor(user))
+                messages.add(message);
+        }
+        return messages;
+    }
+    
+    private void writeLoop()
+    {
+        List<ChatMessage> batch = new ArrayList<ChatMessage>(batchSize);
+        long backoff = 0;
+        
+        while(!closed || !queue.isEmpty() || !batch.isEmpty())
+        {
+            try
+            {
+                // A failed batch is kept and retried before taking more.
+                if(batch.isEmpty())
+                {
+                    ChatMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if(first == null)
+                        continue;
+                    batch.add(first);
+                    room.release();
+                    
+                    // Give a burst a moment to fill the batch.
+                    long until = System.currentTimeMillis() + flushMillis;
+                    while(batch.size() < batchSize)
+                    {
+                        room.release(queue.drainTo(batch, batchSize - batch.size()));
+                        
+                        long left = until - System.currentTimeMillis();
+                        if(batch.size() >= batchSize || left <= 0)
+                            break;
+                        
+                        ChatMessage next = queue.poll(left, TimeUnit.MILLISECONDS);
+                        if(next == null)
+                            break;
+                        batch.add(next);
+                        room.release();
+                    }
+                }
+                
+                long start = System.nanoTime();
+                write(batch);
+                BATCH_TIME.recordSince(start);
+                unwritten.removeAll(batch);
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+                batch.clear();
+                backoff = 0;
+            }
+            catch (InterruptedException e)
+            {
+                // Nothing interrupts the writer; the loop sees closed within a poll and drains what is left.
+            }
+            catch (SQLException e)
+            {
+                backoff = Math.min(5000, Math.max(50, backoff * 2));
+                log.log(Level.WARNING, "Writing " + batch.size() + " chat messages failed; retrying in " + backoff + " ms.", e);
+                
+                if(closed)
+                {
+                    log.warning("Chat store closed; " + (batch.size() + queue.size()) + " messages were not written.");
+                    return;
+                }
+                
+                try
+                {
+                    Thread.sleep(backoff);
+                }
+                catch (InterruptedException ie){}
+            }
+        }
+    }
+    
+    private void write(List<ChatMessage> batch) throws SQLException
+    {
+        Connection con = pool.getConnection();
+        PreparedStatement statement = null;
+        
+        try
+        {
+            con.setAutoCommit(false);
+            statement = con.prepareStatement(INSERT);
+            
+            for(int i = 0; i < batch.size(); i++)
+            {
+                ChatMessage message = batch.get(i);
+                statement.setString(1, message.name);
+                statement.setString(2, message.dest);
+                statement.setLong(3, message.time);
+                statement.setString(4, message.msg);
+                statement.addBatch();
+            }
+            
+            statement.executeBatch();
+            con.commit();
+        }
+        catch (SQLException e)
+        {
+            con.rollback();
+            throw e;
+        }
+        finally
+        {
+            if(statement != null)
+            {
+                statement.clearBatch();
+                statement.close();
+            }
+            con.setAutoCommit(true);
+            con.close();
+        }
+    }
+    
+    /** Removes messages past the retention age, archiving them first if configured. */
+    private void expire()
+    {
+        long before = System.currentTimeMillis() - retention;
+        
+        try
+        {
+            Connection con = pool.getConnection();
+            PreparedStatement statement = null;
+            
+            try
+            {
+                con.setAutoCommit(false);
+                
+                if(archiveTable != null)
+                {
+                    statement = con.prepareStatement("INSERT INTO " + archiveTable + " (NAME, DEST, TIME, MSG) " +
+                            "SELECT NAME, DEST, TIME, MSG FROM MSG WHERE TIME < ?");
+                    statement.setLong(1, before);
+                    statement.executeUpdate();
+                    statement.close();
+                }
+                
+                statement = con.prepareStatement("DELETE FROM MSG WHERE TIME < ?");
+                statement.setLong(1, before);
+                int removed = statement.executeUpdate();
+                con.commit();
+                
+                expired.addAndGet(removed);
+                if(removed > 0)
+                    log.info("Removed " + removed + " chat messages older than " + new java.util.Date(before) + ".");
+            }
+            catch (SQLException e)
+            {
+                con.rollback();
+                throw e;
+            }
+            finally
+            {
+                if(statement != null)
+                    statement.close();
+                con.setAutoCommit(true);
+                con.close();
+            }
+        }
+        catch (SQLException e){ log.log(Level.WARNING, "Chat retention job failed.", e); }
+    }
+    
+    /** Creates the (TIME, DEST) index on MSG if no index leads with TIME. */
+    private void ensureIndex() throws SQLException
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            ResultSet indexes = con.getMetaData().getIndexInfo(null, null, "MSG", false, true);
+            try
+            {
+                while(indexes.next())
+                {
+                    if(indexes.getShort("ORDINAL_POSITION") == 1 && "TIME".equalsIgnoreCase(indexes.getString("COLUMN_NAME")))
+                        return;
+                }
+            }
+            finally { indexes.close(); }
+            
+            Statement statement = con.createStatement();
+            try
+            {
+                statement.execute("CREATE INDEX MSG_TIME_DEST ON MSG (TIME, DEST)");
+                log.info("Created index MSG_TIME_DEST on MSG (TIME, DEST).");
+            }
+            finally { statement.close(); }
+        }
+        finally { con.close(); }
+    }
+    
+    /**
+     * Stops taking messages, writes what is queued and stops the background
+     * work. The writer is not interrupted, as that would fail its next
+     * getConnection() and lose the queue; it notices within one poll.
+     */
+    public void close()
+    {
+        closed = true;
+        retentionTimer.cancel();
+        
+        try
+        {
+            writer.join(10000);
+        }
+        catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+    }
+    
+    /** Messages waiting to be written. */
+    public int getQueued(){ return queue.size(); }
+    
+    public long getWritten(){ return written.get(); }
+    
+    public long getBatches(){ return batches.get(); }
+    
+    /** Messages refused because the queue stayed full. */
+    public long getRefused(){ return refused.get(); }
+    
+    /** Messages removed by the retention job. */
+    public long getExpired(){ return expired.get(); }
+}
@@ -0,0 +1,305 @@
+/*
+ * MessageBus.java - MessageBus Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.chat;
+
+import java.util.*;
+
+import javax.servlet.ServletContext;
+
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Metrics;
+
+/**
+ * In-memory delivery of recent chat messages. Keeps a bounded ring buffer of
+ * public messages and a small ring per private destination, and parks
+ * long-polling readers until a message for them arrives. Readers asking for
+ * messages older than what the rings still hold are told to catch up from
+ * the database.
+ */
+public class MessageBus
+{
+    /** ServletContext attribute the shared bus is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.chat.bus";
+    
+    /** Destination of public messages. */
+    public static final String ALL = "all";
+    
+    /** Receives messages for a parked reader. */
+    public interface Waiter
+    {
+        /**
+         * Called once, outside the bus lock, with the reader's new messages.
+         * @param cursor time to pass back on the next read
+         */
+        void deliver(long cursor, List<ChatMessage> messages);
+    }
+    
+    /** Result of a read. */
+    public static class Batch
+    {
+        /** Time to pass as <code>since</code> on the next read. */
+        public final long cursor;
+        /** Messages oldest first, null if the reader was parked. */
+        public final List<ChatMessage> messages;
+        /**
+         * Messages newer than <code>since</code> but older than this time
+         * are no longer buffered and must be read from the database; zero
+         * when the buffers held everything.
+         */
+        public final long catchUpBefore;
+        
+        Batch(long cursor, List<ChatMessage> messages, long catchUpBefore)
+        {
+            this.cursor = cursor;
+            this.messages = messages;
+            this.catchUpBefore = catchUpBefore;
+        }
+    }
+    
+    private final Ring publicRing;
+    
+    /** Private rings by destination user, least recently used first. */
+    private final LinkedHashMap<String, Ring> privateRings;
+    
+    private final int privateCapacity;
+    
+    /** Private messages older than this may have been dropped along with their ring. */
+    private long privateFloor;
+    
+    /** Parked readers by user. */
+    private final Map<String, List<Waiter>> waiters = new HashMap<String, List<Waiter>>();
+    
+    private int waiting = 0;
+    
+    private long lastTime;
+    
+    /**
+     * @param publicCapacity   public messages kept in memory
+     * @param privateCapacity  private messages kept per destination
+     * @param maxPrivateRings  destinations with a private ring
+     */
+    public MessageBus(int publicCapacity, int privateCapacity, final int maxPrivateRings)
+    {
+        long now = System.currentTimeMillis();
+        
+        this.lastTime = now;
+        this.privateFloor = now + 1;
+        this.publicRing = new Ring(publicCapacity, now + 1);
+        this.privateCapacity = privateCapacity;
+        this.privateRings = new LinkedHashMap<String, Ring>(64, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest)
+            {
+                if(size() <= maxPrivateRings)
+                    return false;
+                
+                privateFloor = Math.max(privateFloor, lastTime + 1);
+                return true;
+            }
+        };
+    }
+    
+    /** Returns the bus for this webapp, creating it on first use. */
+    public static MessageBus get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            MessageBus bus = (MessageBus)context.getAttribute(CONTEXT_KEY);
+            
+            if(bus == null)
+            {
+                bus = new MessageBus(intParam(context, "cseGame.chat.ringSize", 1024),
+                        intParam(context, "cseGame.chat.privateRingSize", 32),
+                        intParam(context, "cseGame.chat.privateRings", 4096));
+                context.setAttribute(CONTEXT_KEY, bus);
+                
+                final MessageBus gauged = bus;
+                Metrics.gauge("cseGame_chat_waiting", new Gauge(){ public long get(){ return gauged.getWaitingCount(); } });
+            }
+            return bus;
+        }
+    }
+    
+    private static int intParam(ServletContext context, String name, int def)
+    {
+        String value = context.getInitParameter(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    /**
+     * Stamps a message with the next time, queues it in the store, buffers
+     * it and wakes any readers it is for. The store is queued to in stamp
+     * order, so the caller must have reserved room in it already.
+     */
+    public ChatMessage publish(String name, String dest, String msg, ChatStore store)
+    {
+        ChatMessage message;
+        List<Waiter> woken = new ArrayList<Waiter>();
+        
+        synchronized(this)
+        {
+            lastTime = Math.max(lastTime + 1, System.currentTimeMillis());
+            message = new ChatMessage(name, dest, lastTime, msg);
+            store.add(message);
+            
+            if(dest.equals(ALL))
+            {
+                publicRing.add(message);
+                
+                for(Iterator<Map.Entry<String, List<Waiter>>> it = waiters.entrySet().iterator(); it.hasNext();)
+                {
+                    Map.Entry<String, List<Waiter>> entry = it.next();
+                    
+                    if(!entry.getKey().equals(name))
+                    {
+                        woken.addAll(entry.getValue());
+                        it.remove();
+                    }
+                }
+            }
+            else
+            {
+                Ring ring = privateRings.get(dest);
+                
+                if(ring == null)
+                {
+                    ring = new Ring(privateCapacity, privateFloor);
+                    privateRings.put(dest, ring);
+                }
+                ring.add(message);
+                
+                List<Waiter> list = dest.equals(name) ? null : waiters.remove(dest);
+                if(list != null)
+                    woken.addAll(list);
+            }
+            waiting -= woken.size();
+        }
+        
+        // Waiters were parked because they had nothing newer than the
+        // previous message, so this message is all they are missing.
+        List<ChatMessage> batch = Collections.singletonList(message);
+        for(int i = 0; i < woken.size(); i++)
+            woken.get(i).deliver(message.time, batch);
+        
+        return message;
+    }
+    
+    /**
+     * Returns the buffered messages for a user newer than a cursor. If there
+     * are none and a waiter is given, it is parked and will be handed the
+     * next message for the user; the returned batch then has no message list
+     * and its cursor is the one to answer with if the wait times out.
+     */
+    public synchronized Batch read(String user, long since, Waiter waiter)
+    {
+        Ring ring = privateRings.get(user);
+        
+        // Oldest time from which both rings are known to be complete.
+        long covered = Math.max(publicRing.coveredFrom, privateFloor);
+        if(ring != null)
+            covered = Math.max(covered, ring.coveredFrom);
+        
+        List<ChatMessage> messages = new ArrayList<ChatMessage>();
+        publicRing.collect(user, since, messages);
+        if(ring != null)
+        {
+            ring.collect(user, since, messages);
+            Collections.sort(messages, BY_TIME);
+        }
+        
+        long catchUp = since + 1 < covered ? covered : 0;
+        
+        if(messages.isEmpty() && catchUp == 0 && waiter != null)
+        {
+            List<Waiter> list = waiters.get(user);
+            if(list == null)
+                waiters.put(user, list = new ArrayList<Waiter>(1));
+            list.add(waiter);
+            waiting++;
+            return new Batch(lastTime, null, 0);
+        }
+        
+        return new Batch(lastTime, messages, catchUp);
+    }
+    
+    /** Unparks a waiter, e.g. when its request timed out. Returns false if it was already delivered to. */
+    public synchronized boolean cancel(String user, Waiter waiter)
+    {
+        List<Waiter> list = waiters.get(user);
+        
+        if(list == null || !list.remove(waiter))
+            return false;
+        
+        if(list.isEmpty())
+            waiters.remove(user);
+        waiting--;
+        return true;
+    }
+    
+    /** Current cursor; every message after this time is yet to be published. */
+    public synchronized long getCursor(){ return lastTime; }
+    
+    /** Readers currently parked. */
+    public synchronized int getWaitingCount(){ return waiting; }
+    
+    private static final Comparator<ChatMessage> BY_TIME = new Comparator<ChatMessage>()
+    {
+        public int compare(ChatMessage a, ChatMessage b)
+        {
+            return a.time < b.time ? -1 : (a.time == b.time ? 0 : 1);
+        }
+    };
+    
+    /** Fixed-size circular buffer of messages in time order. */
+    private static class Ring
+    {
+        private final ChatMessage[] buffer;
+        private int head = 0;
+        private int size = 0;
+        
+        /** Every message at or after this time is still in the buffer. */
+        long coveredFrom;
+        
+        Ring(int capacity, long coveredFrom)
+        {
+            this.buffer = new ChatMessage[capacity];
+            this.coveredFrom = coveredFrom;
+        }
+        
+        void add(ChatMessage message)
+        {
+            int tail = (head + size) % buffer.length;
+            
+            if(size == buffer.length)
+            {
+                coveredFrom = buffer[head].time + 1;
+                head = (head + 1) % buffer.length;
+            }
+            else
+                size++;
+            
+            buffer[tail] = message;
+        }
+        
+        /** Adds the messages after <code>since</code> for a user, oldest first. */
+        void collect(String user, long since, List<ChatMessage> out)
+        {
+            // Find the first message after since, newest messages are most often asked for.
+            int i = size;
+            while(i > 0 && buffer[(head + i - 1) % buffer.length].time > since)
+                i--;
+            
+            for(; i < size; i++)
+            {
+                ChatMessage message = buffer[(head + i) % buffer.length];
+                
+                if(message.isFor(user))
+                    out.add(message);
+            }
+        }
+    }
+}
@@ -13,6 +13,17 @@ import javax.servlet.*;
 import javax.servlet.http.*;
 
 import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cseGame.RequestExecutor;
+import cseGame.db.ConnectionPool;
+import cseGame.db.PoolConfig;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
 
 
 /**
@@ -23,7 +34,27 @@ import java.sql.*;
  */
 public class chat extends HttpServlet
 {
-    private PrintWriter out;
+    private static final Logger log = Logger.getLogger(chat.class.getName());
+    
+    private static final Histogram QUERY_TIME = Metrics.histogram("cseGame_db_query_seconds", "table", "MSG");
+    private static final Counter ROWS_READ = Metrics.counter("cseGame_db_rows_read_total", "table", "MSG");
+    private static final Counter BYTES = Metrics.counter("cseGame_response_bytes_total", "endpoint", "chat");
+    private static final Counter ERRORS = Metrics.counter("cseGame_errors_total", "endpoint", "chat");
+    
+    private volatile ConnectionPool pool;
+    
+    private MessageBus bus;
+    
+    /** How long a long-polling GET is held open before answering empty. */
+    private long pollTimeout = 25000;
+    
+    public void init() throws ServletException {
+        bus = MessageBus.get(getServletContext());
+        
+        String timeout = getServletContext().getInitParameter("cseGame.chat.pollTimeout");
+        if(timeout != null)
+            pollTimeout = Long.parseLong(timeout.trim());
+    }
     
     /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
      * @param request servlet request
@@ -32,68 +63,283 @@ public class chat extends HttpServlet
     protected void processRequest(boolean post, HttpServletRequest request, HttpServletResponse response) 
         throws ServletException, IOException {
         
-        // Globalization.
-        response.setContentType("text/html;charset=UTF-8");
-        out = response.getWriter();
-
-        Connection con = null;
-        Statement statement = null;
-        ResultSet result = null;
-
+        // User sending/requesting messages.
+        final String user = request.getParameter("user");
+        
         try {
-            // Get Database Driver
-            Class.forName("org.hsqldb.jdbcDriver").newInstance();
-            
-            // Connect to Database
-            con = DriverManager.getConnection("jdbc:hsqldb:hsql://localhost/chat", "chatApp", "chatApp");
-            
-            statement = con.createStatement();
-                        
-            // User sending/requesting messages.
-            String user = request.getParameter("user");
-            
-            // Get current time.
-            java.util.Date curTime = new java.util.Date();            
-            
-            // If using POST method, app is posting a message to the database.
+            // If using POST method, app is posting a message.
             if(post) {
                 // Retreive message and dest of message.
                 String msg = request.getParameter("msg");
                 
                 // dest can be 'all', or a user name for private messaging.
                 String dest = request.getParameter("dest");
-                                            
-                // Update database.
-                statement.executeUpdate("INSERT INTO MSG (NAME, DEST, TIME, MSG) VALUES ('"+ user +"', '"+ dest+"', "+
-                                curTime.getTime() + ", '"+ msg +"')");
+                
+                if(user == null || dest == null || msg == null) {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "A message needs user, dest and msg.");
+                    return;
+                }
+                
+                // Room in the store comes first, so readers never see a message it refused.
+                ChatStore store = getStore();
+                store.reserve();
+                bus.publish(user, dest, msg, store);
+                
+                response.setContentType("text/html;charset=UTF-8");
+                response.getWriter().close();
             }
-            // If using GET method, app is requesting messages from database.
+            // If using GET method, app is requesting messages.
             else {
-               String time = request.getParameter("time");
-
-                // Query the database for new messages after last update time.
-                result = statement.executeQuery("SELECT * FROM MSG WHERE TIME > "+ time +" AND NAME <> '"+ user + "' AND"+
-                                " (DEST = 'all' OR DEST = '"+ user +"')");
+                final long since = Long.parseLong(request.getParameter("time").trim());
                 
-                out.print(curTime.getTime() + "\n");
+                // Clients that send 'wait' are held open until a message arrives.
+                PendingPoll poll = null;
+                if(request.getParameter("wait") != null && request.isAsyncSupported())
+                    poll = new PendingPoll(user);
+                
+                final MessageBus.Batch batch = bus.read(user, since, poll);
+                
+                if(batch.messages == null) {
+                    poll.start(request, batch.cursor);
+                    return;
+                }
                 
-                // Send back results, which are seperated by '\n'.
-                while(result.next()) {
-                    out.print(result.getString("NAME") + "\n");
-                    out.print(result.getString("DEST") + "\n");
-                    out.print(result.getLong("TIME") + "\n");
-                    out.print(result.getString("MSG") + "\n");
+                // Messages older than the buffers hold come from the database,
+                // which is read off the container thread.
+                if(batch.catchUpBefore != 0) {
+                    RequestExecutor.get(getServletContext()).dispatch(request, response, new RequestExecutor.Task() {
+                        public void run(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                            catchUp(response, user, since, batch);
+                        }
+                    });
+                    return;
                 }
+                
+                write(response, batch.cursor, batch.messages);
             }
         }
         catch (Exception e) {
-            out.print("ERROR: failed to load HSQLDB JDBC driver.");
-            e.printStackTrace();
-            return;
-        }        
+            failed(response, e);
+        }
+    }
+    
+    /**
+     * Answers with the stored messages before a batch followed by the batch.
+     * Messages the store has not written yet are taken from its queue.
+     */
+    private void catchUp(HttpServletResponse response, String user, long since, MessageBus.Batch batch) throws IOException {
+        try {
+            List<ChatMessage> pending = getStore().unwritten(user, since, batch.catchUpBefore);
+            List<ChatMessage> messages = load(user, since, batch.catchUpBefore);
+            
+            if(merge(messages, pending))
+                Collections.sort(messages, BY_TIME);
+            messages.addAll(batch.messages);
+            write(response, batch.cursor, messages);
+        }
+        catch (SQLException e) {
+            failed(response, e);
+        }
+    }
+    
+    private static final Comparator<ChatMessage> BY_TIME = new Comparator<ChatMessage>() {
+        public int compare(ChatMessage a, ChatMessage b) {
+            return a.time < b.time ? -1 : a.time > b.time ? 1 : 0;
+        }
+    };
+    
+    /**
+     * Adds the pending messages not already read from the database, which
+     * has those written since they were taken. Returns true if any was added.
+     */
+    private static boolean merge(List<ChatMessage> stored, List<ChatMessage> pending) {
+        boolean added = false;
+        
+        for(int i = 0; i < pending.size(); i++) {
+            ChatMessage message = pending.get(i);
+            boolean found = false;
+            
+            for(int j = 0; j < stored.size() && !found; j++) {
+                ChatMessage other = stored.get(j);
+                found = other.time == message.time && message.name.equals(other.name) 
+                        && message.dest.equals(other.dest) && message.msg.equals(other.msg);
+            }
+            
+            if(!found) {
+                stored.add(message);
+                added = true;
+            }
+        }
+        return added;
+    }
+    
+    private static void failed(HttpServletResponse response, Exception e) throws IOException {
+        ERRORS.increment();
+        PrintWriter out = response.getWriter();
+        out.print("ERROR: failed to access chat database.");
+        log.log(Level.WARNING, "Chat request failed.", e);
+    }
+    
+    /** Writes the cursor followed by the messages, which are seperated by '\n'. */
+    private static void write(ServletResponse response, long cursor, List<ChatMessage> messages) throws IOException {
+        StringBuilder data = new StringBuilder(32 + messages.size() * 64);
+        data.append(cursor).append('\n');
+        
+        for(int i = 0; i < messages.size(); i++)
+            messages.get(i).appendTo(data);
+        
+        byte[] bytes = data.toString().getBytes("UTF-8");
+        BYTES.add(bytes.length);
+        
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(bytes.length);
+        OutputStream out = response.getOutputStream();
+        out.write(bytes);
         out.close();
     }
     
+    /** Returns the write-behind store messages are queued to. */
+    private ChatStore getStore() throws SQLException {
+        return ChatStore.get(getServletContext(), getPool());
+    }
+    
+    /** Reads the messages for a user in (since, before) from the database. */
+    private List<ChatMessage> load(String user, long since, long before) throws SQLException {
+        Connection con = getPool().getConnection();
+        PreparedStatement statement = null;
+        List<ChatMessage> messages = new ArrayList<ChatMessage>();
+        
+        try {
+            statement = con.prepareStatement("SELECT * FROM MSG WHERE TIME > ? AND TIME < ? AND NAME <> ? AND (DEST = 'all' OR DEST = ?) ORDER BY TIME");
+            statement.setLong(1, since);
+            statement.setLong(2, before);
+            statement.setString(3, user);
+            statement.setString(4, user);
+            
+            long start = System.nanoTime();
+            ResultSet result = statement.executeQuery();
+            while(result.next())
+                messages.add(new ChatMessage(result.getString("NAME"), result.getString("DEST"), 
+                        result.getLong("TIME"), result.getString("MSG")));
+            result.close();
+            QUERY_TIME.recordSince(start);
+            ROWS_READ.add(messages.size());
+        }
+        finally {
+            close(statement, con);
+        }
+        return messages;
+    }
+    
+    /** Returns the webapp's shared pool for the chat database. */
+    private ConnectionPool getPool() throws SQLException {
+        if(pool == null)
+            pool = getPool(getServletContext());
+        return pool;
+    }
+    
+    /** Returns a webapp's pool for the chat database, opening it if needed. */
+    public static ConnectionPool getPool(ServletContext context) throws SQLException {
+        return ConnectionPool.get(context, new PoolConfig("chat", "jdbc:hsqldb:hsql://localhost/chat", "chatApp", "chatApp"));
+    }
+    
+    private static void close(Statement statement, Connection con) {
+        try {
+            if(statement != null)
+                statement.close();
+            if(con != null)
+                con.close();
+        } catch (SQLException e) { log.log(Level.WARNING, "Could not close a chat statement.", e); }
+    }
+    
+    /**
+     * A GET parked on the message bus. The container thread is released while
+     * it waits; it is answered by whichever comes first of a message for the
+     * user or the poll timeout.
+     */
+    private class PendingPoll implements MessageBus.Waiter, AsyncListener {
+        private final String user;
+        private final AtomicBoolean answered = new AtomicBoolean(false);
+        private AsyncContext async;
+        private long timeoutCursor;
+        
+        /** A delivery that came before start(), answered once it runs. */
+        private long earlyCursor;
+        private List<ChatMessage> early;
+        
+        PendingPoll(String user) {
+            this.user = user;
+        }
+        
+        /**
+         * Puts the request into async mode; called after the poll is parked.
+         * If that fails the poll is taken off the bus again.
+         */
+        synchronized void start(HttpServletRequest request, long cursor) {
+            timeoutCursor = cursor;
+            try {
+                async = request.startAsync();
+            }
+            catch (RuntimeException e) {
+                answered.set(true);
+                bus.cancel(user, this);
+                throw e;
+            }
+            async.setTimeout(pollTimeout);
+            async.addListener(this);
+            
+            if(early != null)
+                answerLater(async, earlyCursor, early);
+        }
+        
+        /**
+         * A message can be published between parking and startAsync(); it is
+         * kept for start() rather than making the publisher wait.
+         */
+        public synchronized void deliver(long cursor, List<ChatMessage> messages) {
+            if(!answered.compareAndSet(false, true))
+                return;
+            
+            if(async == null) {
+                earlyCursor = cursor;
+                early = messages;
+            }
+            else
+                answerLater(async, cursor, messages);
+        }
+        
+        private void answerLater(final AsyncContext ac, final long cursor, final List<ChatMessage> messages) {
+            ac.start(new Runnable() {
+                public void run() {
+                    answer(ac, cursor, messages);
+                }
+            });
+        }
+        
+        private void answer(AsyncContext ac, long cursor, List<ChatMessage> messages) {
+            try {
+                write(ac.getResponse(), cursor, messages);
+            }
+            catch (IOException e) { /* client went away */ }
+            finally {
+                ac.complete();
+            }
+        }
+        
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if(bus.cancel(user, this) && answered.compareAndSet(false, true))
+                answer(event.getAsyncContext(), timeoutCursor, Collections.<ChatMessage>emptyList());
+        }
+        
+        public void onError(AsyncEvent event) throws IOException {
+            bus.cancel(user, this);
+        }
+        
+        public void onComplete(AsyncEvent event) throws IOException {}
+        
+        public void onStartAsync(AsyncEvent event) throws IOException {}
+    }
+    
     // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
     /** Handles the HTTP <code>GET</code> method.
      * @param request servlet request
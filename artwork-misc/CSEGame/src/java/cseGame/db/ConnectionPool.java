@@ -0,0 +1,305 @@
+/*
+ * ConnectionPool.java - ConnectionPool Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * A small JDBC connection pool. Connections are opened up to maxSize,
+ * validated when they have been idle for a while, trimmed back to minSize
+ * when unused, and reported when a borrower holds one past the leak
+ * threshold. Pools are shared between servlets through the ServletContext;
+ * see {@link #get(ServletContext, PoolConfig)}.
+ */
+public class ConnectionPool
+{
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+    
+    /** Prefix of the ServletContext attributes pools are stored under. */
+    public static final String CONTEXT_PREFIX = "cseGame.db.pool.";
+    
+    private final PoolConfig config;
+    
+    /** Permits for connections that may still be borrowed. */
+    private final Semaphore available;
+    
+    private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<PooledConnection>();
+    
+    /** Every open connection, borrowed or idle. */
+    private final Set<PooledConnection> all = Collections.synchronizedSet(new HashSet<PooledConnection>());
+    
+    private final AtomicInteger borrowed = new AtomicInteger();
+    
+    /** Moving average of the time callers wait for a permit, in ns. */
+    private final AtomicLong recentWait = new AtomicLong();
+    
+    private final Timer maintenance;
+    
+    private volatile boolean closed = false;
+    
+    /** Time to hand out a connection, including any wait and (re)connect. */
+    private final Histogram connectTime;
+    
+    public ConnectionPool(PoolConfig config) throws SQLException
+    {
+        this.config = config;
+        this.available = new Semaphore(config.maxSize, true);
+        
+        try
+        {
+            // Get Database Driver
+            Class.forName(config.driver).newInstance();
+        }
+        catch (Exception e){ throw new SQLException("Failed to load JDBC driver " + config.driver + ": " + e); }
+        
+        for(int i = 0; i < config.minSize; i++)
+            idle.add(open());
+        
+        connectTime = Metrics.histogram("cseGame_db_seconds", "pool", config.name, "phase", "connect");
+        Metrics.gauge("cseGame_pool_active", new Gauge(){ public long get(){ return borrowed.get(); } }, "pool", config.name);
+        Metrics.gauge("cseGame_pool_idle", new Gauge(){ public long get(){ return idle.size(); } }, "pool", config.name);
+        Metrics.gauge("cseGame_pool_waiting", new Gauge(){ public long get(){ return available.getQueueLength(); } }, "pool", config.name);
+        
+        maintenance = new Timer("ConnectionPool-" + config.name, true);
+        long period = Math.max(1000, Math.min(config.leakThresholdMillis, config.idleTimeoutMillis) / 2);
+        maintenance.schedule(new TimerTask()
+        {
+            public void run(){ maintain(); }
+        }, period, period);
+    }
+    
+    /**
+     * Returns the named pool for this webapp, creating it from the context
+     * parameters (with the given defaults) on first use.
+     */
+    public static ConnectionPool get(ServletContext context, PoolConfig defaults) throws SQLException
+    {
+        String key = CONTEXT_PREFIX + defaults.name;
+        
+        synchronized(context)
+        {
+            ConnectionPool pool = (ConnectionPool)context.getAttribute(key);
+            
+            if(pool == null)
+            {
+                PoolConfig config = defaults.load(context);
+                Database.open(context, config);
+                pool = new ConnectionPool(config);
+                context.setAttribute(key, pool);
+            }
+            return pool;
+        }
+    }
+    
+    /** Closes every pool stored in the context. */
+    public static void closeAll(ServletContext context)
+    {
+        synchronized(context)
+        {
+            for(Enumeration<String> names = context.getAttributeNames(); names.hasMoreElements();)
+            {
+                String key = names.nextElement();
+                
+                if(key.startsWith(CONTEXT_PREFIX))
+                {
+                    ((ConnectionPool)context.getAttribute(key)).close();
+                    context.removeAttribute(key);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Borrows a connection, waiting up to maxWait for one to become free.
+     * The caller must close() it to give it back.
+     */
+    public Connection getConnection() throws SQLException
+    {
+        if(closed)
+            throw new SQLException("Connection pool " + config.name + " is closed.");
+        
+        long start = System.nanoTime();
+        try
+        {
+            if(!available.tryAcquire(config.maxWaitMillis, TimeUnit.MILLISECONDS))
+                throw new SQLException("Timed out waiting for a connection from pool " + config.name + 
+                        " (" + borrowed.get() + "/" + config.maxSize + " in use).");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection.");
+        }
+        finally { recordWait(System.nanoTime() - start); }
+        
+        try
+        {
+            PooledConnection con;
+            long now = System.currentTimeMillis();
+            
+            while((con = idle.poll()) != null)
+            {
+                if(now - con.lastUsed < config.validateAfterMillis || con.validate(config.validationQuery))
+                    break;
+                
+                discard(con);
+            }
+            
+            if(con == null)
+                con = open();
+            
+            borrowed.incrementAndGet();
+            connectTime.recordSince(start);
+            return con.borrow(config.leakThresholdMillis > 0);
+        }
+        catch (SQLException e)
+        {
+            available.release();
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            available.release();
+            throw e;
+        }
+    }
+    
+    /** Called by PooledConnection, once per borrow, when the borrower closes it. */
+    void release(PooledConnection con)
+    {
+        con.released();
+        borrowed.decrementAndGet();
+        
+        if(closed || !con.reset())
+            discard(con);
+        else
+            idle.add(con);
+        
+        available.release();
+    }
+    
+    private PooledConnection open() throws SQLException
+    {
+        // Connect to Database
+        Connection physical = DriverManager.getConnection(config.url, config.user, config.password);
+        PooledConnection con = new PooledConnection(this, physical, config.statementCacheSize);
+        all.add(con);
+        return con;
+    }
+    
+    private void discard(PooledConnection con)
+    {
+        all.remove(con);
+        con.destroy();
+    }
+    
+    /** Reports leaks, trims idle connections and tops the pool back up to minSize. */
+    private void maintain()
+    {
+        if(closed)
+            return;
+        
+        long now = System.currentTimeMillis();
+        
+        PooledConnection[] open;
+        synchronized(all)
+        {
+            open = all.toArray(new PooledConnection[all.size()]);
+        }
+        
+        for(int i = 0; i < open.length; i++)
+        {
+            PooledConnection con = open[i];
+            
+            if(con.isBorrowed() && !con.leakReported && now - con.borrowedAt > config.leakThresholdMillis)
+            {
+                con.leakReported = true;
+                log.log(Level.WARNING, "Connection from pool " + config.name + " held for " + 
+                        (now - con.borrowedAt) + " ms; possible leak.", con.borrowedBy);
+            }
+        }
+        
+        // Trim connections idle past the timeout, keeping minSize around.
+        int excess = idle.size() - config.minSize;
+        for(Iterator<PooledConnection> it = idle.iterator(); excess > 0 && it.hasNext();)
+        {
+            PooledConnection con = it.next();
+            
+            if(now - con.lastUsed > config.idleTimeoutMillis && idle.remove(con))
+            {
+                discard(con);
+                excess--;
+            }
+        }
+        
+        try
+        {
+            while(!closed && all.size() < config.minSize)
+                idle.add(open());
+        }
+        catch (SQLException e){ log.log(Level.WARNING, "Pool " + config.name + " could not reopen connections.", e); }
+    }
+    
+    /** Closes idle connections now and borrowed ones as they are returned. */
+    public void close()
+    {
+        closed = true;
+        maintenance.cancel();
+        Metrics.removeLabelled("pool", config.name);
+        
+        PooledConnection con;
+        while((con = idle.poll()) != null)
+            discard(con);
+    }
+    
+    public String getName(){ return config.name; }
+    
+    public PoolConfig getConfig(){ return config; }
+    
+    /** Connections currently borrowed. */
+    public int getActiveCount(){ return borrowed.get(); }
+    
+    public int getIdleCount(){ return idle.size(); }
+    
+    /** Callers currently blocked in getConnection(). */
+    public int getWaitingCount(){ return available.getQueueLength(); }
+    
+    /**
+     * How long callers have lately waited for a connection, in ns; 0 when
+     * nobody is waiting now, so the figure cannot stay high once the pool
+     * has caught up.
+     */
+    public long getWaitNanos()
+    {
+        return available.getQueueLength() == 0 ? 0 : recentWait.get();
+    }
+    
+    /** Folds a wait into the moving average, weighting it 1/8. */
+    private void recordWait(long nanos)
+    {
+        for(;;)
+        {
+            long old = recentWait.get();
+            if(recentWait.compareAndSet(old, old + (nanos - old) / 8))
+                return;
+        }
+    }
+}
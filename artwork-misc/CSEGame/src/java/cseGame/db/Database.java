@@ -0,0 +1,296 @@
+/*
+ * Database.java - Database Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import java.io.*;
+import java.sql.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Runs a pool's HSQLDB database inside the webapp's JVM instead of
+ * reaching a database server over a socket. The mode is picked with
+ * <code>cseGame.db.&lt;pool&gt;.mode</code>:
+ * <ul>
+ * <li><code>server</code> (the default) connects to the configured URL, as before.</li>
+ * <li><code>file</code> opens a persistent database at <code>path</code>, by default
+ *     data/cseGame/&lt;pool&gt; under catalina.base. Cache and log settings come from
+ *     <code>cacheScale</code>, <code>cacheSizeScale</code>, <code>logSize</code> (MB),
+ *     <code>writeDelay</code> (ms) and <code>defrag</code> (%).</li>
+ * <li><code>mem</code> opens an in-memory database, for tests.</li>
+ * </ul>
+ * A new in-process database gets the pool's user and the tables of
+ * WEB-INF/db/&lt;pool&gt;.sql (or <code>schema</code>). When the webapp stops
+ * it is shut down, which checkpoints a file database.
+ */
+public class Database
+{
+    private static final Logger log = Logger.getLogger(Database.class.getName());
+    
+    /** Prefix of the ServletContext attributes open databases are stored under. */
+    public static final String CONTEXT_PREFIX = "cseGame.db.database.";
+    
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String shutdown;
+    
+    private Database(String name, String url, String user, String password, String shutdown)
+    {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.shutdown = shutdown;
+    }
+    
+    /**
+     * Opens the in-process database a pool is configured for, if any, and
+     * points the pool's URL at it. Does nothing in server mode.
+     */
+    public static void open(ServletContext context, PoolConfig config) throws SQLException
+    {
+        String mode = param(context, config, "mode", "server");
+        
+        if(mode.equals("server"))
+            return;
+        
+        String key = CONTEXT_PREFIX + config.name;
+        
+        synchronized(context)
+        {
+            Database database = (Database)context.getAttribute(key);
+            
+            if(database == null)
+            {
+                String url;
+                if(mode.equals("mem"))
+                    url = "jdbc:hsqldb:mem:" + config.name;
+                else if(mode.equals("file"))
+                    url = "jdbc:hsqldb:file:" + path(context, config).getPath();
+                else
+                    throw new SQLException("Unknown database mode '" + mode + "' for pool " + config.name + ".");
+                
+                database = new Database(config.name, url, config.user, config.password,
+                        param(context, config, "shutdown", "SHUTDOWN"));
+                database.start(context, config, mode.equals("file"));
+                context.setAttribute(key, database);
+            }
+            
+            config.driver = "org.hsqldb.jdbcDriver";
+            config.url = database.url;
+        }
+    }
+    
+    /** Shuts down every database opened for the context. Call after the pools are closed. */
+    public static void closeAll(ServletContext context)
+    {
+        synchronized(context)
+        {
+            List<String> keys = new ArrayList<String>();
+            for(Enumeration<String> names = context.getAttributeNames(); names.hasMoreElements();)
+            {
+                String key = names.nextElement();
+                if(key.startsWith(CONTEXT_PREFIX))
+                    keys.add(key);
+            }
+            
+            for(int i = 0; i < keys.size(); i++)
+            {
+                ((Database)context.getAttribute(keys.get(i))).close();
+                context.removeAttribute(keys.get(i));
+            }
+        }
+    }
+    
+    private void start(ServletContext context, PoolConfig config, boolean file) throws SQLException
+    {
+        try
+        {
+            Class.forName("org.hsqldb.jdbcDriver");
+        }
+        catch (ClassNotFoundException e){ throw new SQLException("HSQLDB driver not found: " + e); }
+        
+        long start = System.currentTimeMillis();
+        StringBuilder create = new StringBuilder(url);
+        
+        // Only read when the database is created; the SET PROPERTY calls below keep them current.
+        if(file)
+            create.append(";hsqldb.default_table_type=cached");
+        
+        Connection con = connect(create.toString());
+        try
+        {
+            Statement statement = con.createStatement();
+            
+            if(file)
+            {
+                setProperty(statement, "hsqldb.cache_scale", param(context, config, "cacheScale", null));
+                setProperty(statement, "hsqldb.cache_size_scale", param(context, config, "cacheSizeScale", null));
+                
+                String logSize = param(context, config, "logSize", null);
+                if(logSize != null)
+                    statement.execute("SET LOGSIZE " + Integer.parseInt(logSize));
+                
+                String writeDelay = param(context, config, "writeDelay", null);
+                if(writeDelay != null)
+                    statement.execute("SET WRITE_DELAY " + Integer.parseInt(writeDelay) + " MILLIS");
+                
+                String defrag = param(context, config, "defrag", null);
+                if(defrag != null)
+                    statement.execute("SET CHECKPOINT DEFRAG " + Integer.parseInt(defrag));
+            }
+            
+            if(!hasTables(con))
+                bootstrap(context, config, statement);
+            
+            statement.close();
+        }
+        finally { con.close(); }
+        
+        log.info("Opened " + (file ? "file" : "in-memory") + " database " + name + " at " + url +
+                " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+    
+    /**
+     * Connects as the pool's user. A new database only has SA, so on
+     * failure this tries SA and adds the pool's user as an admin.
+     */
+    private Connection connect(String url) throws SQLException
+    {
+        try
+        {
+            return DriverManager.getConnection(url, user, password);
+        }
+        catch (SQLException e)
+        {
+            Connection con;
+            try
+            {
+                con = DriverManager.getConnection(url, "sa", "");
+            }
+            catch (SQLException sa){ throw e; }
+            
+            if(!user.equalsIgnoreCase("sa"))
+            {
+                Statement statement = con.createStatement();
+                statement.execute("CREATE USER \"" + user.replace("\"", "") + "\" PASSWORD \"" +
+                        password.replace("\"", "") + "\" ADMIN");
+                statement.close();
+                log.info("Created user " + user + " in database " + name + ".");
+            }
+            return con;
+        }
+    }
+    
+    private static boolean hasTables(Connection con) throws SQLException
+    {
+        ResultSet tables = con.getMetaData().getTables(null, null, "%", new String[]{ "TABLE" });
+        try
+        {
+            return tables.next();
+        }
+        finally { tables.close(); }
+    }
+    
+    /** Runs the schema script, one statement per ';' at the end of a line. */
+    private void bootstrap(ServletContext context, PoolConfig config, Statement statement) throws SQLException
+    {
+        String schema = param(context, config, "schema", "/WEB-INF/db/" + name + ".sql");
+        InputStream in = context.getResourceAsStream(schema);
+        
+        if(in == null)
+        {
+            log.warning("Database " + name + " has no tables and there is no schema at " + schema + ".");
+            return;
+        }
+        
+        int count = 0;
+        try
+        {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            StringBuilder sql = new StringBuilder();
+            String line;
+            
+            while((line = reader.readLine()) != null)
+            {
+                String trimmed = line.trim();
+                if(trimmed.length() == 0 || trimmed.startsWith("--"))
+                    continue;
+                
+                sql.append(line).append('\n');
+                
+                if(trimmed.endsWith(";"))
+                {
+                    sql.setLength(sql.lastIndexOf(";"));
+                    statement.execute(sql.toString());
+                    sql.setLength(0);
+                    count++;
+                }
+            }
+        }
+        catch (IOException e){ throw new SQLException("Reading " + schema + " failed: " + e); }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e){}
+        }
+        
+        log.info("Created database " + name + " from " + schema + " (" + count + " statements).");
+    }
+    
+    private static void setProperty(Statement statement, String property, String value) throws SQLException
+    {
+        if(value != null)
+            statement.execute("SET PROPERTY \"" + property + "\" " + Integer.parseInt(value));
+    }
+    
+    /** Shuts the database down; SHUTDOWN checkpoints a file database so the next start has no log to replay. */
+    private void close()
+    {
+        try
+        {
+            Connection con = DriverManager.getConnection(url, user, password);
+            try
+            {
+                Statement statement = con.createStatement();
+                statement.execute(shutdown);
+                statement.close();
+            }
+            finally { con.close(); }
+            
+            log.info("Database " + name + " shut down.");
+        }
+        catch (SQLException e){ log.log(Level.WARNING, "Shutting down database " + name + " failed.", e); }
+    }
+    
+    /** The file database location; relative paths are taken from catalina.base. */
+    private static File path(ServletContext context, PoolConfig config)
+    {
+        File base = new File(System.getProperty("catalina.base", System.getProperty("user.dir")));
+        String path = param(context, config, "path", null);
+        
+        if(path == null)
+            return new File(base, "data" + File.separator + "cseGame" + File.separator + config.name + File.separator + config.name);
+        
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+    
+    private static String param(ServletContext context, PoolConfig config, String setting, String def)
+    {
+        String value = context.getInitParameter("cseGame.db." + config.name + "." + setting);
+        return value == null ? def : value.trim();
+    }
+}
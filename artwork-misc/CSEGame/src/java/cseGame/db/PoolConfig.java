@@ -0,0 +1,77 @@
+/*
+ * PoolConfig.java - PoolConfig Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Settings for a ConnectionPool. Values are read from context parameters
+ * named <code>cseGame.db.&lt;pool&gt;.&lt;setting&gt;</code> in web.xml,
+ * falling back to the defaults given by the caller.
+ */
+public class PoolConfig
+{
+    public String name;
+    public String driver = "org.hsqldb.jdbcDriver";
+    public String url;
+    public String user;
+    public String password;
+    
+    /** Connections opened at startup and kept open while idle. */
+    public int minSize = 2;
+    /** Upper bound on open connections. */
+    public int maxSize = 20;
+    /** How long a borrower waits for a free connection before failing. */
+    public long maxWaitMillis = 5000;
+    /** Idle connections above minSize are closed after this long. */
+    public long idleTimeoutMillis = 60000;
+    /** Connections idle longer than this are validated before being handed out. */
+    public long validateAfterMillis = 10000;
+    /** Statement used to validate a connection. */
+    public String validationQuery = "CALL 1";
+    /** Borrowed connections held longer than this are reported as leaks. */
+    public long leakThresholdMillis = 30000;
+    /** Prepared statements cached per connection. */
+    public int statementCacheSize = 32;
+    
+    public PoolConfig(String name, String url, String user, String password)
+    {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+    
+    /** Overrides the defaults with any matching context parameters. */
+    public PoolConfig load(ServletContext context)
+    {
+        driver = param(context, "driver", driver);
+        url = param(context, "url", url);
+        user = param(context, "user", user);
+        password = param(context, "password", password);
+        validationQuery = param(context, "validationQuery", validationQuery);
+        
+        minSize = Integer.parseInt(param(context, "minSize", String.valueOf(minSize)));
+        maxSize = Integer.parseInt(param(context, "maxSize", String.valueOf(maxSize)));
+        maxWaitMillis = Long.parseLong(param(context, "maxWait", String.valueOf(maxWaitMillis)));
+        idleTimeoutMillis = Long.parseLong(param(context, "idleTimeout", String.valueOf(idleTimeoutMillis)));
+        validateAfterMillis = Long.parseLong(param(context, "validateAfter", String.valueOf(validateAfterMillis)));
+        leakThresholdMillis = Long.parseLong(param(context, "leakThreshold", String.valueOf(leakThresholdMillis)));
+        statementCacheSize = Integer.parseInt(param(context, "statementCache", String.valueOf(statementCacheSize)));
+        
+        if(minSize > maxSize)
+            minSize = maxSize;
+        
+        return this;
+    }
+    
+    private String param(ServletContext context, String setting, String def)
+    {
+        String value = context.getInitParameter("cseGame.db." + name + "." + setting);
+        return value == null ? def : value.trim();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * PoolListener.java - PoolListener Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import cseGame.RequestExecutor;
+import cseGame.chat.ChatStore;
+import cseGame.map.ChunkImages;
+import cseGame.map.ChunkService;
+import cseGame.player.PlayerStore;
+import cseGame.script.ScriptService;
+import cseGame.shard.ShardClient;
+import cseGame.world.WorldServer;
+
+/**
+ * Closes the webapp's connection pools when it is undeployed so that
+ * connections to the database server are not left open, then shuts down
+ * any in-process databases. First the request workers and every service
+ * kept in the context are stopped, so none is left using a pool and no
+ * thread of theirs outlives the webapp; the write-behind stores write out
+ * what they hold. This is done here rather than in servlet destroy(), which
+ * the container skips for servlets that never served a request.
+ */
+public class PoolListener implements ServletContextListener
+{
+    public void contextInitialized(ServletContextEvent event){}
+    
+    public void contextDestroyed(ServletContextEvent event)
+    {
+        ServletContext context = event.getServletContext();
+        
+        RequestExecutor.close(context);
+        ShardClient.close(context);
+        WorldServer.close(context);
+        ScriptService.close(context);
+        ChunkService.close(context);
+        ChunkImages.close(context);
+        PlayerStore.close(context);
+        ChatStore.close(context);
+        
+        ConnectionPool.closeAll(context);
+        Database.closeAll(context);
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * PooledConnection.java - PooledConnection Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import java.lang.reflect.*;
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A physical connection owned by a ConnectionPool. Borrowers are handed a
+ * proxy whose close() returns the connection to the pool and whose
+ * prepareStatement() reuses a statement prepared earlier for the same SQL.
+ * A cached statement is lent to one caller at a time; asking for the same
+ * SQL again before closing it prepares a separate, uncached statement.
+ */
+class PooledConnection implements InvocationHandler
+{
+    private final ConnectionPool pool;
+    private final Connection physical;
+    
+    /** A cached statement and whether it is lent out. Guarded by the statements map. */
+    private static final class Cached
+    {
+        final PreparedStatement statement;
+        boolean inUse = false;
+        /** Dropped from the cache while lent out; closed when given back. */
+        boolean evicted = false;
+        
+        Cached(PreparedStatement statement){ this.statement = statement; }
+    }
+    
+    /** Statements by SQL text, least recently used first. */
+    private final LinkedHashMap<String, Cached> statements;
+    
+    /** The proxy handed to the current borrower, null while idle. */
+    private final AtomicReference<Connection> handle = new AtomicReference<Connection>();
+    
+    // Read by the pool's maintenance thread.
+    final long createdAt;
+    volatile long lastUsed;
+    volatile long borrowedAt;
+    /** Where the current borrower got the connection from, for leak reports. */
+    volatile Throwable borrowedBy;
+    volatile boolean leakReported;
+    
+    PooledConnection(ConnectionPool pool, Connection physical, final int cacheSize)
+    {
+        this.pool = pool;
+        this.physical = physical;
+        this.createdAt = this.lastUsed = System.currentTimeMillis();
+        this.statements = new LinkedHashMap<String, Cached>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest)
+            {
+                if(size() <= cacheSize)
+                    return false;
+                
+                if(eldest.getValue().inUse)
+                    eldest.getValue().evicted = true;
+                else
+                    closeQuietly(eldest.getValue().statement);
+                return true;
+            }
+        };
+    }
+    
+    /** Hands out a fresh proxy; earlier proxies stop working. */
+    Connection borrow(boolean trackCaller)
+    {
+        borrowedAt = System.currentTimeMillis();
+        borrowedBy = trackCaller ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        Connection proxy = (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), 
+                new Class<?>[]{ Connection.class }, this);
+        handle.set(proxy);
+        return proxy;
+    }
+    
+    /**
+     * Undoes anything the borrower left behind. Returns false if the
+     * connection is no longer usable.
+     */
+    boolean reset()
+    {
+        try
+        {
+            if(!physical.getAutoCommit())
+            {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return !physical.isClosed();
+        }
+        catch (SQLException e){ return false; }
+    }
+    
+    /** Called by the pool as the connection goes back; statements the borrower left open are free again. */
+    void released()
+    {
+        synchronized(statements)
+        {
+            for(Iterator<Cached> it = statements.values().iterator(); it.hasNext();)
+                it.next().inUse = false;
+        }
+        borrowedBy = null;
+        lastUsed = System.currentTimeMillis();
+    }
+    
+    boolean isBorrowed(){ return handle.get() != null; }
+    
+    /** Runs the validation query; false means the connection should be discarded. */
+    boolean validate(String query)
+    {
+        try
+        {
+            if(physical.isClosed())
+                return false;
+            
+            Statement statement = physical.createStatement();
+            try
+            {
+                statement.execute(query);
+            }
+            finally { statement.close(); }
+            return true;
+        }
+        catch (SQLException e){ return false; }
+    }
+    
+    /** Closes the cached statements and the physical connection. */
+    void destroy()
+    {
+        synchronized(statements)
+        {
+            for(Iterator<Cached> it = statements.values().iterator(); it.hasNext();)
+                closeQuietly(it.next().statement);
+            statements.clear();
+        }
+        
+        try
+        {
+            physical.close();
+        } catch (SQLException e){ /* already gone */ }
+    }
+    
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String name = method.getName();
+        
+        if(name.equals("close"))
+        {
+            // Only one close of a borrow gives the connection back.
+            if(handle.compareAndSet((Connection)proxy, null))
+                pool.release(this);
+            return null;
+        }
+        else if(name.equals("isClosed"))
+            return Boolean.valueOf(handle.get() != proxy || physical.isClosed());
+        else if(name.equals("equals"))
+            return Boolean.valueOf(proxy == args[0]);
+        else if(name.equals("hashCode"))
+            return Integer.valueOf(System.identityHashCode(proxy));
+        else if(name.equals("toString"))
+            return "Pooled[" + pool.getName() + "] " + physical;
+        
+        if(handle.get() != proxy)
+            throw new SQLException("Connection has been returned to the pool.");
+        
+        if(name.equals("prepareStatement") && args.length == 1)
+            return prepare((String)args[0]);
+        
+        try
+        {
+            return method.invoke(physical, args);
+        }
+        catch (InvocationTargetException e){ throw e.getTargetException(); }
+    }
+    
+    private PreparedStatement prepare(String sql) throws SQLException
+    {
+        Cached cached;
+        
+        synchronized(statements)
+        {
+            cached = statements.get(sql);
+            
+            // Still open elsewhere in this borrow: sharing it would share its parameters.
+            if(cached != null && cached.inUse)
+                return physical.prepareStatement(sql);
+            
+            if(cached == null)
+            {
+                cached = new Cached(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+            }
+            else
+                cached.statement.clearParameters();
+            cached.inUse = true;
+        }
+        
+        return (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), 
+                new Class<?>[]{ PreparedStatement.class }, new CachedStatement(cached));
+    }
+    
+    private static void closeQuietly(Statement statement)
+    {
+        try
+        {
+            statement.close();
+        } catch (SQLException e){ /* nothing to do */ }
+    }
+    
+    /** Keeps a cached statement open when the borrower closes it, and gives it back to the cache. */
+    private class CachedStatement implements InvocationHandler
+    {
+        private final Cached cached;
+        private volatile boolean closed = false;
+        
+        CachedStatement(Cached cached){ this.cached = cached; }
+        
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            
+            if(name.equals("close"))
+            {
+                synchronized(statements)
+                {
+                    if(closed)
+                        return null;
+                    closed = true;
+                    
+                    if(cached.evicted)
+                        cached.statement.close();
+                    else
+                    {
+                        cached.statement.clearParameters();
+                        cached.inUse = false;
+                    }
+                }
+                return null;
+            }
+            else if(name.equals("isClosed"))
+                return Boolean.valueOf(closed || cached.statement.isClosed());
+            else if(closed)
+                throw new SQLException("Statement has been closed.");
+            
+            try
+            {
+                return method.invoke(cached.statement, args);
+            }
+            catch (InvocationTargetException e){ throw e.getTargetException(); }
+        }
+    }
+}
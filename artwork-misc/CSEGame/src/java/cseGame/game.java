@@ -12,8 +12,13 @@ import java.net.*;
 import javax.servlet.*;
 import javax.servlet.http.*;
 
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.parsers.SAXParser;
+import cseGame.cache.AssetCache;
+import cseGame.cache.CompiledAsset;
+import cseGame.map.MapStore;
+import cseGame.metrics.Counter;
+import cseGame.metrics.CountingOutputStream;
+import cseGame.metrics.Metrics;
+import cseGame.render.MapRenderer;
 
 /**
  *
@@ -22,40 +27,142 @@ import javax.xml.parsers.SAXParser;
  */
 public class game extends HttpServlet
 {
-    private PrintWriter out;
+    /** GameData files up to this size have their output kept in the AssetCache; larger ones are streamed. */
+    private long cacheLimit = 262144;
+    
+    private static final Counter BYTES = Metrics.counter("cseGame_response_bytes_total", "endpoint", "game");
+    private static final Counter ERRORS = Metrics.counter("cseGame_errors_total", "endpoint", "game");
+    
+    public void init() throws ServletException
+    {
+        String limit = getServletContext().getInitParameter("cseGame.render.cacheLimit");
+        if(limit != null)
+            cacheLimit = Long.parseLong(limit.trim());
+    }
     
     /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * <p>
+     * <code>?action=1</code> renders the sprites, <code>?action=2&amp;map=map0001</code>
+     * a map. <code>format</code> picks the output: html (the map default),
+     * css (the sprite default), json or tiles.
      * @param request servlet request
      * @param response servlet response
      */
     protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
     {
-        response.setContentType("text/html;charset=UTF-8");
-        out = response.getWriter();
-        
         String action = request.getParameter("action");
         
-        if(action != null)
-            loadData(Integer.parseInt(action), "sprites.xml");
+        if(action == null)
+        {
+            response.setContentType("text/html;charset=UTF-8");
+            response.getWriter().close();
+            return;
+        }
+        
+        int load;
+        String map = request.getParameter("map");
+        String formatName = request.getParameter("format");
+        
+        try
+        {
+            load = Integer.parseInt(action.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad action: " + action);
+            return;
+        }
+        
+        if(formatName == null)
+            formatName = load == MapHandler.LOAD_SPRITES ? "css" : "html";
+        
+        MapRenderer.Format format = MapRenderer.getFormat(formatName);
+        
+        if(format == null || (map != null && !MapStore.isValidName(map)))
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown format or map.");
+            return;
+        }
+        
+        File source = new File(getServletContext().getRealPath("GameData" + File.separator + 
+                (map == null ? "sprites.xml" : map + ".xml")));
         
-        out.close();
+        if(!source.isFile())
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, source.getName());
+            return;
+        }
+        
+        response.setContentType(format.getContentType());
+        
+        // Parsing the file can take a while; do it off the container thread.
+        final int pass = load;
+        final File file = source;
+        final MapRenderer.Format output = format;
+        final String outputName = formatName;
+        
+        RequestExecutor.get(getServletContext()).dispatch(request, response, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                render(request, response, pass, file, output, outputName);
+            }
+        });
     }
     
-    private void loadData(int action, String file)
+    /** Writes a GameData file out in a format, from the AssetCache when it is small enough. */
+    private void render(HttpServletRequest request, HttpServletResponse response, int load, File source,
+            MapRenderer.Format format, String formatName) throws IOException
     {
-        MapHandler mHandler = new MapHandler(action);
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        try 
-        {                   
-            // Parse the input
-            InputStream istream = new FileInputStream(getServletContext().getRealPath("GameData" + File.separator + file));
-            SAXParser saxParser = factory.newSAXParser();
-            saxParser.parse(istream, mHandler);
-
-        } catch (Throwable t){  out.println(t.toString());    }
-        
-        
-        out.println(mHandler.toString());        
+        if(format.isText() && source.length() <= cacheLimit)
+        {
+            try
+            {
+                BYTES.add(AssetCache.send(loadData(getServletContext(), load, source, formatName), request, response));
+            }
+            catch (Throwable t)
+            {
+                ERRORS.increment();
+                log("Rendering " + source.getName() + " as " + formatName + " failed.", t);
+                PrintWriter out = response.getWriter();
+                out.println(t.toString());
+                out.close();
+            }
+        }
+        else
+        {
+            // Rendered straight to the response; only a chunk is held at a time.
+            OutputStream out = new CountingOutputStream(response.getOutputStream(), BYTES);
+            try
+            {
+                MapHandler.render(source, load, format.create(out));
+            }
+            catch (Exception e)
+            {
+                ERRORS.increment();
+                log("Rendering " + source.getName() + " as " + formatName + " failed.", e);
+            }
+            out.close();
+        }
+    }
+    
+    /**
+     * Returns the output of a MapHandler pass over a GameData file, from the
+     * shared cache when possible.
+     * @param formatName a format registered with MapRenderer
+     */
+    public static CompiledAsset loadData(ServletContext context, final int action, File source, String formatName) throws Exception
+    {
+        final MapRenderer.Format format = MapRenderer.getFormat(formatName);
+        return AssetCache.get(context).get(source, "game" + action + "." + formatName, new AssetCache.Compiler()
+        {
+            public String compile(File source) throws Exception
+            {
+                ByteArrayOutputStream data = new ByteArrayOutputStream((int)Math.min(source.length(), 65536));
+                MapHandler.render(source, action, format.create(data));
+                return data.toString("UTF-8") + "\n";
+            }
+        });
     }
     
     // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
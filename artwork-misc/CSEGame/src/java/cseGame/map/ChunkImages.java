@@ -0,0 +1,662 @@
+/*
+ * ChunkImages.java - ChunkImages Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.servlet.ServletContext;
+
+import cseGame.MapHandler;
+import cseGame.cache.SingleFlight;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+import cseGame.render.MapRenderer;
+
+/**
+ * The static part of a chunk drawn into one PNG: its terrain and every
+ * object that is neither animated (<code>frames</code>) nor interactive
+ * (<code>objid</code>). The client lays out one image per chunk instead of
+ * a few hundred elements, and keeps separate elements only for the objects
+ * left out.
+ * <p>
+ * Images are named by a hash of what goes into them, the chunk's tiles and
+ * objects and the sprites they use, so an unchanged chunk keeps its image
+ * across map reloads and restarts. They are kept in a memory LRU and in a
+ * size-bounded LRU directory on disk. When a map changes, the image a
+ * chunk last had is served while the new one is drawn in the background.
+ */
+public class ChunkImages
+{
+    private static final Logger log = Logger.getLogger(ChunkImages.class.getName());
+    
+    /** ServletContext attribute the shared images are stored under. */
+    public static final String CONTEXT_KEY = "cseGame.chunkImages";
+    
+    /** Tile size in pixels. */
+    public static final int TILE = 24;
+    
+    /** A chunk image. */
+    public static final class Png
+    {
+        /** Content hash, usable as an ETag. */
+        public final String hash;
+        public final byte[] bytes;
+        
+        Png(String hash, byte[] bytes)
+        {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
+    
+    /** The sprite images by id, as of one version of sprites.xml and of the image files. */
+    private static final class Sprites
+    {
+        final long modified, length;
+        final Map<Integer, BufferedImage> images;
+        
+        /** Each sprite's image file, and its modification time and length when it was read. */
+        final Map<Integer, File> files;
+        final Map<Integer, long[]> stamps;
+        
+        /** When the image files were last found unchanged, in System.nanoTime(). */
+        volatile long checked;
+        
+        Sprites(long modified, long length, Map<Integer, BufferedImage> images, Map<Integer, File> files, long now)
+        {
+            this.modified = modified;
+            this.length = length;
+            this.images = images;
+            this.files = files;
+            this.stamps = new HashMap<Integer, long[]>();
+            for(Map.Entry<Integer, File> e : files.entrySet())
+                stamps.put(e.getKey(), stamp(e.getValue()));
+            this.checked = now;
+        }
+        
+        /** True if neither sprites.xml nor, looked at once a second, any image file changed. */
+        boolean isCurrent(long modified, long length, long now)
+        {
+            if(this.modified != modified || this.length != length)
+                return false;
+            if(now - checked < CHECK_NANOS)
+                return true;
+            
+            for(Map.Entry<Integer, File> e : files.entrySet())
+            {
+                if(!Arrays.equals(stamps.get(e.getKey()), stamp(e.getValue())))
+                    return false;
+            }
+            checked = now;
+            return true;
+        }
+        
+        static long[] stamp(File file)
+        {
+            return new long[]{ file.lastModified(), file.length() };
+        }
+    }
+    
+    private static final long CHECK_NANOS = 1000000000L;
+    
+    /** What a chunk position was last served from, and the hash of its image. */
+    private static final class Seen
+    {
+        final CompiledMap map;
+        final Sprites sprites;
+        final String hash;
+        
+        Seen(CompiledMap map, Sprites sprites, String hash)
+        {
+            this.map = map;
+            this.sprites = sprites;
+            this.hash = hash;
+        }
+    }
+    
+    private static final Counter RENDERS = Metrics.counter("cseGame_chunk_image_renders_total");
+    private static final Histogram RENDER_TIME = Metrics.histogram("cseGame_chunk_image_render_seconds");
+    private static final Counter MEMORY_HITS = Metrics.counter("cseGame_chunk_image_hits_total", "tier", "memory");
+    private static final Counter DISK_HITS = Metrics.counter("cseGame_chunk_image_hits_total", "tier", "disk");
+    private static final Counter STALE_HITS = Metrics.counter("cseGame_chunk_image_hits_total", "tier", "stale");
+    
+    private final File webRoot;
+    private final File spritesFile;
+    private final File dir;
+    private final long diskLimit;
+    
+    /** Images by hash, in memory. */
+    private final Map<String, byte[]> memory;
+    
+    /** Image files by hash to their length, least recently used first. */
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<String, Long>(256, 0.75f, true);
+    private long diskBytes = 0;
+    
+    /** What each chunk position was last served, to fall back on while its new image is drawn. */
+    private final Map<String, Seen> latest;
+    
+    private final SingleFlight<Png> renders = new SingleFlight<Png>("chunkImage");
+    private final ThreadPoolExecutor regenerator;
+    private final ConcurrentMap<String, Boolean> pending = new ConcurrentHashMap<String, Boolean>();
+    
+    private volatile Sprites sprites;
+    
+    /**
+     * @param webRoot directory sprite image paths are relative to
+     * @param dir directory the images are kept in on disk
+     * @param capacity images kept in memory
+     * @param diskLimit bytes of images kept on disk
+     */
+    public ChunkImages(File webRoot, File dir, final int capacity, long diskLimit)
+    {
+        this.webRoot = webRoot;
+        this.spritesFile = new File(webRoot, "GameData" + File.separator + "sprites.xml");
+        this.dir = dir;
+        this.diskLimit = diskLimit;
+        
+        this.memory = new LinkedHashMap<String, byte[]>(capacity * 2, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+        this.latest = new LinkedHashMap<String, Seen>(capacity * 2, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, Seen> eldest)
+            {
+                return size() > capacity * 4;
+            }
+        };
+        
+        // A full queue means the maps changed faster than they are drawn; drop the oldest work.
+        regenerator = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, capacity)), new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "ChunkImageRegenerator");
+                t.setDaemon(true);
+                return t;
+            }
+        }, new ThreadPoolExecutor.DiscardOldestPolicy());
+        regenerator.allowCoreThreadTimeOut(true);
+        
+        dir.mkdirs();
+        scanDisk();
+        
+        Metrics.gauge("cseGame_chunk_image_disk_bytes", new Gauge(){ public long get(){ return getDiskBytes(); } });
+    }
+    
+    /** Returns the images for this webapp, creating them on first use. */
+    public static ChunkImages get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            ChunkImages images = (ChunkImages)context.getAttribute(CONTEXT_KEY);
+            
+            if(images == null)
+            {
+                File temp = (File)context.getAttribute("javax.servlet.context.tempdir");
+                if(temp == null)
+                    temp = new File(System.getProperty("java.io.tmpdir"));
+                
+                String capacity = context.getInitParameter("cseGame.chunkImage.cacheSize");
+                String diskBytes = context.getInitParameter("cseGame.chunkImage.diskBytes");
+                
+                images = new ChunkImages(new File(context.getRealPath("/")), new File(temp, "chunkImages"),
+                        capacity == null ? 256 : Integer.parseInt(capacity.trim()),
+                        diskBytes == null ? 64L << 20 : Long.parseLong(diskBytes.trim()));
+                context.setAttribute(CONTEXT_KEY, images);
+            }
+            return images;
+        }
+    }
+    
+    /** Stops the webapp's background drawing, if it has any. */
+    public static void close(ServletContext context)
+    {
+        ChunkImages images;
+        
+        synchronized(context)
+        {
+            images = (ChunkImages)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(images != null)
+            images.regenerator.shutdownNow();
+    }
+    
+    /** True for objects drawn into the chunk image rather than sent as elements. */
+    public static boolean isBaked(CompiledMap map, int i)
+    {
+        return map.getObjId(i) == 0 && map.getObjFrames(i) == 0;
+    }
+    
+    /** Returns the image of a chunk. */
+    public Png get(ChunkService.Chunk chunk) throws Exception
+    {
+        final CompiledMap map = chunk.source;
+        final int cx = chunk.cx, cy = chunk.cy;
+        final Sprites sprites = getSprites();
+        final String position = chunk.map + ":" + cx + ":" + cy;
+        
+        Seen seen;
+        synchronized(latest)
+        {
+            seen = latest.get(position);
+        }
+        
+        // The hash only needs working out again when the map or sprites changed.
+        String hash = seen != null && seen.map == map && seen.sprites == sprites ? seen.hash : hash(map, cx, cy, sprites);
+        
+        byte[] png = find(hash);
+        if(png != null)
+        {
+            remember(position, map, sprites, hash);
+            return new Png(hash, png);
+        }
+        
+        byte[] stale = seen == null ? null : find(seen.hash);
+        if(stale != null)
+        {
+            STALE_HITS.increment();
+            regenerate(map, cx, cy, sprites, hash, position);
+            return new Png(seen.hash, stale);
+        }
+        
+        return draw(map, cx, cy, sprites, hash, position);
+    }
+    
+    /** Draws an image in the background unless that is already queued. */
+    private void regenerate(final CompiledMap map, final int cx, final int cy, final Sprites sprites,
+            final String hash, final String position)
+    {
+        if(pending.putIfAbsent(hash, Boolean.TRUE) != null)
+            return;
+        
+        try
+        {
+            regenerator.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        draw(map, cx, cy, sprites, hash, position);
+                    }
+                    catch (Exception e)
+                    {
+                        log.log(Level.WARNING, "Drawing chunk " + position + " failed.", e);
+                    }
+                    finally { pending.remove(hash); }
+                }
+            });
+        }
+        catch (RejectedExecutionException e){ pending.remove(hash); }
+    }
+    
+    /** Draws, stores and returns an image; concurrent calls for one hash share a drawing. */
+    private Png draw(final CompiledMap map, final int cx, final int cy, final Sprites sprites,
+            final String hash, final String position) throws Exception
+    {
+        return renders.run(hash, new Callable<Png>()
+        {
+            public Png call() throws Exception
+            {
+                byte[] png = find(hash);
+                if(png == null)
+                {
+                    long start = System.nanoTime();
+                    png = render(map, cx, cy, sprites.images);
+                    RENDER_TIME.recordSince(start);
+                    RENDERS.increment();
+                    store(hash, png);
+                }
+                remember(position, map, sprites, hash);
+                return new Png(hash, png);
+            }
+        });
+    }
+    
+    private void remember(String position, CompiledMap map, Sprites sprites, String hash)
+    {
+        synchronized(latest)
+        {
+            latest.put(position, new Seen(map, sprites, hash));
+        }
+    }
+    
+    /** Returns the sprites, reading them again when sprites.xml or one of their images changes. */
+    private Sprites getSprites() throws Exception
+    {
+        Sprites current = sprites;
+        long modified = spritesFile.lastModified(), length = spritesFile.length();
+        
+        if(current != null && current.isCurrent(modified, length, System.nanoTime()))
+            return current;
+        
+        synchronized(this)
+        {
+            if(current != sprites)
+                return sprites;
+            
+            final Map<Integer, BufferedImage> images = new HashMap<Integer, BufferedImage>();
+            final Map<Integer, File> files = new HashMap<Integer, File>();
+            MapHandler.render(spritesFile, MapHandler.LOAD_SPRITES, new MapRenderer()
+            {
+                public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException
+                {
+                    File file = new File(webRoot, src);
+                    BufferedImage image = file.isFile() ? ImageIO.read(file) : null;
+                    
+                    files.put(Integer.valueOf(id.trim()), file);
+                    if(image != null)
+                        images.put(Integer.valueOf(id.trim()), image);
+                }
+                
+                public void finish(){}
+            });
+            
+            sprites = current = new Sprites(modified, length, images, files, System.nanoTime());
+            return current;
+        }
+    }
+    
+    /** The pixel rectangle of a chunk: x, y, width, height. */
+    private static int[] bounds(CompiledMap map, int cx, int cy)
+    {
+        int x0 = cx * ChunkService.CHUNK_SIZE, y0 = cy * ChunkService.CHUNK_SIZE;
+        int x1 = Math.min(map.getWidth(), x0 + ChunkService.CHUNK_SIZE);
+        int y1 = Math.min(map.getHeight(), y0 + ChunkService.CHUNK_SIZE);
+        return new int[]{ x0 * TILE, y0 * TILE, (x1 - x0) * TILE, (y1 - y0) * TILE };
+    }
+    
+    /** Indexes of the baked objects that overlap a chunk, in drawing (layer) order. */
+    private static Integer[] bakedObjects(final CompiledMap map, int[] bounds)
+    {
+        List<Integer> objects = new ArrayList<Integer>();
+        
+        for(int i = 0; i < map.getObjectCount(); i++)
+        {
+            if(!isBaked(map, i))
+                continue;
+            
+            // Objects taller than a tile are anchored at their bottom edge.
+            int left = map.getObjX(i) * TILE, top = map.getObjY(i) * TILE - (map.getObjHeight(i) - TILE);
+            
+            if(left < bounds[0] + bounds[2] && left + map.getObjWidth(i) > bounds[0] &&
+                    top < bounds[1] + bounds[3] && top + map.getObjHeight(i) > bounds[1])
+                objects.add(i);
+        }
+        
+        Integer[] sorted = objects.toArray(new Integer[objects.size()]);
+        Arrays.sort(sorted, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return map.getObjLayer(a) - map.getObjLayer(b);
+            }
+        });
+        return sorted;
+    }
+    
+    /** Hashes everything that goes into a chunk's image. */
+    private static String hash(CompiledMap map, int cx, int cy, Sprites sprites) throws Exception
+    {
+        int[] bounds = bounds(map, cx, cy);
+        int x0 = bounds[0] / TILE, y0 = bounds[1] / TILE;
+        int across = bounds[2] / TILE, down = bounds[3] / TILE;
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(across * down * 2 + 256);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeLong(sprites.modified);
+        data.writeLong(sprites.length);
+        data.writeShort(across);
+        data.writeShort(down);
+        
+        // The image files of the sprites used, so redrawing one changes the hash too.
+        SortedSet<Integer> used = new TreeSet<Integer>();
+        
+        for(int y = y0; y < y0 + down; y++)
+        {
+            for(int x = x0; x < x0 + across; x++)
+            {
+                data.writeShort(map.getTerrain(x, y));
+                used.add(Integer.valueOf(map.getTerrain(x, y)));
+            }
+        }
+        
+        Integer[] objects = bakedObjects(map, bounds);
+        for(int n = 0; n < objects.length; n++)
+        {
+            int i = objects[n];
+            data.writeShort(map.getObjSprite(i));
+            data.writeInt(map.getObjX(i) * TILE - bounds[0]);
+            data.writeInt(map.getObjY(i) * TILE - (map.getObjHeight(i) - TILE) - bounds[1]);
+            used.add(Integer.valueOf(map.getObjSprite(i)));
+        }
+        
+        for(Integer id : used)
+        {
+            long[] stamp = sprites.stamps.get(id);
+            data.writeShort(id.intValue());
+            data.writeLong(stamp == null ? 0 : stamp[0]);
+            data.writeLong(stamp == null ? 0 : stamp[1]);
+        }
+        data.flush();
+        
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes.toByteArray());
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for(int i = 0; i < digest.length; i++)
+            hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+        return hex.toString();
+    }
+    
+    /** Draws the terrain and baked objects of a chunk and encodes them as PNG. */
+    static byte[] render(CompiledMap map, int cx, int cy, Map<Integer, BufferedImage> sprites) throws IOException
+    {
+        int[] bounds = bounds(map, cx, cy);
+        int x0 = bounds[0] / TILE, y0 = bounds[1] / TILE;
+        
+        BufferedImage image = new BufferedImage(bounds[2], bounds[3], BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        
+        for(int y = 0; y < bounds[3] / TILE; y++)
+        {
+            for(int x = 0; x < bounds[2] / TILE; x++)
+            {
+                BufferedImage tile = sprites.get(map.getTerrain(x0 + x, y0 + y));
+                if(tile != null)
+                    g.drawImage(tile, x * TILE, y * TILE, null);
+            }
+        }
+        
+        Integer[] objects = bakedObjects(map, bounds);
+        for(int n = 0; n < objects.length; n++)
+        {
+            int i = objects[n];
+            BufferedImage sprite = sprites.get(map.getObjSprite(i));
+            if(sprite != null)
+                g.drawImage(sprite, map.getObjX(i) * TILE - bounds[0],
+                        map.getObjY(i) * TILE - (map.getObjHeight(i) - TILE) - bounds[1], null);
+        }
+        g.dispose();
+        
+        ByteArrayOutputStream png = new ByteArrayOutputStream(bounds[2] * bounds[3] / 4);
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+    
+    /** Looks an image up in memory, then on disk. */
+    private byte[] find(String hash)
+    {
+        synchronized(memory)
+        {
+            byte[] png = memory.get(hash);
+            if(png != null)
+            {
+                MEMORY_HITS.increment();
+                return png;
+            }
+        }
+        
+        synchronized(disk)
+        {
+            if(disk.get(hash) == null)
+                return null;
+        }
+        
+        File file = new File(dir, hash + ".png");
+        try
+        {
+            byte[] png = readFully(file);
+            file.setLastModified(System.currentTimeMillis());
+            DISK_HITS.increment();
+            
+            synchronized(memory)
+            {
+                memory.put(hash, png);
+            }
+            return png;
+        }
+        catch (IOException e)
+        {
+            // Removed behind our back; forget it.
+            synchronized(disk)
+            {
+                Long length = disk.remove(hash);
+                if(length != null)
+                    diskBytes -= length.longValue();
+            }
+            return null;
+        }
+    }
+    
+    /** Keeps a new image in memory and on disk, evicting the least recently used files over the limit. */
+    private void store(String hash, byte[] png)
+    {
+        synchronized(memory)
+        {
+            memory.put(hash, png);
+        }
+        
+        File file = new File(dir, hash + ".png");
+        File temp = new File(dir, hash + ".tmp");
+        try
+        {
+            writeFully(temp, png);
+            if(!temp.renameTo(file))
+            {
+                temp.delete();
+                return;
+            }
+        }
+        catch (IOException e)
+        {
+            log.log(Level.WARNING, "Could not write " + file + ".", e);
+            temp.delete();
+            return;
+        }
+        
+        List<String> evicted = new ArrayList<String>();
+        synchronized(disk)
+        {
+            Long old = disk.put(hash, Long.valueOf(png.length));
+            diskBytes += png.length - (old == null ? 0 : old.longValue());
+            
+            Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+            while(diskBytes > diskLimit && eldest.hasNext())
+            {
+                Map.Entry<String, Long> entry = eldest.next();
+                if(entry.getKey().equals(hash))
+                    continue;
+                
+                diskBytes -= entry.getValue().longValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        
+        for(int i = 0; i < evicted.size(); i++)
+            new File(dir, evicted.get(i) + ".png").delete();
+    }
+    
+    /** Indexes the images a previous run left on disk, oldest first. */
+    private void scanDisk()
+    {
+        File[] files = dir.listFiles();
+        if(files == null)
+            return;
+        
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File a, File b)
+            {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        
+        synchronized(disk)
+        {
+            for(int i = 0; i < files.length; i++)
+            {
+                String name = files[i].getName();
+                
+                if(name.endsWith(".tmp"))
+                    files[i].delete();
+                else if(name.endsWith(".png"))
+                {
+                    disk.put(name.substring(0, name.length() - 4), Long.valueOf(files[i].length()));
+                    diskBytes += files[i].length();
+                }
+            }
+        }
+    }
+    
+    public long getDiskBytes()
+    {
+        synchronized(disk)
+        {
+            return diskBytes;
+        }
+    }
+    
+    private static byte[] readFully(File file) throws IOException
+    {
+        byte[] data = new byte[(int)file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            in.readFully(data);
+        }
+        finally { in.close(); }
+        return data;
+    }
+    
+    private static void writeFully(File file, byte[] data) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(data);
+        }
+        finally { out.close(); }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * ChunkService.java - ChunkService Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Serves the world in 20x20 tile chunks. A chunk is addressed by a map and
+ * chunk coordinates relative to it; coordinates outside the map are followed
+ * through its top/left/bottom/right links, so a client can walk across map
+ * borders without knowing the map graph. Rendered chunks are kept in a
+ * bounded LRU and the neighbours of every requested chunk are rendered in
+ * the background so they are ready before the player crosses an edge.
+ */
+public class ChunkService
+{
+    /** ServletContext attribute the shared service is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.chunkService";
+    
+    /** Chunk size in tiles. */
+    public static final int CHUNK_SIZE = 20;
+    
+    /** A rendered chunk. */
+    public static final class Chunk
+    {
+        /** Map and chunk coordinates the request resolved to. */
+        public final String map;
+        public final int cx, cy;
+        /** JSON sent to the client. */
+        public final byte[] json;
+        
+        final CompiledMap source;
+        
+        Chunk(CompiledMap source, int cx, int cy, byte[] json)
+        {
+            this.source = source;
+            this.map = source.getName();
+            this.cx = cx;
+            this.cy = cy;
+            this.json = json;
+        }
+    }
+    
+    /**
+     * A cached chunk under the map its key names. Coordinates off the edge
+     * of that map resolve to a chunk of another map, cached under both.
+     */
+    private static final class Cached
+    {
+        /** The map the key names, as it was when the entry was made. */
+        final CompiledMap from;
+        final Chunk chunk;
+        
+        Cached(CompiledMap from, Chunk chunk)
+        {
+            this.from = from;
+            this.chunk = chunk;
+        }
+    }
+    
+    private final MapStore store;
+    
+    private final Map<String, Cached> cache;
+    
+    private final ThreadPoolExecutor prefetcher;
+    
+    /** Chunks being prefetched, so the same one is not queued twice. */
+    private final ConcurrentMap<String, Boolean> pending = new ConcurrentHashMap<String, Boolean>();
+    
+    /**
+     * @param capacity chunks kept in memory
+     * @param prefetchThreads threads rendering neighbours, 0 to disable prefetching
+     */
+    public ChunkService(MapStore store, final int capacity, int prefetchThreads)
+    {
+        this.store = store;
+        this.cache = new LinkedHashMap<String, Cached>(capacity * 2, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+        
+        if(prefetchThreads > 0)
+        {
+            // A full queue means the player has moved on; drop the oldest work.
+            prefetcher = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(capacity), new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "ChunkPrefetch");
+                    t.setDaemon(true);
+                    return t;
+                }
+            }, new ThreadPoolExecutor.DiscardOldestPolicy());
+            prefetcher.allowCoreThreadTimeOut(true);
+        }
+        else
+            prefetcher = null;
+    }
+    
+    /** Returns the service for this webapp, creating it on first use. */
+    public static ChunkService get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            ChunkService service = (ChunkService)context.getAttribute(CONTEXT_KEY);
+            
+            if(service == null)
+            {
+                String capacity = context.getInitParameter("cseGame.chunk.cacheSize");
+                String threads = context.getInitParameter("cseGame.chunk.prefetchThreads");
+                
+                service = new ChunkService(MapStore.get(context), 
+                        capacity == null ? 512 : Integer.parseInt(capacity.trim()),
+                        threads == null ? 2 : Integer.parseInt(threads.trim()));
+                context.setAttribute(CONTEXT_KEY, service);
+            }
+            return service;
+        }
+    }
+    
+    /**
+     * Returns a chunk and schedules its eight neighbours for prefetching.
+     * @param map map the coordinates are relative to
+     * @return the chunk, or null if the coordinates lead off the edge of the world
+     */
+    public Chunk getChunk(String map, int cx, int cy) throws Exception
+    {
+        Chunk chunk = load(map, cx, cy);
+        
+        if(chunk != null && prefetcher != null)
+        {
+            for(int dy = -1; dy <= 1; dy++)
+            {
+                for(int dx = -1; dx <= 1; dx++)
+                {
+                    if(dx != 0 || dy != 0)
+                        prefetch(chunk.map, chunk.cx + dx, chunk.cy + dy);
+                }
+            }
+        }
+        return chunk;
+    }
+    
+    private void prefetch(final String map, final int cx, final int cy)
+    {
+        final String key = map + ":" + cx + ":" + cy;
+        
+        synchronized(cache)
+        {
+            if(cache.containsKey(key))
+                return;
+        }
+        
+        if(pending.putIfAbsent(key, Boolean.TRUE) != null)
+            return;
+        
+        try
+        {
+            prefetcher.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        load(map, cx, cy);
+                    }
+                    catch (Exception e){ /* it will be reported when the chunk is requested */ }
+                    finally { pending.remove(key); }
+                }
+            });
+        }
+        catch (RejectedExecutionException e){ pending.remove(key); }
+    }
+    
+    /** Resolves coordinates to a map and renders the chunk, using the cache. */
+    private Chunk load(String name, int cx, int cy) throws Exception
+    {
+        String key = name + ":" + cx + ":" + cy;
+        CompiledMap map = store.get(name);
+        Cached entry;
+        
+        synchronized(cache)
+        {
+            entry = cache.get(key);
+        }
+        
+        // An alias also goes stale when the map it resolved to is recompiled.
+        if(entry != null && entry.from == map 
+                && (entry.chunk.source == map || store.get(entry.chunk.map) == entry.chunk.source))
+            return entry.chunk;
+        
+        CompiledMap from = map;        
+        // Walk the map links until the coordinates fall inside a map.
+        int guard = 0;
+        while(map != null)
+        {
+            int across = chunksAcross(map), down = chunksDown(map);
+            
+            if(cx >= 0 && cy >= 0 && cx < across && cy < down)
+                break;
+            
+            if(++guard > 1024)
+                throw new IllegalStateException("Map links from " + name + " do not converge.");
+            
+            if(cx < 0)
+            {
+                map = store.getNeighbour(map, MapData.LEFT);
+                if(map != null)
+                    cx += chunksAcross(map);
+            }
+            else if(cx >= across)
+            {
+                cx -= across;
+                map = store.getNeighbour(map, MapData.RIGHT);
+            }
+            else if(cy < 0)
+            {
+                map = store.getNeighbour(map, MapData.TOP);
+                if(map != null)
+                    cy += chunksDown(map);
+            }
+            else
+            {
+                cy -= down;
+                map = store.getNeighbour(map, MapData.BOTTOM);
+            }
+        }
+        
+        if(map == null)
+            return null;
+        
+        String resolved = map.getName() + ":" + cx + ":" + cy;
+        
+        synchronized(cache)
+        {
+            entry = cache.get(resolved);
+        }
+        
+        Chunk chunk = entry == null || entry.from != map ? new Chunk(map, cx, cy, render(map, cx, cy)) : entry.chunk;
+        
+        synchronized(cache)
+        {
+            cache.put(resolved, new Cached(map, chunk));
+            if(!resolved.equals(key))
+                cache.put(key, new Cached(from, chunk));
+        }
+        return chunk;
+    }
+    
+    private static int chunksAcross(CompiledMap map){ return Math.max(1, (map.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE); }
+    
+    private static int chunksDown(CompiledMap map){ return Math.max(1, (map.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE); }
+    
+    /**
+     * Renders a chunk as JSON: its map and position, the neighbouring maps,
+     * the terrain ids row by row and the objects whose tile lies inside it,
+     * with coordinates relative to the chunk. <code>image</code> is the URL
+     * of the chunk drawn as one PNG by {@link ChunkImages}; objects drawn
+     * into it are marked <code>baked</code>.
+     */
+    static byte[] render(CompiledMap map, int cx, int cy) throws UnsupportedEncodingException
+    {
+        int x0 = cx * CHUNK_SIZE, y0 = cy * CHUNK_SIZE;
+        int x1 = Math.min(map.getWidth(), x0 + CHUNK_SIZE), y1 = Math.min(map.getHeight(), y0 + CHUNK_SIZE);
+        
+        StringBuilder data = new StringBuilder(CHUNK_SIZE * CHUNK_SIZE * 3 + 512);
+        data.append("{'map': '").append(map.getName()).append("', 'cx': ").append(cx).append(", 'cy': ").append(cy);
+        data.append(", 'north': ").append(quote(map.getNeighbour(MapData.TOP)));
+        data.append(", 'west': ").append(quote(map.getNeighbour(MapData.LEFT)));
+        data.append(", 'south': ").append(quote(map.getNeighbour(MapData.BOTTOM)));
+        data.append(", 'east': ").append(quote(map.getNeighbour(MapData.RIGHT)));
+        data.append(", 'width': ").append(x1 - x0).append(", 'height': ").append(y1 - y0);
+        data.append(", 'image': 'chunk?map=").append(map.getName()).append("&x=").append(cx).append("&y=").append(cy).append("&format=png'");
+        
+        data.append(",\n'terrain': [");
+        for(int y = y0; y < y1; y++)
+        {
+            for(int x = x0; x < x1; x++)
+            {
+                if(x != x0 || y != y0)
+                    data.append(',');
+                data.append(map.getTerrain(x, y));
+            }
+        }
+        data.append("],\n'objs': [");
+        
+        boolean first = true;
+        for(int i = 0; i < map.getObjectCount(); i++)
+        {
+            int x = map.getObjX(i), y = map.getObjY(i);
+            
+            if(x < x0 || x >= x1 || y < y0 || y >= y1)
+                continue;
+            
+            if(!first)
+                data.append(",\n");
+            first = false;
+            
+            data.append("{'id': ").append(map.getObjSprite(i));
+            data.append(", 'x': ").append(x - x0).append(", 'y': ").append(y - y0);
+            data.append(", 'width': ").append(map.getObjWidth(i)).append(", 'height': ").append(map.getObjHeight(i));
+            data.append(", 'layer': ").append(map.getObjLayer(i));
+            if(map.getObjId(i) != 0)
+                data.append(", 'objid': ").append(map.getObjId(i));
+            if(map.getObjFrames(i) != 0)
+                data.append(", 'frames': ").append(map.getObjFrames(i));
+            if(ChunkImages.isBaked(map, i))
+                data.append(", 'baked': 1");
+            data.append('}');
+        }
+        data.append("]}");
+        
+        return data.toString().getBytes("UTF-8");
+    }
+    
+    private static String quote(String s){ return s == null ? "null" : "'" + s + "'"; }
+    
+    public int size()
+    {
+        synchronized(cache)
+        {
+            return cache.size();
+        }
+    }
+    
+    /** Stops the webapp's prefetching, if it has a service. */
+    public static void close(ServletContext context)
+    {
+        ChunkService service;
+        
+        synchronized(context)
+        {
+            service = (ChunkService)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(service != null && service.prefetcher != null)
+            service.prefetcher.shutdownNow();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * CompiledMap.java - CompiledMap Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only view of a map in the MapCompiler format. The file is memory
+ * mapped and every accessor reads straight from the mapping, so a loaded
+ * map costs the page cache rather than the heap.
+ */
+public class CompiledMap
+{
+    private final String name;
+    private final ByteBuffer data;
+    private final File file;
+    private final long modified;
+    
+    private final int width, height, objectCount;
+    private final String[] neighbours = new String[4];
+    
+    /** Offsets of each section. */
+    private final int terrainAt, spriteAt, xAt, yAt, widthAt, heightAt, idAt, layerAt, framesAt;
+    
+    /** Maps a compiled file. */
+    public static CompiledMap open(String name, File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CompiledMap(name, buffer, file, file.lastModified());
+        }
+        finally { raf.close(); }   // the mapping stays valid after the channel is closed
+    }
+    
+    /** Wraps compiled bytes held in memory. */
+    public static CompiledMap wrap(String name, byte[] bytes) throws IOException
+    {
+        return new CompiledMap(name, ByteBuffer.wrap(bytes), null, 0);
+    }
+    
+    private CompiledMap(String name, ByteBuffer data, File file, long modified) throws IOException
+    {
+        this.name = name;
+        this.data = data;
+        this.file = file;
+        this.modified = modified;
+        
+        ByteBuffer header = data.duplicate();
+        
+        if(header.getInt() != MapCompiler.MAGIC)
+            throw new IOException(name + " is not a compiled map.");
+        if(header.getShort() != MapCompiler.VERSION)
+            throw new IOException(name + " was compiled for another version; recompile it.");
+        
+        width = header.getShort();
+        height = header.getShort();
+        
+        for(int i = 0; i < 4; i++)
+        {
+            String link = readUTF(header);
+            neighbours[i] = link.length() == 0 ? null : link;
+        }
+        
+        objectCount = header.getInt();
+        
+        int n = objectCount;
+        terrainAt = header.position();
+        spriteAt = terrainAt + width * height * 2;
+        xAt = spriteAt + n * 2;
+        yAt = xAt + n * 2;
+        widthAt = yAt + n * 2;
+        heightAt = widthAt + n * 2;
+        idAt = heightAt + n * 2;
+        layerAt = idAt + n * 4;
+        framesAt = layerAt + n;
+        
+        if(framesAt + n > data.limit())
+            throw new IOException(name + " is truncated.");
+    }
+    
+    private static String readUTF(ByteBuffer buffer) throws IOException
+    {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+    
+    public String getName(){ return name; }
+    
+    public int getWidth(){ return width; }
+    
+    public int getHeight(){ return height; }
+    
+    /** Name of the map in a direction (MapData.TOP, ...), or null. */
+    public String getNeighbour(int direction){ return neighbours[direction]; }
+    
+    /** Sprite id of the terrain at a tile. */
+    public int getTerrain(int x, int y){ return data.getShort(terrainAt + (y * width + x) * 2); }
+    
+    public int getObjectCount(){ return objectCount; }
+    
+    public int getObjSprite(int i){ return data.getShort(spriteAt + i * 2); }
+    
+    public int getObjX(int i){ return data.getShort(xAt + i * 2); }
+    
+    public int getObjY(int i){ return data.getShort(yAt + i * 2); }
+    
+    public int getObjWidth(int i){ return data.getShort(widthAt + i * 2); }
+    
+    public int getObjHeight(int i){ return data.getShort(heightAt + i * 2); }
+    
+    /** MAPOBJECT id of an interactive object, 0 if none. */
+    public int getObjId(int i){ return data.getInt(idAt + i * 4); }
+    
+    public int getObjLayer(int i){ return data.get(layerAt + i); }
+    
+    /** Animation frames, 0 if the object is not animated. */
+    public int getObjFrames(int i){ return data.get(framesAt + i); }
+    
+    /** The compiled bytes, as a new read-only view positioned at zero. */
+    public ByteBuffer getBytes()
+    {
+        ByteBuffer bytes = data.asReadOnlyBuffer();
+        bytes.rewind();
+        return bytes;
+    }
+    
+    /** The file this map is mapped from, or null if it is held in memory. */
+    public File getFile(){ return file; }
+    
+    long getModified(){ return modified; }
+}
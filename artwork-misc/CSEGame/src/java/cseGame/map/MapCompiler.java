@@ -0,0 +1,146 @@
+/*
+ * MapCompiler.java - MapCompiler Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+
+/**
+ * Compiles GameData XML maps into the binary format read by CompiledMap.
+ * <pre>
+ *   int    magic 'CSEM'
+ *   short  version
+ *   short  width, height
+ *   utf    top, left, bottom, right   (empty if none)
+ *   int    object count (n)
+ *   short  terrain[width * height]
+ *   short  sprite[n], x[n], y[n], width[n], height[n]
+ *   int    objid[n]
+ *   byte   layer[n], frames[n]
+ * </pre>
+ * All values are big-endian. Run from Ant as
+ * <code>java cseGame.map.MapCompiler &lt;GameData dir&gt; &lt;output dir&gt;</code>.
+ */
+public class MapCompiler
+{
+    public static final int MAGIC = 0x4353454D;
+    public static final int VERSION = 1;
+    
+    /** Extension of compiled map files. */
+    public static final String EXTENSION = ".map";
+    
+    /** Writes a map in the compiled format. */
+    public static void write(MapData map, OutputStream os) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 8192));
+        int n = map.objectCount;
+        
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(map.width);
+        out.writeShort(map.height);
+        
+        for(int i = 0; i < 4; i++)
+            out.writeUTF(map.neighbours[i] == null ? "" : map.neighbours[i]);
+        
+        out.writeInt(n);
+        
+        for(int i = 0; i < map.terrain.length; i++)
+            out.writeShort(map.terrain[i]);
+        
+        writeShorts(out, map.objSprite, n);
+        writeShorts(out, map.objX, n);
+        writeShorts(out, map.objY, n);
+        writeShorts(out, map.objWidth, n);
+        writeShorts(out, map.objHeight, n);
+        
+        for(int i = 0; i < n; i++)
+            out.writeInt(map.objId[i]);
+        
+        out.write(map.objLayer, 0, n);
+        out.write(map.objFrames, 0, n);
+        out.flush();
+    }
+    
+    private static void writeShorts(DataOutputStream out, short[] a, int n) throws IOException
+    {
+        for(int i = 0; i < n; i++)
+            out.writeShort(a[i]);
+    }
+    
+    /** Compiles one XML map to a file. */
+    public static void compile(File xml, File output) throws Exception
+    {
+        MapData map = MapReader.read(xml);
+        
+        // Write to a temporary file first so readers never map a half-written file.
+        File temp = new File(output.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(temp);
+        try
+        {
+            write(map, out);
+        }
+        finally { out.close(); }
+        
+        if(output.exists() && !output.delete())
+            throw new IOException("Cannot replace " + output);
+        if(!temp.renameTo(output))
+            throw new IOException("Cannot rename " + temp + " to " + output);
+    }
+    
+    /** Returns true if a file is a GameData map rather than another XML file. */
+    public static boolean isMap(File file) throws IOException
+    {
+        if(!file.getName().endsWith(".xml"))
+            return false;
+        
+        // The root element is near the top; no need to parse the whole file.
+        Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try
+        {
+            char[] head = new char[512];
+            int length = in.read(head);
+            return length > 0 && new String(head, 0, length).matches("(?s).*<map[\\s>].*");
+        }
+        finally { in.close(); }
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length != 2)
+        {
+            System.err.println("Usage: MapCompiler <GameData dir> <output dir>");
+            System.exit(1);
+        }
+        
+        File source = new File(args[0]);
+        File target = new File(args[1]);
+        target.mkdirs();
+        
+        File[] files = source.listFiles();
+        int count = 0;
+        
+        for(int i = 0; files != null && i < files.length; i++)
+        {
+            if(!isMap(files[i]))
+                continue;
+            
+            String name = files[i].getName();
+            File output = new File(target, name.substring(0, name.length() - 4) + EXTENSION);
+            
+            if(output.exists() && output.lastModified() >= files[i].lastModified())
+                continue;
+            
+            long start = System.currentTimeMillis();
+            compile(files[i], output);
+            count++;
+            System.out.println("Compiled " + name + " -> " + output.getName() + " (" + output.length() + 
+                    " bytes, " + (System.currentTimeMillis() - start) + " ms)");
+        }
+        
+        System.out.println(count + " map(s) compiled.");
+    }
+}
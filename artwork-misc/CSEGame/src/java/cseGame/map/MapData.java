@@ -0,0 +1,92 @@
+/*
+ * MapData.java - MapData Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+/**
+ * A map as read from a GameData XML file, in primitive arrays. Terrain is
+ * one sprite id per tile in row-major order; objects are stored as parallel
+ * arrays indexed by object number.
+ */
+public class MapData
+{
+    public static final int TILE_SIZE = 24;
+    
+    public static final int TOP = 0, LEFT = 1, BOTTOM = 2, RIGHT = 3;
+    
+    public String name;
+    
+    /** Neighbouring maps, indexed by TOP, LEFT, BOTTOM and RIGHT; null if none. */
+    public final String[] neighbours = new String[4];
+    
+    public int width;
+    public int height;
+    public short[] terrain = new short[0];
+    
+    public int objectCount;
+    /** Sprite id of each object. */
+    public short[] objSprite = new short[16];
+    public short[] objX = new short[16];
+    public short[] objY = new short[16];
+    public short[] objWidth = new short[16];
+    public short[] objHeight = new short[16];
+    public byte[] objLayer = new byte[16];
+    /** Animation frames, 0 if the object is not animated. */
+    public byte[] objFrames = new byte[16];
+    /** Interactive object id (MAPOBJECT row), 0 if none. */
+    public int[] objId = new int[16];
+    
+    public int getTerrain(int x, int y){ return terrain[y * width + x]; }
+    
+    /** Appends an object, growing the arrays as needed. Returns its index. */
+    public int addObject(int sprite, int x, int y, int w, int h, int layer, int frames, int id)
+    {
+        if(objectCount == objSprite.length)
+        {
+            int size = objectCount * 2;
+            objSprite = grow(objSprite, size);
+            objX = grow(objX, size);
+            objY = grow(objY, size);
+            objWidth = grow(objWidth, size);
+            objHeight = grow(objHeight, size);
+            objLayer = grow(objLayer, size);
+            objFrames = grow(objFrames, size);
+            objId = grow(objId, size);
+        }
+        
+        int i = objectCount++;
+        objSprite[i] = (short)sprite;
+        objX[i] = (short)x;
+        objY[i] = (short)y;
+        objWidth[i] = (short)w;
+        objHeight[i] = (short)h;
+        objLayer[i] = (byte)layer;
+        objFrames[i] = (byte)frames;
+        objId[i] = id;
+        return i;
+    }
+    
+    private static short[] grow(short[] a, int size)
+    {
+        short[] b = new short[size];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+    
+    private static byte[] grow(byte[] a, int size)
+    {
+        byte[] b = new byte[size];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+    
+    private static int[] grow(int[] a, int size)
+    {
+        int[] b = new int[size];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MapReader.java - MapReader Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.*;
+import org.xml.sax.helpers.DefaultHandler;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Reads a GameData map (&lt;map&gt;, &lt;terrain&gt;&lt;row&gt; and
+ * &lt;layer&gt;&lt;obj&gt; elements) into a MapData. A terrain row is one
+ * digit per tile, or comma/space separated ids when sprite ids go past 9.
+ */
+public class MapReader extends DefaultHandler
+{
+    private final MapData map = new MapData();
+    
+    private final List<short[]> rows = new ArrayList<short[]>();
+    private StringBuilder rowText = null;
+    private int layer = 0;
+    
+    /** Parses a map file; the map is named after the file without its extension. */
+    public static MapData read(File file) throws Exception
+    {
+        MapReader reader = new MapReader();
+        
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        reader.map.name = dot > 0 ? name.substring(0, dot) : name;
+        
+        InputStream istream = new BufferedInputStream(new FileInputStream(file));
+        try
+        {
+            SAXParserFactory.newInstance().newSAXParser().parse(istream, reader);
+        }
+        finally { istream.close(); }
+        
+        return reader.map;
+    }
+    
+    public void startElement(String namespaceURI, String sName, String qName, Attributes attrs) throws SAXException
+    {
+        String eName = sName.equals("") ? qName : sName;
+        
+        if(eName.equals("map"))
+        {
+            map.neighbours[MapData.TOP] = attrs.getValue("top");
+            map.neighbours[MapData.LEFT] = attrs.getValue("left");
+            map.neighbours[MapData.BOTTOM] = attrs.getValue("bottom");
+            map.neighbours[MapData.RIGHT] = attrs.getValue("right");
+        }
+        else if(eName.equals("row"))
+            rowText = new StringBuilder(64);
+        else if(eName.equals("layer"))
+            layer = intAttr(attrs, "type", 0);
+        else if(eName.equals("obj"))
+        {
+            map.addObject(intAttr(attrs, "id", 0), intAttr(attrs, "x", 0), intAttr(attrs, "y", 0),
+                    intAttr(attrs, "width", MapData.TILE_SIZE), intAttr(attrs, "height", MapData.TILE_SIZE),
+                    layer, intAttr(attrs, "frames", 0), intAttr(attrs, "objid", 0));
+        }
+    }
+    
+    public void characters(char[] ch, int start, int length)
+    {
+        if(rowText != null)
+            rowText.append(ch, start, length);
+    }
+    
+    public void endElement(String namespaceURI, String sName, String qName) throws SAXException
+    {
+        String eName = sName.equals("") ? qName : sName;
+        
+        if(eName.equals("row"))
+        {
+            rows.add(parseRow(rowText.toString().trim()));
+            rowText = null;
+        }
+        else if(eName.equals("terrain"))
+        {
+            int width = 0;
+            for(int i = 0; i < rows.size(); i++)
+                width = Math.max(width, rows.get(i).length);
+            
+            map.width = width;
+            map.height = rows.size();
+            map.terrain = new short[width * map.height];
+            
+            for(int y = 0; y < rows.size(); y++)
+            {
+                short[] row = rows.get(y);
+                System.arraycopy(row, 0, map.terrain, y * width, row.length);
+            }
+            rows.clear();
+        }
+    }
+    
+    /** Parses a terrain row: one digit per tile, or comma/space separated ids. */
+    public static short[] parseRow(String text)
+    {
+        if(text.indexOf(',') < 0 && text.indexOf(' ') < 0)
+        {
+            short[] row = new short[text.length()];
+            for(int i = 0; i < row.length; i++)
+                row[i] = (short)Character.digit(text.charAt(i), 10);
+            return row;
+        }
+        
+        String[] ids = text.split("[,\\s]+");
+        short[] row = new short[ids.length];
+        for(int i = 0; i < row.length; i++)
+            row[i] = Short.parseShort(ids[i]);
+        return row;
+    }
+    
+    private static int intAttr(Attributes attrs, String name, int def)
+    {
+        String value = attrs.getValue(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * MapStore.java - MapStore Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Finds and memory maps compiled maps. Uses GameData/compiled/NAME.map when
+ * the Ant build produced one that is newer than GameData/NAME.xml, and
+ * otherwise compiles the XML into the webapp's temporary directory. Maps
+ * are reloaded when their XML changes.
+ */
+public class MapStore
+{
+    /** ServletContext attribute the shared store is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.mapStore";
+    
+    private final File gameData;
+    private final File compiled;
+    private final File scratch;
+    
+    private final ConcurrentMap<String, CompiledMap> maps = new ConcurrentHashMap<String, CompiledMap>();
+    
+    /** One lock per map name, so different maps compile in parallel. */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<String, Object>();
+    
+    /**
+     * @param gameData directory holding the XML maps
+     * @param compiled directory holding maps compiled at build time
+     * @param scratch  directory for maps compiled at runtime
+     */
+    public MapStore(File gameData, File compiled, File scratch)
+    {
+        this.gameData = gameData;
+        this.compiled = compiled;
+        this.scratch = scratch;
+        scratch.mkdirs();
+    }
+    
+    /** Returns the store for this webapp, creating it on first use. */
+    public static MapStore get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            MapStore store = (MapStore)context.getAttribute(CONTEXT_KEY);
+            
+            if(store == null)
+            {
+                File gameData = new File(context.getRealPath("GameData"));
+                File temp = (File)context.getAttribute("javax.servlet.context.tempdir");
+                if(temp == null)
+                    temp = new File(System.getProperty("java.io.tmpdir"));
+                
+                store = new MapStore(gameData, new File(gameData, "compiled"), new File(temp, "maps"));
+                context.setAttribute(CONTEXT_KEY, store);
+            }
+            return store;
+        }
+    }
+    
+    /** Returns true for names that can only refer to a file in GameData. */
+    public static boolean isValidName(String name)
+    {
+        if(name == null || name.length() == 0 || name.length() > 64)
+            return false;
+        
+        for(int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if(!(Character.isLetterOrDigit(c) || c == '_' || c == '-'))
+                return false;
+        }
+        return true;
+    }
+    
+    /** Strips any directory and extension from a map reference such as "map0001.json". */
+    public static String baseName(String map)
+    {
+        String name = new File(map.trim()).getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+    
+    /**
+     * Returns a map by name, compiling it if needed.
+     * @throws FileNotFoundException if there is no such map
+     */
+    public CompiledMap get(String name) throws Exception
+    {
+        if(!isValidName(name))
+            throw new FileNotFoundException("Invalid map name: " + name);
+        
+        File xml = new File(gameData, name + ".xml");
+        long xmlModified = xml.lastModified();
+        CompiledMap map = maps.get(name);
+        
+        if(map != null && map.getModified() >= xmlModified)
+            return map;
+        
+        Object lock = locks.get(name);
+        if(lock == null)
+        {
+            Object created = new Object();
+            lock = locks.putIfAbsent(name, created);
+            if(lock == null)
+                lock = created;
+        }
+        
+        synchronized(lock)
+        {
+            map = maps.get(name);
+            if(map != null && map.getModified() >= xmlModified)
+                return map;
+            
+            File file = new File(compiled, name + MapCompiler.EXTENSION);
+            
+            if(!file.exists() || file.lastModified() < xmlModified)
+            {
+                if(!xml.exists())
+                    throw new FileNotFoundException("No such map: " + name);
+                
+                file = new File(scratch, name + MapCompiler.EXTENSION);
+                if(!file.exists() || file.lastModified() < xmlModified)
+                    MapCompiler.compile(xml, file);
+            }
+            
+            map = CompiledMap.open(name, file);
+            maps.put(name, map);
+            return map;
+        }
+    }
+    
+    /** Returns the neighbour of a map in a direction, or null if it has none. */
+    public CompiledMap getNeighbour(CompiledMap map, int direction) throws Exception
+    {
+        String link = map.getNeighbour(direction);
+        return link == null ? null : get(baseName(link));
+    }
+    
+    /** Names of every XML map in GameData. */
+    public String[] listMaps() throws IOException
+    {
+        File[] files = gameData.listFiles();
+        java.util.List<String> names = new java.util.ArrayList<String>();
+        
+        for(int i = 0; files != null && i < files.length; i++)
+        {
+            if(MapCompiler.isMap(files[i]))
+                names.add(baseName(files[i].getName()));
+        }
+        return names.toArray(new String[names.size()]);
+    }
+    
+    public int size(){ return maps.size(); }
+}
@@ -0,0 +1,374 @@
+/*
+ * PathFinder.java - PathFinder Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletContext;
+
+/**
+ * A* over one map's passability grid, moving in the four directions the
+ * client's Astar uses. The grid is a bitset built once from the terrain and
+ * the blocking object layer. The search keeps no per-node objects: scores,
+ * parents and the open set's binary heap are int arrays borrowed from a
+ * small shared pool, and stamped with a search number so they never need clearing. Recent
+ * (start, goal) results are kept in a small LRU; a search that gave up
+ * after maxExpanded nodes is not, since it says nothing about the map.
+ */
+public class PathFinder
+{
+    /** ServletContext attribute holding the finder of every map. */
+    public static final String CONTEXT_KEY = "cseGame.pathFinders";
+    
+    private final CompiledMap map;
+    private final int width, height;
+    private final long[] passable;
+    
+    /** Nodes a search may expand before giving up. */
+    private final int maxExpanded;
+    
+    private final Map<Long, int[]> recent;
+    
+    /**
+     * Idle search state, sized for the largest map each has searched. About
+     * one per core is kept; searches beyond that allocate their own and
+     * leave it to the collector, so request threads hold no arrays between
+     * searches.
+     */
+    private static final ArrayBlockingQueue<Scratch> spare = 
+            new ArrayBlockingQueue<Scratch>(Runtime.getRuntime().availableProcessors());
+    
+    private static final int[] NO_PATH = new int[0];
+    
+    /**
+     * @param blockingTerrain terrain sprite ids that cannot be walked on
+     * @param maxExpanded     nodes a search may expand before giving up
+     * @param cacheSize       recent results kept
+     */
+    public PathFinder(CompiledMap map, int[] blockingTerrain, int maxExpanded, final int cacheSize)
+    {
+        this.map = map;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.maxExpanded = maxExpanded;
+        this.passable = new long[(width * height + 63) >> 6];
+        this.recent = new LinkedHashMap<Long, int[]>(cacheSize * 2, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest)
+            {
+                return size() > cacheSize;
+            }
+        };
+        
+        for(int y = 0; y < height; y++)
+        {
+            for(int x = 0; x < width; x++)
+            {
+                int terrain = map.getTerrain(x, y);
+                boolean open = true;
+                
+                for(int i = 0; i < blockingTerrain.length; i++)
+                {
+                    if(blockingTerrain[i] == terrain)
+                        open = false;
+                }
+                
+                if(open)
+                {
+                    int tile = y * width + x;
+                    passable[tile >> 6] |= 1L << tile;
+                }
+            }
+        }
+        
+        for(int i = 0; i < map.getObjectCount(); i++)
+        {
+            int x = map.getObjX(i), y = map.getObjY(i);
+            
+            if(map.getObjLayer(i) == SpatialIndex.BLOCKING_LAYER && x >= 0 && y >= 0 && x < width && y < height)
+            {
+                int tile = y * width + x;
+                passable[tile >> 6] &= ~(1L << tile);
+            }
+        }
+    }
+    
+    /**
+     * Returns the finder for a map, building it on first use and again when
+     * the map has been reloaded.
+     */
+    @SuppressWarnings("unchecked")
+    public static PathFinder forMap(ServletContext context, String name) throws Exception
+    {
+        ConcurrentMap<String, PathFinder> finders;
+        
+        synchronized(context)
+        {
+            finders = (ConcurrentMap<String, PathFinder>)context.getAttribute(CONTEXT_KEY);
+            if(finders == null)
+            {
+                finders = new ConcurrentHashMap<String, PathFinder>();
+                context.setAttribute(CONTEXT_KEY, finders);
+            }
+        }
+        
+        CompiledMap map = MapStore.get(context).get(name);
+        PathFinder finder = finders.get(name);
+        
+        if(finder == null || finder.map != map)
+        {
+            String blocking = context.getInitParameter("cseGame.path.blockingTerrain");
+            String expand = context.getInitParameter("cseGame.path.maxExpanded");
+            String cache = context.getInitParameter("cseGame.path.cacheSize");
+            
+            finder = new PathFinder(map, parseIds(blocking), 
+                    expand == null ? 20000 : Integer.parseInt(expand.trim()),
+                    cache == null ? 256 : Integer.parseInt(cache.trim()));
+            finders.put(name, finder);
+        }
+        return finder;
+    }
+    
+    private static int[] parseIds(String list)
+    {
+        if(list == null || list.trim().length() == 0)
+            return new int[0];
+        
+        String[] parts = list.trim().split("[,\\s]+");
+        int[] ids = new int[parts.length];
+        for(int i = 0; i < parts.length; i++)
+            ids[i] = Integer.parseInt(parts[i]);
+        return ids;
+    }
+    
+    public boolean isPassable(int x, int y)
+    {
+        if(x < 0 || y < 0 || x >= width || y >= height)
+            return false;
+        
+        int tile = y * width + x;
+        return (passable[tile >> 6] & (1L << tile)) != 0;
+    }
+    
+    /**
+     * Returns the shortest path from start to goal as tile indexes
+     * (y * width + x), start first, or null if there is none or the search
+     * gave up. The array is the caller's to keep or change.
+     */
+    public int[] findPath(int sx, int sy, int gx, int gy)
+    {
+        if(!isPassable(sx, sy) || !isPassable(gx, gy))
+            return null;
+        
+        int start = sy * width + sx, goal = gy * width + gx;
+        Long key = Long.valueOf(((long)start << 32) | goal);
+        int[] path;
+        
+        synchronized(recent)
+        {
+            path = recent.get(key);
+        }
+        
+        if(path == null)
+        {
+            path = search(start, goal);
+            if(path == null)
+                return null;
+            
+            synchronized(recent)
+            {
+                recent.put(key, path);
+            }
+        }
+        
+        return path == NO_PATH ? null : path.clone();
+    }
+    
+    public int getWidth(){ return width; }
+    
+    private int heuristic(int tile, int gx, int gy)
+    {
+        return Math.abs(tile % width - gx) + Math.abs(tile / width - gy);
+    }
+    
+    /** Returns the path, NO_PATH if there is none, or null if maxExpanded nodes were expanded first. */
+    private int[] search(int start, int goal)
+    {
+        Scratch s = spare.poll();
+        if(s == null)
+            s = new Scratch();
+        
+        try
+        {
+            return search(s, start, goal);
+        }
+        finally { spare.offer(s); }
+    }
+    
+    private int[] search(Scratch s, int start, int goal)
+    {
+        s.prepare(width * height);
+        
+        int stamp = s.nextStamp();
+        int gx = goal % width, gy = goal / width;
+        
+        s.open(start, stamp, 0, -1, heuristic(start, gx, gy));
+        
+        int expanded = 0;
+        while(s.heapSize > 0 && expanded++ < maxExpanded)
+        {
+            int node = s.pop();
+            
+            if(node == goal)
+                return s.path(goal);
+            
+            s.closed[node] = stamp;
+            
+            int x = node % width, y = node / width;
+            int g = s.g[node] + 1;
+            
+            // North, east, south, west, as the client's Astar.
+            if(y > 0)
+                relax(s, stamp, node, node - width, g, gx, gy);
+            if(x < width - 1)
+                relax(s, stamp, node, node + 1, g, gx, gy);
+            if(y < height - 1)
+                relax(s, stamp, node, node + width, g, gx, gy);
+            if(x > 0)
+                relax(s, stamp, node, node - 1, g, gx, gy);
+        }
+        return s.heapSize > 0 ? null : NO_PATH;
+    }
+    
+    private void relax(Scratch s, int stamp, int from, int to, int g, int gx, int gy)
+    {
+        if(s.closed[to] == stamp || (passable[to >> 6] & (1L << to)) == 0)
+            return;
+        
+        if(s.seen[to] != stamp)
+            s.open(to, stamp, g, from, g + heuristic(to, gx, gy));
+        else if(g < s.g[to])
+        {
+            s.g[to] = g;
+            s.parent[to] = from;
+            s.f[to] = g + heuristic(to, gx, gy);
+            s.siftUp(s.heapPos[to]);
+        }
+    }
+    
+    /** Search arrays for one search at a time. */
+    private static final class Scratch
+    {
+        int[] g = new int[0], f, parent, seen, closed, heapPos, heap;
+        int heapSize;
+        int stamp = 0;
+        
+        void prepare(int size)
+        {
+            if(g.length < size)
+            {
+                g = new int[size];
+                f = new int[size];
+                parent = new int[size];
+                seen = new int[size];
+                closed = new int[size];
+                heapPos = new int[size];
+                heap = new int[size];
+                stamp = 0;
+            }
+            heapSize = 0;
+        }
+        
+        int nextStamp()
+        {
+            if(++stamp == Integer.MAX_VALUE)
+            {
+                java.util.Arrays.fill(seen, 0);
+                java.util.Arrays.fill(closed, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+        
+        void open(int node, int stamp, int gScore, int from, int fScore)
+        {
+            seen[node] = stamp;
+            g[node] = gScore;
+            f[node] = fScore;
+            parent[node] = from;
+            heap[heapSize] = node;
+            heapPos[node] = heapSize;
+            siftUp(heapSize++);
+        }
+        
+        /** Orders by f, then by g descending so deeper nodes on the same f are tried first. */
+        private boolean less(int a, int b)
+        {
+            return f[a] < f[b] || (f[a] == f[b] && g[a] > g[b]);
+        }
+        
+        void siftUp(int i)
+        {
+            int node = heap[i];
+            while(i > 0)
+            {
+                int up = (i - 1) >> 1;
+                if(!less(node, heap[up]))
+                    break;
+                heap[i] = heap[up];
+                heapPos[heap[i]] = i;
+                i = up;
+            }
+            heap[i] = node;
+            heapPos[node] = i;
+        }
+        
+        int pop()
+        {
+            int top = heap[0];
+            int node = heap[--heapSize];
+            int i = 0;
+            
+            while(true)
+            {
+                int child = 2 * i + 1;
+                if(child >= heapSize)
+                    break;
+                if(child + 1 < heapSize && less(heap[child + 1], heap[child]))
+                    child++;
+                if(!less(heap[child], node))
+                    break;
+                heap[i] = heap[child];
+                heapPos[heap[i]] = i;
+                i = child;
+            }
+            
+            if(heapSize > 0)
+            {
+                heap[i] = node;
+                heapPos[node] = i;
+            }
+            return top;
+        }
+        
+        int[] path(int goal)
+        {
+            int length = 0;
+            for(int n = goal; n != -1; n = parent[n])
+                length++;
+            
+            int[] path = new int[length];
+            for(int n = goal; n != -1; n = parent[n])
+                path[--length] = n;
+            return path;
+        }
+    }
+}
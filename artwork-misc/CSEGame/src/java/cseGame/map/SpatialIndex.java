@@ -0,0 +1,369 @@
+/*
+ * SpatialIndex.java - SpatialIndex Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Where things are on one map. Static objects come from the map's layers
+ * and are indexed per tile; players and NPCs are kept in a uniform grid of
+ * square cells a few tiles across. Positions are in tiles, the unit the
+ * client's collision checks use.
+ * <p>
+ * Each cell's member list is copy-on-write, so queries never lock. A move
+ * locks only the entity and the one or two cells it touches, so moves in
+ * different parts of the map do not contend.
+ */
+public class SpatialIndex
+{
+    /** ServletContext attribute holding the index of every map. */
+    public static final String CONTEXT_KEY = "cseGame.spatialIndexes";
+    
+    public static final int PLAYER = 1, NPC = 2, ANY = 0;
+    
+    /** Objects on this layer block movement, as in GameDraw.hasCollision. */
+    public static final int BLOCKING_LAYER = 2;
+    
+    /** A player or NPC. */
+    public static final class Entity
+    {
+        public final String id;
+        public final int kind;
+        volatile int x, y;
+        /** Cell the entity is filed under; -1 once removed. */
+        volatile int cell = -1;
+        
+        Entity(String id, int kind)
+        {
+            this.id = id;
+            this.kind = kind;
+        }
+        
+        public int getX(){ return x; }
+        
+        public int getY(){ return y; }
+    }
+    
+    private static final Entity[] NONE = new Entity[0];
+    
+    /** Members of one cell. Writers copy the array under the cell's lock; readers just read it. */
+    private static final class Cell
+    {
+        volatile Entity[] members = NONE;
+        
+        synchronized void add(Entity e)
+        {
+            Entity[] old = members;
+            Entity[] copy = new Entity[old.length + 1];
+            System.arraycopy(old, 0, copy, 0, old.length);
+            copy[old.length] = e;
+            members = copy;
+        }
+        
+        synchronized void remove(Entity e)
+        {
+            Entity[] old = members;
+            for(int i = 0; i < old.length; i++)
+            {
+                if(old[i] == e)
+                {
+                    Entity[] copy = new Entity[old.length - 1];
+                    System.arraycopy(old, 0, copy, 0, i);
+                    System.arraycopy(old, i + 1, copy, i, old.length - i - 1);
+                    members = copy;
+                    return;
+                }
+            }
+        }
+    }
+    
+    /** Static objects per tile, built from a compiled map. */
+    private static final class Layout
+    {
+        final CompiledMap map;
+        final int width, height;
+        final long[] blocked;
+        /** First object on each tile (index + 1, 0 for none) and the next object on the same tile. */
+        final int[] head, next;
+        
+        Layout(CompiledMap map)
+        {
+            this.map = map;
+            this.width = map.getWidth();
+            this.height = map.getHeight();
+            this.blocked = new long[(width * height + 63) >> 6];
+            this.head = new int[width * height];
+            this.next = new int[map.getObjectCount()];
+            
+            for(int i = map.getObjectCount() - 1; i >= 0; i--)
+            {
+                int x = map.getObjX(i), y = map.getObjY(i);
+                if(x < 0 || y < 0 || x >= width || y >= height)
+                    continue;
+                
+                int tile = y * width + x;
+                next[i] = head[tile];
+                head[tile] = i + 1;
+                
+                if(map.getObjLayer(i) == BLOCKING_LAYER)
+                    blocked[tile >> 6] |= 1L << tile;
+            }
+        }
+    }
+    
+    private final String name;
+    private final int cellSize;
+    private final int cellsAcross, cellsDown;
+    private final Cell[] cells;
+    
+    private volatile Layout layout;
+    
+    private final ConcurrentMap<String, Entity> entities = new ConcurrentHashMap<String, Entity>();
+    
+    /**
+     * @param cellSize width of a grid cell in tiles
+     */
+    public SpatialIndex(CompiledMap map, int cellSize)
+    {
+        this.name = map.getName();
+        this.cellSize = Math.max(1, cellSize);
+        this.layout = new Layout(map);
+        this.cellsAcross = (map.getWidth() + this.cellSize - 1) / this.cellSize;
+        this.cellsDown = (map.getHeight() + this.cellSize - 1) / this.cellSize;
+        this.cells = new Cell[Math.max(1, cellsAcross * cellsDown)];
+        
+        for(int i = 0; i < cells.length; i++)
+            cells[i] = new Cell();
+    }
+    
+    /**
+     * Returns the index of a map for this webapp, creating it on first use
+     * and rebuilding the static layout when the map has been reloaded.
+     */
+    @SuppressWarnings("unchecked")
+    public static SpatialIndex forMap(ServletContext context, String name) throws Exception
+    {
+        ConcurrentMap<String, SpatialIndex> indexes;
+        
+        synchronized(context)
+        {
+            indexes = (ConcurrentMap<String, SpatialIndex>)context.getAttribute(CONTEXT_KEY);
+            if(indexes == null)
+            {
+                indexes = new ConcurrentHashMap<String, SpatialIndex>();
+                context.setAttribute(CONTEXT_KEY, indexes);
+            }
+        }
+        
+        CompiledMap map = MapStore.get(context).get(name);
+        SpatialIndex index = indexes.get(name);
+        
+        if(index == null)
+        {
+            String cell = context.getInitParameter("cseGame.spatial.cellSize");
+            SpatialIndex created = new SpatialIndex(map, cell == null ? 5 : Integer.parseInt(cell.trim()));
+            
+            index = indexes.putIfAbsent(name, created);
+            if(index == null)
+                index = created;
+        }
+        else if(index.layout.map != map)
+            index.layout = new Layout(map);
+        
+        return index;
+    }
+    
+    public String getName(){ return name; }
+    
+    private int cellOf(int x, int y)
+    {
+        int cx = Math.min(cellsAcross - 1, Math.max(0, x / cellSize));
+        int cy = Math.min(cellsDown - 1, Math.max(0, y / cellSize));
+        return cy * cellsAcross + cx;
+    }
+    
+    /** Adds an entity or moves it to a new tile. */
+    public void move(String id, int kind, int x, int y)
+    {
+        Entity e = entities.get(id);
+        
+        if(e == null)
+        {
+            Entity created = new Entity(id, kind);
+            e = entities.putIfAbsent(id, created);
+            if(e == null)
+                e = created;
+        }
+        
+        synchronized(e)
+        {
+            if(entities.get(id) != e)
+                return;     // removed while we waited
+            
+            int cell = cellOf(x, y);
+            int old = e.cell;
+            
+            e.x = x;
+            e.y = y;
+            
+            if(cell != old)
+            {
+                // Add before removing so the entity never disappears from
+                // queries; readers skip it in the cell it no longer claims.
+                cells[cell].add(e);
+                e.cell = cell;
+                if(old >= 0)
+                    cells[old].remove(e);
+            }
+        }
+    }
+    
+    /** Removes an entity; returns false if it was not indexed. */
+    public boolean remove(String id)
+    {
+        Entity e = entities.remove(id);
+        
+        if(e == null)
+            return false;
+        
+        synchronized(e)
+        {
+            if(e.cell >= 0)
+                cells[e.cell].remove(e);
+            e.cell = -1;
+        }
+        return true;
+    }
+    
+    public Entity get(String id){ return entities.get(id); }
+    
+    public int size(){ return entities.size(); }
+    
+    /** Returns true if a static object blocks a tile; tiles off the map are blocked. */
+    public boolean isBlocked(int x, int y)
+    {
+        Layout l = layout;
+        
+        if(x < 0 || y < 0 || x >= l.width || y >= l.height)
+            return true;
+        
+        int tile = y * l.width + x;
+        return (l.blocked[tile >> 6] & (1L << tile)) != 0;
+    }
+    
+    /** Returns the map object indexes (see CompiledMap) on a tile. */
+    public int[] getObjectsAt(int x, int y)
+    {
+        Layout l = layout;
+        
+        if(x < 0 || y < 0 || x >= l.width || y >= l.height)
+            return new int[0];
+        
+        int count = 0;
+        for(int i = l.head[y * l.width + x]; i != 0; i = l.next[i - 1])
+            count++;
+        
+        int[] objects = new int[count];
+        count = 0;
+        for(int i = l.head[y * l.width + x]; i != 0; i = l.next[i - 1])
+            objects[count++] = i - 1;
+        return objects;
+    }
+    
+    public CompiledMap getMap(){ return layout.map; }
+    
+    /** Returns the entities of a kind (or ANY) inside a tile rectangle, bounds inclusive. */
+    public List<Entity> range(int x0, int y0, int x1, int y1, int kind)
+    {
+        List<Entity> found = new ArrayList<Entity>();
+        
+        int cx0 = Math.max(0, x0 / cellSize), cx1 = Math.min(cellsAcross - 1, x1 / cellSize);
+        int cy0 = Math.max(0, y0 / cellSize), cy1 = Math.min(cellsDown - 1, y1 / cellSize);
+        
+        for(int cy = cy0; cy <= cy1; cy++)
+        {
+            for(int cx = cx0; cx <= cx1; cx++)
+            {
+                int cell = cy * cellsAcross + cx;
+                Entity[] members = cells[cell].members;
+                
+                for(int i = 0; i < members.length; i++)
+                {
+                    Entity e = members[i];
+                    int x = e.x, y = e.y;
+                    
+                    if(e.cell == cell && (kind == ANY || e.kind == kind) && x >= x0 && x <= x1 && y >= y0 && y <= y1)
+                        found.add(e);
+                }
+            }
+        }
+        return found;
+    }
+    
+    /** Returns the entities of a kind (or ANY) standing on a tile. */
+    public List<Entity> at(int x, int y, int kind){ return range(x, y, x, y, kind); }
+    
+    /**
+     * Returns the entity of a kind (or ANY) closest to a tile, other than
+     * the one with id <code>except</code>, or null if none lies within
+     * maxDistance tiles.
+     */
+    public Entity nearest(int x, int y, int kind, String except, int maxDistance)
+    {
+        Entity best = null;
+        long bestDist = (long)maxDistance * maxDistance + 1;
+        
+        int ox = Math.min(cellsAcross - 1, Math.max(0, x / cellSize));
+        int oy = Math.min(cellsDown - 1, Math.max(0, y / cellSize));
+        int maxRing = Math.max(cellsAcross, cellsDown);
+        
+        for(int r = 0; r <= maxRing; r++)
+        {
+            // Anything in ring r is at least (r - 1) cells away.
+            long reach = (long)Math.max(0, r - 1) * cellSize;
+            if(reach * reach >= bestDist)
+                break;
+            
+            for(int cy = oy - r; cy <= oy + r; cy++)
+            {
+                if(cy < 0 || cy >= cellsDown)
+                    continue;
+                
+                for(int cx = ox - r; cx <= ox + r; cx++)
+                {
+                    // Only the border of the ring; the inside was searched already.
+                    if(cx < 0 || cx >= cellsAcross || (cy != oy - r && cy != oy + r && cx != ox - r && cx != ox + r))
+                        continue;
+                    
+                    int cell = cy * cellsAcross + cx;
+                    Entity[] members = cells[cell].members;
+                    
+                    for(int i = 0; i < members.length; i++)
+                    {
+                        Entity e = members[i];
+                        if(e.cell != cell || (kind != ANY && e.kind != kind) || e.id.equals(except))
+                            continue;
+                        
+                        long dx = e.x - x, dy = e.y - y;
+                        long dist = dx * dx + dy * dy;
+                        if(dist < bestDist)
+                        {
+                            bestDist = dist;
+                            best = e;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
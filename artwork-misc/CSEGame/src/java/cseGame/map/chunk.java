@@ -0,0 +1,131 @@
+/*
+ *  chunk.java - chunk Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Returns one 20x20 chunk of the world as JSON:
+ * <code>chunk?map=map0001&amp;x=0&amp;y=-1</code> is the chunk above the
+ * top-left chunk of map0001, whichever map that turns out to be. With
+ * <code>format=png</code> it returns the chunk's terrain and static objects
+ * as one image instead.
+ */
+public class chunk extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        String map = request.getParameter("map");
+        ChunkService.Chunk result;
+        
+        try
+        {
+            int x = Integer.parseInt(request.getParameter("x").trim());
+            int y = Integer.parseInt(request.getParameter("y").trim());
+            
+            result = ChunkService.get(getServletContext()).getChunk(MapStore.baseName(map), x, y);
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        if(result == null)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No map in that direction.");
+            return;
+        }
+        
+        if("png".equals(request.getParameter("format")))
+        {
+            image(request, response, result);
+            return;
+        }
+        
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(result.json.length);
+        OutputStream out = response.getOutputStream();
+        out.write(result.json);
+        out.close();
+    }
+    
+    /** Sends a chunk's image, or 304 when the client's copy has the same content hash. */
+    private void image(HttpServletRequest request, HttpServletResponse response, ChunkService.Chunk chunk) throws IOException
+    {
+        ChunkImages.Png png;
+        
+        try
+        {
+            png = ChunkImages.get(getServletContext()).get(chunk);
+        }
+        catch (Exception e)
+        {
+            log("Drawing chunk " + chunk.map + ":" + chunk.cx + ":" + chunk.cy + " failed.", e);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        
+        String etag = "\"" + png.hash + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        
+        String match = request.getHeader("If-None-Match");
+        if(match != null && match.indexOf(etag) >= 0)
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        response.setContentType("image/png");
+        response.setContentLength(png.bytes.length);
+        OutputStream out = response.getOutputStream();
+        out.write(png.bytes);
+        out.close();
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Serves 20x20 tile chunks of the world.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,106 @@
+/*
+ *  mapData.java - mapData Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Serves compiled maps (<code>mapData?name=map0001</code>) in the
+ * MapCompiler binary format. The bytes come straight from the memory
+ * mapping, or through the container's sendfile support when it has it.
+ */
+public class mapData extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        String name = request.getParameter("name");
+        CompiledMap map;
+        
+        try
+        {
+            map = MapStore.get(getServletContext()).get(name == null ? null : MapStore.baseName(name));
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+            return;
+        }
+        
+        String etag = "\"" + map.getName() + "-" + Long.toHexString(map.getModified()) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "no-cache");
+        
+        String match = request.getHeader("If-None-Match");
+        if(match != null && match.indexOf(etag) >= 0)
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        java.nio.ByteBuffer bytes = map.getBytes();
+        response.setContentType("application/octet-stream");
+        response.setContentLength(bytes.remaining());
+        
+        // Let Tomcat hand the file to the kernel when it can.
+        File file = map.getFile();
+        if(file != null && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support")))
+        {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file.getCanonicalPath());
+            request.setAttribute("org.apache.tomcat.sendfile.start", Long.valueOf(0));
+            request.setAttribute("org.apache.tomcat.sendfile.end", Long.valueOf(bytes.remaining()));
+            return;
+        }
+        
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while(bytes.hasRemaining())
+            out.write(bytes);
+        out.close();
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Serves compiled binary maps.";
+    }
+    // </editor-fold>
+}
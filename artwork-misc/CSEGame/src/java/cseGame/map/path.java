@@ -0,0 +1,102 @@
+/*
+ *  path.java - path Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Finds a walking path on a map:
+ * <code>path?map=map0001&amp;sx=1&amp;sy=1&amp;gx=9&amp;gy=9</code> answers
+ * with <code>[{'x': 1, 'y': 1}, ...]</code>, start first, the shape the
+ * client's Astar returns; or <code>null</code> when the goal cannot be reached.
+ */
+public class path extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        StringBuilder data = new StringBuilder(256);
+        
+        try
+        {
+            PathFinder finder = PathFinder.forMap(getServletContext(), MapStore.baseName(request.getParameter("map")));
+            int[] tiles = finder.findPath(intParam(request, "sx"), intParam(request, "sy"), 
+                    intParam(request, "gx"), intParam(request, "gy"));
+            
+            if(tiles == null)
+                data.append("null");
+            else
+            {
+                int width = finder.getWidth();
+                
+                data.append('[');
+                for(int i = 0; i < tiles.length; i++)
+                {
+                    if(i > 0)
+                        data.append(", ");
+                    data.append("{'x': ").append(tiles[i] % width).append(", 'y': ").append(tiles[i] / width).append('}');
+                }
+                data.append(']');
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.print(data);
+        out.close();
+    }
+    
+    private static int intParam(HttpServletRequest request, String name)
+    {
+        return Integer.parseInt(request.getParameter(name).trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Finds walking paths for NPC scripts.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,168 @@
+/*
+ *  spatial.java - spatial Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.*;
+import java.util.List;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Queries and updates a map's SpatialIndex. All coordinates are in tiles.
+ * <pre>
+ *   spatial?map=M&amp;op=range&amp;x0=&amp;y0=&amp;x1=&amp;y1=[&amp;kind=player|npc]
+ *   spatial?map=M&amp;op=nearest&amp;x=&amp;y=[&amp;kind=][&amp;max=][&amp;except=id]
+ *   spatial?map=M&amp;op=tile&amp;x=&amp;y=
+ *   spatial?map=M&amp;op=move&amp;id=&amp;kind=&amp;x=&amp;y=      (POST)
+ *   spatial?map=M&amp;op=remove&amp;id=                    (POST)
+ * </pre>
+ */
+public class spatial extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(boolean post, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        StringBuilder data = new StringBuilder(256);
+        
+        try
+        {
+            SpatialIndex index = SpatialIndex.forMap(getServletContext(), MapStore.baseName(request.getParameter("map")));
+            String op = request.getParameter("op");
+            
+            if("range".equals(op))
+            {
+                appendEntities(data, index.range(intParam(request, "x0"), intParam(request, "y0"),
+                        intParam(request, "x1"), intParam(request, "y1"), kind(request)));
+            }
+            else if("nearest".equals(op))
+            {
+                String max = request.getParameter("max");
+                SpatialIndex.Entity e = index.nearest(intParam(request, "x"), intParam(request, "y"), kind(request),
+                        request.getParameter("except"), max == null ? Integer.MAX_VALUE / 2 : Integer.parseInt(max.trim()));
+                
+                if(e == null)
+                    data.append("null");
+                else
+                    appendEntity(data, e);
+            }
+            else if("tile".equals(op))
+            {
+                int x = intParam(request, "x"), y = intParam(request, "y");
+                CompiledMap map = index.getMap();
+                int[] objects = index.getObjectsAt(x, y);
+                
+                data.append("{'blocked': ").append(index.isBlocked(x, y)).append(", 'objs': [");
+                for(int i = 0; i < objects.length; i++)
+                {
+                    int o = objects[i];
+                    data.append(i > 0 ? ", " : "").append("{'id': ").append(map.getObjSprite(o));
+                    data.append(", 'layer': ").append(map.getObjLayer(o));
+                    if(map.getObjId(o) != 0)
+                        data.append(", 'objid': ").append(map.getObjId(o));
+                    data.append('}');
+                }
+                data.append("], 'entities': ");
+                appendEntities(data, index.at(x, y, SpatialIndex.ANY));
+                data.append('}');
+            }
+            else if(post && "move".equals(op))
+            {
+                index.move(request.getParameter("id"), kind(request), intParam(request, "x"), intParam(request, "y"));
+                data.append("ok");
+            }
+            else if(post && "remove".equals(op))
+                data.append(index.remove(request.getParameter("id")) ? "ok" : "missing");
+            else
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown op: " + op);
+                return;
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.print(data);
+        out.close();
+    }
+    
+    private static void appendEntities(StringBuilder data, List<SpatialIndex.Entity> entities)
+    {
+        data.append('[');
+        for(int i = 0; i < entities.size(); i++)
+        {
+            if(i > 0)
+                data.append(", ");
+            appendEntity(data, entities.get(i));
+        }
+        data.append(']');
+    }
+    
+    private static void appendEntity(StringBuilder data, SpatialIndex.Entity e)
+    {
+        data.append("{'id': '").append(e.id).append("', 'kind': '").append(e.kind == SpatialIndex.NPC ? "npc" : "player");
+        data.append("', 'x': ").append(e.getX()).append(", 'y': ").append(e.getY()).append('}');
+    }
+    
+    private static int kind(HttpServletRequest request)
+    {
+        String kind = request.getParameter("kind");
+        
+        if("player".equalsIgnoreCase(kind))
+            return SpatialIndex.PLAYER;
+        else if("npc".equalsIgnoreCase(kind))
+            return SpatialIndex.NPC;
+        return SpatialIndex.ANY;
+    }
+    
+    private static int intParam(HttpServletRequest request, String name)
+    {
+        return Integer.parseInt(request.getParameter(name).trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(false, request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(true, request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Spatial queries over players, NPCs and map objects.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,39 @@
+/*
+ * Counter.java - Counter Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A striped sum. Adding never allocates and threads on different stripes
+ * never share a cache line; reading adds the stripes up. Decrements are
+ * allowed, so a counter also serves as an in-flight gauge.
+ */
+public final class Counter
+{
+    private final AtomicLongArray cells = new AtomicLongArray(Striped.STRIPES * Striped.PAD);
+    
+    /** Creates an unregistered counter; see {@link Metrics#counter} for exported ones. */
+    public Counter(){}
+    
+    public void add(long n)
+    {
+        cells.addAndGet(Striped.stripe() * Striped.PAD, n);
+    }
+    
+    public void increment(){ add(1); }
+    
+    public void decrement(){ add(-1); }
+    
+    public long get()
+    {
+        long sum = 0;
+        for(int i = 0; i < Striped.STRIPES; i++)
+            sum += cells.get(i * Striped.PAD);
+        return sum;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * CountingOutputStream.java - CountingOutputStream Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.io.*;
+
+/** Passes bytes through, adding how many there were to a Counter. */
+public class CountingOutputStream extends FilterOutputStream
+{
+    private final Counter counter;
+    
+    public CountingOutputStream(OutputStream out, Counter counter)
+    {
+        super(out);
+        this.counter = counter;
+    }
+    
+    public void write(int b) throws IOException
+    {
+        out.write(b);
+        counter.increment();
+    }
+    
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        out.write(b, off, len);
+        counter.add(len);
+    }
+}
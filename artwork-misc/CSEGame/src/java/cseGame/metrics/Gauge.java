@@ -0,0 +1,13 @@
+/*
+ * Gauge.java - Gauge Interface
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+/** A value read when metrics are exported, e.g. a pool's idle count. */
+public interface Gauge
+{
+    long get();
+}
@@ -0,0 +1,140 @@
+/*
+ * Histogram.java - Histogram Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram in nanoseconds with log-linear buckets, in the style
+ * of HdrHistogram: each power of two is split into 16 buckets, so any
+ * value is reported within 1/16 (6.25%) of what was recorded. Values from
+ * 0 to about 18 minutes are covered; larger ones land in the top bucket.
+ * <p>
+ * Every stripe has its own bucket array, count, sum and max, so recording
+ * is a couple of uncontended atomic adds and never allocates.
+ */
+public final class Histogram
+{
+    private static final int SUB_BITS = 4, SUB = 1 << SUB_BITS;
+    
+    /** Largest exponent kept; 2^40 ns is about 18 minutes. */
+    private static final int MAX_EXPONENT = 39;
+    
+    static final int BUCKETS = 2 * SUB + (MAX_EXPONENT - SUB_BITS) * SUB;
+    
+    private static final int COUNT = 0, SUM = 1, MAX = 2;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(Striped.STRIPES * BUCKETS);
+    private final AtomicLongArray totals = new AtomicLongArray(Striped.STRIPES * Striped.PAD);
+    
+    /** Creates an unregistered histogram; see {@link Metrics#histogram} for exported ones. */
+    public Histogram(){}
+    
+    /** Records a duration in nanoseconds. */
+    public void record(long nanos)
+    {
+        if(nanos < 0)
+            nanos = 0;
+        
+        int stripe = Striped.stripe();
+        int t = stripe * Striped.PAD;
+        
+        buckets.incrementAndGet(stripe * BUCKETS + bucketOf(nanos));
+        totals.incrementAndGet(t + COUNT);
+        totals.addAndGet(t + SUM, nanos);
+        
+        long max;
+        while(nanos > (max = totals.get(t + MAX)) && !totals.compareAndSet(t + MAX, max, nanos));
+    }
+    
+    /** Records the time since a System.nanoTime() reading. */
+    public void recordSince(long startNanos)
+    {
+        record(System.nanoTime() - startNanos);
+    }
+    
+    static int bucketOf(long value)
+    {
+        if(value < 2 * SUB)
+            return (int)value;
+        
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if(exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        
+        int sub = (int)(value >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return 2 * SUB + (exponent - SUB_BITS - 1) * SUB + sub;
+    }
+    
+    /** Highest value that falls in a bucket. */
+    static long highestIn(int bucket)
+    {
+        if(bucket < 2 * SUB)
+            return bucket;
+        
+        int exponent = (bucket - 2 * SUB) / SUB + SUB_BITS + 1;
+        int sub = (bucket - 2 * SUB) % SUB;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB + sub) * width) + width - 1;
+    }
+    
+    /** A merged copy of the stripes, for reporting. */
+    public Snapshot snapshot()
+    {
+        long[] merged = new long[BUCKETS];
+        long count = 0, sum = 0, max = 0;
+        
+        for(int s = 0; s < Striped.STRIPES; s++)
+        {
+            for(int b = 0; b < BUCKETS; b++)
+                merged[b] += buckets.get(s * BUCKETS + b);
+            
+            int t = s * Striped.PAD;
+            count += totals.get(t + COUNT);
+            sum += totals.get(t + SUM);
+            max = Math.max(max, totals.get(t + MAX));
+        }
+        return new Snapshot(merged, count, sum, max);
+    }
+    
+    /** Histogram contents at one moment. */
+    public static final class Snapshot
+    {
+        private final long[] buckets;
+        public final long count, sum, max;
+        
+        Snapshot(long[] buckets, long count, long sum, long max)
+        {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+        
+        /** Returns the value at a quantile (0..1), in nanoseconds. */
+        public long quantile(double q)
+        {
+            long total = 0;
+            for(int b = 0; b < buckets.length; b++)
+                total += buckets[b];
+            
+            if(total == 0)
+                return 0;
+            
+            long rank = Math.max(1, (long)Math.ceil(q * total));
+            long seen = 0;
+            
+            for(int b = 0; b < buckets.length; b++)
+            {
+                seen += buckets[b];
+                if(seen >= rank)
+                    return Math.min(highestIn(b), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Metrics.java - Metrics Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The webapp's metrics, by name and labels. Look metrics up once and keep
+ * them in a field; recording into them is cheap, looking them up is not.
+ * <pre>
+ *   private static final Histogram PARSE = Metrics.histogram("cseGame_parse_seconds", "handler", "MapHandler");
+ *   ...
+ *   long start = System.nanoTime();
+ *   ...
+ *   PARSE.recordSince(start);
+ * </pre>
+ * {@link #write} exports them in the Prometheus text format. Histograms
+ * are exported as summaries in seconds, with their maximum as a separate
+ * <code>_max</code> gauge.
+ */
+public final class Metrics
+{
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    
+    /** Keyed by name{labels}, so a name's series sort together. */
+    private static final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<String, Object>();
+    
+    /** A total kept elsewhere, exported as a counter. */
+    private static final class Total
+    {
+        final Gauge source;
+        
+        Total(Gauge source){ this.source = source; }
+    }
+    
+    private Metrics(){}
+    
+    public static Histogram histogram(String name, String... labels)
+    {
+        return (Histogram)register(key(name, labels), new Histogram(), false);
+    }
+    
+    public static Counter counter(String name, String... labels)
+    {
+        return (Counter)register(key(name, labels), new Counter(), false);
+    }
+    
+    /**
+     * Adds a counter read from a running total the caller already keeps,
+     * replacing one registered earlier under the same name and labels.
+     */
+    public static void counter(String name, Gauge total, String... labels)
+    {
+        register(key(name, labels), new Total(total), true);
+    }
+    
+    /** Adds a gauge, replacing one registered earlier under the same name and labels. */
+    public static void gauge(String name, Gauge gauge, String... labels)
+    {
+        register(key(name, labels), gauge, true);
+    }
+    
+    /** Removes every metric with the given labels, e.g. when a pool is closed. */
+    public static void removeLabelled(String... labels)
+    {
+        String label = labels(labels);
+        for(Iterator<String> it = metrics.keySet().iterator(); it.hasNext();)
+        {
+            if(it.next().indexOf(label) >= 0)
+                it.remove();
+        }
+    }
+    
+    private static Object register(String key, Object metric, boolean replace)
+    {
+        if(replace)
+        {
+            metrics.put(key, metric);
+            return metric;
+        }
+        
+        Object existing = metrics.putIfAbsent(key, metric);
+        if(existing != null && existing.getClass() != metric.getClass())
+            throw new IllegalArgumentException(key + " is already a " + existing.getClass().getSimpleName());
+        return existing == null ? metric : existing;
+    }
+    
+    private static String key(String name, String[] labels)
+    {
+        return labels.length == 0 ? name : name + "{" + labels(labels) + "}";
+    }
+    
+    private static String labels(String[] labels)
+    {
+        StringBuilder out = new StringBuilder();
+        for(int i = 0; i + 1 < labels.length; i += 2)
+        {
+            if(i > 0)
+                out.append(',');
+            out.append(labels[i]).append("=\"");
+            out.append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return out.toString();
+    }
+    
+    /** Writes every metric in the Prometheus text exposition format. */
+    public static void write(Writer out) throws IOException
+    {
+        String family = null;
+        // A summary has no max, so each family's maxima follow it as a gauge.
+        StringBuilder maxima = new StringBuilder();
+        
+        for(Map.Entry<String, Object> entry : metrics.entrySet())
+        {
+            String key = entry.getKey();
+            Object metric = entry.getValue();
+            
+            int brace = key.indexOf('{');
+            String name = brace < 0 ? key : key.substring(0, brace);
+            String labels = brace < 0 ? "" : key.substring(brace + 1, key.length() - 1);
+            
+            if(!name.equals(family))
+            {
+                writeMaxima(out, family, maxima);
+                String type = metric instanceof Histogram ? "summary" 
+                        : metric instanceof Counter || metric instanceof Total ? "counter" : "gauge";
+                out.write("# TYPE " + name + " " + type + "\n");
+                family = name;
+            }
+            
+            if(metric instanceof Histogram)
+            {
+                Histogram.Snapshot s = ((Histogram)metric).snapshot();
+                String sep = labels.length() == 0 ? "" : labels + ",";
+                
+                for(int i = 0; i < QUANTILES.length; i++)
+                    out.write(name + "{" + sep + "quantile=\"" + QUANTILES[i] + "\"} " + seconds(s.quantile(QUANTILES[i])) + "\n");
+                out.write(name + "_sum" + braced(labels) + " " + seconds(s.sum) + "\n");
+                out.write(name + "_count" + braced(labels) + " " + s.count + "\n");
+                maxima.append(name).append("_max").append(braced(labels)).append(' ').append(seconds(s.max)).append('\n');
+            }
+            else if(metric instanceof Counter)
+                out.write(key + " " + ((Counter)metric).get() + "\n");
+            else
+            {
+                long value;
+                try
+                {
+                    value = metric instanceof Total ? ((Total)metric).source.get() : ((Gauge)metric).get();
+                }
+                catch (RuntimeException e){ continue; }
+                out.write(key + " " + value + "\n");
+            }
+        }
+        writeMaxima(out, family, maxima);
+    }
+    
+    private static void writeMaxima(Writer out, String family, StringBuilder maxima) throws IOException
+    {
+        if(maxima.length() == 0)
+            return;
+        
+        out.write("# TYPE " + family + "_max gauge\n");
+        out.write(maxima.toString());
+        maxima.setLength(0);
+    }
+    
+    private static String braced(String labels)
+    {
+        return labels.length() == 0 ? "" : "{" + labels + "}";
+    }
+    
+    private static String seconds(long nanos)
+    {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MetricsFilter.java - MetricsFilter Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Times every request to the servlets it is mapped to, per endpoint
+ * (servlet path), and counts requests in flight and responses by status
+ * class. Requests that go async are timed until they complete.
+ */
+public class MetricsFilter implements Filter
+{
+    /** The metrics of one endpoint, looked up once per path. */
+    private static final class Endpoint
+    {
+        final Histogram latency;
+        /** Goes up and down, so it is exported as a gauge. */
+        final Counter inFlight = new Counter();
+        final Counter[] status = new Counter[6];
+        
+        Endpoint(String name)
+        {
+            latency = Metrics.histogram("cseGame_request_seconds", "endpoint", name);
+            Metrics.gauge("cseGame_requests_in_flight", new Gauge(){ public long get(){ return inFlight.get(); } }, "endpoint", name);
+            for(int i = 1; i < status.length; i++)
+                status[i] = Metrics.counter("cseGame_responses_total", "endpoint", name, "status", i + "xx");
+        }
+        
+        void finish(long start, ServletResponse response)
+        {
+            latency.recordSince(start);
+            inFlight.decrement();
+            
+            int code = response instanceof HttpServletResponse ? ((HttpServletResponse)response).getStatus() / 100 : 2;
+            status[code >= 1 && code <= 5 ? code : 5].increment();
+        }
+    }
+    
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+    
+    public void init(FilterConfig config){}
+    
+    public void doFilter(ServletRequest request, final ServletResponse response, FilterChain chain) throws IOException, ServletException
+    {
+        String path = request instanceof HttpServletRequest ? ((HttpServletRequest)request).getServletPath() : "";
+        Endpoint endpoint = endpoints.get(path);
+        
+        if(endpoint == null)
+        {
+            Endpoint created = new Endpoint(path.startsWith("/") ? path.substring(1) : path);
+            endpoint = endpoints.putIfAbsent(path, created);
+            if(endpoint == null)
+                endpoint = created;
+        }
+        
+        final long start = System.nanoTime();
+        endpoint.inFlight.increment();
+        boolean async = false;
+        
+        try
+        {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        }
+        finally
+        {
+            if(async)
+            {
+                final Endpoint timed = endpoint;
+                request.getAsyncContext().addListener(new AsyncListener()
+                {
+                    public void onComplete(AsyncEvent event){ timed.finish(start, response); }
+                    public void onTimeout(AsyncEvent event){}
+                    public void onError(AsyncEvent event){}
+                    public void onStartAsync(AsyncEvent event){}
+                });
+            }
+            else
+                endpoint.finish(start, response);
+        }
+    }
+    
+    public void destroy(){}
+}
@@ -0,0 +1,37 @@
+/*
+ * Striped.java - Striped Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+/**
+ * Picks the stripe a thread records into. Threads are spread by id, so
+ * container threads recording at once mostly hit different stripes and
+ * never contend on one cache line.
+ */
+final class Striped
+{
+    /** Stripes per metric, a power of two. */
+    static final int STRIPES;
+    
+    /** longs between two stripes' cells; 8 keeps them on separate 64 byte lines. */
+    static final int PAD = 8;
+    
+    static
+    {
+        int n = 1;
+        while(n < Runtime.getRuntime().availableProcessors() && n < 8)
+            n <<= 1;
+        STRIPES = n;
+    }
+    
+    private Striped(){}
+    
+    static int stripe()
+    {
+        long id = Thread.currentThread().getId();
+        return (int)(id ^ (id >>> 3)) & (STRIPES - 1);
+    }
+}
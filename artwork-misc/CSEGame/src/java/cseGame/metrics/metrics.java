@@ -0,0 +1,70 @@
+/*
+ *  metrics.java - metrics Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Exports the webapp's metrics in the Prometheus text format. Only the
+ * server itself may read them; scrape through a local agent or proxy.
+ */
+public class metrics extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        String from = request.getRemoteAddr();
+        
+        if(!(from.equals("127.0.0.1") || from.equals("0:0:0:0:0:0:0:1") || from.equals("::1")))
+        {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        
+        PrintWriter out = response.getWriter();
+        Metrics.write(out);
+        out.close();
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Exports latency histograms, counters and gauges.";
+    }
+    // </editor-fold>
+}
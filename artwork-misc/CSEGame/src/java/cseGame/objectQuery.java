@@ -14,6 +14,20 @@ import javax.servlet.http.*;
 
 import java.sql.*;
 
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import cseGame.cache.AssetCache;
+import cseGame.cache.CatalogCache;
+
+import cseGame.db.ConnectionPool;
+import cseGame.db.PoolConfig;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.CountingOutputStream;
+import cseGame.metrics.Metrics;
+
 /**
  *
  *  @author Andrew
@@ -21,72 +35,269 @@ import java.sql.*;
  */
 public class objectQuery extends HttpServlet
 {
-    private PrintWriter out;
+    private static final byte[] OPEN = { '[' }, SEPARATOR = { ',', ' ' }, CLOSE = { ']' };
+    
+    private static final Counter BYTES = Metrics.counter("cseGame_response_bytes_total", "endpoint", "objectQuery");
+    private static final Counter ERRORS = Metrics.counter("cseGame_errors_total", "endpoint", "objectQuery");
+    
+    private volatile CatalogCache catalog;
     
     /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * <p>
+     * <code>?id=N&amp;type=T</code> answers with a single object. A batch is
+     * requested with comma separated ids per type, e.g.
+     * <code>?items=1,2&amp;mapObj=4,9&amp;npc=1</code>, and with
+     * <code>?map=map0001,map0002</code> for every object those GameData maps
+     * reference, alone or alongside the lists; either way the answer is one
+     * JSON array with each object once. A POST from the server itself with
+     * <code>invalidate</code> drops cached rows (all, one type, or one id)
+     * after content is edited, and <code>?stats</code> reports cache counters.
      * @param request servlet request
      * @param response servlet response
      */
     protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
     {
-        response.setContentType("text/html;charset=UTF-8");
-        out = response.getWriter();
-        
-        String id = request.getParameter("id");
-        String type = request.getParameter("type").toLowerCase();
-        
-        String sqlId = "ID", dBase = "MAPOBJECT";
-	
-        if(type.equals("items")) {
-            sqlId = "ITEMID";
-            dBase = "ITEMS";
+        // Lookups may wait on the database; do them off the container thread.
+        if(request.getParameter("invalidate") == null && request.getParameter("stats") == null)
+        {
+            RequestExecutor.get(getServletContext()).dispatch(request, response, new RequestExecutor.Task()
+            {
+                public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+                {
+                    query(request, response);
+                }
+            });
         }
-        else if(type.equals("mapObj")) {
-            dBase = "MAPOBJECT";
-	}
-	else if(type.equals("npc")) {
-	    sqlId = "ID";
-	    dBase = "NPCS";
-	}
-        
-        Connection con = null;
-        Statement statement = null;
-        ResultSet result = null;
+        else
+            query(request, response);
+    }
+    
+    private void query(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        response.setContentType("text/html;charset=UTF-8");
+        OutputStream out = new CountingOutputStream(response.getOutputStream(), BYTES);
 
         try
         {
-            // Get Database Driver
-            Class.forName("org.hsqldb.jdbcDriver").newInstance();
+            String id = request.getParameter("id");
             
-            // Connect to Database
-            con = DriverManager.getConnection("jdbc:hsqldb:hsql://localhost/xdb", "cseAdmin", "bobDole");
-
-            statement = con.createStatement();
-
-            result = statement.executeQuery("SELECT * FROM "+ dBase +" WHERE "+ sqlId +" = "+ id);
-
-            while(result.next())
+            if(request.getParameter("invalidate") != null)
+                invalidate(request, response);
+            else if(request.getParameter("stats") != null)
+                stats(out);
+            else if(id != null)
+            {
+                int type = CatalogCache.typeIndex(request.getParameter("type"));
+                CatalogCache.Row row = getCatalog().get(type, Integer.parseInt(id.trim()));
+                
+                if(row.exists())
+                    row.writeTo(out, -1);
+            }
+            else
             {
-                String data = "{'name': '" + result.getString("NAME") + "'";
-                data += ", 'id': '" + id + "'";
-                data += ", 'options': '" + result.getString("OPTIONS") + "'";
-                data += ", 'script': '" + result.getString("SCRIPT").replaceAll("'", "%27") + "'";
-                data += ", 'flags': '" + result.getString("FLAGS") + "'}";
-                out.print(data);
+                int[][] ids = new int[CatalogCache.TYPES.length][];
+                for(int t = 0; t < ids.length; t++)
+                    ids[t] = parseIds(request.getParameter(CatalogCache.TYPES[t]));
+                
+                String maps = request.getParameter("map");
+                if(maps != null)
+                {
+                    String[] names = maps.split(",");
+                    for(int i = 0; i < names.length; i++)
+                    {
+                        if(names[i].trim().length() > 0)
+                            ids[CatalogCache.MAP_OBJECT] = merge(ids[CatalogCache.MAP_OBJECT], mapObjectIds(names[i]));
+                    }
+                }
+                
+                boolean first = true;
+                out.write(OPEN);
+                
+                for(int t = 0; t < ids.length; t++)
+                {
+                    if(ids[t] == null || ids[t].length == 0)
+                        continue;
+                    
+                    CatalogCache.Row[] rows = new CatalogCache.Row[ids[t].length];
+                    getCatalog().getAll(t, ids[t], rows);
+                    
+                    for(int i = 0; i < rows.length; i++)
+                    {
+                        if(!rows[i].exists())
+                            continue;
+                        
+                        if(!first)
+                            out.write(SEPARATOR);
+                        rows[i].writeTo(out, t);
+                        first = false;
+                    }
+                }
+                
+                out.write(CLOSE);
             }
-	    
-	    con.close();
         }
         catch (Exception e)
         {
-            out.print("ERROR: failed to load HSQLDB JDBC driver.");
-	    out.print(e.toString());
+            ERRORS.increment();
+            log("Object query failed.", e);
+            out.write(("ERROR: failed to query object database." + e.toString()).getBytes("UTF-8"));
             return;
-        }    
+        }
 	
         out.close();
     }
     
+    /** Drops cached rows. Only allowed from the server itself, e.g. a content editing tool. */
+    private void invalidate(HttpServletRequest request, HttpServletResponse response) throws IOException, SQLException
+    {
+        String from = request.getRemoteAddr();
+        
+        if(!request.getMethod().equals("POST") || !(from.equals("127.0.0.1") || from.equals("0:0:0:0:0:0:0:1") || from.equals("::1")))
+        {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        
+        String type = request.getParameter("type");
+        String id = request.getParameter("id");
+        
+        CatalogCache catalog = getCatalog();
+        
+        if(type == null)
+            catalog.invalidateAll();
+        else if(id == null)
+            catalog.invalidate(CatalogCache.typeIndex(type));
+        else
+            catalog.invalidate(CatalogCache.typeIndex(type), Integer.parseInt(id.trim()));
+    }
+    
+    private void stats(OutputStream out) throws IOException, SQLException
+    {
+        CatalogCache catalog = getCatalog();
+        StringBuilder data = new StringBuilder(128);
+        data.append("hits ").append(catalog.getHits()).append('\n');
+        data.append("misses ").append(catalog.getMisses()).append('\n');
+        data.append("evictions ").append(catalog.getEvictions()).append('\n');
+        
+        for(int t = 0; t < CatalogCache.TYPES.length; t++)
+            data.append("size.").append(CatalogCache.TYPES[t]).append(' ').append(catalog.size(t)).append('\n');
+        
+        out.write(data.toString().getBytes("UTF-8"));
+    }
+    
+    /** Parses a comma separated id list, dropping duplicates. */
+    private static int[] parseIds(String list)
+    {
+        if(list == null || list.trim().length() == 0)
+            return null;
+        
+        String[] parts = list.split(",");
+        int[] ids = new int[parts.length];
+        int count = 0;
+        
+        for(int i = 0; i < parts.length; i++)
+        {
+            if(parts[i].trim().length() > 0)
+                ids[count++] = Integer.parseInt(parts[i].trim());
+        }
+        
+        return unique(ids, count);
+    }
+    
+    /** Returns the ids in either list, each once; a may be null. */
+    private static int[] merge(int[] a, int[] b)
+    {
+        if(a == null)
+            return b;
+        
+        int[] both = new int[a.length + b.length];
+        System.arraycopy(a, 0, both, 0, a.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+        return unique(both, both.length);
+    }
+    
+    private static int[] unique(int[] ids, int count)
+    {
+        int[] sorted = new int[count];
+        System.arraycopy(ids, 0, sorted, 0, count);
+        java.util.Arrays.sort(sorted);
+        
+        int n = 0;
+        for(int i = 0; i < count; i++)
+        {
+            if(n == 0 || sorted[n - 1] != sorted[i])
+                sorted[n++] = sorted[i];
+        }
+        
+        int[] result = new int[n];
+        System.arraycopy(sorted, 0, result, 0, n);
+        return result;
+    }
+    
+    /**
+     * Returns the objid of every object in a GameData map. The list is kept
+     * in the AssetCache so the map is only parsed again when it changes.
+     * @param map map name, with or without its .xml/.json extension
+     */
+    private int[] mapObjectIds(String map) throws Exception
+    {
+        String name = new File(map.trim()).getName();
+        int dot = name.lastIndexOf('.');
+        if(dot > 0)
+            name = name.substring(0, dot);
+        
+        File source = new File(getServletContext().getRealPath("GameData" + File.separator + name + ".xml"));
+        
+        String list = AssetCache.get(getServletContext()).get(source, "objids", new AssetCache.Compiler()
+        {
+            public String compile(File source) throws Exception
+            {
+                final StringBuilder ids = new StringBuilder();
+                
+                InputStream istream = new FileInputStream(source);
+                try
+                {
+                    SAXParserFactory.newInstance().newSAXParser().parse(istream, new DefaultHandler()
+                    {
+                        public void startElement(String uri, String sName, String qName, Attributes attrs)
+                        {
+                            String objid = attrs.getValue("objid");
+                            
+                            if(objid != null)
+                                ids.append(ids.length() > 0 ? "," : "").append(objid.trim());
+                        }
+                    });
+                }
+                finally { istream.close(); }
+                
+                return ids.toString();
+            }
+        }).getText();
+        
+        int[] ids = parseIds(list);
+        return ids == null ? new int[0] : ids;
+    }
+    
+    /** Returns the webapp's shared object catalog. */
+    private CatalogCache getCatalog() throws SQLException
+    {
+        if(catalog == null)
+            catalog = getCatalog(getServletContext());
+        return catalog;
+    }
+    
+    /** Returns a webapp's object catalog, opening the object database pool if needed. */
+    public static CatalogCache getCatalog(ServletContext context) throws SQLException
+    {
+        return CatalogCache.get(context, getPool(context));
+    }
+    
+    /** Returns a webapp's pool for the object database, opening it if needed. */
+    public static ConnectionPool getPool(ServletContext context) throws SQLException
+    {
+        return ConnectionPool.get(context, new PoolConfig("xdb", "jdbc:hsqldb:hsql://localhost/xdb", "cseAdmin", "bobDole"));
+    }
+    
     // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
     /** Handles the HTTP <code>GET</code> method.
      * @param request servlet request
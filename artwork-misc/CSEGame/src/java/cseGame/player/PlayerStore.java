@@ -0,0 +1,858 @@
+/*
+ * PlayerStore.java - PlayerStore Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.player;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import cseGame.cache.SingleFlight;
+import cseGame.db.ConnectionPool;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Position and pack of the players who are playing, kept in memory and
+ * written back to the PLAYERS and PLAYER_PACK tables. A session is read
+ * from the database when a player first shows up; after that every change
+ * is made in memory and only marks what changed: the position, or the
+ * pack slots as bits of a mask. A background thread writes the changed
+ * records of every session in one batch, at most every flushMillis, so
+ * moving an item around the pack is not a database write. A logout, or
+ * the webapp stopping, writes out what is left before it returns.
+ * <p>
+ * Sessions nobody has used for idleMillis are written out and dropped.
+ */
+public class PlayerStore
+{
+    private static final Logger log = Logger.getLogger(PlayerStore.class.getName());
+    
+    /** ServletContext attribute the store is kept under. */
+    public static final String CONTEXT_KEY = "cseGame.player.store";
+    
+    /** Pack slots, the 6x5 grid of map.jsp. */
+    public static final int SLOTS = 30;
+    
+    /** Longest player name. */
+    public static final int MAX_NAME = 32;
+    
+    private static final String UPDATE_PLAYER = "UPDATE PLAYERS SET MAP = ?, GX = ?, GY = ?, LX = ?, LY = ?, SAVED = ? WHERE NAME = ?";
+    private static final String UPDATE_SLOT = "UPDATE PLAYER_PACK SET ITEMID = ?, QTY = ? WHERE NAME = ? AND SLOT = ?";
+    
+    private static final Histogram WRITE_TIME = Metrics.histogram("cseGame_db_query_seconds", "table", "PLAYERS", "op", "writeBack");
+    private static final Histogram READ_TIME = Metrics.histogram("cseGame_db_query_seconds", "table", "PLAYERS", "op", "load");
+    
+    /**
+     * One player's state. Items and quantities are kept by slot in int
+     * arrays; an item id of 0 is an empty slot.
+     */
+    public final class Session
+    {
+        private final String name;
+        private String map;
+        private int gx, gy, lx, ly;
+        private final int[] items = new int[SLOTS];
+        private final int[] quantities = new int[SLOTS];
+        
+        /** Pack slots changed since they were last written, one bit per slot. */
+        private long dirtySlots = 0;
+        private boolean dirtyPosition = false;
+        /** On the dirty queue. */
+        private boolean queued = false;
+        /** Logged out or dropped; set under the lock, read without it by {@link #current}. */
+        private volatile boolean closed = false;
+        private volatile long lastUsed = System.currentTimeMillis();
+        
+        Session(String name)
+        {
+            this.name = name;
+        }
+        
+        public String getName(){ return name; }
+        
+        /** The position as map:globalX:globalY:localX:localY, the form the client starts from. */
+        public synchronized String getPosition()
+        {
+            return map + ":" + gx + ":" + gy + ":" + lx + ":" + ly;
+        }
+        
+        public synchronized int getItem(int slot){ return items[check(slot)]; }
+        
+        public synchronized int getQuantity(int slot){ return quantities[check(slot)]; }
+        
+        /** Moves the player. */
+        public synchronized void moveTo(String map, int gx, int gy, int lx, int ly)
+        {
+            use();
+            if(map.equals(this.map) && gx == this.gx && gy == this.gy && lx == this.lx && ly == this.ly)
+                return;
+            
+            this.map = map;
+            this.gx = gx;
+            this.gy = gy;
+            this.lx = lx;
+            this.ly = ly;
+            dirtyPosition = true;
+            changed();
+        }
+        
+        /** Puts a quantity of an item in a slot; item 0 empties it. */
+        public synchronized void put(int slot, int item, int quantity)
+        {
+            use();
+            check(slot);
+            if(item == 0)
+                quantity = 0;
+            if(items[slot] == item && quantities[slot] == quantity)
+                return;
+            
+            items[slot] = item;
+            quantities[slot] = quantity;
+            dirtySlots |= 1L << slot;
+            changed();
+        }
+        
+        /** Swaps the contents of two slots, e.g. when an item is dragged to an empty one. */
+        public synchronized void swap(int from, int to)
+        {
+            use();
+            check(from);
+            check(to);
+            if(from == to || (items[from] == items[to] && quantities[from] == quantities[to]))
+                return;
+            
+            int item = items[from], quantity = quantities[from];
+            items[from] = items[to];
+            quantities[from] = quantities[to];
+            items[to] = item;
+            quantities[to] = quantity;
+            dirtySlots |= (1L << from) | (1L << to);
+            changed();
+        }
+        
+        /** Appends <code>{'name': N, 'pos': P, 'pack': [[slot, item, quantity], ...]}</code>, listing filled slots. */
+        public synchronized void appendTo(StringBuilder out)
+        {
+            out.append("{'name': '").append(name).append("', 'pos': '").append(getPosition()).append("', 'pack': [");
+            boolean first = true;
+            for(int i = 0; i < SLOTS; i++)
+            {
+                if(items[i] == 0)
+                    continue;
+                out.append(first ? "[" : ", [").append(i).append(", ").append(items[i]).append(", ").append(quantities[i]).append(']');
+                first = false;
+            }
+            out.append("]}");
+        }
+        
+        /** The state a node hands a player over with: <code>map:gx:gy:lx:ly|slot:item:quantity,...</code> */
+        synchronized String export()
+        {
+            StringBuilder out = new StringBuilder(getPosition()).append('|');
+            boolean first = true;
+            for(int i = 0; i < SLOTS; i++)
+            {
+                if(items[i] == 0)
+                    continue;
+                out.append(first ? "" : ",").append(i).append(':').append(items[i]).append(':').append(quantities[i]);
+                first = false;
+            }
+            return out.toString();
+        }
+        
+        private int check(int slot)
+        {
+            if(slot < 0 || slot >= SLOTS)
+                throw new IllegalArgumentException("No pack slot " + slot + ".");
+            return slot;
+        }
+        
+        private void use()
+        {
+            if(closed)
+                throw new IllegalStateException("Player " + name + " has logged out.");
+            lastUsed = System.currentTimeMillis();
+        }
+        
+        private void changed()
+        {
+            if(!queued)
+            {
+                queued = true;
+                dirty.add(this);
+            }
+        }
+        
+        /** Takes the changed records and marks them clean. Holds the lock. */
+        private Changes takeChanges()
+        {
+            queued = false;
+            if(!dirtyPosition && dirtySlots == 0)
+                return null;
+            
+            Changes changes = new Changes(this, dirtyPosition, map, gx, gy, lx, ly, dirtySlots,
+                    items.clone(), quantities.clone());
+            dirtyPosition = false;
+            dirtySlots = 0;
+            return changes;
+        }
+        
+        /** Marks records whose write failed as changed again. */
+        private synchronized void restore(Changes changes)
+        {
+            dirtyPosition |= changes.position;
+            dirtySlots |= changes.slots;
+            changed();
+        }
+    }
+    
+    /** The records of one session to write, copied under its lock. */
+    private static final class Changes
+    {
+        final Session session;
+        final boolean position;
+        final String map;
+        final int gx, gy, lx, ly;
+        final long slots;
+        final int[] items, quantities;
+        
+        Changes(Session session, boolean position, String map, int gx, int gy, int lx, int ly, long slots,
+                int[] items, int[] quantities)
+        {
+            this.session = session;
+            this.position = position;
+            this.map = map;
+            this.gx = gx;
+            this.gy = gy;
+            this.lx = lx;
+            this.ly = ly;
+            this.slots = slots;
+            this.items = items;
+            this.quantities = quantities;
+        }
+    }
+    
+    private final ConnectionPool pool;
+    private final long flushMillis, idleMillis;
+    private final String start;
+    private final int[] startingItems;
+    
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<String, Session>();
+    private final ConcurrentLinkedQueue<Session> dirty = new ConcurrentLinkedQueue<Session>();
+    private final SingleFlight<Session> loads = new SingleFlight<Session>("player");
+    
+    /** Held while changes are taken and written, so writes for one player land in the order they were taken. */
+    private final ReentrantLock writing = new ReentrantLock();
+    
+    private final Thread flusher;
+    private volatile boolean closed = false;
+    
+    private final AtomicLong written = new AtomicLong(), batches = new AtomicLong();
+    
+    /**
+     * @param flushMillis   longest a change waits to be written
+     * @param idleMillis    how long an unused session is kept
+     * @param start         position of new players, as map:globalX:globalY:localX:localY
+     * @param startingItems item ids new players find in the first slots of their pack
+     */
+    public PlayerStore(ConnectionPool pool, long flushMillis, long idleMillis, String start, int[] startingItems)
+    {
+        this.pool = pool;
+        this.flushMillis = flushMillis;
+        this.idleMillis = idleMillis;
+        this.start = start;
+        this.startingItems = startingItems;
+        
+        try
+        {
+            ensureTables();
+        }
+        catch (SQLException e){ log.log(Level.WARNING, "Could not check the PLAYERS and PLAYER_PACK tables.", e); }
+        
+        Metrics.gauge("cseGame_player_sessions", new Gauge(){ public long get(){ return sessions.size(); } });
+        Metrics.gauge("cseGame_player_dirty", new Gauge(){ public long get(){ return dirty.size(); } });
+        Metrics.counter("cseGame_player_written_total", new Gauge(){ public long get(){ return getWritten(); } });
+        
+        flusher = new Thread(new Runnable()
+        {
+            public void run(){ flushLoop(); }
+        }, "PlayerStore-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    /** Returns the store for this webapp, creating it on first use. */
+    public static PlayerStore get(ServletContext context, ConnectionPool pool)
+    {
+        synchronized(context)
+        {
+            PlayerStore store = (PlayerStore)context.getAttribute(CONTEXT_KEY);
+            
+            if(store == null)
+            {
+                String start = context.getInitParameter("cseGame.player.start");
+                String items = context.getInitParameter("cseGame.player.startingItems");
+                
+                store = new PlayerStore(pool,
+                        param(context, "flushMillis", 2000),
+                        param(context, "idleMillis", 30L * 60 * 1000),
+                        start == null ? "map0001.json:1:1:9:9" : start.trim(),
+                        parseItems(items == null ? "1,1" : items));
+                context.setAttribute(CONTEXT_KEY, store);
+            }
+            return store;
+        }
+    }
+    
+    /** Returns the webapp's store, or null if nothing has opened it. */
+    public static PlayerStore find(ServletContext context)
+    {
+        return (PlayerStore)context.getAttribute(CONTEXT_KEY);
+    }
+    
+    /** Closes the webapp's store, if it has one, writing out every change. */
+    public static void close(ServletContext context)
+    {
+        PlayerStore store;
+        
+        synchronized(context)
+        {
+            store = (PlayerStore)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(store != null)
+            store.close();
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.player." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    private static int[] parseItems(String list)
+    {
+        String[] parts = list.split(",");
+        int[] items = new int[Math.min(SLOTS, parts.length)];
+        int count = 0;
+        
+        for(int i = 0; i < items.length; i++)
+        {
+            if(parts[i].trim().length() > 0)
+                items[count++] = Integer.parseInt(parts[i].trim());
+        }
+        return Arrays.copyOf(items, count);
+    }
+    
+    /** Returns true for names a session can be opened for. */
+    public static boolean isValidName(String name)
+    {
+        return name != null && name.length() > 0 && name.length() <= MAX_NAME && name.indexOf('\'') < 0;
+    }
+    
+    /** Returns true if the player's session is in memory, so opening it will not touch the database. */
+    public boolean isOpen(String name)
+    {
+        Session session = sessions.get(name);
+        return session != null && !session.closed;
+    }
+    
+    /**
+     * Returns the player's session in memory, or null if there is none. A
+     * session being logged out stays mapped until its last write commits,
+     * so this waits for that write rather than let the player be read back
+     * from the database before it lands.
+     */
+    private Session current(String name)
+    {
+        for(;;)
+        {
+            Session session = sessions.get(name);
+            if(session == null || !session.closed)
+                return session;
+            
+            writing.lock();
+            writing.unlock();
+            Thread.yield();
+        }
+    }
+    
+    /**
+     * Returns a player's session, reading it from the database, or creating
+     * the player, if it is not in memory.
+     */
+    public Session open(final String name) throws SQLException
+    {
+        if(closed)
+            throw new SQLException("Player store is closed.");
+        if(!isValidName(name))
+            throw new IllegalArgumentException("Invalid player name: " + name);
+        
+        Session session = current(name);
+        if(session != null)
+            return session;
+        
+        try
+        {
+            return loads.run(name, new Callable<Session>()
+            {
+                public Session call() throws SQLException
+                {
+                    Session session = current(name);
+                    if(session == null)
+                    {
+                        session = load(name);
+                        sessions.put(name, session);
+                    }
+                    return session;
+                }
+            });
+        }
+        catch (SQLException e) { throw e; }
+        catch (RuntimeException e) { throw e; }
+        catch (Exception e) { throw new SQLException(e.toString()); }
+    }
+    
+    /** Writes out a player's changes and drops the session. */
+    public void logout(String name) throws SQLException
+    {
+        remove(name);
+    }
+    
+    /**
+     * Logs a player out for another node to take over, see {@link #adopt}.
+     * Returns the player's state, or null if the player has no session here.
+     */
+    public String handOff(String name) throws SQLException
+    {
+        Session session = remove(name);
+        return session == null ? null : session.export();
+    }
+    
+    /**
+     * Takes over a player handed off by another node. The state replaces
+     * whatever this node's database had, and is written back like any
+     * other change.
+     */
+    public Session adopt(String name, String state) throws SQLException
+    {
+        int bar = state.indexOf('|');
+        String[] position = state.substring(0, bar).split(":");
+        int[] items = new int[SLOTS], quantities = new int[SLOTS];
+        
+        if(bar + 1 < state.length())
+        {
+            String[] slots = state.substring(bar + 1).split(",");
+            for(int i = 0; i < slots.length; i++)
+            {
+                String[] slot = slots[i].split(":");
+                int n = Integer.parseInt(slot[0]);
+                items[n] = Integer.parseInt(slot[1]);
+                quantities[n] = Integer.parseInt(slot[2]);
+            }
+        }
+        
+        Session session = open(name);
+        session.moveTo(position[0], Integer.parseInt(position[1]), Integer.parseInt(position[2]),
+                Integer.parseInt(position[3]), Integer.parseInt(position[4]));
+        for(int i = 0; i < SLOTS; i++)
+            session.put(i, items[i], quantities[i]);
+        return session;
+    }
+    
+    /**
+     * Drops a session once its changes are written; returns it, or null if
+     * there was none. If the write fails the player stays logged in.
+     */
+    private Session remove(String name) throws SQLException
+    {
+        writing.lock();
+        try
+        {
+            Session session = sessions.get(name);
+            if(session == null)
+                return null;
+            
+            Changes changes;
+            synchronized(session)
+            {
+                session.closed = true;
+                changes = session.takeChanges();
+            }
+            
+            try
+            {
+                if(changes != null)
+                    write(Collections.singletonList(changes));
+            }
+            catch (SQLException e)
+            {
+                // Left for the flusher to retry.
+                synchronized(session)
+                {
+                    session.closed = false;
+                    if(changes != null)
+                        session.restore(changes);
+                }
+                throw e;
+            }
+            
+            sessions.remove(name, session);
+            return session;
+        }
+        finally { writing.unlock(); }
+    }
+    
+    /** Reads a player, creating the rows of a new one. */
+    private Session load(String name) throws SQLException
+    {
+        Session session = new Session(name);
+        Connection con = pool.getConnection();
+        PreparedStatement statement = null;
+        
+        try
+        {
+            long begin = System.nanoTime();
+            statement = con.prepareStatement("SELECT MAP, GX, GY, LX, LY FROM PLAYERS WHERE NAME = ?");
+            statement.setString(1, name);
+            ResultSet result = statement.executeQuery();
+            boolean found = result.next();
+            if(found)
+            {
+                session.map = result.getString(1);
+                session.gx = result.getInt(2);
+                session.gy = result.getInt(3);
+                session.lx = result.getInt(4);
+                session.ly = result.getInt(5);
+            }
+            result.close();
+            statement.close();
+            statement = null;
+            
+            if(found)
+            {
+                statement = con.prepareStatement("SELECT SLOT, ITEMID, QTY FROM PLAYER_PACK WHERE NAME = ?");
+                statement.setString(1, name);
+                result = statement.executeQuery();
+                while(result.next())
+                {
+                    int slot = result.getInt(1);
+                    if(slot >= 0 && slot < SLOTS)
+                    {
+                        session.items[slot] = result.getInt(2);
+                        session.quantities[slot] = result.getInt(3);
+                    }
+                }
+                result.close();
+            }
+            else
+                create(con, session);
+            
+            READ_TIME.recordSince(begin);
+        }
+        finally
+        {
+            if(statement != null)
+                statement.close();
+            con.close();
+        }
+        return session;
+    }
+    
+    /** Inserts a new player with every pack slot, so later writes are all updates. */
+    private void create(Connection con, Session session) throws SQLException
+    {
+        String[] position = start.split(":");
+        session.map = position[0];
+        session.gx = Integer.parseInt(position[1]);
+        session.gy = Integer.parseInt(position[2]);
+        session.lx = Integer.parseInt(position[3]);
+        session.ly = Integer.parseInt(position[4]);
+        
+        for(int i = 0; i < startingItems.length; i++)
+        {
+            session.items[i] = startingItems[i];
+            session.quantities[i] = 1;
+        }
+        
+        PreparedStatement statement = null;
+        try
+        {
+            con.setAutoCommit(false);
+            
+            statement = con.prepareStatement("INSERT INTO PLAYERS (NAME, MAP, GX, GY, LX, LY, SAVED) VALUES (?, ?, ?, ?, ?, ?, ?)");
+            statement.setString(1, session.name);
+            statement.setString(2, session.map);
+            statement.setInt(3, session.gx);
+            statement.setInt(4, session.gy);
+            statement.setInt(5, session.lx);
+            statement.setInt(6, session.ly);
+            statement.setLong(7, System.currentTimeMillis());
+            statement.executeUpdate();
+            statement.close();
+            
+            statement = con.prepareStatement("INSERT INTO PLAYER_PACK (NAME, SLOT, ITEMID, QTY) VALUES (?, ?, ?, ?)");
+            for(int i = 0; i < SLOTS; i++)
+            {
+                statement.setString(1, session.name);
+                statement.setInt(2, i);
+                statement.setInt(3, session.items[i]);
+                statement.setInt(4, session.quantities[i]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            con.commit();
+        }
+        catch (SQLException e)
+        {
+            con.rollback();
+            throw e;
+        }
+        finally
+        {
+            if(statement != null)
+                statement.close();
+            con.setAutoCommit(true);
+        }
+    }
+    
+    private void flushLoop()
+    {
+        long backoff = 0;
+        
+        while(!closed)
+        {
+            try
+            {
+                Thread.sleep(backoff > 0 ? backoff : flushMillis);
+            }
+            catch (InterruptedException e)
+            {
+                // close() interrupts the flusher and writes what is left itself.
+                return;
+            }
+            
+            try
+            {
+                flush();
+                expireIdle();
+                backoff = 0;
+            }
+            catch (SQLException e)
+            {
+                backoff = Math.min(30000, Math.max(flushMillis, backoff * 2));
+                log.log(Level.WARNING, "Writing player changes failed; retrying in " + backoff + " ms.", e);
+            }
+        }
+    }
+    
+    /** Writes the changes of every dirty session in one batch. */
+    public void flush() throws SQLException
+    {
+        writing.lock();
+        try
+        {
+            List<Changes> batch = new ArrayList<Changes>();
+            Session session;
+            while((session = dirty.poll()) != null)
+            {
+                synchronized(session)
+                {
+                    Changes changes = session.takeChanges();
+                    if(changes != null)
+                        batch.add(changes);
+                }
+            }
+            
+            if(batch.isEmpty())
+                return;
+            
+            try
+            {
+                write(batch);
+            }
+            catch (SQLException e)
+            {
+                for(int i = 0; i < batch.size(); i++)
+                    batch.get(i).session.restore(batch.get(i));
+                throw e;
+            }
+        }
+        finally { writing.unlock(); }
+    }
+    
+    /** Drops sessions nobody has used for a while; dirty ones are dropped once written. */
+    private void expireIdle()
+    {
+        long before = System.currentTimeMillis() - idleMillis;
+        
+        for(Session session : sessions.values())
+        {
+            if(session.lastUsed >= before)
+                continue;
+            
+            synchronized(session)
+            {
+                if(session.queued || session.lastUsed >= before)
+                    continue;
+                session.closed = true;
+            }
+            sessions.remove(session.name, session);
+        }
+    }
+    
+    /** Writes changes in one transaction. Holds the writing lock. */
+    private void write(List<Changes> batch) throws SQLException
+    {
+        Connection con = pool.getConnection();
+        PreparedStatement players = null, slots = null;
+        int records = 0;
+        
+        try
+        {
+            long begin = System.nanoTime();
+            long now = System.currentTimeMillis();
+            con.setAutoCommit(false);
+            players = con.prepareStatement(UPDATE_PLAYER);
+            slots = con.prepareStatement(UPDATE_SLOT);
+            
+            for(int n = 0; n < batch.size(); n++)
+            {
+                Changes changes = batch.get(n);
+                
+                if(changes.position)
+                {
+                    players.setString(1, changes.map);
+                    players.setInt(2, changes.gx);
+                    players.setInt(3, changes.gy);
+                    players.setInt(4, changes.lx);
+                    players.setInt(5, changes.ly);
+                    players.setLong(6, now);
+                    players.setString(7, changes.session.name);
+                    players.addBatch();
+                    records++;
+                }
+                
+                for(int i = 0; i < SLOTS; i++)
+                {
+                    if((changes.slots & (1L << i)) == 0)
+                        continue;
+                    
+                    slots.setInt(1, changes.items[i]);
+                    slots.setInt(2, changes.quantities[i]);
+                    slots.setString(3, changes.session.name);
+                    slots.setInt(4, i);
+                    slots.addBatch();
+                    records++;
+                }
+            }
+            
+            players.executeBatch();
+            slots.executeBatch();
+            con.commit();
+            
+            WRITE_TIME.recordSince(begin);
+            written.addAndGet(records);
+            batches.incrementAndGet();
+        }
+        catch (SQLException e)
+        {
+            con.rollback();
+            throw e;
+        }
+        finally
+        {
+            if(players != null)
+                players.close();
+            if(slots != null)
+                slots.close();
+            con.setAutoCommit(true);
+            con.close();
+        }
+    }
+    
+    /** Creates PLAYERS and PLAYER_PACK if the database does not have them. */
+    private void ensureTables() throws SQLException
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            Statement statement = con.createStatement();
+            try
+            {
+                if(!hasTable(con, "PLAYERS"))
+                {
+                    statement.execute("CREATE CACHED TABLE PLAYERS (NAME VARCHAR(32) PRIMARY KEY, MAP VARCHAR(64), " +
+                            "GX INT, GY INT, LX INT, LY INT, SAVED BIGINT)");
+                    log.info("Created table PLAYERS.");
+                }
+                if(!hasTable(con, "PLAYER_PACK"))
+                {
+                    statement.execute("CREATE CACHED TABLE PLAYER_PACK (NAME VARCHAR(32), SLOT INT, ITEMID INT, QTY INT, " +
+                            "PRIMARY KEY (NAME, SLOT))");
+                    log.info("Created table PLAYER_PACK.");
+                }
+            }
+            finally { statement.close(); }
+        }
+        finally { con.close(); }
+    }
+    
+    private static boolean hasTable(Connection con, String table) throws SQLException
+    {
+        ResultSet tables = con.getMetaData().getTables(null, null, table, null);
+        try
+        {
+            return tables.next();
+        }
+        finally { tables.close(); }
+    }
+    
+    /** Stops the flusher and writes every change before returning. */
+    public void close()
+    {
+        closed = true;
+        flusher.interrupt();
+        
+        try
+        {
+            flusher.join(10000);
+        }
+        catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+        
+        try
+        {
+            flush();
+        }
+        catch (SQLException e)
+        {
+            log.log(Level.SEVERE, "Player store closed; " + dirty.size() + " players' changes were not written.", e);
+        }
+    }
+    
+    /** Sessions in memory. */
+    public int size(){ return sessions.size(); }
+    
+    /** Sessions with changes waiting to be written. */
+    public int getDirty(){ return dirty.size(); }
+    
+    /** Records (positions and pack slots) written. */
+    public long getWritten(){ return written.get(); }
+    
+    public long getBatches(){ return batches.get(); }
+}
@@ -0,0 +1,184 @@
+/*
+ *  player.java - player Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.player;
+
+import java.io.*;
+import java.sql.SQLException;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import cseGame.RequestExecutor;
+import cseGame.objectQuery;
+import cseGame.map.MapStore;
+
+/**
+ * A player's saved position and pack, see {@link PlayerStore}. Changes
+ * are POSTed.
+ * <pre>
+ *   player?user=U
+ *   player?user=U&amp;op=pos&amp;map=M&amp;gx=&amp;gy=&amp;lx=&amp;ly=     (POST)
+ *   player?user=U&amp;op=put&amp;slot=S&amp;item=I[&amp;qty=Q]          (POST)
+ *   player?user=U&amp;op=swap&amp;from=S&amp;to=T                   (POST)
+ *   player?user=U&amp;op=logout                                (POST)
+ * </pre>
+ * All but a logout answer with the player's state,
+ * <code>{'name': U, 'pos': 'map0001.json:1:1:9:9', 'pack': [[slot, item, quantity], ...]}</code>.
+ * A logout answers once the player's changes are written.
+ */
+public class player extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(boolean post, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        String user = request.getParameter("user");
+        String op = request.getParameter("op");
+        
+        if(!PlayerStore.isValidName(user))
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad user.");
+            return;
+        }
+        
+        if(op != null && !post)
+        {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Changes must be POSTed.");
+            return;
+        }
+        
+        try
+        {
+            // Reading a player in, and writing one out, wait on the database.
+            if("logout".equals(op) || !getStore().isOpen(user))
+            {
+                RequestExecutor.get(getServletContext()).dispatch(request, response, new RequestExecutor.Task()
+                {
+                    public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+                    {
+                        answer(request, response);
+                    }
+                });
+                return;
+            }
+        }
+        catch (SQLException e)
+        {
+            failed(response, e);
+            return;
+        }
+        
+        answer(request, response);
+    }
+    
+    private void answer(HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        String user = request.getParameter("user");
+        String op = request.getParameter("op");
+        StringBuilder data = new StringBuilder(256);
+        
+        try
+        {
+            PlayerStore store = getStore();
+            
+            if("logout".equals(op))
+            {
+                store.logout(user);
+                response.setContentType("text/html;charset=UTF-8");
+                response.getWriter().close();
+                return;
+            }
+            
+            PlayerStore.Session session = store.open(user);
+            
+            if("pos".equals(op))
+            {
+                String map = request.getParameter("map");
+                if(map == null || !MapStore.isValidName(MapStore.baseName(map)))
+                    throw new IllegalArgumentException("Bad map.");
+                
+                session.moveTo(map.trim(), intParam(request, "gx", -1), intParam(request, "gy", -1),
+                        intParam(request, "lx", -1), intParam(request, "ly", -1));
+            }
+            else if("put".equals(op))
+                session.put(intParam(request, "slot", -1), intParam(request, "item", -1), intParam(request, "qty", 1));
+            else if("swap".equals(op))
+                session.swap(intParam(request, "from", -1), intParam(request, "to", -1));
+            else if(op != null)
+                throw new IllegalArgumentException("Unknown op: " + op);
+            
+            session.appendTo(data);
+        }
+        catch (SQLException e)
+        {
+            failed(response, e);
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        
+        byte[] bytes = data.toString().getBytes("UTF-8");
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(bytes.length);
+        OutputStream out = response.getOutputStream();
+        out.write(bytes);
+        out.close();
+    }
+    
+    private void failed(HttpServletResponse response, SQLException e) throws IOException
+    {
+        log("Player store failed.", e);
+        PrintWriter out = response.getWriter();
+        out.print("ERROR: failed to access player database.");
+        out.close();
+    }
+    
+    private PlayerStore getStore() throws SQLException
+    {
+        return PlayerStore.get(getServletContext(), objectQuery.getPool(getServletContext()));
+    }
+    
+    private static int intParam(HttpServletRequest request, String name, int def)
+    {
+        String value = request.getParameter(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(false, request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(true, request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Saved player position and pack.";
+    }
+    // </editor-fold>
+}
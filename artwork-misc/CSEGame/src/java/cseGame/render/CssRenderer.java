@@ -0,0 +1,77 @@
+/*
+ * CssRenderer.java - CssRenderer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+import java.util.Map;
+
+/**
+ * Renders sprite definitions as the .spN classes map.jsp puts in its
+ * stylesheet.
+ */
+public class CssRenderer extends MapRenderer
+{
+    private final Writer out;
+    private final String separator;
+    
+    /** Sprite images packed into a SpriteAtlas, or null. */
+    private final Map<String, SpriteAtlas.Placement> atlas;
+    
+    /**
+     * @param separator written after each rule
+     */
+    public CssRenderer(OutputStream out, String separator) throws IOException
+    {
+        this(out, separator, null);
+    }
+    
+    /**
+     * @param atlas where sprite images were packed; sprites not in it keep their own URL
+     */
+    public CssRenderer(OutputStream out, String separator, Map<String, SpriteAtlas.Placement> atlas) throws IOException
+    {
+        this.out = writer(out);
+        this.separator = separator;
+        this.atlas = atlas;
+    }
+    
+    public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException
+    {
+        out.write(".sp");
+        out.write(id);
+        out.write("{ z-index: ");
+        out.write(Integer.toString(layer));
+        out.write("; position: absolute; width: ");
+        out.write(Integer.toString(width));
+        out.write("px; height: ");
+        out.write(Integer.toString(height));
+        out.write("px; background-image: url('");
+        
+        SpriteAtlas.Placement placed = atlas == null ? null : atlas.get(src);
+        if(placed == null)
+        {
+            out.write(src);
+            out.write("'); }");
+        }
+        else
+        {
+            out.write(SpriteAtlas.URL_PREFIX);
+            out.write(placed.atlas);
+            out.write("'); background-position: ");
+            out.write(Integer.toString(-placed.x));
+            out.write("px ");
+            out.write(Integer.toString(-placed.y));
+            out.write("px; }");
+        }
+        out.write(separator);
+    }
+    
+    public void finish() throws IOException
+    {
+        out.flush();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * HtmlRenderer.java - HtmlRenderer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+
+/**
+ * Renders map objects as absolutely positioned &lt;img&gt; tags, the
+ * original MapHandler output. Only objects given by image are drawn.
+ */
+public class HtmlRenderer extends MapRenderer
+{
+    private final Writer out;
+    
+    public HtmlRenderer(OutputStream out) throws IOException
+    {
+        this.out = writer(out);
+    }
+    
+    public void object(int layer, int sprite, String src, int x, int y, int width, int height, int objId, int frames) throws IOException
+    {
+        if(src == null)
+            return;
+        
+        int realX = x * 24;
+        int realY = y * 24 - (height - 24);
+        
+        out.write("<img id='");
+        out.write(x + "x" + y + "x" + layer);
+        out.write("'  src='");
+        out.write(src);
+        out.write("' style='z-index: ");
+        out.write(Integer.toString(layer));
+        out.write("; position: absolute; top: ");
+        out.write(Integer.toString(realY));
+        out.write("px; left: ");
+        out.write(Integer.toString(realX));
+        out.write("px;'>");
+    }
+    
+    public void finish() throws IOException
+    {
+        out.flush();
+    }
+}
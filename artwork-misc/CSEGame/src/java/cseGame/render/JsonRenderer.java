@@ -0,0 +1,173 @@
+/*
+ * JsonRenderer.java - JsonRenderer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+
+/**
+ * Renders a map in the shape of the GameData .json maps the client loads:
+ * neighbours, the terrain as one string, and 'objs' with a {'layer': N}
+ * marker before each layer's objects. Sprite files come out as a 'sprites'
+ * list.
+ */
+public class JsonRenderer extends MapRenderer
+{
+    private static final int NONE = 0, TERRAIN = 1, OBJECTS = 2, SPRITES = 3;
+    
+    private static final String[] NEIGHBOUR_KEYS = { "north", "west", "south", "east" };
+    
+    private final Writer out;
+    
+    private boolean opened = false, firstKey = true, firstItem = true;
+    private int section = NONE;
+    
+    public JsonRenderer(OutputStream out) throws IOException
+    {
+        this.out = writer(out);
+    }
+    
+    public void begin(String[] neighbours) throws IOException
+    {
+        open();
+        for(int i = 0; i < neighbours.length; i++)
+        {
+            if(neighbours[i] == null)
+                continue;
+            
+            key(NEIGHBOUR_KEYS[i]);
+            out.write('\'');
+            quoted(neighbours[i] + ".json");
+            out.write('\'');
+        }
+    }
+    
+    public void terrainRow(int y, String text) throws IOException
+    {
+        enter(TERRAIN);
+        quoted(text.trim());
+    }
+    
+    public void layer(int layer) throws IOException
+    {
+        enter(OBJECTS);
+        item();
+        out.write("{'layer':" + layer + "}");
+    }
+    
+    public void object(int layer, int sprite, String src, int x, int y, int width, int height, int objId, int frames) throws IOException
+    {
+        enter(OBJECTS);
+        item();
+        
+        if(src == null)
+            out.write("{'id': " + sprite);
+        else
+        {
+            out.write("{'src': '");
+            quoted(src);
+            out.write('\'');
+        }
+        
+        if(objId != 0)
+            out.write(", 'objid': " + objId);
+        out.write(", 'x': " + x + ", 'y': " + y + ", 'width': " + width + ", 'height': " + height);
+        if(frames != 0)
+            out.write(", 'frames': " + frames);
+        out.write('}');
+    }
+    
+    public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException
+    {
+        enter(SPRITES);
+        item();
+        out.write("{'id': '");
+        quoted(id);
+        out.write("', 'layer': " + layer + ", 'type': '");
+        quoted(type);
+        out.write("', 'src': '");
+        quoted(src);
+        out.write("', 'width': " + width + ", 'height': " + height + "}");
+    }
+    
+    public void finish() throws IOException
+    {
+        open();
+        enter(NONE);
+        out.write('}');
+        out.flush();
+    }
+    
+    private void open() throws IOException
+    {
+        if(!opened)
+        {
+            out.write('{');
+            opened = true;
+        }
+    }
+    
+    private void key(String name) throws IOException
+    {
+        if(!firstKey)
+            out.write(",\n");
+        out.write('\'');
+        out.write(name);
+        out.write("': ");
+        firstKey = false;
+    }
+    
+    private void item() throws IOException
+    {
+        if(!firstItem)
+            out.write(",\n");
+        firstItem = false;
+    }
+    
+    /** Closes the current section and opens the next, if it is a different one. */
+    private void enter(int next) throws IOException
+    {
+        if(next == section)
+            return;
+        
+        open();
+        if(section == TERRAIN)
+            out.write('\'');
+        else if(section == OBJECTS || section == SPRITES)
+            out.write(']');
+        
+        if(next == TERRAIN)
+        {
+            key("terrain");
+            out.write('\'');
+        }
+        else if(next == OBJECTS)
+        {
+            key("objs");
+            out.write("[ ");
+        }
+        else if(next == SPRITES)
+        {
+            key("sprites");
+            out.write("[ ");
+        }
+        
+        section = next;
+        firstItem = true;
+    }
+    
+    /** Writes text for a single quoted string. */
+    private void quoted(String text) throws IOException
+    {
+        for(int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c == '\'' || c == '\\')
+                out.write('\\');
+            out.write(c);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * MapRenderer.java - MapRenderer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Receives the contents of a GameData file as they are parsed and writes
+ * them out in one output format. Renderers write through a buffer of
+ * CHUNK_SIZE bytes, so nothing is held beyond the element being written.
+ * A renderer belongs to a single request; the shared, thread-safe part is
+ * its {@link Format}.
+ * <p>
+ * Formats are looked up by name. html, css, json and tiles are built in;
+ * others can be added with {@link #register}.
+ */
+public abstract class MapRenderer
+{
+    /** Bytes buffered before they are passed on to the output stream. */
+    public static final int CHUNK_SIZE = 8192;
+    
+    /** An output format; creates a renderer per request. */
+    public interface Format
+    {
+        String getContentType();
+        
+        /** Whether the output is UTF-8 text, and so can be kept in the AssetCache. */
+        boolean isText();
+        
+        MapRenderer create(OutputStream out) throws IOException;
+    }
+    
+    private static final ConcurrentMap<String, Format> formats = new ConcurrentHashMap<String, Format>();
+    
+    static
+    {
+        register("html", new TextFormat("text/html;charset=UTF-8")
+        {
+            public MapRenderer create(OutputStream out) throws IOException { return new HtmlRenderer(out); }
+        });
+        register("css", new TextFormat("text/css;charset=UTF-8")
+        {
+            public MapRenderer create(OutputStream out) throws IOException { return new CssRenderer(out, "\n"); }
+        });
+        register("json", new TextFormat("text/html;charset=UTF-8")
+        {
+            public MapRenderer create(OutputStream out) throws IOException { return new JsonRenderer(out); }
+        });
+        register("tiles", new Format()
+        {
+            public String getContentType(){ return "application/octet-stream"; }
+            public boolean isText(){ return false; }
+            public MapRenderer create(OutputStream out) throws IOException { return new TileRenderer(out); }
+        });
+    }
+    
+    /** Adds or replaces a format. */
+    public static void register(String name, Format format)
+    {
+        formats.put(name, format);
+    }
+    
+    /** Returns the named format, or null if there is none. */
+    public static Format getFormat(String name)
+    {
+        return name == null ? null : formats.get(name);
+    }
+    
+    /**
+     * Called for the &lt;map&gt; element with its top, left, bottom and right
+     * neighbours, any of which may be null.
+     */
+    public void begin(String[] neighbours) throws IOException {}
+    
+    /** Called with the text of each terrain row, top to bottom. */
+    public void terrainRow(int y, String text) throws IOException {}
+    
+    /** Called at the start of each object layer. */
+    public void layer(int layer) throws IOException {}
+    
+    /**
+     * Called for each map object. Objects given by image have a src and a
+     * sprite of -1; objects given by sprite id have a null src.
+     */
+    public void object(int layer, int sprite, String src, int x, int y, int width, int height, int objId, int frames) throws IOException {}
+    
+    /** Called for each sprite definition; src is relative to the webapp. */
+    public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException {}
+    
+    /** Writes anything still buffered. The underlying stream is left open. */
+    public abstract void finish() throws IOException;
+    
+    /** Returns a UTF-8 writer that passes its output on in CHUNK_SIZE pieces. */
+    protected static Writer writer(OutputStream out) throws IOException
+    {
+        return new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), CHUNK_SIZE);
+    }
+    
+    /** A format whose output is UTF-8 text. */
+    private static abstract class TextFormat implements Format
+    {
+        private final String contentType;
+        
+        TextFormat(String contentType){ this.contentType = contentType; }
+        
+        public String getContentType(){ return contentType; }
+        
+        public boolean isText(){ return true; }
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * SpriteAtlas.java - SpriteAtlas Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+import javax.servlet.ServletContext;
+
+import cseGame.MapHandler;
+
+/**
+ * The sprite images of sprites.xml packed into a few atlas PNGs, with the
+ * sprite CSS pointing each .spN class at its place in an atlas through
+ * background-position. A map then loads two or three images instead of one
+ * per sprite.
+ * <p>
+ * Atlases are built at compile time by the <code>atlas</code> Ant target
+ * into GameData/compiled/atlas, and at runtime when that copy is missing
+ * or older than sprites.xml. Atlas names carry a hash of their content so
+ * the atlas servlet can let clients cache them forever.
+ */
+public class SpriteAtlas
+{
+    /** ServletContext attribute the runtime atlas is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.spriteAtlas";
+    
+    /** URL atlases are served from, relative to the context root. */
+    public static final String URL_PREFIX = "atlas/";
+    
+    /** Name of the CSS file written next to the atlas images. */
+    public static final String CSS_FILE = "sprites.css";
+    
+    /** Where one sprite image went. */
+    public static final class Placement
+    {
+        public final String atlas;
+        public final int x, y;
+        
+        Placement(String atlas, int x, int y)
+        {
+            this.atlas = atlas;
+            this.x = x;
+            this.y = y;
+        }
+    }
+    
+    /** Sprite image paths, relative to the web root, to their placements. */
+    private final Map<String, Placement> placements;
+    private final Map<String, byte[]> images;
+    private final String css;
+    
+    /** Modification time of sprites.xml when this was built. */
+    private final long modified;
+    
+    private SpriteAtlas(Map<String, Placement> placements, Map<String, byte[]> images, String css, long modified)
+    {
+        this.placements = placements;
+        this.images = images;
+        this.css = css;
+        this.modified = modified;
+    }
+    
+    /**
+     * Returns the webapp's atlas, building it on first use and again when
+     * sprites.xml changes. A current atlas from the build is used as is.
+     */
+    public static SpriteAtlas get(ServletContext context) throws Exception
+    {
+        File sprites = new File(context.getRealPath("GameData/sprites.xml"));
+        
+        synchronized(context)
+        {
+            SpriteAtlas atlas = (SpriteAtlas)context.getAttribute(CONTEXT_KEY);
+            
+            if(atlas == null || atlas.modified < sprites.lastModified())
+            {
+                File prebuilt = new File(context.getRealPath("GameData/compiled/atlas"));
+                
+                if(new File(prebuilt, CSS_FILE).lastModified() >= sprites.lastModified())
+                    atlas = load(prebuilt, sprites.lastModified());
+                else
+                    atlas = build(sprites, new File(context.getRealPath("/")),
+                            intParam(context, "maxSize", 1024), intParam(context, "padding", 1));
+                
+                context.setAttribute(CONTEXT_KEY, atlas);
+            }
+            return atlas;
+        }
+    }
+    
+    /** Returns true unless <code>cseGame.atlas.enabled</code> is false. */
+    public static boolean isEnabled(ServletContext context)
+    {
+        String enabled = context.getInitParameter("cseGame.atlas.enabled");
+        return enabled == null || Boolean.valueOf(enabled.trim()).booleanValue();
+    }
+    
+    private static int intParam(ServletContext context, String name, int def)
+    {
+        String value = context.getInitParameter("cseGame.atlas." + name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    /**
+     * Packs the images of a sprite file into atlases of at most maxSize
+     * square. Sprites whose image cannot be read keep their own URL.
+     * @param webRoot directory sprite image paths are relative to
+     * @param padding transparent pixels left between images
+     */
+    public static SpriteAtlas build(File sprites, File webRoot, final int maxSize, final int padding) throws Exception
+    {
+        // Collect each distinct image once, in sprites.xml order.
+        final LinkedHashMap<String, BufferedImage> sources = new LinkedHashMap<String, BufferedImage>();
+        final File root = webRoot;
+        
+        MapHandler.render(sprites, MapHandler.LOAD_SPRITES, new MapRenderer()
+        {
+            public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException
+            {
+                if(sources.containsKey(src))
+                    return;
+                
+                File file = new File(root, src);
+                BufferedImage image = file.isFile() ? ImageIO.read(file) : null;
+                
+                if(image != null && image.getWidth() + padding <= maxSize && image.getHeight() + padding <= maxSize)
+                    sources.put(src, image);
+            }
+            
+            public void finish(){}
+        });
+        
+        String[] srcs = sources.keySet().toArray(new String[sources.size()]);
+        int[] w = new int[srcs.length], h = new int[srcs.length];
+        long area = 0;
+        int widest = 1;
+        
+        for(int i = 0; i < srcs.length; i++)
+        {
+            BufferedImage image = sources.get(srcs[i]);
+            w[i] = image.getWidth() + padding;
+            h[i] = image.getHeight() + padding;
+            area += (long)w[i] * h[i];
+            widest = Math.max(widest, w[i]);
+        }
+        
+        // Aim for a roughly square first page; later pages only take the overflow.
+        int width = 1;
+        while((long)width * width < area + area / 8 && width < maxSize)
+            width <<= 1;
+        width = Math.min(maxSize, Math.max(width, widest));
+        
+        Packer packer = new Packer(width, maxSize);
+        int[] page = new int[srcs.length], x = new int[srcs.length], y = new int[srcs.length];
+        packer.pack(w, h, page, x, y);
+        
+        // Draw and encode each page.
+        Map<String, Placement> placements = new HashMap<String, Placement>();
+        Map<String, byte[]> images = new LinkedHashMap<String, byte[]>();
+        
+        for(int p = 0; p < packer.pages(); p++)
+        {
+            BufferedImage atlas = new BufferedImage(packer.width(p), packer.height(p), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = atlas.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            
+            for(int i = 0; i < srcs.length; i++)
+            {
+                if(page[i] == p)
+                    g.drawImage(sources.get(srcs[i]), x[i], y[i], null);
+            }
+            g.dispose();
+            
+            ByteArrayOutputStream png = new ByteArrayOutputStream(atlas.getWidth() * atlas.getHeight());
+            ImageIO.write(atlas, "png", png);
+            byte[] bytes = png.toByteArray();
+            
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            String name = "sprites-" + p + "-" + Long.toHexString(crc.getValue()) + ".png";
+            images.put(name, bytes);
+            
+            for(int i = 0; i < srcs.length; i++)
+            {
+                if(page[i] == p)
+                    placements.put(srcs[i], new Placement(name, x[i], y[i]));
+            }
+        }
+        
+        ByteArrayOutputStream css = new ByteArrayOutputStream(srcs.length * 192);
+        MapHandler.render(sprites, MapHandler.LOAD_SPRITES, new CssRenderer(css, "\n", placements));
+        
+        return new SpriteAtlas(placements, images, css.toString("UTF-8"), sprites.lastModified());
+    }
+    
+    /** Reads an atlas written by {@link #write}. */
+    public static SpriteAtlas load(File dir, long modified) throws IOException
+    {
+        Map<String, byte[]> images = new LinkedHashMap<String, byte[]>();
+        File[] files = dir.listFiles();
+        
+        for(int i = 0; files != null && i < files.length; i++)
+        {
+            if(files[i].getName().endsWith(".png"))
+                images.put(files[i].getName(), readFully(files[i]));
+        }
+        
+        String css = new String(readFully(new File(dir, CSS_FILE)), "UTF-8");
+        return new SpriteAtlas(Collections.<String, Placement>emptyMap(), images, css, modified);
+    }
+    
+    /** Writes the atlas images and CSS into dir, replacing any older atlas there. */
+    public void write(File dir) throws IOException
+    {
+        dir.mkdirs();
+        
+        File[] old = dir.listFiles();
+        for(int i = 0; old != null && i < old.length; i++)
+        {
+            if(old[i].getName().endsWith(".png") && !images.containsKey(old[i].getName()))
+                old[i].delete();
+        }
+        
+        for(Map.Entry<String, byte[]> image : images.entrySet())
+            writeFully(new File(dir, image.getKey()), image.getValue());
+        
+        // Written last; its time stamp is what marks the atlas current.
+        writeFully(new File(dir, CSS_FILE), css.getBytes("UTF-8"));
+    }
+    
+    /** The sprite rules, one per line. */
+    public String getCss(){ return css; }
+    
+    /** Returns the PNG bytes of an atlas, or null if there is none by that name. */
+    public byte[] getImage(String name){ return images.get(name); }
+    
+    public Set<String> getImageNames(){ return images.keySet(); }
+    
+    /** Where a sprite image was placed, or null if it kept its own URL. Empty for loaded atlases. */
+    public Placement getPlacement(String src){ return placements.get(src); }
+    
+    private static byte[] readFully(File file) throws IOException
+    {
+        byte[] data = new byte[(int)file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            in.readFully(data);
+        }
+        finally { in.close(); }
+        return data;
+    }
+    
+    private static void writeFully(File file, byte[] data) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(data);
+        }
+        finally { out.close(); }
+    }
+    
+    /**
+     * Skyline bottom-left packing. Rectangles go in tallest first, each
+     * where its top edge ends up lowest; one that fits nowhere opens a new
+     * page.
+     */
+    static final class Packer
+    {
+        private final int width, maxHeight;
+        
+        /** Per page: the skyline as {x, y, width} segments, and the height used. */
+        private final List<List<int[]>> skylines = new ArrayList<List<int[]>>();
+        private final List<int[]> used = new ArrayList<int[]>();
+        
+        Packer(int width, int maxHeight)
+        {
+            this.width = width;
+            this.maxHeight = maxHeight;
+        }
+        
+        void pack(final int[] w, final int[] h, int[] page, int[] x, int[] y)
+        {
+            Integer[] order = new Integer[w.length];
+            for(int i = 0; i < order.length; i++)
+                order[i] = i;
+            
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                public int compare(Integer a, Integer b)
+                {
+                    if(h[a] != h[b])
+                        return h[b] - h[a];
+                    return w[b] - w[a];
+                }
+            });
+            
+            for(int n = 0; n < order.length; n++)
+            {
+                int i = order[n];
+                int p = 0;
+                
+                while(!place(p, w[i], h[i], i, x, y))
+                    p++;
+                page[i] = p;
+            }
+        }
+        
+        int pages(){ return skylines.size(); }
+        
+        int width(int page)
+        {
+            return used.get(page)[0];
+        }
+        
+        int height(int page)
+        {
+            return used.get(page)[1];
+        }
+        
+        private boolean place(int page, int w, int h, int i, int[] x, int[] y)
+        {
+            if(page == skylines.size())
+            {
+                List<int[]> skyline = new ArrayList<int[]>();
+                skyline.add(new int[]{ 0, 0, width });
+                skylines.add(skyline);
+                used.add(new int[2]);
+            }
+            
+            List<int[]> skyline = skylines.get(page);
+            int best = -1, bestY = Integer.MAX_VALUE, bestX = 0;
+            
+            for(int s = 0; s < skyline.size(); s++)
+            {
+                int left = skyline.get(s)[0];
+                if(left + w > width)
+                    break;
+                
+                // The rectangle rests on the highest segment it spans.
+                int top = 0, span = 0;
+                for(int t = s; span < w; t++)
+                {
+                    int[] segment = skyline.get(t);
+                    top = Math.max(top, segment[1]);
+                    span += segment[0] + segment[2] - Math.max(left, segment[0]);
+                }
+                
+                if(top + h <= maxHeight && top < bestY)
+                {
+                    best = s;
+                    bestY = top;
+                    bestX = left;
+                }
+            }
+            
+            if(best < 0)
+                return false;
+            
+            x[i] = bestX;
+            y[i] = bestY;
+            
+            // Replace the covered part of the skyline with the new top edge.
+            int right = bestX + w;
+            skyline.add(best, new int[]{ bestX, bestY + h, w });
+            
+            for(int s = best + 1; s < skyline.size();)
+            {
+                int[] segment = skyline.get(s);
+                if(segment[0] >= right)
+                    break;
+                
+                int end = segment[0] + segment[2];
+                if(end <= right)
+                    skyline.remove(s);
+                else
+                {
+                    segment[2] = end - right;
+                    segment[0] = right;
+                    break;
+                }
+            }
+            
+            // Merge neighbours left at the same height.
+            for(int s = Math.max(0, best - 1); s + 1 < skyline.size();)
+            {
+                int[] a = skyline.get(s), b = skyline.get(s + 1);
+                if(a[1] == b[1])
+                {
+                    a[2] += b[2];
+                    skyline.remove(s + 1);
+                }
+                else if(s > best)
+                    break;
+                else
+                    s++;
+            }
+            
+            int[] size = used.get(page);
+            size[0] = Math.max(size[0], right);
+            size[1] = Math.max(size[1], bestY + h);
+            return true;
+        }
+    }
+    
+    /** Builds the atlas at compile time: SpriteAtlas &lt;sprites.xml&gt; &lt;web root&gt; &lt;output dir&gt; [max size] */
+    public static void main(String[] args) throws Exception
+    {
+        if(args.length < 3)
+        {
+            System.err.println("Usage: SpriteAtlas <sprites.xml> <web root> <output dir> [max size]");
+            System.exit(1);
+        }
+        
+        System.setProperty("java.awt.headless", "true");
+        
+        File sprites = new File(args[0]);
+        File output = new File(args[2]);
+        
+        // Always rebuilt: an image can change without sprites.xml changing.
+        long start = System.currentTimeMillis();
+        SpriteAtlas atlas = build(sprites, new File(args[1]), args.length > 3 ? Integer.parseInt(args[3]) : 1024, 1);
+        atlas.write(output);
+        
+        System.out.println("Packed " + atlas.placements.size() + " sprite images into " + atlas.images.size() +
+                " atlases (" + (System.currentTimeMillis() - start) + " ms)");
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * TileRenderer.java - TileRenderer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+
+import cseGame.map.MapReader;
+
+/**
+ * Renders a map as a compact binary record stream. After a MAGIC int and
+ * a version byte, each record starts with a tag byte:
+ * <pre>
+ *  'N' neighbours:  4 x UTF (top, left, bottom, right; "" for none)
+ *  'T' terrain row: short y, short n, n x short sprite
+ *  'L' layer:       byte layer
+ *  'O' object:      short sprite (-1 if given by image), short x, short y,
+ *                   short width, short height, int objid, byte frames
+ *  'S' sprite:      UTF id, UTF type, UTF src, byte layer, short width, short height
+ *  'E' end of stream
+ * </pre>
+ * All numbers are big-endian.
+ */
+public class TileRenderer extends MapRenderer
+{
+    /** "CSET" */
+    public static final int MAGIC = 0x43534554;
+    
+    public static final int VERSION = 1;
+    
+    private final DataOutputStream out;
+    
+    public TileRenderer(OutputStream out) throws IOException
+    {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+    
+    public void begin(String[] neighbours) throws IOException
+    {
+        out.writeByte('N');
+        for(int i = 0; i < neighbours.length; i++)
+            out.writeUTF(neighbours[i] == null ? "" : neighbours[i]);
+    }
+    
+    public void terrainRow(int y, String text) throws IOException
+    {
+        short[] row = MapReader.parseRow(text.trim());
+        
+        out.writeByte('T');
+        out.writeShort(y);
+        out.writeShort(row.length);
+        for(int i = 0; i < row.length; i++)
+            out.writeShort(row[i]);
+    }
+    
+    public void layer(int layer) throws IOException
+    {
+        out.writeByte('L');
+        out.writeByte(layer);
+    }
+    
+    public void object(int layer, int sprite, String src, int x, int y, int width, int height, int objId, int frames) throws IOException
+    {
+        out.writeByte('O');
+        out.writeShort(sprite);
+        out.writeShort(x);
+        out.writeShort(y);
+        out.writeShort(width);
+        out.writeShort(height);
+        out.writeInt(objId);
+        out.writeByte(frames);
+    }
+    
+    public void sprite(int layer, String id, String type, String src, int width, int height) throws IOException
+    {
+        out.writeByte('S');
+        out.writeUTF(id);
+        out.writeUTF(type);
+        out.writeUTF(src);
+        out.writeByte(layer);
+        out.writeShort(width);
+        out.writeShort(height);
+    }
+    
+    public void finish() throws IOException
+    {
+        out.writeByte('E');
+        out.flush();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  atlas.java - atlas Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.render;
+
+import java.io.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Serves the sprite atlas images (<code>atlas/sprites-0-1a2b3c4d.png</code>)
+ * the sprite CSS refers to. A name changes whenever its content does, so
+ * responses may be cached indefinitely.
+ */
+public class atlas extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        String name = request.getPathInfo();
+        byte[] image;
+        
+        try
+        {
+            image = name == null ? null : SpriteAtlas.get(getServletContext()).getImage(name.substring(1));
+        }
+        catch (Exception e)
+        {
+            log("Building the sprite atlas failed.", e);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+            return;
+        }
+        
+        if(image == null)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, name);
+            return;
+        }
+        
+        String etag = "\"" + name.substring(1) + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        
+        String match = request.getHeader("If-None-Match");
+        if(match != null && match.indexOf(etag) >= 0)
+        {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        
+        response.setContentType("image/png");
+        response.setContentLength(image.length);
+        
+        OutputStream out = response.getOutputStream();
+        out.write(image);
+        out.close();
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Serves sprite atlas images.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,172 @@
+/*
+ * Sandbox.java - Sandbox Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.script;
+
+import org.mozilla.javascript.*;
+import org.mozilla.javascript.debug.DebugFrame;
+import org.mozilla.javascript.debug.DebuggableScript;
+import org.mozilla.javascript.debug.Debugger;
+
+/**
+ * Rhino contexts for running content scripts. Scripts are interpreted
+ * rather than compiled to classes, see no Java packages or classes, and
+ * are stopped once they use up the budget of the current run: a number of
+ * instructions, a deadline and a call depth. A script cannot catch the
+ * error that stops it.
+ */
+public class Sandbox extends ContextFactory
+{
+    /** Instructions between two budget checks. */
+    static final int CHECK_EVERY = 1000;
+    
+    /** Instructions a function call is charged. */
+    static final int CALL_COST = 10;
+    
+    /** Global names that lead to Java; removed from the shared scope. */
+    private static final String[] JAVA_NAMES = { "Packages", "java", "javax", "org", "com", "edu", "net",
+            "getClass", "JavaAdapter", "JavaImporter" };
+    
+    /** What one run may use up. */
+    static final class Budget
+    {
+        final int instructions;
+        final long deadline;
+        int used = 0;
+        
+        /**
+         * @param instructions instructions allowed
+         * @param deadline System.nanoTime() the run must end by
+         */
+        Budget(int instructions, long deadline)
+        {
+            this.instructions = instructions;
+            this.deadline = deadline;
+        }
+    }
+    
+    /** Stops a script that went over its budget. An Error, so script catch blocks don't see it. */
+    static final class BudgetExceeded extends Error
+    {
+        BudgetExceeded(String message)
+        {
+            super(message);
+        }
+    }
+    
+    private static final ClassShutter NO_CLASSES = new ClassShutter()
+    {
+        public boolean visibleToScripts(String className)
+        {
+            return false;
+        }
+    };
+    
+    /**
+     * Charges every function call to the budget. The interpreter counts
+     * instructions only at branches and returns, and a tail call loops
+     * without either; with a debug frame in place it makes real calls.
+     */
+    private final DebugFrame calls = new DebugFrame()
+    {
+        public void onEnter(Context cx, Scriptable activation, Scriptable thisObj, Object[] args)
+        {
+            charge(cx, CALL_COST);
+        }
+        
+        public void onLineChange(Context cx, int lineNumber){}
+        public void onExceptionThrown(Context cx, Throwable ex){}
+        public void onExit(Context cx, boolean byThrow, Object resultOrException){}
+    };
+    
+    private final Debugger debugger = new Debugger()
+    {
+        public void handleCompilationDone(Context cx, DebuggableScript fnOrScript, String source){}
+        
+        public DebugFrame getFrame(Context cx, DebuggableScript fnOrScript)
+        {
+            return calls;
+        }
+    };
+    
+    private final int maxDepth;
+    private volatile ScriptableObject shared;
+    
+    /** @param maxDepth deepest script call stack allowed */
+    public Sandbox(int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+    }
+    
+    protected Context makeContext()
+    {
+        Context cx = super.makeContext();
+        cx.setOptimizationLevel(-1);
+        cx.setMaximumInterpreterStackDepth(maxDepth);
+        cx.setInstructionObserverThreshold(CHECK_EVERY);
+        cx.setClassShutter(NO_CLASSES);
+        cx.setDebugger(debugger, null);
+        return cx;
+    }
+    
+    protected void observeInstructionCount(Context cx, int instructionCount)
+    {
+        charge(cx, instructionCount);
+    }
+    
+    private static void charge(Context cx, int instructionCount)
+    {
+        Budget budget = (Budget)cx.getThreadLocal(Budget.class);
+        if(budget == null)
+            return;
+        
+        budget.used += instructionCount;
+        if(budget.used > budget.instructions)
+            throw new BudgetExceeded("Script ran over its budget of " + budget.instructions + " instructions.");
+        if(System.nanoTime() > budget.deadline)
+            throw new BudgetExceeded("Script ran out of time.");
+    }
+    
+    /**
+     * Returns the standard objects every run's scope inherits from. They
+     * are sealed, so one script cannot change what another one sees.
+     */
+    ScriptableObject getSharedScope(Context cx)
+    {
+        if(shared == null)
+        {
+            synchronized(this)
+            {
+                if(shared == null)
+                {
+                    ScriptableObject scope = cx.initStandardObjects(null, false);
+                    for(int i = 0; i < JAVA_NAMES.length; i++)
+                        scope.delete(JAVA_NAMES[i]);
+                    
+                    Object[] ids = scope.getAllIds();
+                    for(int i = 0; i < ids.length; i++)
+                    {
+                        if(!(ids[i] instanceof String))
+                            continue;
+                        
+                        Object value = scope.get((String)ids[i], scope);
+                        if(value instanceof ScriptableObject)
+                        {
+                            ScriptableObject object = (ScriptableObject)value;
+                            Object prototype = object.get("prototype", object);
+                            if(prototype instanceof ScriptableObject)
+                                ((ScriptableObject)prototype).sealObject();
+                            object.sealObject();
+                        }
+                    }
+                    scope.sealObject();
+                    shared = scope;
+                }
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,592 @@
+/*
+ * ScriptService.java - ScriptService Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.script;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.servlet.ServletContext;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextAction;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Runs the scripts of items, map objects and NPCs on the server. A script
+ * is compiled once per object and source, and every run happens on a
+ * small bounded pool inside a {@link Sandbox}, with its own instruction
+ * and time budget, so a bad script costs one worker a few milliseconds and
+ * never a request or tick thread.
+ * <p>
+ * Scripts see the same names the browser's ScriptEngine gives them
+ * (<code>obj</code>, <code>player</code>, <code>disp</code> and
+ * <code>game</code>), but the calls they make are recorded as actions for
+ * the client to play back rather than carried out. A script that can't
+ * tell two runs apart (no Math.random, Date, eval or Function) gives the
+ * same actions for the same inputs, so its results are cached.
+ */
+public class ScriptService
+{
+    /** ServletContext attribute the shared service is stored under. */
+    public static final String CONTEXT_KEY = "cseGame.scriptService";
+    
+    /** Names that make a script's result depend on more than its inputs. */
+    private static final Pattern NONDETERMINISTIC = Pattern.compile("\\b(random|Date|eval|Function)\\b");
+    private static final Pattern USES_PLAYER = Pattern.compile("\\bplayer\\b");
+    private static final Pattern USES_OBJ = Pattern.compile("\\bobj\\b");
+    
+    /** Actions and characters per action argument a run may record. */
+    private static final int MAX_ACTIONS = 64, MAX_ARGUMENT = 512;
+    
+    private static final Histogram RUN_TIME = Metrics.histogram("cseGame_script_seconds");
+    private static final Counter COMPILES = Metrics.counter("cseGame_script_compiles_total");
+    private static final Counter RUNS = Metrics.counter("cseGame_script_runs_total", "result", "ok");
+    private static final Counter CACHED = Metrics.counter("cseGame_script_runs_total", "result", "cached");
+    private static final Counter FAILED = Metrics.counter("cseGame_script_runs_total", "result", "error");
+    private static final Counter OVER_BUDGET = Metrics.counter("cseGame_script_runs_total", "result", "budget");
+    private static final Counter REJECTED = Metrics.counter("cseGame_script_runs_total", "result", "rejected");
+    
+    /** Told how a run handed to {@link #submit} ended. */
+    public interface Callback
+    {
+        void done(String result);
+        
+        void failed(Exception e);
+    }
+    
+    /** The inputs of one run. */
+    public static final class Call
+    {
+        /** Object type and id, as objectQuery names them. */
+        public final String type;
+        public final int id;
+        /** The SCRIPT column, still URI encoded. */
+        public final String source;
+        
+        public int option;
+        public String player = "";
+        public int x, y, dir;
+        
+        public Call(String type, int id, String source)
+        {
+            this.type = type;
+            this.id = id;
+            this.source = source;
+        }
+    }
+    
+    /** A script's compiled form, or why it did not compile. */
+    private static final class Compiled
+    {
+        final String source;
+        final long hash;
+        final boolean deterministic, usesPlayer, usesObj;
+        final Script script;
+        final String error;
+        
+        Compiled(String source, String decoded, Script script, String error)
+        {
+            CRC32 crc = new CRC32();
+            crc.update(utf8(decoded));
+            
+            this.source = source;
+            this.hash = crc.getValue();
+            this.deterministic = !NONDETERMINISTIC.matcher(decoded).find();
+            this.usesPlayer = USES_PLAYER.matcher(decoded).find();
+            this.usesObj = USES_OBJ.matcher(decoded).find();
+            this.script = script;
+            this.error = error;
+        }
+    }
+    
+    /** Records a call to one of the functions scripts are given. */
+    private static final class Action extends BaseFunction
+    {
+        private final String name;
+        private final List<Object[]> actions;
+        
+        Action(Scriptable scope, String name, List<Object[]> actions)
+        {
+            super(scope, ScriptableObject.getFunctionPrototype(scope));
+            this.name = name;
+            this.actions = actions;
+        }
+        
+        public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args)
+        {
+            if(actions.size() >= MAX_ACTIONS)
+                throw new Sandbox.BudgetExceeded("Script recorded more than " + MAX_ACTIONS + " actions.");
+            
+            Object[] action = new Object[args.length + 1];
+            action[0] = name;
+            for(int i = 0; i < args.length; i++)
+            {
+                if(args[i] instanceof Number || args[i] instanceof Boolean)
+                    action[i + 1] = args[i];
+                else
+                {
+                    String text = Context.toString(args[i]);
+                    action[i + 1] = text.length() > MAX_ARGUMENT ? text.substring(0, MAX_ARGUMENT) : text;
+                }
+            }
+            actions.add(action);
+            return Context.getUndefinedValue();
+        }
+    }
+    
+    private final Sandbox sandbox;
+    private final ThreadPoolExecutor runners;
+    private final int instructions;
+    private final long timeoutNanos, waitMillis;
+    
+    /** Compiled scripts by type:id. */
+    private final ConcurrentMap<String, Compiled> compiled = new ConcurrentHashMap<String, Compiled>();
+    /** Results of deterministic scripts by script and inputs. */
+    private final Map<String, String> results;
+    
+    /**
+     * @param threads scripts run at once
+     * @param queueSize runs waiting for a thread before new ones are refused
+     * @param instructions instructions one run may execute
+     * @param timeoutMillis how long one run may take
+     * @param waitMillis how long a caller waits for a queued run
+     * @param maxDepth deepest call stack a script may build
+     * @param resultCacheSize results of deterministic scripts kept
+     */
+    public ScriptService(int threads, int queueSize, int instructions, long timeoutMillis, long waitMillis,
+            int maxDepth, final int resultCacheSize)
+    {
+        this.sandbox = new Sandbox(maxDepth);
+        this.instructions = instructions;
+        this.timeoutNanos = timeoutMillis * 1000000L;
+        this.waitMillis = waitMillis;
+        this.results = new LinkedHashMap<String, String>(resultCacheSize * 2, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+            {
+                return size() > resultCacheSize;
+            }
+        };
+        
+        runners = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+            
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "ScriptRunner-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        runners.allowCoreThreadTimeOut(true);
+        
+        Metrics.gauge("cseGame_script_queued", new Gauge(){ public long get(){ return runners.getQueue().size(); } });
+        Metrics.gauge("cseGame_script_compiled", new Gauge(){ public long get(){ return compiled.size(); } });
+    }
+    
+    /** Returns the service for this webapp, creating it on first use. */
+    public static ScriptService get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            ScriptService service = (ScriptService)context.getAttribute(CONTEXT_KEY);
+            
+            if(service == null)
+            {
+                service = new ScriptService(
+                        (int)param(context, "threads", Math.max(2, Runtime.getRuntime().availableProcessors())),
+                        (int)param(context, "queueSize", 256),
+                        (int)param(context, "instructions", 200000),
+                        param(context, "timeoutMillis", 50),
+                        param(context, "waitMillis", 1000),
+                        (int)param(context, "maxDepth", 64),
+                        (int)param(context, "resultCacheSize", 4096));
+                context.setAttribute(CONTEXT_KEY, service);
+            }
+            return service;
+        }
+    }
+    
+    /** Stops the webapp's script threads, if it has any. */
+    public static void close(ServletContext context)
+    {
+        ScriptService service;
+        
+        synchronized(context)
+        {
+            service = (ScriptService)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(service != null)
+            service.runners.shutdownNow();
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.script." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    /** How long a caller should wait for a queued run, in ms. */
+    public long getWaitMillis(){ return waitMillis; }
+    
+    /**
+     * Runs a script and returns what it did:
+     * <pre>
+     *   {'id': N, 'type': 'npc', 'actions': [['say', 'Hello'], ['moveTo', 4, 7], ...]}
+     * </pre>
+     * or, if it failed to compile or run, <code>{'id': N, 'type': 'npc', 'error': '...'}</code>.
+     * Blocks the calling thread; requests use {@link #submit} instead.
+     * @throws RejectedExecutionException if too many runs are already waiting
+     * @throws TimeoutException if the run did not finish within the wait time
+     */
+    public String run(final Call call) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        String result = cached(call);
+        if(result != null)
+            return result;
+        
+        Future<String> future = queue(new Callable<String>()
+        {
+            public String call(){ return runNow(call); }
+        });
+        
+        try
+        {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            expire(future);
+            throw e;
+        }
+    }
+    
+    /**
+     * Runs a script like {@link #run} without waiting for it: the callback
+     * is told the result on a runner thread, or on the calling one when the
+     * result is cached.
+     * @return the queued run, to {@link #expire} if the caller stops waiting; null if answered already
+     * @throws RejectedExecutionException if too many runs are already waiting
+     */
+    public Future<?> submit(final Call call, final Callback callback)
+    {
+        String result = cached(call);
+        if(result != null)
+        {
+            callback.done(result);
+            return null;
+        }
+        
+        return queue(new Callable<Object>()
+        {
+            public Object call()
+            {
+                String result;
+                try
+                {
+                    result = runNow(call);
+                }
+                catch (RuntimeException e)
+                {
+                    callback.failed(e);
+                    return null;
+                }
+                callback.done(result);
+                return null;
+            }
+        });
+    }
+    
+    /** Drops a run that is still queued when its caller stopped waiting; one that has started stops at its own deadline. */
+    public void expire(Future<?> run)
+    {
+        if(run != null && run.cancel(false))
+            REJECTED.increment();
+    }
+    
+    /** Returns the result of a script that failed to compile, or of a deterministic one already run with these inputs. */
+    private String cached(Call call)
+    {
+        final Compiled script = compiled.get(call.type + ":" + call.id);
+        
+        // The source is the string the catalog holds, so it is usually the same instance.
+        if(script == null || !script.source.equals(call.source))
+            return null;
+        
+        if(script.error != null)
+            return error(call, script.error);
+        
+        if(script.deterministic)
+        {
+            String result;
+            synchronized(results)
+            {
+                result = results.get(resultKey(script, call));
+            }
+            if(result != null)
+            {
+                CACHED.increment();
+                return result;
+            }
+        }
+        return null;
+    }
+    
+    private <T> Future<T> queue(Callable<T> task)
+    {
+        try
+        {
+            return runners.submit(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            REJECTED.increment();
+            throw e;
+        }
+    }
+    
+    /** Runs a script in the sandbox, on a runner thread. */
+    private String runNow(final Call call)
+    {
+        // Not Sandbox.enter(): in this Rhino that binds the context to the global factory.
+        return (String)sandbox.call(new ContextAction()
+        {
+            public Object run(Context cx)
+            {
+                return execute(cx, call);
+            }
+        });
+    }
+    
+    /** Compiles if needed and runs the script, on a runner thread. */
+    private String execute(Context cx, Call call)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            Compiled script = compile(cx, call);
+            if(script.error != null)
+            {
+                FAILED.increment();
+                return error(call, script.error);
+            }
+            
+            List<Object[]> actions = new ArrayList<Object[]>();
+            Scriptable scope = scope(cx, call, actions);
+            
+            cx.putThreadLocal(Sandbox.Budget.class, new Sandbox.Budget(instructions, System.nanoTime() + timeoutNanos));
+            try
+            {
+                script.script.exec(cx, scope);
+            }
+            catch (Sandbox.BudgetExceeded e)
+            {
+                OVER_BUDGET.increment();
+                return error(call, e.getMessage());
+            }
+            catch (RhinoException e)
+            {
+                FAILED.increment();
+                return error(call, e.getMessage());
+            }
+            finally { cx.removeThreadLocal(Sandbox.Budget.class); }
+            
+            String result = format(call, actions);
+            if(script.deterministic)
+            {
+                synchronized(results)
+                {
+                    results.put(resultKey(script, call), result);
+                }
+            }
+            
+            RUNS.increment();
+            return result;
+        }
+        finally { RUN_TIME.recordSince(start); }
+    }
+    
+    /** Returns the compiled form of the call's script, compiling it if it is new or has changed. */
+    private Compiled compile(Context cx, Call call)
+    {
+        String key = call.type + ":" + call.id;
+        Compiled script = compiled.get(key);
+        if(script != null && script.source.equals(call.source))
+            return script;
+        
+        String decoded = decode(call.source);
+        Script compiledScript = null;
+        String error = null;
+        try
+        {
+            compiledScript = cx.compileString(decoded, key, 1, null);
+        }
+        catch (RhinoException e){ error = e.getMessage(); }
+        
+        COMPILES.increment();
+        script = new Compiled(call.source, decoded, compiledScript, error);
+        compiled.put(key, script);
+        return script;
+    }
+    
+    /** Builds the names a script sees, over the sealed standard objects. */
+    private Scriptable scope(Context cx, Call call, List<Object[]> actions)
+    {
+        Scriptable scope = cx.newObject(sandbox.getSharedScope(cx));
+        scope.setPrototype(sandbox.getSharedScope(cx));
+        scope.setParentScope(null);
+        
+        Scriptable obj = cx.newObject(scope);
+        obj.put("id", obj, Integer.valueOf(call.id));
+        obj.put("type", obj, call.type);
+        obj.put("num", obj, Integer.valueOf(call.option));
+        scope.put("obj", scope, obj);
+        
+        Scriptable player = cx.newObject(scope);
+        player.put("name", player, call.player);
+        player.put("x", player, Integer.valueOf(call.x));
+        player.put("y", player, Integer.valueOf(call.y));
+        player.put("dir", player, Integer.valueOf(call.dir));
+        player.put("moveTo", player, new Action(scope, "moveTo", actions));
+        scope.put("player", scope, player);
+        
+        Scriptable disp = cx.newObject(scope);
+        disp.put("show", disp, new Action(scope, "show", actions));
+        scope.put("disp", scope, disp);
+        
+        Scriptable game = cx.newObject(scope);
+        game.put("say", game, new Action(scope, "say", actions));
+        scope.put("game", scope, game);
+        
+        return scope;
+    }
+    
+    /** Caches a result only under the inputs the script can read. */
+    private static String resultKey(Compiled script, Call call)
+    {
+        StringBuilder key = new StringBuilder(48);
+        key.append(call.type).append(':').append(call.id).append(':').append(script.hash);
+        if(script.usesObj)
+            key.append(':').append(call.option);
+        if(script.usesPlayer)
+            key.append(':').append(call.x).append(',').append(call.y).append(',').append(call.dir).append(',').append(call.player);
+        return key.toString();
+    }
+    
+    private static String format(Call call, List<Object[]> actions)
+    {
+        StringBuilder out = new StringBuilder(64 + actions.size() * 32);
+        out.append("{'id': ").append(call.id).append(", 'type': '").append(call.type).append("', 'actions': [");
+        
+        for(int i = 0; i < actions.size(); i++)
+        {
+            Object[] action = actions.get(i);
+            out.append(i == 0 ? "[" : ", [");
+            for(int a = 0; a < action.length; a++)
+            {
+                if(a > 0)
+                    out.append(", ");
+                if(action[a] instanceof Number)
+                    out.append(ScriptRuntime.numberToString(((Number)action[a]).doubleValue(), 10));
+                else if(action[a] instanceof Boolean)
+                    out.append(action[a]);
+                else
+                    quote(out, (String)action[a]);
+            }
+            out.append(']');
+        }
+        return out.append("]}").toString();
+    }
+    
+    private static String error(Call call, String message)
+    {
+        StringBuilder out = new StringBuilder(64);
+        out.append("{'id': ").append(call.id).append(", 'type': '").append(call.type).append("', 'error': ");
+        quote(out, String.valueOf(message));
+        return out.append('}').toString();
+    }
+    
+    private static void quote(StringBuilder out, String text)
+    {
+        out.append('\'');
+        for(int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c == '\'' || c == '\\')
+                out.append('\\').append(c);
+            else if(c < ' ' || c == '<')
+                out.append(String.format("\\u%04x", Integer.valueOf(c)));
+            else
+                out.append(c);
+        }
+        out.append('\'');
+    }
+    
+    /**
+     * Undoes the client's decodeURIComponent encoding of the SCRIPT column.
+     * Malformed escapes are kept as they are, as the browser would fail on them.
+     */
+    static String decode(String source)
+    {
+        if(source.indexOf('%') < 0)
+            return source;
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(source.length());
+        for(int i = 0; i < source.length(); i++)
+        {
+            char c = source.charAt(i);
+            int hi, lo;
+            
+            if(c == '%' && i + 2 < source.length() && (hi = Character.digit(source.charAt(i + 1), 16)) >= 0 &&
+                    (lo = Character.digit(source.charAt(i + 2), 16)) >= 0)
+            {
+                bytes.write(hi << 4 | lo);
+                i += 2;
+            }
+            else
+            {
+                // Keep surrogate pairs together so they encode as one character.
+                int end = Character.isHighSurrogate(c) && i + 1 < source.length() ? i + 2 : i + 1;
+                byte[] encoded = utf8(source.substring(i, end));
+                bytes.write(encoded, 0, encoded.length);
+                i = end - 1;
+            }
+        }
+        
+        try
+        {
+            return bytes.toString("UTF-8");
+        } catch (UnsupportedEncodingException e){ throw new Error(e); }
+    }
+    
+    private static byte[] utf8(String s)
+    {
+        try
+        {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e){ throw new Error(e); }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *  script.java - script Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.script;
+
+import java.io.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import cseGame.objectQuery;
+import cseGame.cache.CatalogCache;
+import cseGame.map.MapStore;
+import cseGame.world.World;
+import cseGame.world.WorldServer;
+
+/**
+ * Runs an object's script on the server and answers with the actions it
+ * took, see {@link ScriptService#run}.
+ * <pre>
+ *   script?type=npc&amp;id=N[&amp;option=O][&amp;x=&amp;y=&amp;dir=][&amp;map=M&amp;user=U]
+ * </pre>
+ * When the player is in the world of map M, its position there is used
+ * instead of the one the client sent. The request goes async while the
+ * script waits for a runner, and is answered when the run finishes.
+ */
+public class script extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        ScriptService.Call call;
+        
+        try
+        {
+            String type = CatalogCache.TYPES[CatalogCache.typeIndex(request.getParameter("type"))];
+            int id = Integer.parseInt(request.getParameter("id").trim());
+            CatalogCache.Row row = objectQuery.getCatalog(getServletContext()).get(CatalogCache.typeIndex(type), id);
+            
+            if(!row.exists())
+            {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, type + " " + id);
+                return;
+            }
+            
+            call = new ScriptService.Call(type, id, row.getScript() == null ? "" : row.getScript());
+            call.option = intParam(request, "option", 0);
+            call.x = intParam(request, "x", 0);
+            call.y = intParam(request, "y", 0);
+            call.dir = intParam(request, "dir", 0);
+            
+            String user = request.getParameter("user");
+            if(user != null)
+            {
+                call.player = user;
+                int[] position = position(request.getParameter("map"), user);
+                if(position != null)
+                {
+                    call.x = position[0];
+                    call.y = position[1];
+                    call.dir = position[2];
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        if(request.isAsyncSupported())
+        {
+            answerLater(request, call);
+            return;
+        }
+        
+        String result;
+        try
+        {
+            result = ScriptService.get(getServletContext()).run(call);
+        }
+        catch (RejectedExecutionException e)
+        {
+            busy(response);
+            return;
+        }
+        catch (TimeoutException e)
+        {
+            busy(response);
+            return;
+        }
+        catch (Exception e)
+        {
+            log("Running a script failed.", e);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        write(response, result);
+    }
+    
+    /** Parks the request until its script has run, or answers 503 if it waits too long for a runner. */
+    private void answerLater(HttpServletRequest request, ScriptService.Call call) throws IOException
+    {
+        final ScriptService service = ScriptService.get(getServletContext());
+        final AsyncContext async = request.startAsync();
+        final AtomicBoolean answered = new AtomicBoolean(false);
+        final Future<?>[] run = new Future<?>[1];
+        
+        async.setTimeout(service.getWaitMillis());
+        async.addListener(new AsyncListener()
+        {
+            public void onTimeout(AsyncEvent event) throws IOException
+            {
+                if(!answered.compareAndSet(false, true))
+                    return;
+                
+                synchronized(run)
+                {
+                    service.expire(run[0]);
+                }
+                try
+                {
+                    busy((HttpServletResponse)async.getResponse());
+                }
+                finally { async.complete(); }
+            }
+            public void onError(AsyncEvent event)
+            {
+                answered.set(true);
+                synchronized(run)
+                {
+                    service.expire(run[0]);
+                }
+            }
+            public void onComplete(AsyncEvent event){}
+            public void onStartAsync(AsyncEvent event){}
+        });
+        
+        try
+        {
+            synchronized(run)
+            {
+                run[0] = service.submit(call, new ScriptService.Callback()
+                {
+                    public void done(String result)
+                    {
+                        if(!answered.compareAndSet(false, true))
+                            return;
+                        
+                        try
+                        {
+                            write((HttpServletResponse)async.getResponse(), result);
+                        }
+                        catch (IOException e) { /* client went away */ }
+                        finally { async.complete(); }
+                    }
+                    
+                    public void failed(Exception e)
+                    {
+                        if(!answered.compareAndSet(false, true))
+                            return;
+                        
+                        log("Running a script failed.", e);
+                        try
+                        {
+                            ((HttpServletResponse)async.getResponse()).sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+                        }
+                        catch (IOException ignored) { /* client went away */ }
+                        finally { async.complete(); }
+                    }
+                });
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            if(answered.compareAndSet(false, true))
+            {
+                try
+                {
+                    busy((HttpServletResponse)async.getResponse());
+                }
+                finally { async.complete(); }
+            }
+        }
+    }
+    
+    private static void write(HttpServletResponse response, String result) throws IOException
+    {
+        byte[] data = result.getBytes("UTF-8");
+        response.setContentType("text/html;charset=UTF-8");
+        response.setContentLength(data.length);
+        
+        OutputStream out = response.getOutputStream();
+        out.write(data);
+        out.close();
+    }
+    
+    private static void busy(HttpServletResponse response) throws IOException
+    {
+        response.setHeader("Retry-After", "1");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many scripts running.");
+    }
+    
+    /** Returns a player's position in a running world, without starting one. */
+    private int[] position(String map, String user)
+    {
+        if(map == null)
+            return null;
+        
+        String name = MapStore.baseName(map);
+        World[] worlds = WorldServer.get(getServletContext()).getWorlds();
+        
+        for(int i = 0; i < worlds.length; i++)
+        {
+            if(worlds[i].getName().equals(name))
+            {
+                World.Client client = worlds[i].getClient(user);
+                return client == null ? null : worlds[i].getPosition(client);
+            }
+        }
+        return null;
+    }
+    
+    private static int intParam(HttpServletRequest request, String name, int def)
+    {
+        String value = request.getParameter(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Runs object and NPC scripts in a sandbox.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,273 @@
+/*
+ * ShardClient.java - ShardClient Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.shard;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import cseGame.RequestExecutor;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Histogram;
+import cseGame.metrics.Metrics;
+
+/**
+ * Talks to the other nodes of the world over HTTP: passes on requests for
+ * maps they serve, and hands players over to them. Connections are kept
+ * alive by HttpURLConnection, so a busy pair of nodes reuses a few sockets.
+ * <p>
+ * Passed-on requests wait on their own workers rather than the webapp's
+ * request workers: a long poll for a map served elsewhere holds its worker
+ * for as long as the other node holds it, and enough of them would leave
+ * no worker for anything else.
+ */
+public class ShardClient
+{
+    /** ServletContext attribute the client is kept under. */
+    public static final String CONTEXT_KEY = "cseGame.shard.client";
+    
+    /** Request headers passed on to the owning node. */
+    private static final String[] REQUEST_HEADERS = { "If-None-Match", "If-Modified-Since" };
+    
+    /** Response headers passed back to the client. */
+    private static final String[] RESPONSE_HEADERS = { "Content-Type", "ETag", "Last-Modified", "Cache-Control", "Retry-After" };
+    
+    private static final Histogram HANDOFF_TIME = Metrics.histogram("cseGame_shard_handoff_seconds");
+    
+    /** The metrics of one node, looked up once. */
+    private static final class NodeMetrics
+    {
+        final Histogram forwardTime;
+        final Counter errors;
+        
+        NodeMetrics(String node)
+        {
+            forwardTime = Metrics.histogram("cseGame_shard_forward_seconds", "node", node);
+            errors = Metrics.counter("cseGame_shard_errors_total", "node", node);
+        }
+    }
+    
+    private final ShardMap shards;
+    private final int connectTimeout, readTimeout;
+    private final Map<String, NodeMetrics> metrics = new HashMap<String, NodeMetrics>();
+    private final RequestExecutor forwarders;
+    
+    /**
+     * @param connectTimeout ms to wait for a node to accept a connection
+     * @param readTimeout    ms to wait for its answer; longer than the longest poll
+     * @param forwardThreads requests passed on at once
+     * @param forwardQueue   requests waiting to be passed on before new ones are refused
+     */
+    public ShardClient(ShardMap shards, int connectTimeout, int readTimeout, int forwardThreads, int forwardQueue)
+    {
+        this.shards = shards;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.forwarders = new RequestExecutor("shard", forwardThreads, forwardQueue, connectTimeout + readTimeout + 1000L);
+        
+        for(String node : shards.getNodes())
+            metrics.put(node, new NodeMetrics(node));
+    }
+    
+    /** Returns the client for this webapp, creating it on first use. */
+    public static ShardClient get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            ShardClient client = (ShardClient)context.getAttribute(CONTEXT_KEY);
+            
+            if(client == null)
+            {
+                client = new ShardClient(ShardMap.get(context), param(context, "connectTimeout", 2000),
+                        param(context, "readTimeout", 35000), param(context, "forwardThreads", 128),
+                        param(context, "forwardQueue", 256));
+                context.setAttribute(CONTEXT_KEY, client);
+            }
+            return client;
+        }
+    }
+    
+    /** Stops the webapp's forwarding workers, if it has a client. */
+    public static void close(ServletContext context)
+    {
+        ShardClient client;
+        
+        synchronized(context)
+        {
+            client = (ShardClient)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(client != null)
+            client.forwarders.shutdown();
+    }
+    
+    private static int param(ServletContext context, String name, int def)
+    {
+        String value = context.getInitParameter("cseGame.shard." + name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    /** The workers requests are passed on by, apart from the webapp's request workers. */
+    public RequestExecutor getForwarders(){ return forwarders; }
+    
+    /**
+     * Sends a request on to the node that serves it and copies the answer
+     * back. POSTed parameters are sent on as a form, whether they came in
+     * the query string or the body.
+     */
+    public void forward(String node, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        long start = System.nanoTime();
+        boolean post = "POST".equals(request.getMethod());
+        String path = request.getServletPath() + (request.getPathInfo() == null ? "" : request.getPathInfo());
+        String query = post ? null : request.getQueryString();
+        
+        HttpURLConnection con = open(node, path.substring(1) + (query == null ? "" : "?" + query), request.getMethod());
+        NodeMetrics measured = metrics.get(node);
+        try
+        {
+            for(int i = 0; i < REQUEST_HEADERS.length; i++)
+            {
+                String value = request.getHeader(REQUEST_HEADERS[i]);
+                if(value != null)
+                    con.setRequestProperty(REQUEST_HEADERS[i], value);
+            }
+            
+            if(post)
+                send(con, form(request.getParameterMap()));
+            
+            int status = con.getResponseCode();
+            response.setStatus(status);
+            for(int i = 0; i < RESPONSE_HEADERS.length; i++)
+            {
+                String value = con.getHeaderField(RESPONSE_HEADERS[i]);
+                if(value != null)
+                    response.setHeader(RESPONSE_HEADERS[i], value);
+            }
+            
+            InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+            OutputStream out = response.getOutputStream();
+            if(in != null)
+            {
+                try
+                {
+                    byte[] buffer = new byte[8192];
+                    int n;
+                    while((n = in.read(buffer)) > 0)
+                        out.write(buffer, 0, n);
+                }
+                finally { in.close(); }
+            }
+            out.close();
+        }
+        catch (IOException e)
+        {
+            measured.errors.increment();
+            con.disconnect();
+            throw e;
+        }
+        finally { measured.forwardTime.recordSince(start); }
+    }
+    
+    /**
+     * Asks a node to take over a player at (x, y) on one of its maps.
+     * @param player the player's state from the player store, or null
+     * @return true if the node took the player
+     */
+    public boolean handOff(String node, String map, String id, int x, int y, String player) throws IOException
+    {
+        long start = System.nanoTime();
+        HttpURLConnection con = open(node, "world", "POST");
+        
+        try
+        {
+            StringBuilder form = new StringBuilder("op=handoff&map=").append(encode(map)).append("&id=").append(encode(id));
+            form.append("&x=").append(x).append("&y=").append(y);
+            if(player != null)
+                form.append("&player=").append(encode(player));
+            send(con, form.toString());
+            
+            int status = con.getResponseCode();
+            InputStream in = status >= 400 ? con.getErrorStream() : con.getInputStream();
+            if(in != null)
+                drain(in);
+            return status == HttpServletResponse.SC_OK;
+        }
+        catch (IOException e)
+        {
+            metrics.get(node).errors.increment();
+            con.disconnect();
+            throw e;
+        }
+        finally { HANDOFF_TIME.recordSince(start); }
+    }
+    
+    private HttpURLConnection open(String node, String path, String method) throws IOException
+    {
+        String base = shards.getUrl(node);
+        if(base == null)
+            throw new IOException("Unknown node: " + node);
+        
+        HttpURLConnection con = (HttpURLConnection)new URL(base + path).openConnection();
+        con.setRequestMethod(method);
+        con.setConnectTimeout(connectTimeout);
+        con.setReadTimeout(readTimeout);
+        con.setUseCaches(false);
+        con.setInstanceFollowRedirects(false);
+        con.setRequestProperty(ShardMap.NODE_HEADER, shards.getSelf());
+        con.setRequestProperty(ShardMap.SECRET_HEADER, shards.getSecret());
+        return con;
+    }
+    
+    private static void send(HttpURLConnection con, String form) throws IOException
+    {
+        byte[] body = form.getBytes("UTF-8");
+        con.setDoOutput(true);
+        con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+        con.setFixedLengthStreamingMode(body.length);
+        
+        OutputStream out = con.getOutputStream();
+        out.write(body);
+        out.close();
+    }
+    
+    private static String form(Map<String, String[]> parameters) throws IOException
+    {
+        StringBuilder form = new StringBuilder();
+        for(Map.Entry<String, String[]> parameter : parameters.entrySet())
+        {
+            String[] values = parameter.getValue();
+            for(int i = 0; i < values.length; i++)
+                form.append(form.length() == 0 ? "" : "&").append(encode(parameter.getKey())).append('=').append(encode(values[i]));
+        }
+        return form.toString();
+    }
+    
+    private static String encode(String value) throws UnsupportedEncodingException
+    {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+    
+    /** Reads an answer to the end so the connection can be reused. */
+    private static void drain(InputStream in) throws IOException
+    {
+        try
+        {
+            byte[] buffer = new byte[1024];
+            while(in.read(buffer) > 0){}
+        }
+        finally { in.close(); }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ShardFilter.java - ShardFilter Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.shard;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import cseGame.RequestExecutor;
+import cseGame.map.MapStore;
+
+/**
+ * Sends requests for a map to the node that serves it, see {@link ShardMap}.
+ * The map is the request's map parameter, or name for mapData; requests
+ * without one are served here. A request that carries a node's name has
+ * already been passed on and is never passed on again, so nodes that
+ * disagree about a map answer 421 rather than bouncing it between them.
+ */
+public class ShardFilter implements Filter
+{
+    private static final Logger log = Logger.getLogger(ShardFilter.class.getName());
+    
+    /** Misdirected Request; HttpServletResponse has no name for it. */
+    static final int SC_MISDIRECTED = 421;
+    
+    private ServletContext context;
+    
+    public void init(FilterConfig config)
+    {
+        context = config.getServletContext();
+        
+        // A bad routing table stops the webapp from starting rather than failing requests.
+        ShardMap.get(context);
+    }
+    
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException
+    {
+        ShardMap shards = ShardMap.get(context);
+        String map = request.getParameter("map");
+        if(map == null)
+            map = request.getParameter("name");
+        
+        if(!shards.isEnabled() || map == null || map.trim().length() == 0 || !(request instanceof HttpServletRequest))
+        {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        final String owner = shards.getOwner(MapStore.baseName(map));
+        if(owner.equals(shards.getSelf()))
+        {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        HttpServletRequest http = (HttpServletRequest)request;
+        if(ShardMap.isForwarded(http))
+        {
+            ((HttpServletResponse)response).sendError(SC_MISDIRECTED, "Map " + map + " is not served by node " + shards.getSelf() + ".");
+            return;
+        }
+        
+        // Waiting on the other node, possibly through a long poll, ties up one of the forwarding workers.
+        ShardClient.get(context).getForwarders().dispatch(http, (HttpServletResponse)response, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                try
+                {
+                    ShardClient.get(context).forward(owner, request, response);
+                }
+                catch (IOException e)
+                {
+                    log.log(Level.WARNING, "Node " + owner + " did not answer " + request.getServletPath() + ".", e);
+                    if(!response.isCommitted())
+                        response.sendError(HttpServletResponse.SC_BAD_GATEWAY, "Node " + owner + " is unavailable.");
+                }
+            }
+        });
+    }
+    
+    public void destroy(){}
+}
@@ -0,0 +1,193 @@
+/*
+ * ShardMap.java - ShardMap Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.shard;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Which node serves which map. Every node runs the same webapp; each is
+ * told its own name and the shared routing table through context
+ * parameters, usually as a &lt;Parameter&gt; of its Tomcat context so the
+ * web.xml stays the same everywhere:
+ * <pre>
+ *   cseGame.shard.self     a
+ *   cseGame.shard.nodes    a=http://127.0.0.1:8081/CSEGame/, b=http://127.0.0.1:8082/CSEGame/
+ *   cseGame.shard.maps     map0001=a, map0002=b
+ *   cseGame.shard.default  a
+ *   cseGame.shard.secret   (shared by the nodes)
+ * </pre>
+ * Maps that are not listed belong to the default node, or to this node if
+ * there is none. With no nodes given, sharding is off and every map is
+ * served here; with several, the secret must be set.
+ */
+public class ShardMap
+{
+    private static final Logger log = Logger.getLogger(ShardMap.class.getName());
+    
+    /** ServletContext attribute the map is kept under. */
+    public static final String CONTEXT_KEY = "cseGame.shard.map";
+    
+    /** Request header a node forwards with, naming itself. */
+    public static final String NODE_HEADER = "X-CSEGame-Node";
+    
+    /** Request header a node proves it is one of ours with. */
+    public static final String SECRET_HEADER = "X-CSEGame-Secret";
+    
+    private final String self;
+    private final String fallback;
+    private final String secret;
+    private final Map<String, String> nodes;
+    private final Map<String, String> owners;
+    
+    /**
+     * @param self     this node's name
+     * @param nodes    base URL of every node, by name, ending in '/'
+     * @param owners   owning node of each listed map
+     * @param fallback node of the maps that are not listed
+     * @param secret   shared between the nodes; handoffs without it are refused
+     */
+    public ShardMap(String self, Map<String, String> nodes, Map<String, String> owners, String fallback, String secret)
+    {
+        this.self = self;
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<String, String>(nodes));
+        this.owners = Collections.unmodifiableMap(new HashMap<String, String>(owners));
+        this.fallback = fallback;
+        this.secret = secret;
+        
+        if(!this.nodes.isEmpty() && !this.nodes.containsKey(self))
+            throw new IllegalArgumentException("This node, " + self + ", is not in cseGame.shard.nodes.");
+        
+        if(this.nodes.size() > 1 && (secret == null || secret.length() == 0))
+            throw new IllegalArgumentException("cseGame.shard.secret must be set when several nodes share the world.");
+        
+        for(Map.Entry<String, String> owner : this.owners.entrySet())
+        {
+            if(!this.nodes.containsKey(owner.getValue()))
+                throw new IllegalArgumentException("Map " + owner.getKey() + " belongs to unknown node " + owner.getValue() + ".");
+        }
+    }
+    
+    /** Returns the routing table of this webapp, reading it on first use. */
+    public static ShardMap get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            ShardMap map = (ShardMap)context.getAttribute(CONTEXT_KEY);
+            
+            if(map == null)
+            {
+                String self = param(context, "self", "local");
+                Map<String, String> nodes = parseList(param(context, "nodes", ""));
+                for(Map.Entry<String, String> node : nodes.entrySet())
+                {
+                    if(!node.getValue().endsWith("/"))
+                        node.setValue(node.getValue() + "/");
+                }
+                
+                map = new ShardMap(self, nodes, parseList(param(context, "maps", "")),
+                        param(context, "default", self), param(context, "secret", ""));
+                context.setAttribute(CONTEXT_KEY, map);
+                
+                if(map.isEnabled())
+                    log.info("Node " + self + " of " + nodes.keySet() + ", serving " + map.getOwnedMaps() +
+                            (map.fallback.equals(self) ? " and every unlisted map." : "."));
+            }
+            return map;
+        }
+    }
+    
+    private static String param(ServletContext context, String name, String def)
+    {
+        String value = context.getInitParameter("cseGame.shard." + name);
+        return value == null ? def : value.trim();
+    }
+    
+    /** Parses <code>key=value, key=value</code>, keeping the order. */
+    static Map<String, String> parseList(String list)
+    {
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        String[] items = list.split(",");
+        
+        for(int i = 0; i < items.length; i++)
+        {
+            int eq = items[i].indexOf('=');
+            if(eq > 0)
+                entries.put(items[i].substring(0, eq).trim(), items[i].substring(eq + 1).trim());
+            else if(items[i].trim().length() > 0)
+                throw new IllegalArgumentException("Expected name=value: " + items[i]);
+        }
+        return entries;
+    }
+    
+    /** True when more than one node shares the world. */
+    public boolean isEnabled(){ return nodes.size() > 1; }
+    
+    public String getSelf(){ return self; }
+    
+    /** Returns the node that serves a map. */
+    public String getOwner(String map)
+    {
+        if(!isEnabled())
+            return self;
+        
+        String owner = owners.get(map);
+        return owner == null ? fallback : owner;
+    }
+    
+    /** True if this node serves the map. */
+    public boolean isLocal(String map)
+    {
+        return self.equals(getOwner(map));
+    }
+    
+    /** Base URL of a node, ending in '/'. */
+    public String getUrl(String node)
+    {
+        return nodes.get(node);
+    }
+    
+    public String getSecret(){ return secret; }
+    
+    /** Names of all the nodes, this one included. */
+    public Set<String> getNodes(){ return nodes.keySet(); }
+    
+    /**
+     * True if a request says it was passed on by a node. Nobody needs to
+     * prove this to be refused rather than passed on again.
+     */
+    public static boolean isForwarded(HttpServletRequest request)
+    {
+        return request.getHeader(NODE_HEADER) != null;
+    }
+    
+    /** True if a request was sent by another node of this world. */
+    public boolean isFromNode(HttpServletRequest request)
+    {
+        String node = request.getHeader(NODE_HEADER);
+        return node != null && nodes.containsKey(node) && secret.length() > 0 && secret.equals(request.getHeader(SECRET_HEADER));
+    }
+    
+    /** Maps listed for this node. */
+    public String getOwnedMaps()
+    {
+        StringBuilder out = new StringBuilder("[");
+        for(Map.Entry<String, String> owner : owners.entrySet())
+        {
+            if(owner.getValue().equals(self))
+                out.append(out.length() == 1 ? "" : ", ").append(owner.getKey());
+        }
+        return out.append(']').toString();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * EntityTable.java - EntityTable Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.util.Arrays;
+
+/**
+ * The live entities of one world, stored as parallel primitive arrays
+ * indexed by slot. Only the world's tick thread touches a table; readers
+ * see the copies published in each {@link Frame}.
+ * <p>
+ * Each entity also has a small ring of queued movement steps, filled from
+ * client input and consumed one step at a time by the tick.
+ */
+final class EntityTable
+{
+    /** Steps a player may have queued. */
+    static final int STEP_QUEUE = 16;
+    
+    /** Directions, as steps on the tile grid: north, east, south, west. */
+    static final int[] DX = { 0, 1, 0, -1 }, DY = { -1, 0, 1, 0 };
+    
+    int size = 0;
+    
+    int[] netId, kind, x, y, dir, changedAt, lastSeq, queuedSeq, nextStepAt;
+    String[] name;
+    
+    byte[] steps;
+    int[] stepHead, stepCount;
+    
+    private int[] free;
+    private int freeCount = 0;
+    
+    EntityTable(int capacity)
+    {
+        netId = new int[capacity];
+        kind = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        dir = new int[capacity];
+        changedAt = new int[capacity];
+        lastSeq = new int[capacity];
+        queuedSeq = new int[capacity];
+        nextStepAt = new int[capacity];
+        name = new String[capacity];
+        steps = new byte[capacity * STEP_QUEUE];
+        stepHead = new int[capacity];
+        stepCount = new int[capacity];
+        free = new int[capacity];
+    }
+    
+    int capacity(){ return netId.length; }
+    
+    boolean isAlive(int slot){ return netId[slot] != 0; }
+    
+    /** Adds an entity and returns its slot, growing the arrays if needed. */
+    int spawn(int id, int entityKind, String entityName, int px, int py, int tick)
+    {
+        int slot;
+        
+        if(freeCount > 0)
+            slot = free[--freeCount];
+        else
+        {
+            if(size == netId.length)
+                grow(netId.length * 2);
+            slot = size++;
+        }
+        
+        netId[slot] = id;
+        kind[slot] = entityKind;
+        name[slot] = entityName;
+        x[slot] = px;
+        y[slot] = py;
+        dir[slot] = 2;
+        changedAt[slot] = tick;
+        lastSeq[slot] = 0;
+        queuedSeq[slot] = 0;
+        nextStepAt[slot] = tick;
+        stepHead[slot] = 0;
+        stepCount[slot] = 0;
+        return slot;
+    }
+    
+    void despawn(int slot)
+    {
+        netId[slot] = 0;
+        name[slot] = null;
+        stepCount[slot] = 0;
+        free[freeCount++] = slot;
+    }
+    
+    /**
+     * Queues steps (0-3, see DX/DY) for a slot; seq numbers the last of
+     * them. Steps that do not fit are dropped and left unacknowledged, so
+     * the seq reported back stops at the last step actually queued.
+     */
+    void queueSteps(int slot, byte[] input, int seq)
+    {
+        int base = slot * STEP_QUEUE;
+        int accepted = 0;
+        
+        for(; accepted < input.length && stepCount[slot] < STEP_QUEUE; accepted++)
+        {
+            steps[base + (stepHead[slot] + stepCount[slot]) % STEP_QUEUE] = input[accepted];
+            stepCount[slot]++;
+        }
+        
+        if(accepted == 0)
+            return;
+        
+        queuedSeq[slot] = seq - (input.length - accepted);
+        lastSeq[slot] = queuedSeq[slot] - stepCount[slot];
+    }
+    
+    /** Removes and returns the next queued step of a slot, or -1. */
+    int nextStep(int slot)
+    {
+        if(stepCount[slot] == 0)
+            return -1;
+        
+        int step = steps[slot * STEP_QUEUE + stepHead[slot]];
+        stepHead[slot] = (stepHead[slot] + 1) % STEP_QUEUE;
+        stepCount[slot]--;
+        lastSeq[slot] = queuedSeq[slot] - stepCount[slot];
+        return step;
+    }
+    
+    private void grow(int capacity)
+    {
+        netId = Arrays.copyOf(netId, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        dir = Arrays.copyOf(dir, capacity);
+        changedAt = Arrays.copyOf(changedAt, capacity);
+        lastSeq = Arrays.copyOf(lastSeq, capacity);
+        queuedSeq = Arrays.copyOf(queuedSeq, capacity);
+        nextStepAt = Arrays.copyOf(nextStepAt, capacity);
+        name = Arrays.copyOf(name, capacity);
+        steps = Arrays.copyOf(steps, capacity * STEP_QUEUE);
+        stepHead = Arrays.copyOf(stepHead, capacity);
+        stepCount = Arrays.copyOf(stepCount, capacity);
+        free = Arrays.copyOf(free, capacity);
+    }
+}
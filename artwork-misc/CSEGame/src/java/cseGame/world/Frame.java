@@ -0,0 +1,99 @@
+/*
+ * Frame.java - Frame Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+/**
+ * The state of a world at the end of one tick: a copy of the entity table's
+ * public columns plus a uniform grid over them for area of interest
+ * queries. Frames are never changed once published, so any number of
+ * request threads can read one while the next tick runs.
+ */
+final class Frame
+{
+    final int tick;
+    final int size;
+    final int[] netId, kind, x, y, dir, changedAt, lastSeq;
+    final String[] name;
+    
+    private final int cellSize, cellsAcross, cellsDown;
+    
+    /** First slot in each cell, and the next slot in the same cell; -1 ends a chain. */
+    private final int[] head, next;
+    
+    Frame(int tick, EntityTable table, int width, int height, int cellSize)
+    {
+        this.tick = tick;
+        this.size = table.size;
+        this.netId = copy(table.netId, size);
+        this.kind = copy(table.kind, size);
+        this.x = copy(table.x, size);
+        this.y = copy(table.y, size);
+        this.dir = copy(table.dir, size);
+        this.changedAt = copy(table.changedAt, size);
+        this.lastSeq = copy(table.lastSeq, size);
+        this.name = new String[size];
+        System.arraycopy(table.name, 0, name, 0, size);
+        
+        this.cellSize = cellSize;
+        this.cellsAcross = Math.max(1, (width + cellSize - 1) / cellSize);
+        this.cellsDown = Math.max(1, (height + cellSize - 1) / cellSize);
+        this.head = new int[cellsAcross * cellsDown];
+        this.next = new int[size];
+        
+        java.util.Arrays.fill(head, -1);
+        for(int slot = 0; slot < size; slot++)
+        {
+            if(netId[slot] == 0)
+                continue;
+            
+            int cell = cellOf(x[slot], y[slot]);
+            next[slot] = head[cell];
+            head[cell] = slot;
+        }
+    }
+    
+    private static int[] copy(int[] source, int length)
+    {
+        int[] copy = new int[length];
+        System.arraycopy(source, 0, copy, 0, length);
+        return copy;
+    }
+    
+    private int cellOf(int px, int py)
+    {
+        int cx = Math.min(cellsAcross - 1, Math.max(0, px / cellSize));
+        int cy = Math.min(cellsDown - 1, Math.max(0, py / cellSize));
+        return cy * cellsAcross + cx;
+    }
+    
+    /**
+     * Collects the entities within radius tiles (on both axes) of a point
+     * as netId &lt;&lt; 32 | slot, sorted by netId.
+     * @return the number of entries written, at most limit
+     */
+    int near(int px, int py, int radius, long[] out, int limit)
+    {
+        int cx0 = Math.max(0, (px - radius) / cellSize), cx1 = Math.min(cellsAcross - 1, Math.max(0, (px + radius) / cellSize));
+        int cy0 = Math.max(0, (py - radius) / cellSize), cy1 = Math.min(cellsDown - 1, Math.max(0, (py + radius) / cellSize));
+        int count = 0;
+        
+        for(int cy = cy0; cy <= cy1; cy++)
+        {
+            for(int cx = cx0; cx <= cx1; cx++)
+            {
+                for(int slot = head[cy * cellsAcross + cx]; slot != -1 && count < limit; slot = next[slot])
+                {
+                    if(Math.abs(x[slot] - px) <= radius && Math.abs(y[slot] - py) <= radius)
+                        out[count++] = ((long)netId[slot] << 32) | slot;
+                }
+            }
+        }
+        
+        java.util.Arrays.sort(out, 0, count);
+        return count;
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * MapState.java - MapState Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import cseGame.map.CompiledMap;
+import cseGame.map.MapStore;
+
+/**
+ * The changeable objects of one map: the map's own objects, seeded from
+ * its compiled form, plus items and NPCs added while it runs. Every change
+ * bumps the version and is appended to a ring of recent changes, so a
+ * client that knows version V is brought up to date with just the changes
+ * after V. Every so many changes a snapshot is taken of each object that
+ * differs from the map as loaded; a client too far behind for the ring
+ * gets that snapshot and the changes since.
+ * <p>
+ * Objects keep their index for the life of the state, and hidden objects
+ * are kept, so an index always means the same object. If the map itself is
+ * reloaded the state starts over under a new epoch.
+ */
+public class MapState
+{
+    private static final Logger log = Logger.getLogger(MapState.class.getName());
+    
+    /** ServletContext attribute the states of all maps are kept under. */
+    public static final String CONTEXT_KEY = "cseGame.mapStates";
+    
+    /** Object kinds. */
+    public static final int OBJECT = 0, ITEM = 1, NPC = 2;
+    
+    /** Change types, and the letter each is sent as. */
+    public static final int ADD = 0, MOVE = 1, HIDE = 2, SHOW = 3, STATE = 4;
+    private static final char[] OPS = { 'a', 'm', 'h', 's', 't' };
+    
+    private final String name;
+    private final CompiledMap map;
+    private final long epoch;
+    private final int seeded;
+    
+    /** Objects, as parallel arrays by index. */
+    private int count;
+    private int[] kind, objId, sprite, layer, x, y, state;
+    private boolean[] hidden, changed;
+    
+    /** Changes, in a ring by version: the change to version v is at v % ring.length. */
+    private final byte[] ringOp;
+    private final int[] ringObject, ringA, ringB;
+    private long version = 0;
+    
+    private final int snapshotEvery;
+    private volatile Snapshot snapshot;
+    
+    private final Set<Runnable> waiters = Collections.newSetFromMap(new ConcurrentHashMap<Runnable, Boolean>());
+    
+    /** The objects that differed from the map at one version. */
+    public static final class Snapshot
+    {
+        public final long version;
+        /** [[index, kind, objid, sprite, layer, x, y, hidden, state], ...] */
+        public final String json;
+        
+        Snapshot(long version, String json)
+        {
+            this.version = version;
+            this.json = json;
+        }
+    }
+    
+    /**
+     * @param ringSize changes remembered
+     * @param snapshotEvery changes between snapshots; at most half the ring
+     */
+    public MapState(CompiledMap map, int ringSize, int snapshotEvery)
+    {
+        this.name = map.getName();
+        this.map = map;
+        this.epoch = System.currentTimeMillis();
+        this.seeded = map.getObjectCount();
+        this.snapshotEvery = Math.max(1, Math.min(snapshotEvery, ringSize / 2));
+        
+        int capacity = Math.max(16, seeded + seeded / 4);
+        kind = new int[capacity];
+        objId = new int[capacity];
+        sprite = new int[capacity];
+        layer = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        state = new int[capacity];
+        hidden = new boolean[capacity];
+        changed = new boolean[capacity];
+        
+        for(int i = 0; i < seeded; i++)
+        {
+            kind[i] = OBJECT;
+            objId[i] = map.getObjId(i);
+            sprite[i] = map.getObjSprite(i);
+            layer[i] = map.getObjLayer(i);
+            x[i] = map.getObjX(i);
+            y[i] = map.getObjY(i);
+        }
+        count = seeded;
+        
+        ringOp = new byte[Math.max(2, ringSize)];
+        ringObject = new int[ringOp.length];
+        ringA = new int[ringOp.length];
+        ringB = new int[ringOp.length];
+        
+        snapshot = new Snapshot(0, "[]");
+    }
+    
+    /**
+     * Returns the state of a map for this webapp, creating it on first use.
+     * A state whose map has since been reloaded is replaced by a new one.
+     */
+    @SuppressWarnings("unchecked")
+    public static MapState forMap(ServletContext context, String name) throws Exception
+    {
+        ConcurrentMap<String, MapState> states;
+        
+        synchronized(context)
+        {
+            states = (ConcurrentMap<String, MapState>)context.getAttribute(CONTEXT_KEY);
+            if(states == null)
+            {
+                states = new ConcurrentHashMap<String, MapState>();
+                context.setAttribute(CONTEXT_KEY, states);
+            }
+        }
+        
+        CompiledMap map = MapStore.get(context).get(name);
+        MapState state = states.get(name);
+        
+        if(state == null || state.map != map)
+        {
+            synchronized(states)
+            {
+                state = states.get(name);
+                if(state == null || state.map != map)
+                {
+                    if(state != null)
+                        log.info("Map " + name + " was reloaded; its state starts over at version 0.");
+                    
+                    String ring = context.getInitParameter("cseGame.state.ringSize");
+                    String every = context.getInitParameter("cseGame.state.snapshotEvery");
+                    MapState created = new MapState(map,
+                            ring == null ? 4096 : Integer.parseInt(ring.trim()),
+                            every == null ? 1024 : Integer.parseInt(every.trim()));
+                    
+                    if(state != null)
+                        state.wakeWaiters();
+                    states.put(name, created);
+                    state = created;
+                }
+            }
+        }
+        return state;
+    }
+    
+    public String getName(){ return name; }
+    
+    /** Identifies this run of the state; a client holding versions of another epoch must start over. */
+    public long getEpoch(){ return epoch; }
+    
+    public synchronized long getVersion(){ return version; }
+    
+    public synchronized int size(){ return count; }
+    
+    /**
+     * Adds an item or NPC.
+     * @return its index
+     */
+    public synchronized int add(int kind, int objId, int sprite, int layer, int x, int y)
+    {
+        if(count == this.kind.length)
+            grow();
+        
+        int i = count++;
+        this.kind[i] = kind;
+        this.objId[i] = objId;
+        this.sprite[i] = sprite;
+        this.layer[i] = layer;
+        this.x[i] = x;
+        this.y[i] = y;
+        
+        commit(ADD, i, x, y);
+        return i;
+    }
+    
+    /** Moves an object to a tile. */
+    public synchronized void move(int object, int x, int y)
+    {
+        check(object);
+        if(this.x[object] == x && this.y[object] == y)
+            return;
+        
+        this.x[object] = x;
+        this.y[object] = y;
+        commit(MOVE, object, x, y);
+    }
+    
+    /** Hides an object, e.g. an item that was picked up, or shows it again. */
+    public synchronized void setHidden(int object, boolean hide)
+    {
+        check(object);
+        if(hidden[object] == hide)
+            return;
+        
+        hidden[object] = hide;
+        commit(hide ? HIDE : SHOW, object, 0, 0);
+    }
+    
+    /** Sets an object's state, e.g. 1 for an open door. */
+    public synchronized void setState(int object, int value)
+    {
+        check(object);
+        if(state[object] == value)
+            return;
+        
+        state[object] = value;
+        commit(STATE, object, value, 0);
+    }
+    
+    private void check(int object)
+    {
+        if(object < 0 || object >= count)
+            throw new IllegalArgumentException("No object " + object + " on map " + name + ".");
+    }
+    
+    private void grow()
+    {
+        int capacity = kind.length * 2;
+        kind = Arrays.copyOf(kind, capacity);
+        objId = Arrays.copyOf(objId, capacity);
+        sprite = Arrays.copyOf(sprite, capacity);
+        layer = Arrays.copyOf(layer, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        state = Arrays.copyOf(state, capacity);
+        hidden = Arrays.copyOf(hidden, capacity);
+        changed = Arrays.copyOf(changed, capacity);
+    }
+    
+    /** Appends a change, takes a snapshot when one is due, and wakes waiting clients. Holds the lock. */
+    private void commit(int op, int object, int a, int b)
+    {
+        version++;
+        int slot = (int)(version % ringOp.length);
+        ringOp[slot] = (byte)op;
+        ringObject[slot] = object;
+        ringA[slot] = a;
+        ringB[slot] = b;
+        changed[object] = true;
+        
+        if(version % snapshotEvery == 0)
+            snapshot = takeSnapshot();
+        
+        wakeWaiters();
+    }
+    
+    private Snapshot takeSnapshot()
+    {
+        StringBuilder out = new StringBuilder(256);
+        out.append('[');
+        
+        boolean first = true;
+        for(int i = 0; i < count; i++)
+        {
+            if(!changed[i])
+                continue;
+            
+            out.append(first ? "[" : ", [").append(i).append(", ").append(kind[i]).append(", ").append(objId[i]);
+            out.append(", ").append(sprite[i]).append(", ").append(layer[i]).append(", ").append(x[i]);
+            out.append(", ").append(y[i]).append(", ").append(hidden[i] ? 1 : 0).append(", ").append(state[i]).append(']');
+            first = false;
+        }
+        return new Snapshot(version, out.append(']').toString());
+    }
+    
+    /**
+     * Runs a task once, after the next change (or when the state is
+     * replaced), unless it is cancelled first.
+     */
+    public void afterNextChange(Runnable task)
+    {
+        waiters.add(task);
+    }
+    
+    /** Forgets a task that no longer needs to wait, e.g. a poll that timed out. */
+    public void cancel(Runnable task)
+    {
+        waiters.remove(task);
+    }
+    
+    int getWaiterCount(){ return waiters.size(); }
+    
+    private void wakeWaiters()
+    {
+        for(Iterator<Runnable> i = waiters.iterator(); i.hasNext();)
+        {
+            Runnable waiter = i.next();
+            if(waiters.remove(waiter))
+                waiter.run();
+        }
+    }
+    
+    /**
+     * Appends what a client at version <code>since</code> needs:
+     * <pre>
+     *   {'map': M, 'epoch': E, 'version': V, 'changes': [[v, 'm', index, x, y], ...]}
+     * </pre>
+     * or, if it is from another epoch or the ring no longer reaches back to
+     * its version, the same with <code>'snapshot': {'version': S, 'objects': [...]}</code>
+     * and the changes after S. Changes are <code>[v, 'a', index, x, y, kind, objid, sprite, layer]</code>,
+     * <code>[v, 'm', index, x, y]</code>, <code>[v, 'h', index]</code>, <code>[v, 's', index]</code>
+     * and <code>[v, 't', index, state]</code>; objects are listed in the
+     * order of {@link Snapshot#json}.
+     */
+    public synchronized void appendChanges(long since, long epoch, StringBuilder out)
+    {
+        long oldest = Math.max(1, version - ringOp.length + 1);
+        long from = since + 1;
+        Snapshot base = null;
+        
+        if(epoch != this.epoch || since > version || from < oldest)
+        {
+            base = snapshot;
+            from = base.version + 1;
+        }
+        
+        out.append("{'map': '").append(name).append("', 'epoch': ").append(this.epoch);
+        out.append(", 'version': ").append(version);
+        
+        if(base != null)
+            out.append(", 'snapshot': {'version': ").append(base.version).append(", 'objects': ").append(base.json).append('}');
+        
+        out.append(", 'changes': [");
+        for(long v = from; v <= version; v++)
+        {
+            int slot = (int)(v % ringOp.length);
+            int op = ringOp[slot], object = ringObject[slot];
+            
+            out.append(v == from ? "[" : ", [").append(v).append(", '").append(OPS[op]).append("', ").append(object);
+            if(op == ADD || op == MOVE)
+                out.append(", ").append(ringA[slot]).append(", ").append(ringB[slot]);
+            if(op == ADD)
+            {
+                out.append(", ").append(kind[object]).append(", ").append(objId[object]);
+                out.append(", ").append(sprite[object]).append(", ").append(layer[object]);
+            }
+            else if(op == STATE)
+                out.append(", ").append(ringA[slot]);
+            out.append(']');
+        }
+        out.append("]}");
+    }
+}
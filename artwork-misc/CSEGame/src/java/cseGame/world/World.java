@@ -0,0 +1,494 @@
+/*
+ * World.java - World Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import cseGame.map.MapData;
+import cseGame.map.MapStore;
+import cseGame.map.PathFinder;
+import cseGame.map.SpatialIndex;
+
+/**
+ * The authoritative state of the players on one map, advanced by a fixed
+ * rate tick. Joins, leaves and movement input are queued by request
+ * threads and applied at the start of the next tick; the tick then moves
+ * each player at most one tile, refusing blocked tiles, and publishes a
+ * {@link Frame}.
+ * <p>
+ * A client is sent only the entities within its area of interest, as a
+ * delta against the last snapshot it acknowledged: entities that are new to
+ * it in full, entities that changed since then by position, and the ids of
+ * those that left. A client that acknowledges nothing, or a snapshot too
+ * old to be remembered, gets everything in range.
+ * <p>
+ * A player who steps off an edge that has a neighbouring map leaves this
+ * world and is handed to the neighbour's by the {@link WorldServer}, which
+ * may be on another node. The world remembers where it went for a while,
+ * so the player's next sync here can be told.
+ */
+public class World
+{
+    private static final Logger log = Logger.getLogger(World.class.getName());
+    
+    /** Snapshots remembered per client to diff against. */
+    static final int HISTORY = 32;
+    
+    private static final int JOIN = 0, LEAVE = 1, INPUT = 2;
+    
+    /** The map edge each step (N, E, S, W) walks off. */
+    private static final int[] EDGE = { MapData.TOP, MapData.RIGHT, MapData.BOTTOM, MapData.LEFT };
+    
+    /** A queued change, applied on the tick thread. */
+    private static final class Command
+    {
+        final int type;
+        final Client client;
+        final int x, y, seq;
+        final byte[] steps;
+        
+        Command(int type, Client client, int x, int y, byte[] steps, int seq)
+        {
+            this.type = type;
+            this.client = client;
+            this.x = x;
+            this.y = y;
+            this.steps = steps;
+            this.seq = seq;
+        }
+    }
+    
+    /** A connected player and the snapshots it has been sent. */
+    public static final class Client
+    {
+        public final String id;
+        public final int netId;
+        
+        /** Slot in the entity table; -1 until the join is applied. Written by the tick thread. */
+        volatile int slot = -1;
+        volatile long lastSeen = System.currentTimeMillis();
+        
+        private final int[] historyTick = new int[HISTORY];
+        private final long[][] history = new long[HISTORY][];
+        private final int[] historySize = new int[HISTORY];
+        private int historyNext = 0;
+        
+        Client(String id, int netId)
+        {
+            this.id = id;
+            this.netId = netId;
+            java.util.Arrays.fill(historyTick, -1);
+        }
+    }
+    
+    /** Where a player who walked off the map went. */
+    private static final class Departure
+    {
+        final String map;
+        final long at = System.currentTimeMillis();
+        
+        Departure(String map){ this.map = map; }
+    }
+    
+    private final String name;
+    private final WorldServer server;
+    /** Neighbouring maps by edge, as in MapData; null where there is none. */
+    private final String[] neighbours = new String[4];
+    private final PathFinder passability;
+    private final SpatialIndex spatial;
+    private final int width, height;
+    
+    private final long tickMillis;
+    private final int stepTicks, radius, maxPlayers, maxVisible;
+    private final long idleTimeout;
+    
+    private final EntityTable table = new EntityTable(256);
+    private final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<Command>();
+    private final ConcurrentMap<String, Client> clients = new ConcurrentHashMap<String, Client>();
+    private final ConcurrentMap<String, Departure> departures = new ConcurrentHashMap<String, Departure>();
+    private final ConcurrentLinkedQueue<Runnable> tickWaiters = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicInteger nextNetId;
+    
+    private volatile Frame frame;
+    private int tick = 0;
+    private long nextIdleCheck = 0;
+    
+    private ScheduledFuture<?> ticker;
+    
+    private final AtomicLong ticks = new AtomicLong(), overruns = new AtomicLong(), tickNanos = new AtomicLong();
+    
+    World(String name, WorldServer server, PathFinder passability, SpatialIndex spatial, WorldServer.Settings settings, AtomicInteger netIds)
+    {
+        this.name = name;
+        this.server = server;
+        this.passability = passability;
+        this.spatial = spatial;
+        this.width = spatial.getMap().getWidth();
+        this.height = spatial.getMap().getHeight();
+        this.tickMillis = settings.tickMillis;
+        this.stepTicks = settings.stepTicks;
+        this.radius = settings.radius;
+        this.maxPlayers = settings.maxPlayers;
+        this.maxVisible = settings.maxVisible;
+        this.idleTimeout = settings.idleTimeout;
+        this.nextNetId = netIds;
+        this.frame = new Frame(0, table, width, height, Math.max(1, radius));
+        
+        for(int edge = 0; edge < neighbours.length; edge++)
+        {
+            String link = spatial.getMap().getNeighbour(edge);
+            neighbours[edge] = link == null ? null : MapStore.baseName(link);
+        }
+    }
+    
+    void start(ScheduledExecutorService scheduler)
+    {
+        ticker = scheduler.scheduleAtFixedRate(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    tick();
+                }
+                catch (Throwable t){ log.log(Level.SEVERE, "Tick of world " + name + " failed.", t); }
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    void stop()
+    {
+        if(ticker != null)
+            ticker.cancel(false);
+        
+        Runnable waiter;
+        while((waiter = tickWaiters.poll()) != null)
+            waiter.run();
+    }
+    
+    public String getName(){ return name; }
+    
+    /**
+     * Returns the client for a player, queuing a join at (x, y) if it is
+     * new. Returns null when the world is full.
+     */
+    public Client join(String id, int x, int y)
+    {
+        Client client = clients.get(id);
+        if(client != null)
+            return client;
+        
+        if(clients.size() >= maxPlayers)
+            return null;
+        
+        Client created = new Client(id, nextNetId.incrementAndGet());
+        client = clients.putIfAbsent(id, created);
+        
+        if(client == null)
+        {
+            client = created;
+            departures.remove(id);
+            commands.add(new Command(JOIN, client, x, y, null, 0));
+        }
+        return client;
+    }
+    
+    /** Returns the map a player who is no longer here walked off to, or null. */
+    public String getDeparture(String id)
+    {
+        Departure departure = departures.get(id);
+        return departure == null ? null : departure.map;
+    }
+    
+    public Client getClient(String id)
+    {
+        Client client = clients.get(id);
+        if(client != null)
+            client.lastSeen = System.currentTimeMillis();
+        return client;
+    }
+    
+    public void leave(Client client)
+    {
+        if(clients.remove(client.id, client))
+            commands.add(new Command(LEAVE, client, 0, 0, null, 0));
+    }
+    
+    /**
+     * Queues movement steps, each 0-3 for north, east, south and west.
+     * @param seq the client's sequence number of the last step
+     */
+    public void input(Client client, byte[] steps, int seq)
+    {
+        commands.add(new Command(INPUT, client, 0, 0, steps, seq));
+    }
+    
+    /** Runs a task once, after the next tick has been published. */
+    public void afterNextTick(Runnable task)
+    {
+        tickWaiters.add(task);
+    }
+    
+    /** Returns where the latest frame has a client as {x, y, dir}, or null before its join is applied. */
+    public int[] getPosition(Client client)
+    {
+        Frame f = frame;
+        int slot = client.slot;
+        
+        if(slot < 0 || slot >= f.size || f.netId[slot] != client.netId)
+            return null;
+        return new int[]{ f.x[slot], f.y[slot], f.dir[slot] };
+    }
+    
+    /** Tick number of the latest published frame. */
+    public int getTick(){ return frame.tick; }
+    
+    public int getPlayerCount(){ return clients.size(); }
+    
+    public long getTicks(){ return ticks.get(); }
+    
+    /** Ticks that took longer than the tick period. */
+    public long getOverruns(){ return overruns.get(); }
+    
+    /** Mean tick duration in microseconds. */
+    public long getMeanTickMicros()
+    {
+        long n = ticks.get();
+        return n == 0 ? 0 : tickNanos.get() / n / 1000;
+    }
+    
+    private void tick()
+    {
+        long start = System.nanoTime();
+        tick++;
+        
+        // Only what was queued before the tick started; later input waits a tick.
+        for(int n = commands.size(); n > 0; n--)
+        {
+            Command command = commands.poll();
+            if(command == null)
+                break;
+            apply(command);
+        }
+        
+        for(int slot = 0; slot < table.size; slot++)
+        {
+            if(!table.isAlive(slot) || table.stepCount[slot] == 0 || table.nextStepAt[slot] > tick)
+                continue;
+            
+            int step = table.nextStep(slot);
+            int nx = table.x[slot] + EntityTable.DX[step], ny = table.y[slot] + EntityTable.DY[step];
+            
+            table.dir[slot] = step;
+            if(passability.isPassable(nx, ny))
+            {
+                table.x[slot] = nx;
+                table.y[slot] = ny;
+                spatial.move(table.name[slot], SpatialIndex.PLAYER, nx, ny);
+            }
+            else if((nx < 0 || ny < 0 || nx >= width || ny >= height) && depart(slot, EDGE[step]))
+                continue;
+            table.changedAt[slot] = tick;
+            table.nextStepAt[slot] = tick + stepTicks;
+        }
+        
+        long now = System.currentTimeMillis();
+        if(now >= nextIdleCheck)
+        {
+            nextIdleCheck = now + 1000;
+            dropIdle(now);
+        }
+        
+        frame = new Frame(tick, table, width, height, Math.max(1, radius));
+        
+        Runnable waiter;
+        while((waiter = tickWaiters.poll()) != null)
+            waiter.run();
+        
+        long took = System.nanoTime() - start;
+        ticks.incrementAndGet();
+        tickNanos.addAndGet(took);
+        if(took > tickMillis * 1000000L)
+            overruns.incrementAndGet();
+    }
+    
+    private void apply(Command command)
+    {
+        Client client = command.client;
+        
+        if(command.type == JOIN)
+        {
+            int[] spawn = findOpen(command.x, command.y);
+            client.slot = table.spawn(client.netId, SpatialIndex.PLAYER, client.id, spawn[0], spawn[1], tick);
+            spatial.move(client.id, SpatialIndex.PLAYER, spawn[0], spawn[1]);
+        }
+        else if(client.slot < 0)
+            return;
+        else if(command.type == LEAVE)
+        {
+            table.despawn(client.slot);
+            spatial.remove(client.id);
+            client.slot = -1;
+        }
+        else if(command.type == INPUT)
+            table.queueSteps(client.slot, command.steps, command.seq);
+    }
+    
+    /**
+     * Takes a player off this map through an edge and hands it to the
+     * neighbouring world. Runs on the tick thread.
+     */
+    private boolean depart(int slot, int edge)
+    {
+        Client client = clients.get(table.name[slot]);
+        if(neighbours[edge] == null || server == null || client == null || client.slot != slot || !clients.remove(client.id, client))
+            return false;
+        
+        int x = table.x[slot], y = table.y[slot];
+        departures.put(client.id, new Departure(neighbours[edge]));
+        apply(new Command(LEAVE, client, 0, 0, null, 0));
+        server.handOff(this, client.id, neighbours[edge], edge, x, y);
+        return true;
+    }
+    
+    private void dropIdle(long now)
+    {
+        for(Iterator<Departure> it = departures.values().iterator(); it.hasNext();)
+        {
+            if(now - it.next().at > idleTimeout)
+                it.remove();
+        }
+        
+        for(Iterator<Client> it = clients.values().iterator(); it.hasNext();)
+        {
+            Client client = it.next();
+            if(now - client.lastSeen > idleTimeout)
+            {
+                it.remove();
+                apply(new Command(LEAVE, client, 0, 0, null, 0));
+            }
+        }
+    }
+    
+    /** Returns the passable tile nearest to (x, y), searching outwards in rings. */
+    private int[] findOpen(int x, int y)
+    {
+        x = Math.min(width - 1, Math.max(0, x));
+        y = Math.min(height - 1, Math.max(0, y));
+        
+        for(int r = 0; r < Math.max(width, height); r++)
+        {
+            for(int dy = -r; dy <= r; dy++)
+            {
+                for(int dx = -r; dx <= r; dx++)
+                {
+                    if((Math.abs(dx) == r || Math.abs(dy) == r) && passability.isPassable(x + dx, y + dy))
+                        return new int[]{ x + dx, y + dy };
+                }
+            }
+        }
+        return new int[]{ x, y };
+    }
+    
+    /**
+     * Appends the client's delta against snapshot ack to out, and remembers
+     * what was sent as a snapshot it can acknowledge next time:
+     * <pre>
+     *   {'tick': T, 'base': B, 'you': netId, 'seq': last applied input,
+     *    'add': [[netId, kind, x, y, dir, 'name'], ...],
+     *    'move': [[netId, x, y, dir], ...],
+     *    'del': [netId, ...]}
+     * </pre>
+     * 'you' is 0 until the join has been applied.
+     */
+    public void appendDelta(Client client, int ack, StringBuilder out)
+    {
+        Frame f = frame;
+        int slot = client.slot;
+        boolean present = slot >= 0 && slot < f.size && f.netId[slot] == client.netId;
+        
+        long[] current = new long[maxVisible];
+        int count = present ? f.near(f.x[slot], f.y[slot], radius, current, maxVisible) : 0;
+        
+        synchronized(client)
+        {
+            long[] base = null;
+            int baseSize = 0, baseTick = 0;
+            
+            for(int i = 0; ack > 0 && i < HISTORY; i++)
+            {
+                if(client.historyTick[i] == ack)
+                {
+                    base = client.history[i];
+                    baseSize = client.historySize[i];
+                    baseTick = ack;
+                    break;
+                }
+            }
+            
+            out.append("{'tick': ").append(f.tick).append(", 'base': ").append(baseTick);
+            out.append(", 'you': ").append(present ? client.netId : 0);
+            out.append(", 'seq': ").append(present ? f.lastSeq[slot] : 0);
+            
+            StringBuilder moved = new StringBuilder();
+            StringBuilder removed = new StringBuilder();
+            out.append(", 'add': [");
+            
+            // Both lists are sorted by netId; walk them together.
+            int i = 0, j = 0;
+            boolean firstAdd = true;
+            while(i < count || j < baseSize)
+            {
+                long now = i < count ? current[i] >>> 32 : Long.MAX_VALUE;
+                long then = j < baseSize ? base[j] >>> 32 : Long.MAX_VALUE;
+                
+                if(now < then)
+                {
+                    int s = (int)current[i++];
+                    out.append(firstAdd ? "" : ", ").append('[').append(f.netId[s]).append(", ").append(f.kind[s]);
+                    out.append(", ").append(f.x[s]).append(", ").append(f.y[s]).append(", ").append(f.dir[s]);
+                    out.append(", '").append(f.name[s].replace("'", "\\'")).append("']");
+                    firstAdd = false;
+                }
+                else if(now > then)
+                {
+                    removed.append(removed.length() == 0 ? "" : ", ").append(then);
+                    j++;
+                }
+                else
+                {
+                    int s = (int)current[i++];
+                    j++;
+                    
+                    if(f.changedAt[s] > baseTick)
+                    {
+                        moved.append(moved.length() == 0 ? "[" : ", [").append(f.netId[s]).append(", ");
+                        moved.append(f.x[s]).append(", ").append(f.y[s]).append(", ").append(f.dir[s]).append(']');
+                    }
+                }
+            }
+            
+            out.append("], 'move': [").append(moved).append("], 'del': [").append(removed).append("]}");
+            
+            int h = client.historyNext;
+            client.historyTick[h] = f.tick;
+            client.history[h] = current;
+            client.historySize[h] = count;
+            client.historyNext = (h + 1) % HISTORY;
+        }
+    }
+}
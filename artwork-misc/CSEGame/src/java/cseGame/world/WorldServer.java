@@ -0,0 +1,281 @@
+/*
+ * WorldServer.java - WorldServer Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.ServletContext;
+
+import cseGame.map.CompiledMap;
+import cseGame.map.MapData;
+import cseGame.map.MapStore;
+import cseGame.map.PathFinder;
+import cseGame.map.SpatialIndex;
+import cseGame.metrics.Counter;
+import cseGame.metrics.Gauge;
+import cseGame.metrics.Metrics;
+import cseGame.player.PlayerStore;
+import cseGame.shard.ShardClient;
+import cseGame.shard.ShardMap;
+
+/**
+ * Runs a {@link World} per map on a small shared pool of tick threads.
+ * Worlds are started when a map is first used. Settings come from
+ * cseGame.world.* context parameters.
+ * <p>
+ * Players who walk off a map are handed to the neighbouring map's world:
+ * here if this node serves it, otherwise on the node that does, together
+ * with their state in the {@link PlayerStore}. Handoffs run on threads of
+ * their own so no tick waits on another node.
+ */
+public class WorldServer
+{
+    private static final Logger log = Logger.getLogger(WorldServer.class.getName());
+    
+    private static final Counter LOCAL_HANDOFFS = Metrics.counter("cseGame_world_handoffs_total", "to", "local");
+    private static final Counter REMOTE_HANDOFFS = Metrics.counter("cseGame_world_handoffs_total", "to", "node");
+    private static final Counter FAILED_HANDOFFS = Metrics.counter("cseGame_world_handoffs_failed_total");
+    
+    /** ServletContext attribute the server is kept under. */
+    public static final String CONTEXT_KEY = "cseGame.worldServer";
+    
+    /** Tuning shared by every world. */
+    static final class Settings
+    {
+        long tickMillis = 100;
+        /** Ticks between two steps of one player, i.e. walking speed. */
+        int stepTicks = 2;
+        /** Area of interest, in tiles either side of the player. */
+        int radius = 12;
+        int maxPlayers = 4096;
+        /** Most entities sent to one client. */
+        int maxVisible = 256;
+        long idleTimeout = 30000;
+    }
+    
+    private final ServletContext context;
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor handoffs;
+    private final ConcurrentMap<String, World> worlds = new ConcurrentHashMap<String, World>();
+    
+    /** Entity ids are unique across maps, so a player keeps its id when it moves between them. */
+    private final AtomicInteger netIds = new AtomicInteger();
+    
+    WorldServer(ServletContext context, Settings settings, int threads, int handoffThreads)
+    {
+        this.context = context;
+        this.settings = settings;
+        this.scheduler = Executors.newScheduledThreadPool(threads, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+            
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "WorldServer-tick-" + count.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY + 1);
+                return t;
+            }
+        });
+        
+        this.handoffs = new ThreadPoolExecutor(handoffThreads, handoffThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1024), new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+            
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "WorldServer-handoff-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        handoffs.allowCoreThreadTimeOut(true);
+    }
+    
+    /** Returns the server for this webapp, creating it on first use. */
+    public static WorldServer get(ServletContext context)
+    {
+        synchronized(context)
+        {
+            WorldServer server = (WorldServer)context.getAttribute(CONTEXT_KEY);
+            
+            if(server == null)
+            {
+                Settings settings = new Settings();
+                settings.tickMillis = param(context, "tickMillis", settings.tickMillis);
+                settings.stepTicks = (int)param(context, "stepTicks", settings.stepTicks);
+                settings.radius = (int)param(context, "radius", settings.radius);
+                settings.maxPlayers = (int)param(context, "maxPlayers", settings.maxPlayers);
+                settings.maxVisible = (int)param(context, "maxVisible", settings.maxVisible);
+                settings.idleTimeout = param(context, "idleTimeout", settings.idleTimeout);
+                
+                server = new WorldServer(context, settings, (int)param(context, "threads", 2),
+                        (int)param(context, "handoffThreads", 4));
+                context.setAttribute(CONTEXT_KEY, server);
+            }
+            return server;
+        }
+    }
+    
+    /** Stops the webapp's worlds, if any are running. */
+    public static void close(ServletContext context)
+    {
+        WorldServer server;
+        
+        synchronized(context)
+        {
+            server = (WorldServer)context.getAttribute(CONTEXT_KEY);
+            context.removeAttribute(CONTEXT_KEY);
+        }
+        
+        if(server != null)
+            server.shutdown();
+    }
+    
+    private static long param(ServletContext context, String name, long def)
+    {
+        String value = context.getInitParameter("cseGame.world." + name);
+        return value == null ? def : Long.parseLong(value.trim());
+    }
+    
+    /** Returns the world of a map, starting it on first use. */
+    public World getWorld(String map) throws Exception
+    {
+        World world = worlds.get(map);
+        if(world != null)
+            return world;
+        
+        // Fails with FileNotFoundException for unknown maps before anything is started.
+        MapStore.get(context).get(map);
+        
+        synchronized(worlds)
+        {
+            world = worlds.get(map);
+            if(world == null)
+            {
+                world = new World(map, this, PathFinder.forMap(context, map), SpatialIndex.forMap(context, map), settings, netIds);
+                world.start(scheduler);
+                worlds.put(map, world);
+                gauges(world);
+            }
+            return world;
+        }
+    }
+    
+    /** Worlds currently running. */
+    public World[] getWorlds()
+    {
+        return worlds.values().toArray(new World[0]);
+    }
+    
+    public long getTickMillis(){ return settings.tickMillis; }
+    
+    /**
+     * Hands a player who walked off a world at (x, y) through an edge to
+     * the neighbouring map's world, entering at the opposite edge. If the
+     * other world cannot take it, the player is put back where it was.
+     * Called on the tick thread.
+     */
+    void handOff(final World from, final String id, final String map, final int edge, final int x, final int y)
+    {
+        try
+        {
+            handoffs.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        enter(id, map, edge, edge == MapData.TOP || edge == MapData.BOTTOM ? x : y);
+                    }
+                    catch (Exception e)
+                    {
+                        log.log(Level.WARNING, "Handing " + id + " from " + from.getName() + " to " + map + " failed.", e);
+                        FAILED_HANDOFFS.increment();
+                        from.join(id, x, y);
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            FAILED_HANDOFFS.increment();
+            from.join(id, x, y);
+        }
+    }
+    
+    /** Joins a player to a map through the edge opposite the one it left by, along the edge at along. */
+    private void enter(String id, String map, int edge, int along) throws Exception
+    {
+        CompiledMap to = MapStore.get(context).get(map);
+        int x = edge == MapData.LEFT ? to.getWidth() - 1 : edge == MapData.RIGHT ? 0 : along;
+        int y = edge == MapData.TOP ? to.getHeight() - 1 : edge == MapData.BOTTOM ? 0 : along;
+        
+        ShardMap shards = ShardMap.get(context);
+        
+        if(shards.isLocal(map))
+        {
+            if(getWorld(map).join(id, x, y) == null)
+                throw new IllegalStateException("World " + map + " is full.");
+            LOCAL_HANDOFFS.increment();
+            return;
+        }
+        
+        // The player's state goes with it; this node writes out its copy first.
+        PlayerStore players = PlayerStore.find(context);
+        String state = players == null ? null : players.handOff(id);
+        
+        String node = shards.getOwner(map);
+        boolean taken = false;
+        try
+        {
+            taken = ShardClient.get(context).handOff(node, map, id, x, y, state);
+        }
+        finally
+        {
+            if(!taken && state != null)
+                players.adopt(id, state);
+        }
+        
+        if(!taken)
+            throw new IllegalStateException("Node " + node + " refused " + id + ".");
+        REMOTE_HANDOFFS.increment();
+    }
+    
+    private static void gauges(final World world)
+    {
+        Metrics.gauge("cseGame_world_players", new Gauge(){ public long get(){ return world.getPlayerCount(); } }, "map", world.getName());
+        Metrics.counter("cseGame_world_ticks_total", new Gauge(){ public long get(){ return world.getTicks(); } }, "map", world.getName());
+        Metrics.counter("cseGame_world_overruns_total", new Gauge(){ public long get(){ return world.getOverruns(); } }, "map", world.getName());
+        Metrics.gauge("cseGame_world_tick_micros", new Gauge(){ public long get(){ return world.getMeanTickMicros(); } }, "map", world.getName());
+    }
+    
+    void shutdown()
+    {
+        World[] running = getWorlds();
+        for(int i = 0; i < running.length; i++)
+        {
+            running[i].stop();
+            Metrics.removeLabelled("map", running[i].getName());
+        }
+        scheduler.shutdownNow();
+        handoffs.shutdownNow();
+    }
+}
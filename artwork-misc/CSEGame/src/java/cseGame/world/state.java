@@ -0,0 +1,197 @@
+/*
+ *  state.java - state Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import cseGame.map.MapStore;
+
+/**
+ * Changes to a map's objects since a version the client already has, see
+ * {@link MapState#appendChanges}. A POST makes a change first and answers
+ * the same way.
+ * <pre>
+ *   state?map=M&amp;since=V&amp;epoch=E[&amp;wait=1]
+ *   state?map=M&amp;op=add&amp;kind=item|npc&amp;objid=&amp;sprite=&amp;layer=&amp;x=&amp;y=   (POST)
+ *   state?map=M&amp;op=move&amp;obj=I&amp;x=&amp;y=                                (POST)
+ *   state?map=M&amp;op=hide|show&amp;obj=I                                    (POST)
+ *   state?map=M&amp;op=set&amp;obj=I&amp;state=S                                (POST)
+ * </pre>
+ * With <code>wait</code>, a client that is up to date is held until the
+ * next change or the poll timeout.
+ */
+public class state extends HttpServlet
+{
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(boolean post, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        StringBuilder data = new StringBuilder(256);
+        
+        try
+        {
+            MapState state = MapState.forMap(getServletContext(), MapStore.baseName(request.getParameter("map")));
+            String op = request.getParameter("op");
+            long since = longParam(request, "since", 0);
+            long epoch = longParam(request, "epoch", state.getEpoch());
+            
+            if(op != null)
+            {
+                if(!post)
+                {
+                    response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Changes must be POSTed.");
+                    return;
+                }
+                
+                if("add".equals(op))
+                {
+                    state.add("npc".equalsIgnoreCase(request.getParameter("kind")) ? MapState.NPC : MapState.ITEM,
+                            intParam(request, "objid"), intParam(request, "sprite"), intParam(request, "layer"),
+                            intParam(request, "x"), intParam(request, "y"));
+                }
+                else if("move".equals(op))
+                    state.move(intParam(request, "obj"), intParam(request, "x"), intParam(request, "y"));
+                else if("hide".equals(op) || "show".equals(op))
+                    state.setHidden(intParam(request, "obj"), "hide".equals(op));
+                else if("set".equals(op))
+                    state.setState(intParam(request, "obj"), intParam(request, "state"));
+                else
+                {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown op: " + op);
+                    return;
+                }
+            }
+            else if(epoch == state.getEpoch() && since == state.getVersion() && request.getParameter("wait") != null &&
+                    request.isAsyncSupported())
+            {
+                waitForChange(request, state, since, epoch);
+                return;
+            }
+            
+            state.appendChanges(since, epoch, data);
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        write(response, data);
+    }
+    
+    /** Parks the request until the map changes. */
+    private void waitForChange(HttpServletRequest request, final MapState state, final long since, final long epoch)
+    {
+        final AsyncContext async = request.startAsync();
+        final AtomicBoolean answered = new AtomicBoolean(false);
+        final Runnable answer = new Runnable()
+        {
+            public void run()
+            {
+                if(!answered.compareAndSet(false, true))
+                    return;
+                
+                state.cancel(this);
+                async.start(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            StringBuilder data = new StringBuilder(256);
+                            state.appendChanges(since, epoch, data);
+                            write(async.getResponse(), data);
+                        }
+                        catch (IOException e) { /* client went away */ }
+                        finally { async.complete(); }
+                    }
+                });
+            }
+        };
+        
+        String timeout = getServletContext().getInitParameter("cseGame.state.pollTimeout");
+        async.setTimeout(timeout == null ? 25000 : Long.parseLong(timeout.trim()));
+        async.addListener(new AsyncListener()
+        {
+            public void onTimeout(AsyncEvent event){ answer.run(); }
+            public void onError(AsyncEvent event)
+            {
+                answered.set(true);
+                state.cancel(answer);
+            }
+            public void onComplete(AsyncEvent event){}
+            public void onStartAsync(AsyncEvent event){}
+        });
+        state.afterNextChange(answer);
+        
+        // A change that landed before the waiter was queued would otherwise be missed.
+        if(state.getVersion() != since)
+            answer.run();
+    }
+    
+    private static void write(ServletResponse response, StringBuilder data) throws IOException
+    {
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.print(data);
+        out.close();
+    }
+    
+    private static int intParam(HttpServletRequest request, String name)
+    {
+        String value = request.getParameter(name);
+        if(value == null)
+            throw new IllegalArgumentException("Missing " + name + ".");
+        return Integer.parseInt(value.trim());
+    }
+    
+    private static long longParam(HttpServletRequest request, String name, long def)
+    {
+        String value = request.getParameter(name);
+        return value == null || value.length() == 0 ? def : Long.parseLong(value.trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(false, request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(true, request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Versioned changes to a map's objects.";
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,241 @@
+/*
+ *  world.java - world Class
+ *
+ *  Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+import cseGame.objectQuery;
+import cseGame.map.MapStore;
+import cseGame.player.PlayerStore;
+import cseGame.shard.ShardMap;
+
+/**
+ * Multiplayer presence on a map. Every answer is a delta from
+ * {@link World#appendDelta}; clients send back its 'tick' as ack.
+ * <pre>
+ *   world?map=M&amp;op=join&amp;id=&amp;x=&amp;y=                     (POST)
+ *   world?map=M&amp;op=sync&amp;id=&amp;ack=[&amp;seq=&amp;in=NNEW][&amp;wait=1]
+ *   world?map=M&amp;op=leave&amp;id=                           (POST)
+ *   world?map=M&amp;op=handoff&amp;id=&amp;x=&amp;y=[&amp;player=]      (POST, from another node)
+ * </pre>
+ * <code>in</code> is a batch of steps, one of N, E, S or W each, the last
+ * numbered <code>seq</code>. With <code>wait</code>, a sync that has
+ * already seen the latest tick is held until the next one.
+ * <p>
+ * A player who walked off the map is answered
+ * <code>{'tick': T, 'moved': 'M2'}</code> and goes on syncing with map M2,
+ * where it has already been joined.
+ */
+public class world extends HttpServlet
+{
+    private static final String STEPS = "NESW";
+    
+    /** Processes requests for both HTTP <code>GET</code> and <code>POST</code> methods.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void processRequest(boolean post, HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        StringBuilder data = new StringBuilder(512);
+        
+        try
+        {
+            World world = WorldServer.get(getServletContext()).getWorld(MapStore.baseName(request.getParameter("map")));
+            String op = request.getParameter("op");
+            String id = request.getParameter("id");
+            
+            if(id == null || id.length() == 0)
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing id.");
+                return;
+            }
+            
+            if(post && "join".equals(op))
+            {
+                World.Client client = world.join(id, intParam(request, "x", 0), intParam(request, "y", 0));
+                if(client == null)
+                {
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "World is full.");
+                    return;
+                }
+                world.appendDelta(client, 0, data);
+            }
+            else if(post && "handoff".equals(op))
+            {
+                if(!ShardMap.get(getServletContext()).isFromNode(request))
+                {
+                    response.sendError(HttpServletResponse.SC_FORBIDDEN, "Handoffs come from nodes.");
+                    return;
+                }
+                
+                String player = request.getParameter("player");
+                if(player != null && player.length() > 0)
+                    PlayerStore.get(getServletContext(), objectQuery.getPool(getServletContext())).adopt(id, player);
+                
+                if(world.join(id, intParam(request, "x", 0), intParam(request, "y", 0)) == null)
+                {
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "World is full.");
+                    return;
+                }
+                data.append("ok");
+            }
+            else if(post && "leave".equals(op))
+            {
+                World.Client client = world.getClient(id);
+                if(client != null)
+                    world.leave(client);
+                data.append("ok");
+            }
+            else if("sync".equals(op))
+            {
+                World.Client client = world.getClient(id);
+                String moved = client == null ? world.getDeparture(id) : null;
+                if(moved != null)
+                {
+                    data.append("{'tick': ").append(world.getTick()).append(", 'moved': '").append(moved).append("'}");
+                    write(response, data);
+                    return;
+                }
+                if(client == null)
+                {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND, "Not joined: " + id);
+                    return;
+                }
+                
+                String in = request.getParameter("in");
+                if(in != null && in.length() > 0)
+                    world.input(client, parseSteps(in), intParam(request, "seq", 0));
+                
+                int ack = intParam(request, "ack", 0);
+                if(ack >= world.getTick() && request.getParameter("wait") != null && request.isAsyncSupported())
+                {
+                    waitForTick(request, world, client, ack);
+                    return;
+                }
+                world.appendDelta(client, ack, data);
+            }
+            else
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown op: " + op);
+                return;
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        catch (Exception e)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.toString());
+            return;
+        }
+        
+        write(response, data);
+    }
+    
+    /** Parks the request until the world publishes its next tick. */
+    private void waitForTick(HttpServletRequest request, final World world, final World.Client client, final int ack)
+    {
+        final AsyncContext async = request.startAsync();
+        final AtomicBoolean answered = new AtomicBoolean(false);
+        final Runnable answer = new Runnable()
+        {
+            public void run()
+            {
+                if(!answered.compareAndSet(false, true))
+                    return;
+                
+                async.start(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            StringBuilder data = new StringBuilder(512);
+                            world.appendDelta(client, ack, data);
+                            write(async.getResponse(), data);
+                        }
+                        catch (IOException e) { /* client went away */ }
+                        finally { async.complete(); }
+                    }
+                });
+            }
+        };
+        
+        async.setTimeout(WorldServer.get(getServletContext()).getTickMillis() * 10 + 1000);
+        async.addListener(new AsyncListener()
+        {
+            public void onTimeout(AsyncEvent event){ answer.run(); }
+            public void onError(AsyncEvent event){ answered.set(true); }
+            public void onComplete(AsyncEvent event){}
+            public void onStartAsync(AsyncEvent event){}
+        });
+        world.afterNextTick(answer);
+    }
+    
+    private static void write(ServletResponse response, StringBuilder data) throws IOException
+    {
+        response.setContentType("text/html;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.print(data);
+        out.close();
+    }
+    
+    private static byte[] parseSteps(String in)
+    {
+        byte[] steps = new byte[Math.min(in.length(), 64)];
+        int n = 0;
+        
+        for(int i = 0; i < in.length() && n < steps.length; i++)
+        {
+            int step = STEPS.indexOf(Character.toUpperCase(in.charAt(i)));
+            if(step >= 0)
+                steps[n++] = (byte)step;
+        }
+        return n == steps.length ? steps : java.util.Arrays.copyOf(steps, n);
+    }
+    
+    private static int intParam(HttpServletRequest request, String name, int def)
+    {
+        String value = request.getParameter(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+    
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /** Handles the HTTP <code>GET</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(false, request, response);
+    }
+    
+    /** Handles the HTTP <code>POST</code> method.
+     * @param request servlet request
+     * @param response servlet response
+     */
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    throws ServletException, IOException
+    {
+        processRequest(true, request, response);
+    }
+    
+    /** Returns a short description of the servlet.
+     */
+    public String getServletInfo()
+    {
+        return "Fixed-tick multiplayer state with per-client deltas.";
+    }
+    // </editor-fold>
+}
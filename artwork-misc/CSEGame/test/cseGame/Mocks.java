@@ -0,0 +1,179 @@
+/*
+ * Mocks.java - Mocks Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame;
+
+import java.io.*;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+
+/**
+ * Just enough of the servlet container for the tests to drive filters and
+ * servlets directly, as dynamic proxies like the benchmarks' mocks. Calls
+ * the tests do not set up answer a zero value.
+ */
+public class Mocks
+{
+    /** Returns a context with the given init parameters and no files. */
+    public static ServletContext context(final Map<String, String> params)
+    {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        
+        return proxy(ServletContext.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("getInitParameter"))
+                    return params.get(args[0]);
+                else if(name.equals("getInitParameterNames"))
+                    return Collections.enumeration(params.keySet());
+                else if(name.equals("getAttribute"))
+                    return attributes.get(args[0]);
+                else if(name.equals("setAttribute"))
+                    attributes.put((String)args[0], args[1]);
+                else if(name.equals("removeAttribute"))
+                    attributes.remove(args[0]);
+                else if(name.equals("getAttributeNames"))
+                    return Collections.enumeration(new ArrayList<String>(attributes.keySet()));
+                else
+                    return standard(proxy, method, args);
+                return null;
+            }
+        });
+    }
+    
+    /** Returns the config a filter is initialised with. */
+    public static FilterConfig filterConfig(final ServletContext context)
+    {
+        return proxy(FilterConfig.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                if(method.getName().equals("getServletContext"))
+                    return context;
+                return standard(proxy, method, args);
+            }
+        });
+    }
+    
+    /**
+     * Returns a GET request for a servlet path.
+     * @param params  query parameters
+     * @param headers request headers
+     */
+    public static HttpServletRequest request(final String servletPath, final String remoteAddr,
+            final Map<String, String> params, final Map<String, String> headers)
+    {
+        return proxy(HttpServletRequest.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("getMethod"))
+                    return "GET";
+                else if(name.equals("getServletPath"))
+                    return servletPath;
+                else if(name.equals("getRemoteAddr"))
+                    return remoteAddr;
+                else if(name.equals("getParameter"))
+                    return params.get(args[0]);
+                else if(name.equals("getHeader"))
+                    return headers.get(args[0]);
+                return standard(proxy, method, args);
+            }
+        });
+    }
+    
+    /** Returns a map from alternating names and values. */
+    public static Map<String, String> params(String... pairs)
+    {
+        Map<String, String> params = new HashMap<String, String>();
+        for(int i = 0; i + 1 < pairs.length; i += 2)
+            params.put(pairs[i], pairs[i + 1]);
+        return params;
+    }
+    
+    /** A response that records its status, headers and what is written to its writer. */
+    public static class Response
+    {
+        private int status = HttpServletResponse.SC_OK;
+        private final Map<String, String> headers = new HashMap<String, String>();
+        private final StringWriter body = new StringWriter();
+        private final PrintWriter writer = new PrintWriter(body, true);
+        
+        public final HttpServletResponse proxy = Mocks.proxy(HttpServletResponse.class, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                
+                if(name.equals("setStatus") || name.equals("sendError"))
+                    status = ((Integer)args[0]).intValue();
+                else if(name.equals("setHeader"))
+                    headers.put((String)args[0], (String)args[1]);
+                else if(name.equals("getStatus"))
+                    return Integer.valueOf(status);
+                else if(name.equals("getWriter"))
+                    return writer;
+                else
+                    return standard(proxy, method, args);
+                return null;
+            }
+        });
+        
+        public int getStatus(){ return status; }
+        
+        public String getBody(){ return body.toString(); }
+        
+        public String getHeader(String name){ return headers.get(name); }
+    }
+    
+    /** A filter chain that counts the requests let through. */
+    public static class Chain implements FilterChain
+    {
+        private int calls = 0;
+        
+        public void doFilter(ServletRequest request, ServletResponse response){ calls++; }
+        
+        public int getCalls(){ return calls; }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler)
+    {
+        return (T)Proxy.newProxyInstance(Mocks.class.getClassLoader(), new Class<?>[]{ type }, handler);
+    }
+    
+    /** Answers the Object methods, and a zero value of the right type for anything else. */
+    private static Object standard(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+        
+        if(name.equals("equals"))
+            return Boolean.valueOf(proxy == args[0]);
+        else if(name.equals("hashCode"))
+            return Integer.valueOf(System.identityHashCode(proxy));
+        else if(name.equals("toString"))
+            return "mock " + method.getDeclaringClass().getSimpleName();
+        
+        Class<?> type = method.getReturnType();
+        if(type == boolean.class)
+            return Boolean.FALSE;
+        else if(type == int.class)
+            return Integer.valueOf(0);
+        else if(type == long.class)
+            return Long.valueOf(0);
+        return null;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * RequestExecutorTest.java - RequestExecutorTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * How {@link RequestExecutor} answers requests whose tasks run late.
+ */
+public class RequestExecutorTest
+{
+    private final RequestExecutor executor = new RequestExecutor("test", 1, 1, 30000);
+    private final Mocks.Response response = new Mocks.Response();
+    private final AtomicReference<AsyncListener> listener = new AtomicReference<AsyncListener>();
+    private final AtomicInteger completed = new AtomicInteger();
+    
+    /** A request that goes async, keeping its listener so the test can time it out. */
+    private HttpServletRequest asyncRequest()
+    {
+        final HttpServletRequest request = Mocks.request("/world", "10.0.0.1",
+                Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap());
+        
+        final AsyncContext async = (AsyncContext)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ AsyncContext.class }, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+                if(name.equals("addListener"))
+                    listener.set((AsyncListener)args[0]);
+                else if(name.equals("complete"))
+                    completed.incrementAndGet();
+                else if(name.equals("getRequest"))
+                    return request;
+                else if(name.equals("getResponse"))
+                    return response.proxy;
+                return null;
+            }
+        });
+        
+        return (HttpServletRequest)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ HttpServletRequest.class }, new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                String name = method.getName();
+                if(name.equals("isAsyncSupported"))
+                    return Boolean.TRUE;
+                else if(name.equals("startAsync"))
+                    return async;
+                return method.invoke(request, args);
+            }
+        });
+    }
+    
+    @Test
+    public void answersAndCompletesWhenTheTaskIsDone() throws Exception
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.dispatch(asyncRequest(), response.proxy, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                response.getWriter().print("ok");
+                done.countDown();
+            }
+        });
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitForCompletion();
+        assertEquals("ok", response.getBody());
+        assertEquals(200, response.getStatus());
+    }
+    
+    @Test
+    public void cutsOffATaskThatIsStillRunningAtTheTimeout() throws Exception
+    {
+        final CountDownLatch running = new CountDownLatch(1), release = new CountDownLatch(1), finished = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        
+        executor.dispatch(asyncRequest(), response.proxy, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                running.countDown();
+                try
+                {
+                    release.await();
+                    response.setHeader("X-Late", "1");
+                    response.getOutputStream().write(1);
+                }
+                catch (Exception e)
+                {
+                    failure.set(e);
+                }
+                finally { finished.countDown(); }
+            }
+        });
+        
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        listener.get().onTimeout(null);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals(1, completed.get());
+        
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof IOException);
+        assertNull(response.getHeader("X-Late"));
+        
+        // The worker does not complete the request a second time.
+        Thread.sleep(50);
+        assertEquals(1, completed.get());
+    }
+    
+    @Test
+    public void dropsATaskStillQueuedAtTheTimeout() throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger ran = new AtomicInteger();
+        
+        executor.dispatch(asyncRequest(), new Mocks.Response().proxy, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+            }
+        });
+        completed.set(0);
+        
+        executor.dispatch(asyncRequest(), response.proxy, new RequestExecutor.Task()
+        {
+            public void run(HttpServletRequest request, HttpServletResponse response){ ran.incrementAndGet(); }
+        });
+        listener.get().onTimeout(null);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(0, ran.get());
+    }
+    
+    private void waitForCompletion() throws InterruptedException
+    {
+        for(int i = 0; i < 500 && completed.get() == 0; i++)
+            Thread.sleep(10);
+        assertEquals(1, completed.get());
+    }
+}
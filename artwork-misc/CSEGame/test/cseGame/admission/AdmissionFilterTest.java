@@ -0,0 +1,90 @@
+/*
+ * AdmissionFilterTest.java - AdmissionFilterTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.admission;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.Mocks;
+
+/**
+ * Which requests {@link AdmissionFilter} lets through, by address and by
+ * user. Rates are low enough that nothing refills during a test.
+ */
+public class AdmissionFilterTest
+{
+    private AdmissionFilter filter;
+    private Mocks.Chain chain;
+    
+    @Before
+    public void setUp()
+    {
+        filter = new AdmissionFilter();
+        filter.init(Mocks.filterConfig(Mocks.context(Mocks.params(
+                "cseGame.admission.addressRate", "0.001",
+                "cseGame.admission.addressBurst", "3",
+                "cseGame.admission.userRate", "0.001",
+                "cseGame.admission.userBurst", "2",
+                "cseGame.admission.maxUsers", "4"))));
+        chain = new Mocks.Chain();
+    }
+    
+    private int send(String address, String user) throws Exception
+    {
+        Map<String, String> params = user == null ? Collections.<String, String>emptyMap() : Mocks.params("user", user);
+        Mocks.Response response = new Mocks.Response();
+        filter.doFilter(Mocks.request("/chat", address, params, Collections.<String, String>emptyMap()), response.proxy, chain);
+        
+        if(response.getStatus() == AdmissionFilter.SC_TOO_MANY_REQUESTS)
+            assertNotNull("Retry-After", response.getHeader("Retry-After"));
+        return response.getStatus();
+    }
+    
+    @Test
+    public void limitsEachAddress() throws Exception
+    {
+        for(int i = 0; i < 3; i++)
+            assertEquals(200, send("10.0.0.1", null));
+        assertEquals(AdmissionFilter.SC_TOO_MANY_REQUESTS, send("10.0.0.1", null));
+        
+        assertEquals(200, send("10.0.0.2", null));
+        assertEquals(4, chain.getCalls());
+    }
+    
+    @Test
+    public void limitsEachUserAcrossAddresses() throws Exception
+    {
+        assertEquals(200, send("10.0.0.1", "bob"));
+        assertEquals(200, send("10.0.0.2", "bob"));
+        assertEquals(AdmissionFilter.SC_TOO_MANY_REQUESTS, send("10.0.0.3", "bob"));
+        
+        assertEquals(200, send("10.0.0.3", "alice"));
+    }
+    
+    @Test
+    public void madeUpUsersAreStillHeldByTheirAddress() throws Exception
+    {
+        for(int i = 0; i < 3; i++)
+            assertEquals(200, send("10.0.0.1", "user" + i));
+        assertEquals(AdmissionFilter.SC_TOO_MANY_REQUESTS, send("10.0.0.1", "user3"));
+    }
+    
+    @Test
+    public void turnsAwayNewcomersPastMaxUsers() throws Exception
+    {
+        for(int i = 0; i < 4; i++)
+            assertEquals(200, send("10.0.0." + i, null));
+        
+        // Nobody's bucket has filled up again, so there is no room for a fifth address.
+        assertEquals(AdmissionFilter.SC_TOO_MANY_REQUESTS, send("10.0.0.9", null));
+        assertEquals(200, send("10.0.0.1", null));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * TokenBucketTest.java - TokenBucketTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.admission;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Takes and refills of {@link TokenBucket}, on a made-up clock.
+ */
+public class TokenBucketTest
+{
+    private static final long SECOND = 1000000000L;
+    
+    /** 10 tokens a second, so one every 100 ms. */
+    private static final long INTERVAL = SECOND / 10;
+    
+    @Test
+    public void startsFullAndGivesOutTheBurst()
+    {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        
+        for(int i = 0; i < 5; i++)
+            assertEquals("token " + i, 0, bucket.take(0, 0));
+        
+        assertEquals(INTERVAL, bucket.take(0, 0));
+    }
+    
+    @Test
+    public void refillsOneTokenPerInterval()
+    {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        for(int i = 0; i < 5; i++)
+            bucket.take(0, 0);
+        
+        assertEquals(INTERVAL / 2, bucket.take(INTERVAL / 2, 0));
+        assertEquals(0, bucket.take(INTERVAL, 0));
+        assertEquals(INTERVAL, bucket.take(INTERVAL, 0));
+        
+        // Three intervals later three more are due, and no more.
+        long now = 4 * INTERVAL;
+        for(int i = 0; i < 3; i++)
+            assertEquals("token " + i, 0, bucket.take(now, 0));
+        assertTrue(bucket.take(now, 0) > 0);
+    }
+    
+    @Test
+    public void doesNotSaveUpMoreThanTheBurst()
+    {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        long later = 60 * SECOND;
+        
+        assertTrue(bucket.isFull(later));
+        for(int i = 0; i < 5; i++)
+            assertEquals("token " + i, 0, bucket.take(later, 0));
+        assertEquals(INTERVAL, bucket.take(later, 0));
+    }
+    
+    @Test
+    public void keepsTheReserveBack()
+    {
+        TokenBucket bucket = new TokenBucket(10, 6, 0);
+        
+        for(int i = 0; i < 3; i++)
+            assertEquals("token " + i, 0, bucket.take(0, 3));
+        assertEquals(INTERVAL, bucket.take(0, 3));
+        
+        // Without a reserve the rest of the burst is still there.
+        for(int i = 0; i < 3; i++)
+            assertEquals("token " + i, 0, bucket.take(0, 0));
+        assertEquals(INTERVAL, bucket.take(0, 0));
+    }
+    
+    @Test
+    public void isFullOnceRefilled()
+    {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+        bucket.take(0, 0);
+        
+        assertFalse(bucket.isFull(INTERVAL - 1));
+        assertTrue(bucket.isFull(INTERVAL));
+    }
+    
+    @Test
+    public void worksAcrossTheNanoTimeWrap()
+    {
+        long now = Long.MAX_VALUE - INTERVAL / 2;
+        TokenBucket bucket = new TokenBucket(10, 1, now);
+        
+        assertEquals(0, bucket.take(now, 0));
+        assertEquals(INTERVAL, bucket.take(now, 0));
+        assertEquals(0, bucket.take(now + INTERVAL, 0));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAnEmptyBurst()
+    {
+        new TokenBucket(10, 0, 0);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * AssetCacheTest.java - AssetCacheTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Content coding negotiation in {@link AssetCache}.
+ */
+public class AssetCacheTest
+{
+    @Test
+    public void gzipIsUsedWhenListed()
+    {
+        assertTrue(AssetCache.acceptsGzip("gzip"));
+        assertTrue(AssetCache.acceptsGzip("deflate, gzip"));
+        assertTrue(AssetCache.acceptsGzip("gzip;q=0.5, identity"));
+        assertTrue(AssetCache.acceptsGzip("x-gzip"));
+        assertTrue(AssetCache.acceptsGzip("GZIP; Q=1.0"));
+        assertTrue(AssetCache.acceptsGzip("br, *"));
+    }
+    
+    @Test
+    public void gzipIsNotUsedWhenRefusedOrAbsent()
+    {
+        assertFalse(AssetCache.acceptsGzip(null));
+        assertFalse(AssetCache.acceptsGzip(""));
+        assertFalse(AssetCache.acceptsGzip("identity"));
+        assertFalse(AssetCache.acceptsGzip("gzip;q=0"));
+        assertFalse(AssetCache.acceptsGzip("gzip; q=0.000, deflate"));
+        assertFalse(AssetCache.acceptsGzip("*, gzip;q=0"));
+        assertFalse(AssetCache.acceptsGzip("*;q=0"));
+        assertFalse(AssetCache.acceptsGzip("br, notgzip"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * CatalogCacheTest.java - CatalogCacheTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.db.ConnectionPool;
+import cseGame.db.PoolConfig;
+
+/**
+ * Hits, misses, absences and invalidation in {@link CatalogCache}, on an
+ * in-memory HSQLDB with the ITEMS table from xdb.sql.
+ */
+public class CatalogCacheTest
+{
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static final int ITEMS = 0;
+    
+    private ConnectionPool pool;
+    private CatalogCache catalog;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        PoolConfig config = new PoolConfig("catalog-test-" + databases.incrementAndGet(),
+                "jdbc:hsqldb:mem:catalogtest" + databases.get(), "sa", "");
+        config.minSize = 1;
+        config.maxSize = 2;
+        pool = new ConnectionPool(config);
+        catalog = new CatalogCache(pool, 64, 50);
+        
+        update("CREATE TABLE ITEMS (ITEMID INT PRIMARY KEY, NAME VARCHAR(64), OPTIONS VARCHAR(256), SCRIPT VARCHAR(4096), FLAGS VARCHAR(32))");
+        update("INSERT INTO ITEMS VALUES (1, 'sword', '', NULL, '')");
+    }
+    
+    @After
+    public void tearDown() throws Exception
+    {
+        update("SHUTDOWN");
+        pool.close();
+    }
+    
+    private void update(String sql) throws SQLException
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            Statement statement = con.createStatement();
+            statement.executeUpdate(sql);
+            statement.close();
+        }
+        finally { con.close(); }
+    }
+    
+    private static String json(CatalogCache.Row row) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        row.writeTo(out, -1);
+        return out.toString("UTF-8");
+    }
+    
+    @Test
+    public void secondLookupIsAHit() throws Exception
+    {
+        assertTrue(json(catalog.get(ITEMS, 1)).startsWith("{'name': 'sword'"));
+        assertTrue(json(catalog.get(ITEMS, 1)).startsWith("{'name': 'sword'"));
+        assertEquals(1, catalog.getMisses());
+        assertEquals(1, catalog.getHits());
+    }
+    
+    @Test
+    public void absenceIsRememberedForAWhile() throws Exception
+    {
+        assertFalse(catalog.get(ITEMS, 2).exists());
+        update("INSERT INTO ITEMS VALUES (2, 'shield', '', NULL, '')");
+        
+        assertFalse(catalog.get(ITEMS, 2).exists());
+        assertEquals(1, catalog.getHits());
+        
+        Thread.sleep(80);
+        assertTrue(json(catalog.get(ITEMS, 2)).startsWith("{'name': 'shield'"));
+    }
+    
+    @Test
+    public void invalidatedRowIsReadAgain() throws Exception
+    {
+        catalog.get(ITEMS, 1);
+        update("UPDATE ITEMS SET NAME = 'axe' WHERE ITEMID = 1");
+        assertTrue(json(catalog.get(ITEMS, 1)).startsWith("{'name': 'sword'"));
+        
+        catalog.invalidate(ITEMS, 1);
+        assertTrue(json(catalog.get(ITEMS, 1)).startsWith("{'name': 'axe'"));
+    }
+    
+    @Test
+    public void batchKeepsTheOrderAsked() throws Exception
+    {
+        update("INSERT INTO ITEMS VALUES (3, 'bow', '', NULL, '')");
+        
+        int[] ids = { 3, 9, 1 };
+        CatalogCache.Row[] rows = new CatalogCache.Row[ids.length];
+        catalog.getAll(ITEMS, ids, rows);
+        
+        assertTrue(json(rows[0]).startsWith("{'name': 'bow'"));
+        assertFalse(rows[1].exists());
+        assertTrue(json(rows[2]).startsWith("{'name': 'sword'"));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * SingleFlightTest.java - SingleFlightTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * That concurrent calls for a key share one run, and that nothing outlives it.
+ */
+public class SingleFlightTest
+{
+    private final SingleFlight<String> flight = new SingleFlight<String>("test");
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    
+    @After
+    public void tearDown()
+    {
+        callers.shutdownNow();
+    }
+    
+    /** Work that counts its runs and holds each one until released. */
+    private static class Work implements Callable<String>
+    {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        final Exception failure;
+        
+        Work(Exception failure){ this.failure = failure; }
+        
+        public String call() throws Exception
+        {
+            runs.incrementAndGet();
+            started.countDown();
+            release.await();
+            if(failure != null)
+                throw failure;
+            return "map0001";
+        }
+    }
+    
+    /** Starts callers that each run the work under a key, once the first is in flight. */
+    private List<Future<String>> call(final String key, final Work work, int count) throws Exception
+    {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for(int i = 0; i < count; i++)
+        {
+            results.add(callers.submit(new Callable<String>()
+            {
+                public String call() throws Exception
+                {
+                    return flight.run(key, work);
+                }
+            }));
+            
+            if(i == 0)
+                assertTrue(work.started.await(5, TimeUnit.SECONDS));
+        }
+        
+        // Give the others time to join the flight before it lands.
+        Thread.sleep(50);
+        return results;
+    }
+    
+    @Test
+    public void concurrentCallsShareOneRun() throws Exception
+    {
+        Work work = new Work(null);
+        List<Future<String>> results = call("map0001", work, 8);
+        assertEquals(1, flight.size());
+        
+        work.release.countDown();
+        for(Future<String> result : results)
+            assertEquals("map0001", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, work.runs.get());
+        assertEquals(0, flight.size());
+    }
+    
+    @Test
+    public void concurrentCallsShareOneFailure() throws Exception
+    {
+        IOException failure = new IOException("no such map");
+        Work work = new Work(failure);
+        List<Future<String>> results = call("map0001", work, 4);
+        
+        work.release.countDown();
+        for(Future<String> result : results)
+        {
+            try
+            {
+                result.get(5, TimeUnit.SECONDS);
+                fail("Expected the run's exception.");
+            }
+            catch (ExecutionException e)
+            {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, work.runs.get());
+        assertEquals(0, flight.size());
+    }
+    
+    @Test
+    public void keysFlyApart() throws Exception
+    {
+        Work first = new Work(null), second = new Work(null);
+        List<Future<String>> a = call("map0001", first, 1);
+        List<Future<String>> b = call("map0002", second, 1);
+        assertEquals(2, flight.size());
+        
+        first.release.countDown();
+        second.release.countDown();
+        a.get(0).get(5, TimeUnit.SECONDS);
+        b.get(0).get(5, TimeUnit.SECONDS);
+        assertEquals(1, first.runs.get());
+        assertEquals(1, second.runs.get());
+    }
+    
+    @Test
+    public void laterCallsRunAgain() throws Exception
+    {
+        final AtomicInteger runs = new AtomicInteger();
+        Callable<String> work = new Callable<String>()
+        {
+            public String call()
+            {
+                return "run " + runs.incrementAndGet();
+            }
+        };
+        
+        assertEquals("run 1", flight.run("map0001", work));
+        assertEquals("run 2", flight.run("map0001", work));
+        assertEquals(0, flight.size());
+    }
+}
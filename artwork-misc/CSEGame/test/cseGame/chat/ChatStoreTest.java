@@ -0,0 +1,232 @@
+/*
+ * ChatStoreTest.java - ChatStoreTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.chat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.db.ConnectionPool;
+import cseGame.db.PoolConfig;
+
+/**
+ * Writing, refusing and expiring messages through {@link ChatStore}, on an
+ * in-memory HSQLDB with the table from chat.sql.
+ */
+public class ChatStoreTest
+{
+    private static final AtomicInteger databases = new AtomicInteger();
+    
+    private ConnectionPool pool;
+    private ChatStore store;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        PoolConfig config = new PoolConfig("chat-test-" + databases.incrementAndGet(),
+                "jdbc:hsqldb:mem:chattest" + databases.get(), "sa", "");
+        config.minSize = 1;
+        config.maxSize = 1;
+        config.maxWaitMillis = 200;
+        pool = new ConnectionPool(config);
+        
+        update("CREATE TABLE MSG (NAME VARCHAR(32), DEST VARCHAR(32), TIME BIGINT, MSG VARCHAR(512))");
+        update("CREATE TABLE MSG_ARCHIVE (NAME VARCHAR(32), DEST VARCHAR(32), TIME BIGINT, MSG VARCHAR(512))");
+    }
+    
+    @After
+    public void tearDown() throws Exception
+    {
+        if(store != null)
+            store.close();
+        update("SHUTDOWN");
+        pool.close();
+    }
+    
+    private void update(String sql) throws SQLException
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            Statement statement = con.createStatement();
+            statement.executeUpdate(sql);
+            statement.close();
+        }
+        finally { con.close(); }
+    }
+    
+    private int rows(String sql) throws SQLException
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            Statement statement = con.createStatement();
+            ResultSet rows = statement.executeQuery(sql);
+            rows.next();
+            int count = rows.getInt(1);
+            statement.close();
+            return count;
+        }
+        finally { con.close(); }
+    }
+    
+    private void post(int i) throws SQLException
+    {
+        store.reserve();
+        store.add(new ChatMessage("bob", "", System.currentTimeMillis(), "message " + i));
+    }
+    
+    /** Waits up to two seconds for the background threads to write or expire messages. */
+    private void waitFor(String what, long expected) throws Exception
+    {
+        for(int i = 0; i < 200 && progress(what) < expected; i++)
+            Thread.sleep(10);
+        assertEquals(what, expected, progress(what));
+    }
+    
+    private long progress(String what)
+    {
+        return what.equals("written") ? store.getWritten() : store.getExpired();
+    }
+    
+    @Test
+    public void writesMessagesInBatches() throws Exception
+    {
+        store = new ChatStore(pool, 64, 4, 50, 1000, 0, 0, null);
+        for(int i = 0; i < 10; i++)
+            post(i);
+        
+        waitFor("written", 10);
+        assertTrue(store.getBatches() >= 3);
+        assertEquals(10, rows("SELECT COUNT(*) FROM MSG"));
+    }
+    
+    @Test
+    public void closeWritesWhatIsQueued() throws Exception
+    {
+        store = new ChatStore(pool, 64, 256, 1000, 1000, 0, 0, null);
+        for(int i = 0; i < 5; i++)
+            post(i);
+        
+        store.close();
+        assertEquals(5, store.getWritten());
+        assertEquals(5, rows("SELECT COUNT(*) FROM MSG"));
+    }
+    
+    @Test
+    public void refusesWhenTheDatabaseFallsBehind() throws Exception
+    {
+        store = new ChatStore(pool, 2, 256, 5, 100, 0, 0, null);
+        
+        // With the pool's only connection held the writer takes one message and stalls.
+        Connection held = pool.getConnection();
+        try
+        {
+            post(0);
+            for(int i = 0; i < 200 && store.getQueued() > 0; i++)
+                Thread.sleep(10);
+            
+            // Past the flush wait, so the stalled batch takes no more.
+            Thread.sleep(50);
+            post(1);
+            post(2);
+            
+            try
+            {
+                post(3);
+                fail("Expected the message to be refused.");
+            }
+            catch (SQLException e)
+            {
+                assertEquals(1, store.getRefused());
+            }
+        }
+        finally { held.close(); }
+        
+        waitFor("written", 3);
+        assertEquals(3, rows("SELECT COUNT(*) FROM MSG"));
+    }
+    
+    @Test
+    public void unwrittenMessagesStayReadable() throws Exception
+    {
+        store = new ChatStore(pool, 64, 256, 5, 1000, 0, 0, null);
+        long now = System.currentTimeMillis();
+        
+        // With the pool's only connection held nothing can be written.
+        Connection held = pool.getConnection();
+        try
+        {
+            store.reserve();
+            store.add(new ChatMessage("bob", MessageBus.ALL, now, "to all"));
+            store.reserve();
+            store.add(new ChatMessage("bob", "eve", now + 1, "to eve"));
+            
+            assertEquals(1, store.unwritten("alice", now - 1, now + 10).size());
+            assertEquals(2, store.unwritten("eve", now - 1, now + 10).size());
+            assertEquals(0, store.unwritten("bob", now - 1, now + 10).size());
+            assertEquals(1, store.unwritten("eve", now, now + 10).size());
+        }
+        finally { held.close(); }
+        
+        waitFor("written", 2);
+        assertEquals(0, store.unwritten("eve", now - 1, now + 10).size());
+    }
+    
+    @Test(expected = SQLException.class)
+    public void refusesOnceClosed() throws Exception
+    {
+        store = new ChatStore(pool, 64, 256, 5, 100, 0, 0, null);
+        store.close();
+        post(0);
+    }
+    
+    @Test
+    public void createsTheTimeIndexOnce() throws Exception
+    {
+        store = new ChatStore(pool, 64, 256, 5, 100, 0, 0, null);
+        store.close();
+        store = new ChatStore(pool, 64, 256, 5, 100, 0, 0, null);
+        
+        Connection con = pool.getConnection();
+        int indexes = 0;
+        try
+        {
+            ResultSet rows = con.getMetaData().getIndexInfo(null, null, "MSG", false, true);
+            while(rows.next())
+            {
+                if(rows.getShort("ORDINAL_POSITION") == 1 && "TIME".equalsIgnoreCase(rows.getString("COLUMN_NAME")))
+                    indexes++;
+            }
+            rows.close();
+        }
+        finally { con.close(); }
+        assertEquals(1, indexes);
+    }
+    
+    @Test
+    public void expiresOldMessagesIntoTheArchive() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        update("INSERT INTO MSG VALUES ('bob', '', " + (now - 120000) + ", 'old')");
+        update("INSERT INTO MSG VALUES ('bob', '', " + now + ", 'new')");
+        
+        store = new ChatStore(pool, 64, 256, 5, 100, 60000, 60000, "MSG_ARCHIVE");
+        waitFor("expired", 1);
+        
+        assertEquals(1, rows("SELECT COUNT(*) FROM MSG WHERE MSG = 'new'"));
+        assertEquals(1, rows("SELECT COUNT(*) FROM MSG"));
+        assertEquals(1, rows("SELECT COUNT(*) FROM MSG_ARCHIVE WHERE MSG = 'old'"));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ConnectionPoolTest.java - ConnectionPoolTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Borrowing, returning and statement caching in {@link ConnectionPool}, on an
+ * in-memory HSQLDB.
+ */
+public class ConnectionPoolTest
+{
+    private static final AtomicInteger databases = new AtomicInteger();
+    
+    private ConnectionPool pool;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        PoolConfig config = new PoolConfig("pool-test-" + databases.incrementAndGet(),
+                "jdbc:hsqldb:mem:pooltest" + databases.get(), "sa", "");
+        config.minSize = 1;
+        config.maxSize = 1;
+        config.maxWaitMillis = 200;
+        pool = new ConnectionPool(config);
+        
+        Connection con = pool.getConnection();
+        Statement statement = con.createStatement();
+        statement.executeUpdate("CREATE TABLE T (ID INT, NAME VARCHAR(16))");
+        statement.executeUpdate("INSERT INTO T VALUES (1, 'one')");
+        statement.executeUpdate("INSERT INTO T VALUES (2, 'two')");
+        statement.close();
+        con.close();
+    }
+    
+    @After
+    public void tearDown() throws Exception
+    {
+        Connection con = pool.getConnection();
+        con.createStatement().execute("SHUTDOWN");
+        con.close();
+        pool.close();
+    }
+    
+    private static String name(PreparedStatement statement, int id) throws SQLException
+    {
+        statement.setInt(1, id);
+        ResultSet rows = statement.executeQuery();
+        rows.next();
+        String name = rows.getString(1);
+        rows.close();
+        return name;
+    }
+    
+    @Test
+    public void sameSqlTwiceInOneBorrowGetsSeparateStatements() throws Exception
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            PreparedStatement outer = con.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+            outer.setInt(1, 1);
+            
+            PreparedStatement inner = con.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+            assertEquals("two", name(inner, 2));
+            inner.close();
+            
+            // The inner statement must not have rebound the outer one's parameter.
+            ResultSet rows = outer.executeQuery();
+            assertTrue(rows.next());
+            assertEquals("one", rows.getString(1));
+            rows.close();
+            outer.close();
+            
+            // Once given back, the cached statement is lent out again.
+            PreparedStatement again = con.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+            assertEquals("two", name(again, 2));
+            again.close();
+        }
+        finally { con.close(); }
+    }
+    
+    @Test
+    public void closedStatementRefusesUse() throws Exception
+    {
+        Connection con = pool.getConnection();
+        try
+        {
+            PreparedStatement statement = con.prepareStatement("SELECT NAME FROM T WHERE ID = ?");
+            statement.close();
+            statement.close();
+            assertTrue(statement.isClosed());
+            
+            try
+            {
+                statement.setInt(1, 1);
+                fail("a closed statement was still usable");
+            }
+            catch(SQLException expected){}
+        }
+        finally { con.close(); }
+    }
+    
+    @Test
+    public void closingTwiceReturnsTheConnectionOnce() throws Exception
+    {
+        final Connection first = pool.getConnection();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] closers = new Thread[4];
+        
+        for(int i = 0; i < closers.length; i++)
+        {
+            closers[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        first.close();
+                    }
+                    catch(Exception e){ throw new RuntimeException(e); }
+                }
+            };
+            closers[i].start();
+        }
+        start.countDown();
+        for(int i = 0; i < closers.length; i++)
+            closers[i].join();
+        
+        assertTrue(first.isClosed());
+        
+        // maxSize is 1: a second permit would let two borrowers in at once.
+        Connection second = pool.getConnection();
+        try
+        {
+            pool.getConnection();
+            fail("the pool handed out more connections than maxSize");
+        }
+        catch(SQLException expected){}
+        finally { second.close(); }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * PathFinderTest.java - PathFinderTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Paths found by {@link PathFinder} on small drawn maps, where terrain 1
+ * is a wall.
+ */
+public class PathFinderTest
+{
+    private static final int[] WALLS = { 1 };
+    
+    private static PathFinder finder(MapData map, int maxExpanded) throws Exception
+    {
+        return new PathFinder(TestMaps.compile(map), WALLS, maxExpanded, 16);
+    }
+    
+    /** Checks a path runs from start to goal in single steps through open tiles. */
+    private static void assertWalkable(PathFinder finder, int[] path, int sx, int sy, int gx, int gy)
+    {
+        int width = finder.getWidth();
+        assertEquals(sy * width + sx, path[0]);
+        assertEquals(gy * width + gx, path[path.length - 1]);
+        
+        for(int i = 0; i < path.length; i++)
+        {
+            assertTrue(finder.isPassable(path[i] % width, path[i] / width));
+            if(i > 0)
+                assertEquals(1, Math.abs(path[i] % width - path[i - 1] % width) + Math.abs(path[i] / width - path[i - 1] / width));
+        }
+    }
+    
+    @Test
+    public void walksStraightAcrossOpenGround() throws Exception
+    {
+        PathFinder finder = finder(TestMaps.draw("open", "00000", "00000", "00000"), 1000);
+        int[] path = finder.findPath(0, 1, 4, 1);
+        
+        assertArrayEquals(new int[]{ 5, 6, 7, 8, 9 }, path);
+        assertArrayEquals(new int[]{ 7 }, finder.findPath(2, 1, 2, 1));
+    }
+    
+    @Test
+    public void goesAroundWalls() throws Exception
+    {
+        PathFinder finder = finder(TestMaps.draw("wall",
+                "00000",
+                "01110",
+                "00010",
+                "11010",
+                "00000"), 1000);
+        int[] path = finder.findPath(2, 2, 4, 2);
+        
+        assertWalkable(finder, path, 2, 2, 4, 2);
+        assertEquals(7, path.length);
+    }
+    
+    @Test
+    public void blockingObjectsAreWalls() throws Exception
+    {
+        MapData map = TestMaps.draw("rock", "000", "000", "000");
+        map.addObject(1, 1, 0, 1, 1, SpatialIndex.BLOCKING_LAYER, 1, 1);
+        map.addObject(1, 1, 1, 1, 1, SpatialIndex.BLOCKING_LAYER, 1, 2);
+        map.addObject(1, 1, 2, 1, 1, SpatialIndex.BLOCKING_LAYER - 1, 1, 3);
+        PathFinder finder = finder(map, 1000);
+        
+        assertFalse(finder.isPassable(1, 1));
+        assertTrue(finder.isPassable(1, 2));
+        assertArrayEquals(new int[]{ 0, 3, 6, 7, 8, 5, 2 }, finder.findPath(0, 0, 2, 0));
+    }
+    
+    @Test
+    public void noPathToWallsOrEnclosedTiles() throws Exception
+    {
+        PathFinder finder = finder(TestMaps.draw("pen", "00000", "00111", "00101", "00111"), 1000);
+        
+        assertNull(finder.findPath(0, 0, 3, 2));
+        assertNull(finder.findPath(0, 0, 2, 1));
+        assertNull(finder.findPath(2, 1, 0, 0));
+        assertNull(finder.findPath(0, 0, 9, 0));
+    }
+    
+    @Test
+    public void givesUpAfterMaxExpanded() throws Exception
+    {
+        PathFinder finder = finder(TestMaps.draw("long", "0000000000"), 3);
+        
+        assertNull(finder.findPath(0, 0, 9, 0));
+        assertArrayEquals(new int[]{ 0, 1, 2 }, finder.findPath(0, 0, 2, 0));
+    }
+    
+    @Test
+    public void callersMayChangeTheirCopy() throws Exception
+    {
+        PathFinder finder = finder(TestMaps.draw("open", "0000"), 1000);
+        
+        int[] first = finder.findPath(0, 0, 3, 0);
+        first[1] = -1;
+        assertArrayEquals(new int[]{ 0, 1, 2, 3 }, finder.findPath(0, 0, 3, 0));
+    }
+}
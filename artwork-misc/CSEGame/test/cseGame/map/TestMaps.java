@@ -0,0 +1,44 @@
+/*
+ * TestMaps.java - TestMaps Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.map;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Builds small compiled maps for the tests without going through XML.
+ */
+public class TestMaps
+{
+    /**
+     * Returns a map drawn as rows of digits, one terrain type per tile.
+     * @param rows all of the same length
+     */
+    public static MapData draw(String name, String... rows)
+    {
+        MapData map = new MapData();
+        map.name = name;
+        map.width = rows[0].length();
+        map.height = rows.length;
+        map.terrain = new short[map.width * map.height];
+        
+        for(int y = 0; y < map.height; y++)
+        {
+            for(int x = 0; x < map.width; x++)
+                map.terrain[y * map.width + x] = (short)(rows[y].charAt(x) - '0');
+        }
+        return map;
+    }
+    
+    /** Compiles a map into memory. */
+    public static CompiledMap compile(MapData map) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapCompiler.write(map, out);
+        return CompiledMap.wrap(map.name, out.toByteArray());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * MetricsTest.java - MetricsTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.metrics;
+
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * The Prometheus text {@link Metrics#write} produces for each kind of metric.
+ */
+public class MetricsTest
+{
+    @After
+    public void tearDown()
+    {
+        Metrics.removeLabelled("test", "metrics");
+    }
+    
+    private static String export() throws Exception
+    {
+        StringWriter out = new StringWriter();
+        Metrics.write(out);
+        return out.toString();
+    }
+    
+    @Test
+    public void totalsAreExportedAsCounters() throws Exception
+    {
+        Metrics.counter("test_kept_total", new Gauge(){ public long get(){ return 42; } }, "test", "metrics");
+        Metrics.gauge("test_level", new Gauge(){ public long get(){ return 7; } }, "test", "metrics");
+        
+        String text = export();
+        assertTrue(text, text.contains("# TYPE test_kept_total counter\ntest_kept_total{test=\"metrics\"} 42\n"));
+        assertTrue(text, text.contains("# TYPE test_level gauge\ntest_level{test=\"metrics\"} 7\n"));
+    }
+    
+    @Test
+    public void summaryMaximaAreTheirOwnGauge() throws Exception
+    {
+        Metrics.histogram("test_seconds", "test", "metrics", "n", "1").record(2000000000L);
+        Metrics.histogram("test_seconds", "test", "metrics", "n", "2").record(1000000000L);
+        
+        String text = export();
+        int summary = text.indexOf("# TYPE test_seconds summary\n");
+        int max = text.indexOf("# TYPE test_seconds_max gauge\n");
+        assertTrue(text, summary >= 0 && max > summary);
+        
+        // Every series of the summary comes before the family's maxima.
+        assertTrue(text, text.lastIndexOf("test_seconds_count{") < max);
+        assertTrue(text, text.indexOf("test_seconds_max{test=\"metrics\",n=\"1\"} 2.0\n", max) > 0);
+        assertTrue(text, text.indexOf("test_seconds_max{test=\"metrics\",n=\"2\"} 1.0\n", max) > 0);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * PlayerStoreTest.java - PlayerStoreTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.player;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.db.ConnectionPool;
+import cseGame.db.PoolConfig;
+
+/**
+ * Sessions of {@link PlayerStore} on in-memory HSQLDB databases. The
+ * flusher is set to wait a minute so the tests decide when changes are
+ * written.
+ */
+public class PlayerStoreTest
+{
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static final String START = "map0001:0:0:5:5";
+    
+    private final List<ConnectionPool> pools = new ArrayList<ConnectionPool>();
+    private final List<PlayerStore> stores = new ArrayList<PlayerStore>();
+    private PlayerStore store;
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        store = newStore();
+    }
+    
+    @After
+    public void tearDown() throws Exception
+    {
+        for(PlayerStore store : stores)
+            store.close();
+        
+        for(ConnectionPool pool : pools)
+        {
+            Connection con = pool.getConnection();
+            Statement statement = con.createStatement();
+            statement.execute("SHUTDOWN");
+            statement.close();
+            con.close();
+            pool.close();
+        }
+    }
+    
+    /** Returns a store on a database of its own. */
+    private PlayerStore newStore() throws SQLException
+    {
+        int n = databases.incrementAndGet();
+        ConnectionPool pool = new ConnectionPool(new PoolConfig("player-test-" + n, "jdbc:hsqldb:mem:playertest" + n, "sa", ""));
+        pools.add(pool);
+        
+        PlayerStore store = new PlayerStore(pool, 60000, 60000, START, new int[]{ 11, 12 });
+        stores.add(store);
+        return store;
+    }
+    
+    /** Closes a store and opens another on the same database, so nothing is left in memory. */
+    private PlayerStore reopen() throws SQLException
+    {
+        store.close();
+        stores.remove(store);
+        
+        PlayerStore reopened = new PlayerStore(pools.get(0), 60000, 60000, START, new int[0]);
+        stores.add(reopened);
+        return reopened;
+    }
+    
+    @Test
+    public void newPlayersStartAtTheStartWithTheStartingItems() throws Exception
+    {
+        PlayerStore.Session bob = store.open("bob");
+        
+        assertEquals(START, bob.getPosition());
+        assertEquals(11, bob.getItem(0));
+        assertEquals(1, bob.getQuantity(1));
+        assertEquals(0, bob.getItem(2));
+        assertSame(bob, store.open("bob"));
+        assertTrue(store.isOpen("bob"));
+    }
+    
+    @Test
+    public void changesWaitInMemoryAndAreWrittenInOneBatch() throws Exception
+    {
+        PlayerStore.Session bob = store.open("bob");
+        bob.moveTo("map0002", 1, 0, 3, 4);
+        bob.put(5, 20, 3);
+        bob.put(5, 20, 4);
+        bob.swap(0, 6);
+        bob.moveTo("map0002", 1, 0, 3, 4);
+        
+        assertEquals(0, store.getWritten());
+        assertEquals(1, store.getDirty());
+        
+        store.flush();
+        assertEquals(4, store.getWritten());
+        assertEquals(1, store.getBatches());
+        assertEquals(0, store.getDirty());
+        
+        store.flush();
+        assertEquals(1, store.getBatches());
+        
+        PlayerStore.Session read = reopen().open("bob");
+        assertNotSame(bob, read);
+        assertEquals("map0002:1:0:3:4", read.getPosition());
+        assertEquals(4, read.getQuantity(5));
+        assertEquals(0, read.getItem(0));
+        assertEquals(11, read.getItem(6));
+    }
+    
+    @Test
+    public void logoutWritesAndDropsTheSession() throws Exception
+    {
+        PlayerStore.Session bob = store.open("bob");
+        bob.moveTo("map0003", 0, 1, 2, 2);
+        bob.put(0, 0, 0);
+        
+        store.logout("bob");
+        assertFalse(store.isOpen("bob"));
+        assertEquals(0, store.size());
+        
+        try
+        {
+            bob.moveTo("map0001", 0, 0, 0, 0);
+            fail("Expected the logged out session to refuse changes.");
+        }
+        catch (IllegalStateException e){}
+        
+        PlayerStore.Session again = store.open("bob");
+        assertNotSame(bob, again);
+        assertEquals("map0003:0:1:2:2", again.getPosition());
+        assertEquals(0, again.getItem(0));
+        
+        store.logout("nobody");
+    }
+    
+    @Test
+    public void loggingBackInDuringALogoutSeesItsWrites() throws Exception
+    {
+        for(int i = 1; i <= 100; i++)
+        {
+            store.open("bob").moveTo("map0001", 0, 0, i, i);
+            
+            Thread logout = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        store.logout("bob");
+                    }
+                    catch (SQLException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            logout.start();
+            String position = store.open("bob").getPosition();
+            logout.join();
+            
+            assertEquals("map0001:0:0:" + i + ":" + i, position);
+        }
+    }
+    
+    @Test
+    public void handsPlayersOverWithTheirPacks() throws Exception
+    {
+        PlayerStore.Session bob = store.open("bob");
+        bob.moveTo("map0002", 1, 0, 7, 8);
+        bob.put(29, 40, 9);
+        
+        String state = store.handOff("bob");
+        assertEquals("map0002:1:0:7:8|0:11:1,1:12:1,29:40:9", state);
+        assertFalse(store.isOpen("bob"));
+        assertNull(store.handOff("bob"));
+        
+        PlayerStore other = newStore();
+        PlayerStore.Session adopted = other.adopt("bob", state);
+        assertEquals("map0002:1:0:7:8", adopted.getPosition());
+        assertEquals(40, adopted.getItem(29));
+        assertEquals(9, adopted.getQuantity(29));
+        
+        adopted.put(0, 0, 0);
+        assertEquals("map0002:1:0:7:8|1:12:1,29:40:9", other.handOff("bob"));
+    }
+    
+    @Test
+    public void refusesBadNamesAndSlots() throws Exception
+    {
+        assertFalse(PlayerStore.isValidName("o'brien"));
+        assertFalse(PlayerStore.isValidName(""));
+        
+        try
+        {
+            store.open("o'brien");
+            fail("Expected the name to be refused.");
+        }
+        catch (IllegalArgumentException e){}
+        
+        try
+        {
+            store.open("bob").put(PlayerStore.SLOTS, 1, 1);
+            fail("Expected the slot to be refused.");
+        }
+        catch (IllegalArgumentException e){}
+    }
+}
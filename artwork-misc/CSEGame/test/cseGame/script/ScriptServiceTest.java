@@ -0,0 +1,181 @@
+/*
+ * ScriptServiceTest.java - ScriptServiceTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.script;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * What scripts run by {@link ScriptService} can do, and that the sandbox
+ * stops those that run over their budgets or reach for Java.
+ */
+public class ScriptServiceTest
+{
+    /** 1 thread, 100000 instructions, 200 ms a run, a call depth of 32. */
+    private final ScriptService service = new ScriptService(1, 4, 100000, 200, 5000, 32, 16);
+    
+    private String run(int id, String source) throws Exception
+    {
+        ScriptService.Call call = new ScriptService.Call("npc", id, source);
+        call.player = "bob";
+        call.x = 3;
+        return service.run(call);
+    }
+    
+    private static void assertError(String expected, String result)
+    {
+        assertTrue(result, result.startsWith("{'id': "));
+        assertTrue(result, result.indexOf("'error': ") > 0);
+        assertTrue(result, result.indexOf(expected) > 0);
+    }
+    
+    @Test
+    public void recordsActions() throws Exception
+    {
+        assertEquals("{'id': 1, 'type': 'npc', 'actions': [['say', 'Hi bob'], ['moveTo', 4, 7], ['show', true]]}",
+                run(1, "game.say('Hi ' + player.name); player.moveTo(player.x + 1, 7); disp.show(obj.type == 'npc');"));
+    }
+    
+    @Test
+    public void decodesTheScriptColumn() throws Exception
+    {
+        assertEquals("game.say('h\u00e9')", ScriptService.decode("game.say(%27h%C3%A9%27)"));
+        assertEquals("100%zz", ScriptService.decode("100%zz"));
+        assertEquals("{'id': 2, 'type': 'npc', 'actions': [['say', 'h\u00e9 \\u003cb>']]}",
+                run(2, "game.say(%27h%C3%A9%20%3Cb%3E%27)"));
+    }
+    
+    @Test
+    public void stopsLoopsAtTheInstructionBudget() throws Exception
+    {
+        assertError("budget of 100000 instructions", run(3, "while(true){}"));
+    }
+    
+    @Test
+    public void scriptsCannotCatchTheBudget() throws Exception
+    {
+        assertError("budget of 100000 instructions", run(4, "for(;;){ try { for(;;){} } catch(e){} }"));
+    }
+    
+    @Test
+    public void chargesTailCalls() throws Exception
+    {
+        assertError("budget of 100000 instructions", run(5, "function f(n){ return f(n + 1); } f(0);"));
+    }
+    
+    @Test
+    public void stopsDeepRecursion() throws Exception
+    {
+        assertError("maximum stack depth", run(6, "function f(n){ return 1 + f(n + 1); } f(0);"));
+    }
+    
+    @Test
+    public void stopsSlowScriptsAtTheDeadline() throws Exception
+    {
+        ScriptService slow = new ScriptService(1, 4, Integer.MAX_VALUE, 50, 5000, 32, 16);
+        long start = System.nanoTime();
+        
+        assertError("ran out of time", slow.run(new ScriptService.Call("npc", 7, "while(true){}")));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+    
+    @Test
+    public void limitsRecordedActions() throws Exception
+    {
+        assertError("more than 64 actions", run(8, "for(;;){ game.say('x'); }"));
+    }
+    
+    @Test
+    public void seesNoJava() throws Exception
+    {
+        assertError("\"java\" is not defined", run(9, "java.lang.System.exit(1);"));
+        assertError("\"Packages\" is not defined", run(10, "Packages.java.lang.System.exit(1);"));
+        assertEquals("{'id': 11, 'type': 'npc', 'actions': [['say', 'undefined']]}", run(11, "game.say(typeof java);"));
+    }
+    
+    @Test
+    public void scriptsCannotChangeTheSharedObjects() throws Exception
+    {
+        run(12, "String.prototype.evil = 1; Math.max = null;");
+        assertEquals("{'id': 13, 'type': 'npc', 'actions': [['say', 'undefined', 2]]}",
+                run(13, "game.say(typeof ''.evil, Math.max(1, 2));"));
+    }
+    
+    @Test
+    public void answersFromTheCacheOnTheCallingThread() throws Exception
+    {
+        final ScriptService.Call call = new ScriptService.Call("npc", 14, "game.say('hello')");
+        final AtomicReference<String> result = new AtomicReference<String>();
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        final CountDownLatch done = new CountDownLatch(1);
+        
+        ScriptService.Callback callback = new ScriptService.Callback()
+        {
+            public void done(String value)
+            {
+                result.set(value);
+                thread.set(Thread.currentThread());
+                done.countDown();
+            }
+            
+            public void failed(Exception e){ fail(e.toString()); }
+        };
+        
+        assertNotNull(service.submit(call, callback));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), thread.get());
+        
+        assertNull(service.submit(call, callback));
+        assertSame(Thread.currentThread(), thread.get());
+        assertEquals("{'id': 14, 'type': 'npc', 'actions': [['say', 'hello']]}", result.get());
+    }
+    
+    @Test
+    public void compileErrorsAreAnsweredWithoutRunning() throws Exception
+    {
+        assertError("Unexpected end of file", run(15, "game.say("));
+        
+        ScriptService.Callback callback = new ScriptService.Callback()
+        {
+            public void done(String value){ assertTrue(value, value.indexOf("'error': ") > 0); }
+            
+            public void failed(Exception e){ fail(e.toString()); }
+        };
+        assertNull(service.submit(new ScriptService.Call("npc", 15, "game.say("), callback));
+    }
+    
+    @Test
+    public void refusesRunsPastTheQueue() throws Exception
+    {
+        ScriptService busy = new ScriptService(1, 1, Integer.MAX_VALUE, 200, 5000, 32, 16);
+        ScriptService.Callback ignore = new ScriptService.Callback()
+        {
+            public void done(String value){}
+            
+            public void failed(Exception e){}
+        };
+        
+        Future<?> running = busy.submit(new ScriptService.Call("npc", 16, "while(true){}"), ignore);
+        Future<?> queued = busy.submit(new ScriptService.Call("npc", 17, "while(true){}"), ignore);
+        try
+        {
+            busy.submit(new ScriptService.Call("npc", 18, "while(true){}"), ignore);
+            fail("Expected the run to be refused.");
+        }
+        catch (RejectedExecutionException e){}
+        
+        busy.expire(queued);
+        assertTrue(queued.isCancelled());
+        running.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * ShardFilterTest.java - ShardFilterTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.shard;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.Mocks;
+
+/**
+ * Which requests {@link ShardFilter} serves itself, and that one already
+ * passed on by a node is refused rather than passed on again.
+ */
+public class ShardFilterTest
+{
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+    
+    private Mocks.Chain chain = new Mocks.Chain();
+    
+    /** Node a of a and b, b serving map0002. */
+    private static ServletContext world()
+    {
+        return Mocks.context(Mocks.params(
+                "cseGame.shard.self", "a",
+                "cseGame.shard.nodes", "a=http://a.example/cseGame, b=http://b.example/cseGame/",
+                "cseGame.shard.maps", "map0002=b",
+                "cseGame.shard.secret", "s3cret"));
+    }
+    
+    private int send(ServletContext context, Map<String, String> params, Map<String, String> headers) throws Exception
+    {
+        ShardFilter filter = new ShardFilter();
+        filter.init(Mocks.filterConfig(context));
+        
+        Mocks.Response response = new Mocks.Response();
+        filter.doFilter(Mocks.request("/mapData", "10.0.0.1", params, headers), response.proxy, chain);
+        return response.getStatus();
+    }
+    
+    @Test
+    public void refusesForwardedRequestForAnotherNodesMap() throws Exception
+    {
+        int status = send(world(), Mocks.params("map", "map0002"), Mocks.params(ShardMap.NODE_HEADER, "b"));
+        
+        assertEquals(ShardFilter.SC_MISDIRECTED, status);
+        assertEquals(0, chain.getCalls());
+    }
+    
+    @Test
+    public void refusesByBaseNameOfTheMap() throws Exception
+    {
+        int status = send(world(), Mocks.params("name", "GameData/map0002.xml"), Mocks.params(ShardMap.NODE_HEADER, "b"));
+        
+        assertEquals(ShardFilter.SC_MISDIRECTED, status);
+        assertEquals(0, chain.getCalls());
+    }
+    
+    @Test
+    public void servesItsOwnMaps() throws Exception
+    {
+        ServletContext context = world();
+        
+        assertEquals(200, send(context, Mocks.params("map", "map0001"), Mocks.params(ShardMap.NODE_HEADER, "b")));
+        assertEquals(200, send(context, Mocks.params("map", "map0001"), NO_HEADERS));
+        assertEquals(2, chain.getCalls());
+    }
+    
+    @Test
+    public void servesRequestsWithoutAMap() throws Exception
+    {
+        assertEquals(200, send(world(), Collections.<String, String>emptyMap(), Mocks.params(ShardMap.NODE_HEADER, "b")));
+        assertEquals(1, chain.getCalls());
+    }
+    
+    @Test
+    public void servesEverythingWhenNotSharded() throws Exception
+    {
+        ServletContext context = Mocks.context(Mocks.params("cseGame.shard.maps", ""));
+        
+        assertEquals(200, send(context, Mocks.params("map", "map0002"), Mocks.params(ShardMap.NODE_HEADER, "b")));
+        assertEquals(1, chain.getCalls());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesToStartWithoutASecret() throws Exception
+    {
+        new ShardFilter().init(Mocks.filterConfig(Mocks.context(Mocks.params(
+                "cseGame.shard.self", "a",
+                "cseGame.shard.nodes", "a=http://a.example/, b=http://b.example/"))));
+    }
+}
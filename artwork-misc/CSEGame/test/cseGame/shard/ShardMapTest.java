@@ -0,0 +1,78 @@
+/*
+ * ShardMapTest.java - ShardMapTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.shard;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Reading the routing table and looking up the node of a map.
+ */
+public class ShardMapTest
+{
+    private static final Map<String, String> NODES = ShardMap.parseList("a=http://a.example/, b=http://b.example/");
+    
+    @Test
+    public void parsesListsInOrder()
+    {
+        Map<String, String> list = ShardMap.parseList(" b = 2 ,a=1,, ");
+        
+        assertEquals("[b, a]", list.keySet().toString());
+        assertEquals("2", list.get("b"));
+        assertTrue(ShardMap.parseList("").isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsListItemsWithoutAValue()
+    {
+        ShardMap.parseList("a=1, b");
+    }
+    
+    @Test
+    public void findsOwnersAndFallsBack()
+    {
+        ShardMap shards = new ShardMap("a", NODES, ShardMap.parseList("map0002=b"), "a", "s");
+        
+        assertTrue(shards.isEnabled());
+        assertEquals("b", shards.getOwner("map0002"));
+        assertEquals("a", shards.getOwner("map0001"));
+        assertTrue(shards.isLocal("map0001"));
+        assertFalse(shards.isLocal("map0002"));
+        
+        assertEquals("b", new ShardMap("a", NODES, Collections.<String, String>emptyMap(), "b", "s").getOwner("map0001"));
+    }
+    
+    @Test
+    public void aSingleNodeServesEverything()
+    {
+        ShardMap shards = new ShardMap("local", Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(), "local", "");
+        
+        assertFalse(shards.isEnabled());
+        assertTrue(shards.isLocal("map0002"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void needsASecretForSeveralNodes()
+    {
+        new ShardMap("a", NODES, Collections.<String, String>emptyMap(), "a", "");
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownSelf()
+    {
+        new ShardMap("c", NODES, Collections.<String, String>emptyMap(), "c", "s");
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMapsOfUnknownNodes()
+    {
+        new ShardMap("a", NODES, ShardMap.parseList("map0002=c"), "a", "s");
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * EntityTableTest.java - EntityTableTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * The step queue of {@link EntityTable} and the sequence numbers it
+ * acknowledges.
+ */
+public class EntityTableTest
+{
+    private static byte[] steps(int count)
+    {
+        byte[] steps = new byte[count];
+        for(int i = 0; i < count; i++)
+            steps[i] = (byte)(i % 4);
+        return steps;
+    }
+    
+    @Test
+    public void queuedStepsAreAcknowledgedAsTheyRun()
+    {
+        EntityTable table = new EntityTable(4);
+        int slot = table.spawn(1, 0, "a", 0, 0, 0);
+        
+        table.queueSteps(slot, steps(3), 3);
+        assertEquals(0, table.lastSeq[slot]);
+        
+        assertEquals(0, table.nextStep(slot));
+        assertEquals(1, table.lastSeq[slot]);
+        table.nextStep(slot);
+        table.nextStep(slot);
+        assertEquals(3, table.lastSeq[slot]);
+        assertEquals(-1, table.nextStep(slot));
+    }
+    
+    @Test
+    public void droppedStepsAreNotAcknowledged()
+    {
+        EntityTable table = new EntityTable(4);
+        int slot = table.spawn(1, 0, "a", 0, 0, 0);
+        int overflow = EntityTable.STEP_QUEUE + 4;
+        
+        table.queueSteps(slot, steps(overflow), overflow);
+        assertEquals(EntityTable.STEP_QUEUE, table.queuedSeq[slot]);
+        
+        while(table.nextStep(slot) >= 0){}
+        assertEquals(EntityTable.STEP_QUEUE, table.lastSeq[slot]);
+        
+        // A batch that finds the queue full leaves the acknowledgement alone.
+        table.queueSteps(slot, steps(EntityTable.STEP_QUEUE), 100);
+        table.queueSteps(slot, steps(2), 102);
+        assertEquals(100, table.queuedSeq[slot]);
+    }
+}
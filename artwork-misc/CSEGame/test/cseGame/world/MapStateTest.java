@@ -0,0 +1,146 @@
+/*
+ * MapStateTest.java - MapStateTest Class
+ *
+ * Created on October 18, 2026
+ */
+
+package cseGame.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import cseGame.map.MapData;
+import cseGame.map.TestMaps;
+
+/**
+ * The lifecycle of the tasks waiting on a {@link MapState}: each runs once,
+ * after the next change, and is forgotten once run or cancelled.
+ */
+public class MapStateTest
+{
+    private MapState state;
+    
+    /** Counts its runs. */
+    private static class Waiter implements Runnable
+    {
+        final AtomicInteger runs = new AtomicInteger();
+        
+        public void run(){ runs.incrementAndGet(); }
+    }
+    
+    @Before
+    public void setUp() throws Exception
+    {
+        MapData map = TestMaps.draw("map0001", "0000", "0000", "0000");
+        map.addObject(1, 0, 0, 1, 1, 0, 1, 7);
+        state = new MapState(TestMaps.compile(map), 64, 8);
+    }
+    
+    @Test
+    public void runsOnceAfterTheNextChange()
+    {
+        Waiter waiter = new Waiter();
+        state.afterNextChange(waiter);
+        assertEquals(1, state.getWaiterCount());
+        assertEquals(0, waiter.runs.get());
+        
+        state.move(0, 1, 1);
+        assertEquals(1, waiter.runs.get());
+        assertEquals(0, state.getWaiterCount());
+        
+        state.move(0, 2, 1);
+        state.add(MapState.ITEM, 3, 2, 0, 1, 2);
+        assertEquals(1, waiter.runs.get());
+    }
+    
+    @Test
+    public void waitsThroughCallsThatChangeNothing()
+    {
+        Waiter waiter = new Waiter();
+        state.afterNextChange(waiter);
+        
+        state.move(0, 0, 0);
+        state.setHidden(0, false);
+        state.setState(0, 0);
+        assertEquals(0, waiter.runs.get());
+        assertEquals(1, state.getWaiterCount());
+        
+        state.setHidden(0, true);
+        assertEquals(1, waiter.runs.get());
+    }
+    
+    @Test
+    public void cancelledWaitersAreForgottenAndNeverRun()
+    {
+        Waiter cancelled = new Waiter(), kept = new Waiter();
+        state.afterNextChange(cancelled);
+        state.afterNextChange(kept);
+        
+        state.cancel(cancelled);
+        assertEquals(1, state.getWaiterCount());
+        
+        state.move(0, 1, 0);
+        assertEquals(0, cancelled.runs.get());
+        assertEquals(1, kept.runs.get());
+        assertEquals(0, state.getWaiterCount());
+        
+        // Cancelling one that has already run is harmless.
+        state.cancel(kept);
+        assertEquals(0, state.getWaiterCount());
+    }
+    
+    @Test
+    public void eachWaiterRunsOnceUnderConcurrentChanges() throws Exception
+    {
+        final int threads = 4, changes = 2000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> movers = new ArrayList<Thread>();
+        
+        for(int t = 0; t < threads; t++)
+        {
+            final int row = t % 3;
+            Thread mover = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        int object = state.add(MapState.NPC, 1, 1, 0, 0, row);
+                        for(int i = 1; i <= changes; i++)
+                            state.move(object, i % 4, row);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            mover.start();
+            movers.add(mover);
+        }
+        
+        List<Waiter> waiters = new ArrayList<Waiter>();
+        start.countDown();
+        for(int i = 0; i < 1000; i++)
+        {
+            Waiter waiter = new Waiter();
+            waiters.add(waiter);
+            state.afterNextChange(waiter);
+        }
+        
+        for(Thread mover : movers)
+            mover.join();
+        state.move(0, 3, 2);
+        
+        for(Waiter waiter : waiters)
+            assertEquals(1, waiter.runs.get());
+        assertEquals(0, state.getWaiterCount());
+    }
+}
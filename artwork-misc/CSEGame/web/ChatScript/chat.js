@@ -28,7 +28,9 @@ ChatHandler.prototype = {
     /** Update Thread ID @private @type {int} */
     updateID:           null,
     /** Chat window update interval @type {int}  */
-    UPDATE_INTERVAL:    2000
+    UPDATE_INTERVAL:    2000,
+    /** Delay before re-polling once a long-poll returns @type {int}  */
+    REPOLL_INTERVAL:    50
 };
 
 //===============================================
@@ -94,8 +96,11 @@ ChatHandler.prototype.showUpdates = function() {
         
         document.getElementById('console').innerHTML += msgArray.join('');    
         
-        // Prepare another request for an update
-        this.updateID = window.setTimeout(console.chatHandler.update, this.UPDATE_INTERVAL);
+        // The server holds the request until there is something new, so poll 
+        // again straight away unless the request failed.
+        var handler = console.chatHandler;
+        var delay = chat_msgRequester.httpReq.status == 200 ? handler.REPOLL_INTERVAL : handler.UPDATE_INTERVAL;
+        handler.updateID = window.setTimeout(handler.update, delay);
     }
 };
 
@@ -112,12 +117,13 @@ ChatHandler.prototype.startUpdate = function() {
 //===============================================
 // update
 /**
- * Requests updates from server.
+ * Requests updates from server. The request is a long-poll: the server
+ * answers when a message arrives or after its poll timeout.
  * @private 
  */
 ChatHandler.prototype.update = function() {  
     if(game && game.player)
-        chat_msgRequester.sendRequest(console.chatHandler.showUpdates, "GET", "chat?time=" + chat_lastUpdate + "&user=" + game.player.name, true);
+        chat_msgRequester.sendRequest(console.chatHandler.showUpdates, "GET", "chat?wait=1&time=" + chat_lastUpdate + "&user=" + game.player.name, true);
 };
 
 
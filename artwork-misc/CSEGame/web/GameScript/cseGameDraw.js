@@ -141,10 +141,14 @@ GameDraw.prototype =    {
     mapSections:    [],
     /** Array of already loaded maps @private @type {Array} */
     mapCache:       [],
-    /** Array of already loaded objects @private @type {Array} */ 
-    objCache:      [],
+    /** Already loaded objects by type ('mapObj', 'npc', 'items') and then id @private @type {Object} */
+    objCache:      { mapObj: {}, npc: {}, items: {} },
     /** Map scroll DIV element @private @type {DOMElement} */
     mapScroll:      null,
+    /** Draw terrain and static objects as one server-rendered image per map @type {boolean} */
+    chunkImages:    true,
+    /** Tiles blocked by objects drawn into a chunk image, by element id @private @type {Object} */
+    blocked:        {},
     /** DIV element that holds game status messages @private @type {DOMElement} */
     status:         null
 };
@@ -167,7 +171,8 @@ GameDraw.prototype.hasCollision = function(cx, cy)  {
     var mapSection = (gY*3) - (-gX);
 
     // Does an object exist at that point?
-    return (document.getElementById(mapSection + "x" + mapSectX + "x" + mapSectY + "x2") != null);
+    var id = mapSection + "x" + mapSectX + "x" + mapSectY + "x2";
+    return this.blocked[id] || document.getElementById(id) != null;
 };
 
 //===============================================
@@ -193,8 +198,6 @@ GameDraw.prototype.Initialize = function()  {
     // Initialize Pack
     pack = new Pack();
     pack.Initialize();
-    pack.addItem(1);
-    pack.addItem(1);
 
     // Retrieve status pane.
     this.status = document.getElementById('status');
@@ -214,16 +217,47 @@ GameDraw.prototype.Initialize = function()  {
  * gathered from the first map. Every map has data about the maps
  * to the top, right, bottom, and left of it, and thus this function
  * utilizes that information, to easily load the entire map using only
- * the name of one.
+ * the name of one. The objects of every section, and the NPCs and items
+ * given, are fetched in one request before anything is drawn.
  * @param {String} map Map to load.
+ * @param {Array} npcs ids of the NPCs that will be spawned.
+ * @param {Array} items ids of the items in the player's pack.
  */
-GameDraw.prototype.loadMap = function(map) {
+GameDraw.prototype.loadMap = function(map, npcs, items) {
     
-    // Current map that is being processed;
+    // Find the sections first, so their objects can be fetched together.
+    var sections = [];
+    var names = [];
+    var files = [];
     var mapFile = map;
+    for(var n = 0; n < 9; n++) {
+        var section = this.loadSection(mapFile);
+        if(!section || !section.terrain)
+            break;
+        sections.push(section);
+        names.push(mapFile);
+        
+        var seen = false;
+        for(var f = 0; f < files.length; f++)
+            seen = seen || files[f] == mapFile;
+        if(!seen)
+            files.push(mapFile);
+        
+        // Determine which way to go...
+        if( n != 0 && (n%3) == 0)
+            mapFile = sections[n-3].south;
+        else
+            mapFile = section.east;
+    }
+    
+    if(!this.loadObjects(files, npcs || [], items || []))
+        return;
+    
+    // Current map that is being processed;
     var mapNum = 0;
+    this.blocked = {};
 
-    do {
+    while(mapNum < sections.length) {
         // Animated objects in map section. (Stored to be registerd for
         // animation later)
         var animObjs = [];
@@ -231,16 +265,20 @@ GameDraw.prototype.loadMap = function(map) {
         // Holds the map tile before rendering.
         var mapArray = [];
         
-        // Request map data from server.
-        var mapData = eval("(" + req.sendRequest(null, "GET", "GameData/" + mapFile, false) + ")");
+        var mapData = sections[mapNum];
+        mapFile = names[mapNum];
         
         // Verify that the map was loaded/parsed correctly
         if(mapData.terrain) {         
             
-            // Load terrain.
-            for(var y = 0; y < 20; y++) {
-                for(var x = 0; x < 20; x++)
-                    mapArray.push("<div class='sp" + mapData.terrain.charAt(y*20-(-x)) +"' style='top: "+ y*24 +"px; left: "+ x*24 +"px'></div>");
+            // Load terrain, with the static objects drawn in by the server.
+            if(mapData.image)
+                mapArray.push("<img src='" + mapData.image + "' style='position: absolute; top: 0px; left: 0px;'>");
+            else {
+                for(var y = 0; y < 20; y++) {
+                    for(var x = 0; x < 20; x++)
+                        mapArray.push("<div class='sp" + mapData.terrain.charAt(y*20-(-x)) +"' style='top: "+ y*24 +"px; left: "+ x*24 +"px'></div>");
+                }
             }
             
             // Load map objects.
@@ -252,40 +290,21 @@ GameDraw.prototype.loadMap = function(map) {
                 
                 // Determine if it's simply a layer indicator, if not continue.
                 if(mObj.layer){ curLayer = mObj.layer; }
+                // Already in the chunk image; only its collision is needed.
+                else if(mObj.baked)
+                    this.blocked[mapNum + "x" + mObj.x + "x" + mObj.y + "x" + curLayer] = true;
                 else {
                     var interactStr = " ";
                     
                     // Check if object has user interactions
                     if(mObj.objid) {
-                        var result = null;
-                        
-                        // Check to see if the object is in the cache.
-                        for(var j = 0; j < this.objCache.length; j++) {
-                            var item = this.objCache[j];
-                            if(item.id == mObj.objid) {
-                                result = item;
-                                break;
-                            }
-                        }
-                        
-                        // If the object isn't in the cache, request from server.
-                        if(!result || !result.id) {
-                            result = req.sendRequest(null, "GET", "objectQuery?id="+ mObj.objid +"&type=mapObj", false);
-                            if(result.indexOf('ERROR') != -1) {
-                                log("Error Connecting to Database!!!");
-                                log(result);
-                                return;
-                            }
-                            result = eval("(" + result + ")");
-                        }
+                        var result = this.getObject('mapObj', mObj.objid);
                         
                         if(result) {            
                             // Add necessary data for tooltips.
                             interactStr = "options='"+ result.options +"' objName='"+ result.name +"' script='"+ result.script +"'";
                             interactStr += " onmouseover='tip.showTTip(this)' onmouseout='tip.hideTTip(this)'";
                             interactStr += " onmouseup='ctxt.show(this,event)' ";
-                            // Cache object
-                            this.objCache.push(result);
                         }
                     }
                     
@@ -320,16 +339,100 @@ GameDraw.prototype.loadMap = function(map) {
             for(var i = 0; i < animObjs.length; i++)
                 game.regAnimation(document.getElementById(animObjs[i]));
             
-            // Determine which way to go...
-            if( mapNum != 0 && (mapNum%3) == 0)
-                mapFile = this.mapCache[mapNum-3].south;
-            else
-                mapFile = mapData.east;
-            
             // Prepare for next map...
             mapNum++;
         }
-    } while(mapNum < 9);
+    }
+};
+
+//===============================================
+// loadSection
+/**
+ * Loads one map section. With chunk images the section comes from the
+ * server's chunk of that map, which the image is drawn from, rather than
+ * from GameData; its objects are put back into the layer order used here.
+ * @param {String} map Map file to load.
+ * @return {Object} the section, or null if it could not be loaded.
+ */
+GameDraw.prototype.loadSection = function(map) {
+    if(!this.chunkImages)
+        return eval("(" + req.sendRequest(null, "GET", "GameData/" + map, false) + ")");
+    
+    var result = req.sendRequest(null, "GET", "chunk?map=" + map + "&x=0&y=0", false);
+    if(result.indexOf('{') != 0) {
+        log("Error loading map " + map);
+        return null;
+    }
+    
+    var chunk = eval("(" + result + ")");
+    var section = { west: chunk.west, north: chunk.north, east: chunk.east, south: chunk.south,
+                    terrain: chunk.terrain, image: chunk.image, objs: [] };
+    var layer = null;
+    for(var i = 0; i < chunk.objs.length; i++) {
+        var obj = chunk.objs[i];
+        if(obj.layer != layer) {
+            layer = obj.layer;
+            section.objs.push({ layer: layer });
+        }
+        delete obj.layer;
+        section.objs.push(obj);
+    }
+    return section;
+};
+
+//===============================================
+// loadObjects
+/**
+ * Requests every object referenced by some maps, plus some NPCs and
+ * items, in a single round trip and places them into the object cache.
+ * @param {Array} maps Map files whose objects should be loaded, each once.
+ * @param {Array} npcs NPC ids.
+ * @param {Array} items Item ids.
+ * @return {boolean} false if the database could not be reached.
+ */
+GameDraw.prototype.loadObjects = function(maps, npcs, items) {
+    var result = req.sendRequest(null, "GET", "objectQuery?map=" + maps.join(',') + "&npc=" + npcs.join(',') +
+        "&items=" + items.join(','), false);
+    if(result.indexOf('ERROR') != -1) {
+        log("Error Connecting to Database!!!");
+        log(result);
+        return false;
+    }
+    
+    var objs = eval("(" + result + ")");
+    for(var i = 0; i < objs.length; i++) {
+        var cache = this.objCache[objs[i].type];
+        if(cache)
+            cache[objs[i].id] = objs[i];
+    }
+    return true;
+};
+
+//===============================================
+// getObject
+/**
+ * Returns an object from the cache, requesting it from the server
+ * if it was not loaded with the map.
+ * @param {String} type 'mapObj', 'npc' or 'items'.
+ * @param {int} id Object's ID.
+ * @return {Object} the object, or null if the database could not be reached.
+ */
+GameDraw.prototype.getObject = function(type, id) {
+    var obj = this.objCache[type][id];
+    if(obj)
+        return obj;
+    
+    var result = req.sendRequest(null, "GET", "objectQuery?id=" + id + "&type=" + type, false);
+    if(result.indexOf('ERROR') != -1) {
+        log("Error Connecting to Database!!!");
+        log(result);
+        return null;
+    }
+    
+    obj = eval("(" + result + ")");
+    if(obj && obj.id)
+        this.objCache[type][id] = obj;
+    return obj;
 };
 
 //===============================================
@@ -341,8 +444,8 @@ GameDraw.prototype.loadMap = function(map) {
  * @param {int} y Spawn point Y coordinate (Global Coordinates)
  */
 GameDraw.prototype.loadNPC = function(id, x, y) {
-    // Get NPC information from database.
-        var npcData = eval("(" + req.sendRequest(null, "GET", "objectQuery?id=" + id + "&type=npc", false) + ")");
+    // Get NPC information, loaded with the map unless it is new.
+        var npcData = this.getObject('npc', id);
               
         var npc =  new NPC(npcData, x, y);
         npc.show();
@@ -679,25 +782,53 @@ Pack.prototype = {};
  */
 Pack.prototype.Initialize = function() {};
 
+//===============================================
+// load
+/**
+ * Fills the inventory with the player's saved pack.
+ * @param {Array} items [slot, itemID, quantity] of each filled spot.
+ */
+Pack.prototype.load = function(items) {
+    for(var i = 0; i < items.length; i++)
+        this.showItem(items[i][1], items[i][0]);
+};
+
 //===============================================
 // addItem
 /**
- * Adds an item into user's inventory. Retrieves item data
+ * Adds an item into user's inventory and saves it on the server.
+ * @param {int} itemID unique ID of item being added.
+ * @param {int} packNum spot to put it in, or the first open one if not given.
+ */
+Pack.prototype.addItem = function(itemID, packNum) {
+    packNum = this.showItem(itemID, packNum);
+    game.saveChange("op=put&slot=" + packNum + "&item=" + itemID);
+};
+
+//===============================================
+// showItem
+/**
+ * Places an item in user's inventory. Retrieves item data
  *  from database, and then adds to inventory.
  * @param {int} itemID unique ID of item being added.
+ * @param {int} packNum spot to put it in, or the first open one if not given.
+ * @return {int} the spot it was put in.
  */
-Pack.prototype.addItem = function(itemID) {
+Pack.prototype.showItem = function(itemID, packNum) {
     
-    var packNum = 0, packSpot = null;
+    var packSpot = null;
     
     // Find open spot for item.
-    for(packNum = 0; packNum < 30; packNum++) {
-        packSpot = document.getElementById('packSpot'+packNum);
-        if(packSpot.innerHTML == '') break;
+    if(packNum == null) {
+        for(packNum = 0; packNum < 30; packNum++) {
+            packSpot = document.getElementById('packSpot'+packNum);
+            if(packSpot.innerHTML == '') break;
+        }
     }
+    else packSpot = document.getElementById('packSpot'+packNum);
 
-    // Retreive info from database...
-    var objData = eval("(" + req.sendRequest(null, "GET", "objectQuery?id="+itemID + "&type=items", false) + ")");
+    // Retreive info, loaded with the map unless it is new...
+    var objData = game.gameDraw.getObject('items', itemID);
 
     // Create new item.
     var newItem = document.createElement("div");
@@ -713,6 +844,7 @@ Pack.prototype.addItem = function(itemID) {
 
     // Place item into spot.
     packSpot.appendChild(newItem);
+    return packNum;
 };
 
 //===============================================
@@ -746,11 +878,18 @@ Pack.prototype._drag = function(targetObj, posX, posY, event) {
 //===============================================
 // dropItem
 /**
- * <TODO> Supposed to do 'things' when the user selects the
- * drop option.
- * @param {int} spotID Spot to drop item from.
- */
-Pack.prototype.dropItem = function(spotID) {};
+ * Empties a spot when the user selects the drop option, and saves it
+ * on the server.
+ * @param {String} spotID Spot to drop item from.
+ */
+Pack.prototype.dropItem = function(spotID) {
+    var packSpot = document.getElementById(spotID);
+    if(!packSpot || packSpot.innerHTML == '')
+        return;
+    
+    packSpot.innerHTML = '';
+    game.saveChange("op=put&slot=" + spotID.substring(8) + "&item=0");
+};
 
 //===============================================
 // _mouseDown
@@ -825,8 +964,12 @@ Pack.prototype._mouseUp = function(kc, targetObj, posX, posY, event) {
 
             // If packSpot actually exists and is empty, move item there.
             if(packSpot && packSpot.innerHTML == '') {
+                var from = dragObj.parentNode.id.substring(8);
                 packSpot.innerHTML = packDND.innerHTML;
                 dragObj.parentNode.innerHTML = '';
+
+                // Save the move on the server.
+                game.saveChange("op=swap&from=" + from + "&to=" + packNum);
             }
             // Else don't do anything.
             else dragObj.style.visibility = 'visible';
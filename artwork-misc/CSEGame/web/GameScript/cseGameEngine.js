@@ -12,6 +12,12 @@ var animObjs    = [];
 /** List of NPCs to animate and keep track of @member GameEngine @private @type {Array} */
 var npcObjs     = [];
 
+/** NPC spawn points, [id, x, y] each. @member GameEngine @private @type {Array} */
+var npcSpawns   = [[1, 30, 29]];
+
+/** Sends the player's moves to the server. @member GameEngine @private @type {HttpRequestWrapper} */
+var playerSender = new HttpRequestWrapper();
+
 /**
  * Create a new GameEngine object. Call Initialize to prepare the GameEngine
  *  for it's tasks. Calling the start() function will power up the GameEngine and
@@ -32,7 +38,13 @@ GameEngine.prototype =  {
     /** Public access to ScriptEngine object  @type {ScriptEngine} */
     sEngine:        null,
     /** Public access to Player object  @type {Player} */
-    player:         null
+    player:         null,
+    /** Position last saved on the server @private @type {String} */
+    savedPos:       null,
+    /** Top left corner map the player is on @private @type {String} */
+    mapName:        null,
+    /** Calls to run since the position was last checked @private @type {int} */
+    saveTick:       0
 };
 
 /**
@@ -72,20 +84,78 @@ GameEngine.prototype.addSpawnPoint = function(id, x, y) {
  * add objects, etc) and also prepares the Player object.
  */
 GameEngine.prototype.loadMap = function() {
-    // Retrieve Player's location... TODO: Retrieve from database...
+    // Retrieve Player's saved location and pack.
     // [0]   - Top left corner map (Other maps are retrieve based on that map)
     // [1-2] - Global Pos
     // [3-4] - Local Pos
-    var posData = "map0001.json:1:1:9:9";
+    var name = this.getUserName();
+    var saved = req.sendRequest(null, "GET", "player?user=" + name, false);
+    var state = (saved && saved.charAt(0) == '{') ? eval("(" + saved + ")") : null;
+    var posData = state ? state.pos : "map0001.json:1:1:9:9";
+    this.savedPos = posData;
     
     // Get map sections
     posData = posData.split(':');
     
-    // Start loading map pieces.
-    this.gameDraw.loadMap(posData[0]);
+    // Start loading map pieces, with the NPCs and pack items in the same request.
+    var npcs = [], items = [];
+    for(var i = 0; i < npcSpawns.length; i++)
+        npcs.push(npcSpawns[i][0]);
+    for(var i = 0; state && i < state.pack.length; i++)
+        items.push(state.pack[i][1]);
+    this.gameDraw.loadMap(posData[0], npcs, items);
 
     // Prepare Player object. (mapPieces[9-12] hold the (server) saved position of the player.
     this.player = new Player(posData[1], posData[2], posData[3], posData[4]);
+    this.player.name = name;
+    this.mapName = posData[0];
+
+    if(state)   pack.load(state.pack);
+};
+
+/**
+ * Name the player plays as: the page's user parameter, or a guest name.
+ * @return {String} player name
+ */
+GameEngine.prototype.getUserName = function() {
+    var user = /[?&]user=([A-Za-z0-9_\-]+)/.exec(window.location.search);
+    return user ? user[1] : "Player" + Math.floor(Math.random()*10);
+};
+
+/**
+ * Saves the player's position on the server if it has changed. The server
+ * keeps it in memory and writes it out in batches, so this is cheap.
+ * @private
+ */
+GameEngine.prototype.savePosition = function() {
+    var p = this.player;
+    var pos = this.mapName + ":" + p.getGlobalX() + ":" + p.getGlobalY() + ":" + p.getLocalX() + ":" + p.getLocalY();
+
+    if(pos == this.savedPos)
+        return;
+
+    this.savedPos = pos;
+    playerSender.sendRequest(new Function(" "), "POST", "player?user=" + p.name + "&op=pos&map=" + this.mapName +
+        "&gx=" + p.getGlobalX() + "&gy=" + p.getGlobalY() + "&lx=" + p.getLocalX() + "&ly=" + p.getLocalY(), true);
+};
+
+/**
+ * Sends a change to the player's pack to the server, e.g. "op=put&slot=0&item=1".
+ * Each change goes on its own request, so one still on its way is not
+ * cancelled by the next.
+ * @param {String} change op and its parameters.
+ */
+GameEngine.prototype.saveChange = function(change) {
+    new HttpRequestWrapper().sendRequest(new Function(" "), "POST", "player?user=" + this.player.name + "&" + change, true);
+};
+
+/**
+ * Logs the player out, so the server writes out their position and pack
+ * before the page goes away.
+ */
+GameEngine.prototype.logout = function() {
+    if(this.player)
+        new HttpRequestWrapper().sendRequest(null, "POST", "player?user=" + this.player.name + "&op=logout", false);
 };
 
 /**
@@ -93,7 +163,8 @@ GameEngine.prototype.loadMap = function() {
  */
 GameEngine.prototype.loadNPC = function() {
     // Draws an NPC on screen. Interaction depends on NPC type.
-    this.addSpawnPoint(1, 30, 29);
+    for(var i = 0; i < npcSpawns.length; i++)
+        this.addSpawnPoint(npcSpawns[i][0], npcSpawns[i][1], npcSpawns[i][2]);
 };
 
 /**
@@ -196,6 +267,12 @@ GameEngine.prototype.run = function() {
         frameNum++;
         npc.setAttribute('frameNum', frameNum);
     }
+
+    // Save position every few seconds.
+    if(++game.saveTick >= 6) {
+        game.saveTick = 0;
+        game.savePosition();
+    }
 };
 
 /** Does the calculations involved in player movement @member GameEngine @private */
@@ -62,6 +62,9 @@ function loadMap2()
     game.gameDraw.setStatus(null);
     game.start();
     
+    // Save the player when they leave.
+    window.onunload = function() { game.logout(); };
+    
     //console.chatHandler.startUpdate();
     
     log("Total Load Time: " + ((new Date()).getTime() - bMark.getTime()) + "ms");
@@ -262,7 +262,11 @@ ScriptEngine.prototype = {
     /** Pathfinder @private @type {Astar} */
     _pathFinder:    new Astar(),
     /** Movement thread ID @private @type {long} */
-    _smThread:      null
+    _smThread:      null,
+    /** Compiled scripts, keyed by 's' + script @private @type {Object} */
+    _compiled:      {},
+    /** Locals of execScript handed to every script, in order @private @type {Array} */
+    _scope:         ['script', 'objOption', 'objNum', 'obj', 'player', 'disp', 'id', 'gY', 'gX']
 };    
 
 //===============================================
@@ -275,8 +279,8 @@ ScriptEngine.prototype = {
  */
 ScriptEngine.prototype.execScript = function(script, objOption, objNum) {
     // Retrieve info for easy access for script.
-    // Technically, the script can use any variable available to ScriptEngine, but
-    // storing them in local vars makes script writing easier.      
+    // The script runs with 'this' set to the ScriptEngine and sees every local
+    // of this function (see _scope), as it did when it was eval'd in place.
 
     // Prepare easy-access variables for script.  
     var obj = null;
@@ -315,7 +319,26 @@ ScriptEngine.prototype.execScript = function(script, objOption, objNum) {
 
     console.logClr("Running Script", console.MSG_SYSTEM);
 
-    eval(decodeURIComponent(script));    
+    this._compile(script).call(this, script, objOption, objNum, obj, player, disp, id, gY, gX);
+};
+
+//===============================================
+// _compile
+/**
+ * Returns a script as a function of the names in _scope. Each script is
+ * only decoded and parsed the first time it runs.
+ * @private
+ * @param {String} script script to compile.
+ */
+ScriptEngine.prototype._compile = function(script) {
+    var fn = this._compiled['s' + script];
+
+    if(!fn) {
+        fn = Function.apply(null, this._scope.concat(decodeURIComponent(script)));
+        this._compiled['s' + script] = fn;
+    }
+
+    return fn;
 };
 
 //===============================================
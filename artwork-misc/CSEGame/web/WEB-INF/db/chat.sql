@@ -0,0 +1,10 @@
+-- Chat message table, created when the chat pool runs HSQLDB in-process
+-- (cseGame.db.chat.mode = file or mem) and the database is empty.
+-- ChatStore adds the (TIME, DEST) index itself.
+
+CREATE TABLE MSG (
+    NAME VARCHAR(32),
+    DEST VARCHAR(32),
+    TIME BIGINT,
+    MSG VARCHAR(512)
+);
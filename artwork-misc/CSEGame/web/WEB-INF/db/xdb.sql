@@ -0,0 +1,47 @@
+-- Object catalog tables, created when the xdb pool runs HSQLDB in-process
+-- (cseGame.db.xdb.mode = file or mem) and the database is empty.
+
+CREATE TABLE ITEMS (
+    ITEMID INT PRIMARY KEY,
+    NAME VARCHAR(64),
+    OPTIONS VARCHAR(256),
+    SCRIPT VARCHAR(4096),
+    FLAGS VARCHAR(32)
+);
+
+CREATE TABLE MAPOBJECT (
+    ID INT PRIMARY KEY,
+    NAME VARCHAR(64),
+    OPTIONS VARCHAR(256),
+    SCRIPT VARCHAR(4096),
+    FLAGS VARCHAR(32)
+);
+
+CREATE TABLE NPCS (
+    ID INT PRIMARY KEY,
+    NAME VARCHAR(64),
+    OPTIONS VARCHAR(256),
+    SCRIPT VARCHAR(4096),
+    FLAGS VARCHAR(32)
+);
+
+-- Player position and pack, written back by PlayerStore, which also
+-- creates these tables in a database that lacks them.
+
+CREATE CACHED TABLE PLAYERS (
+    NAME VARCHAR(32) PRIMARY KEY,
+    MAP VARCHAR(64),
+    GX INT,
+    GY INT,
+    LX INT,
+    LY INT,
+    SAVED BIGINT
+);
+
+CREATE CACHED TABLE PLAYER_PACK (
+    NAME VARCHAR(32),
+    SLOT INT,
+    ITEMID INT,
+    QTY INT,
+    PRIMARY KEY (NAME, SLOT)
+);
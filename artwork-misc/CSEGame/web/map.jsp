@@ -18,7 +18,7 @@
     <script type="text/javascript" src="GameScript/cseGameMisc.js"></script>    
     
     <style type="text/css">
-        <%= new SpriteLoader(getServletContext().getRealPath("GameData/sprites.xml")).toString() %>
+        <%= SpriteLoader.getStyles(application, application.getRealPath("GameData/sprites.xml")) %>
         .player1{ background-image: url(Images/player1.png); width: 192px; height: 36px; }
         .player2{ background-image: url(Images/player2.png); width: 192px; height: 36px; }
         .player3{ background-image: url(Images/player3.png); width: 192px; height: 36px; }